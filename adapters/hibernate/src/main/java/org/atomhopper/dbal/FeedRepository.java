@@ -6,6 +6,7 @@ import org.atomhopper.adapter.jpa.PersistedFeed;
 import org.atomhopper.hibernate.query.CategoryCriteriaGenerator;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -32,5 +33,35 @@ public interface FeedRepository {
 
     Set<PersistedCategory> updateCategories(Set<PersistedCategory> categories);
 
+    /**
+     * Stores a new entry together with any feed and category rows it needs, in one transaction.
+     *
+     * @param categoryTerms the terms of the entry's categories
+     * @param checkForDuplicate look the entry id up first
+     *
+     * @return false if checkForDuplicate found an entry with the same id in the feed
+     */
+    boolean saveNewEntry(PersistedEntry entry, Set<String> categoryTerms, boolean checkForDuplicate);
+
     PersistedEntry getNextMarker(PersistedEntry persistedEntry, String feedName, CategoryCriteriaGenerator criteriaGenerator);
+
+    /**
+     * @return the entry at the given position of the feed, counting from 0 for the newest,
+     * null if the feed is shorter
+     */
+    PersistedEntry getEntryAt(String feedName, int position);
+
+    /**
+     * Counts the entries ordered before (cutoffDate, cutoffId) in the feed's (dateLastUpdated, entryId)
+     * order. A cutoffId of "" counts the entries older than cutoffDate.
+     */
+    long countEntriesBefore(String feedName, Date cutoffDate, String cutoffId);
+
+    /**
+     * Deletes the oldest batchSize entries before (cutoffDate, cutoffId), with their category
+     * references, in one transaction.
+     *
+     * @return the number of entries deleted
+     */
+    int deleteEntriesBefore(String feedName, Date cutoffDate, String cutoffId, int batchSize);
 }
@@ -1,6 +1,7 @@
 package org.atomhopper.hibernate;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import org.atomhopper.adapter.jpa.PersistedCategory;
 import org.atomhopper.adapter.jpa.PersistedEntry;
 import org.atomhopper.adapter.jpa.PersistedFeed;
@@ -9,13 +10,16 @@ import org.atomhopper.dbal.FeedRepository;
 import org.atomhopper.dbal.PageDirection;
 import org.atomhopper.hibernate.actions.ComplexSessionAction;
 import org.atomhopper.hibernate.actions.SimpleSessionAction;
+import org.atomhopper.hibernate.actions.StatelessSessionAction;
 import org.atomhopper.hibernate.query.CategoryCriteriaGenerator;
-import org.hibernate.Criteria;
+import org.atomhopper.util.ExpiringCache;
+import org.hibernate.Query;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
-import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,13 +27,66 @@ public class HibernateFeedRepository implements FeedRepository {
 
     private static final Logger LOG = LoggerFactory.getLogger(HibernateFeedRepository.class);
     private final HibernateSessionManager sessionManager;
-    private static final String DATE_LAST_UPDATED = "dateLastUpdated";
     private static final String FEED_NAME = "feed.name";
+    private static final String IN_CATEGORIES = "InCategories";
+
+    // Feed names and category terms known to have rows, so posts can reference them without a SELECT
+    private final Set<String> knownFeeds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> knownCategoryTerms = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private int maxKnownCategoryTerms = 100000;
+
+    // Feed ids by name and the category terms of each feed, served until they expire; the
+    // entities handed out are built afresh from them so callers cannot change what is cached
+    private static final String ALL_FEEDS = "";
+    private final ExpiringCache<String, String> feedIdCache = new ExpiringCache<String, String>(60000);
+    private final ExpiringCache<String, Map<String, String>> allFeedsCache = new ExpiringCache<String, Map<String, String>>(60000);
+    private final ExpiringCache<String, Set<String>> categoryTermsCache = new ExpiringCache<String, Set<String>>(60000);
+
+    // Recent feed heads by feed, search and page size
+    private final ExpiringCache<String, List<CachedEntry>> feedHeadCache = new ExpiringCache<String, List<CachedEntry>>(0);
+    private int maxCachedFeedHeads = 1000;
 
     public HibernateFeedRepository(Map<String, String> parameters) {
         sessionManager = new HibernateSessionManager(parameters);
     }
 
+    /**
+     * Bounds the number of category terms remembered for saveNewEntry; terms past it are looked up on every post.
+     */
+    public void setMaxKnownCategoryTerms(int maxKnownCategoryTerms) {
+        this.maxKnownCategoryTerms = maxKnownCategoryTerms;
+    }
+
+    /**
+     * How long getFeed and getAllFeeds results are reused, 0 disables caching.
+     */
+    public void setFeedCacheTtlInSeconds(long feedCacheTtlInSeconds) {
+        feedIdCache.setTtlInMillis(feedCacheTtlInSeconds * 1000);
+        allFeedsCache.setTtlInMillis(feedCacheTtlInSeconds * 1000);
+    }
+
+    /**
+     * How long the category terms of a feed are reused, 0 disables caching.
+     * Terms of entries stored through saveNewEntry are added to the cached terms right away.
+     */
+    public void setCategoriesCacheTtlInSeconds(long categoriesCacheTtlInSeconds) {
+        categoryTermsCache.setTtlInMillis(categoriesCacheTtlInSeconds * 1000);
+    }
+
+    /**
+     * How long a feed head is reused for the same search and page size, 0 (the default)
+     * disables caching. Entries stored through this repository drop the cached heads of
+     * their feed; entries stored by other nodes show up once the head expires. Entries
+     * of a cached head carry their id, body and dates.
+     */
+    public void setFeedHeadCacheTtlInMillis(long feedHeadCacheTtlInMillis) {
+        feedHeadCache.setTtlInMillis(feedHeadCacheTtlInMillis);
+    }
+
+    public void setMaxCachedFeedHeads(int maxCachedFeedHeads) {
+        this.maxCachedFeedHeads = maxCachedFeedHeads;
+    }
+
     public void performSimpleAction(SimpleSessionAction action) {
         final long begin = System.currentTimeMillis();
         LOG.debug("~!$: Simple Action Session begin: " + begin);
@@ -101,69 +158,125 @@ public class HibernateFeedRepository implements FeedRepository {
         }
     }
 
+    /**
+     * Runs a read in a stateless session, the entities it returns are never dirty checked
+     * or held in a persistence context.
+     */
+    public <T> T performReadOnlyAction(StatelessSessionAction<T> action) {
+        final StatelessSession session = sessionManager.getStatelessSession();
+
+        try {
+            return action.perform(session);
+        } catch (Exception ex) {
+            throw new AtomDatabaseException("Failure performing hibernate action: " + action.toString(), ex);
+        } finally {
+            session.close();
+        }
+    }
+
     @Override
     public Set<PersistedCategory> getCategoriesForFeed(final String feedName) {
-        return performComplexAction(new ComplexSessionAction<Set<PersistedCategory>>() {
+        Set<String> terms = categoryTermsCache.get(feedName);
 
-            @Override
-            public Set<PersistedCategory> perform(Session liveSession) {
-                final PersistedFeed persistedFeed = (PersistedFeed) liveSession.createCriteria(PersistedFeed.class).add(Restrictions.idEq(feedName)).uniqueResult();
-                final Set<PersistedCategory> categories = new HashSet<PersistedCategory>();
+        if (terms == null) {
+            terms = getCategoryTermsForFeed(feedName);
+            categoryTermsCache.put(feedName, terms);
+        }
 
-                if (persistedFeed != null) {
-                    for (PersistedEntry entry : persistedFeed.getEntries()) {
-                        categories.addAll(entry.getCategories());
-                    }
-                }
+        final Set<PersistedCategory> categories = new HashSet<PersistedCategory>();
+
+        for (String term : terms) {
+            categories.add(new PersistedCategory(term));
+        }
+
+        return categories;
+    }
+
+    private Set<String> getCategoryTermsForFeed(final String feedName) {
+        return performComplexActionNonTransactionable(new ComplexSessionAction<Set<String>>() {
 
-                return categories;
+            @Override
+            public Set<String> perform(Session liveSession) {
+                final List<String> terms = liveSession
+                        .createQuery("select distinct category.term from PersistedEntry entry join entry.categories category"
+                                + " where entry.feed.name = :feedName")
+                        .setParameter("feedName", feedName).list();
+
+                return Collections.unmodifiableSet(new HashSet<String>(terms));
             }
         });
     }
 
     @Override
     public List<PersistedEntry> getFeedHead(final String feedName, final CategoryCriteriaGenerator criteriaGenerator, final int pageSize) {
-        return performComplexActionNonTransactionable(new ComplexSessionAction<List<PersistedEntry>>() {
+        final String cacheKey = feedName + '\n' + pageSize + '\n' + criteriaGenerator.getInclusionTerms();
+        final List<CachedEntry> cached = feedHeadCache.get(cacheKey);
 
-            @Override
-            public List<PersistedEntry> perform(Session liveSession) {
-                final List<PersistedEntry> feedHead = new LinkedList<PersistedEntry>();
+        if (cached != null) {
+            final List<PersistedEntry> feedHead = new LinkedList<PersistedEntry>();
 
-                final Criteria criteria = liveSession.createCriteria(PersistedEntry.class).add(Restrictions.eq(FEED_NAME, feedName));
-                criteriaGenerator.enhanceCriteria(criteria);
+            for (CachedEntry entry : cached) {
+                feedHead.add(entry.toPersistedEntry());
+            }
 
-                criteria.setMaxResults(pageSize).addOrder(Order.desc(DATE_LAST_UPDATED));
+            return feedHead;
+        }
 
-                feedHead.addAll(criteria.list());
+        final List<PersistedEntry> feedHead = performReadOnlyAction(new StatelessSessionAction<List<PersistedEntry>>() {
 
-                return feedHead;
+            @Override
+            public List<PersistedEntry> perform(StatelessSession liveSession) {
+                return new LinkedList<PersistedEntry>(feedQuery(liveSession, "feedHead", feedName, criteriaGenerator)
+                        .setMaxResults(pageSize).list());
             }
         });
+
+        if (feedHeadCache.getTtlInMillis() > 0 && feedHeadCache.size() < maxCachedFeedHeads) {
+            final List<CachedEntry> snapshot = new ArrayList<CachedEntry>(feedHead.size());
+
+            for (PersistedEntry entry : feedHead) {
+                snapshot.add(new CachedEntry(entry));
+            }
+
+            feedHeadCache.put(cacheKey, Collections.unmodifiableList(snapshot));
+        }
+
+        return feedHead;
+    }
+
+    private void evictFeedHeads(String feedName) {
+        if (feedHeadCache.isEmpty()) {
+            return;
+        }
+
+        final String prefix = feedName + '\n';
+
+        for (Iterator<String> cacheKeys = feedHeadCache.keySet().iterator(); cacheKeys.hasNext(); ) {
+            if (cacheKeys.next().startsWith(prefix)) {
+                cacheKeys.remove();
+            }
+        }
     }
 
     @Override
     public List<PersistedEntry> getFeedPage(final String feedName, final PersistedEntry markerEntry, final PageDirection direction,
                                             final CategoryCriteriaGenerator criteriaGenerator, final int pageSize) {
-        return performComplexActionNonTransactionable(new ComplexSessionAction<List<PersistedEntry>>() {
+        return performReadOnlyAction(new StatelessSessionAction<List<PersistedEntry>>() {
 
             @Override
-            public List<PersistedEntry> perform(Session liveSession) {
+            public List<PersistedEntry> perform(StatelessSession liveSession) {
                 final LinkedList<PersistedEntry> feedPage = new LinkedList<PersistedEntry>();
 
-                final Criteria criteria = liveSession.createCriteria(PersistedEntry.class).add(Restrictions.eq(FEED_NAME, feedName));
-                criteriaGenerator.enhanceCriteria(criteria);
-                criteria.setMaxResults(pageSize);
-
                 switch (direction) {
                     case FORWARD:
-                        criteria.add(Restrictions.gt(DATE_LAST_UPDATED, markerEntry.getCreationDate())).addOrder(Order.asc(DATE_LAST_UPDATED));
-                        feedPage.addAll(criteria.list());
+                        feedPage.addAll(pageQuery(liveSession, "feedPageForward", feedName, markerEntry, criteriaGenerator)
+                                .setMaxResults(pageSize).list());
                         Collections.reverse(feedPage);
                         break;
 
                     case BACKWARD:
-                        criteria.add(Restrictions.le(DATE_LAST_UPDATED, markerEntry.getCreationDate())).addOrder(Order.desc(DATE_LAST_UPDATED));
-                        feedPage.addAll(criteria.list());
+                        feedPage.addAll(pageQuery(liveSession, "feedPageBackward", feedName, markerEntry, criteriaGenerator)
+                                .setMaxResults(pageSize).list());
                         break;
                 }
 
@@ -181,6 +294,8 @@ public class HibernateFeedRepository implements FeedRepository {
                 liveSession.persist(feed);
             }
         });
+
+        allFeedsCache.clear();
     }
 
     @Override
@@ -224,57 +339,244 @@ public class HibernateFeedRepository implements FeedRepository {
                 liveSession.save(entry);
             }
         });
+
+        evictFeedHeads(entry.getFeed().getName());
     }
 
     @Override
-    public Collection<PersistedFeed> getAllFeeds() {
-        return performComplexActionNonTransactionable(new ComplexSessionAction<Collection<PersistedFeed>>() {
+    public boolean saveNewEntry(final PersistedEntry entry, final Set<String> categoryTerms, final boolean checkForDuplicate) {
+        final String feedName = entry.getFeed().getName();
+        final String feedId = entry.getFeed().getFeedId();
+        boolean saved;
+
+        try {
+            saved = saveNewEntryInTransaction(entry, feedName, feedId, categoryTerms, checkForDuplicate);
+        } catch (AtomDatabaseException dbEx) {
+            if (!(dbEx.getCause() instanceof ReferenceRowConflict)) {
+                throw dbEx;
+            }
+
+            // Someone else inserted one of the feed or category rows first, it can be referenced now
+            LOG.debug("Feed or category row inserted concurrently, saving entry " + entry.getEntryId() + " again");
+            saved = saveNewEntryInTransaction(entry, feedName, feedId, categoryTerms, checkForDuplicate);
+        }
+
+        if (saved) {
+            // The feed may have been created with this entry
+            evictFeedHeads(feedName);
+
+            if (knownFeeds.add(feedName)) {
+                allFeedsCache.clear();
+            }
+
+            addCachedCategoryTerms(feedName, categoryTerms);
+
+            for (String term : categoryTerms) {
+                if (knownCategoryTerms.size() >= maxKnownCategoryTerms) {
+                    break;
+                }
+
+                knownCategoryTerms.add(term);
+            }
+        }
+
+        return saved;
+    }
+
+    private boolean saveNewEntryInTransaction(final PersistedEntry entry, final String feedName, final String feedId,
+                                              final Set<String> categoryTerms, final boolean checkForDuplicate) {
+        return performComplexAction(new ComplexSessionAction<Boolean>() {
 
             @Override
-            public Collection<PersistedFeed> perform(Session liveSession) {
-                return liveSession.createCriteria(PersistedFeed.class).list();
+            public Boolean perform(Session liveSession) {
+                if (checkForDuplicate && liveSession.createCriteria(PersistedEntry.class)
+                        .add(Restrictions.idEq(entry.getEntryId())).add(Restrictions.eq(FEED_NAME, feedName)).uniqueResult() != null) {
+                    return false;
+                }
+
+                boolean insertedReferences = false;
+                PersistedFeed feed;
+
+                if (knownFeeds.contains(feedName)) {
+                    feed = (PersistedFeed) liveSession.load(PersistedFeed.class, feedName);
+                } else {
+                    feed = (PersistedFeed) liveSession.get(PersistedFeed.class, feedName);
+
+                    if (feed == null) {
+                        feed = new PersistedFeed(feedName, feedId);
+                        liveSession.save(feed);
+                        insertedReferences = true;
+                    }
+                }
+
+                final List<String> unknownTerms = new ArrayList<String>();
+
+                for (String term : categoryTerms) {
+                    if (!knownCategoryTerms.contains(term)) {
+                        unknownTerms.add(term);
+                    }
+                }
+
+                if (!unknownTerms.isEmpty()) {
+                    final List<String> existingTerms = liveSession
+                            .createQuery("select category.term from PersistedCategory category where category.term in (:terms)")
+                            .setParameterList("terms", unknownTerms).list();
+
+                    for (String term : unknownTerms) {
+                        if (!existingTerms.contains(term)) {
+                            liveSession.save(new PersistedCategory(term));
+                            insertedReferences = true;
+                        }
+                    }
+                }
+
+                if (insertedReferences) {
+                    try {
+                        liveSession.flush();
+                    } catch (ConstraintViolationException cve) {
+                        throw new ReferenceRowConflict(cve);
+                    }
+                }
+
+                // Categories are referenced through uninitialized proxies; an identity set keeps
+                // PersistedCategory.hashCode from loading each of them
+                final Set<PersistedCategory> categories = Collections.newSetFromMap(new IdentityHashMap<PersistedCategory, Boolean>());
+
+                for (String term : categoryTerms) {
+                    categories.add((PersistedCategory) liveSession.load(PersistedCategory.class, term));
+                }
+
+                entry.setFeed(feed);
+                entry.setCategories(categories);
+                liveSession.save(entry);
+
+                return true;
             }
         });
     }
 
+    private static final class ReferenceRowConflict extends RuntimeException {
+
+        private ReferenceRowConflict(ConstraintViolationException cause) {
+            super(cause);
+        }
+    }
+
+    @Override
+    public Collection<PersistedFeed> getAllFeeds() {
+        Map<String, String> feedIds = allFeedsCache.get(ALL_FEEDS);
+
+        if (feedIds == null) {
+            final Collection<PersistedFeed> feeds = performComplexActionNonTransactionable(new ComplexSessionAction<Collection<PersistedFeed>>() {
+
+                @Override
+                public Collection<PersistedFeed> perform(Session liveSession) {
+                    return liveSession.createCriteria(PersistedFeed.class).list();
+                }
+            });
+
+            feedIds = new LinkedHashMap<String, String>();
+
+            for (PersistedFeed feed : feeds) {
+                feedIds.put(feed.getName(), feed.getFeedId());
+            }
+
+            feedIds = Collections.unmodifiableMap(feedIds);
+            allFeedsCache.put(ALL_FEEDS, feedIds);
+        }
+
+        final List<PersistedFeed> feeds = new ArrayList<PersistedFeed>(feedIds.size());
+
+        for (Map.Entry<String, String> feedId : feedIds.entrySet()) {
+            feeds.add(new PersistedFeed(feedId.getKey(), feedId.getValue()));
+        }
+
+        return feeds;
+    }
+
     @Override
     public PersistedEntry getEntry(final String entryId, final String feedName) {
-        return performComplexActionNonTransactionable(new ComplexSessionAction<PersistedEntry>() {
+        return performReadOnlyAction(new StatelessSessionAction<PersistedEntry>() {
 
             @Override
-            public PersistedEntry perform(Session liveSession) {
-                return (PersistedEntry) liveSession.createCriteria(PersistedEntry.class)
-                        .add(Restrictions.idEq(entryId)).add(Restrictions.eq("feed.name", feedName)).uniqueResult();
+            public PersistedEntry perform(StatelessSession liveSession) {
+                return (PersistedEntry) liveSession.getNamedQuery("entry")
+                        .setString("entryId", entryId).setString("feedName", feedName).uniqueResult();
             }
         });
     }
 
     @Override
     public PersistedFeed getFeed(final String name) {
-        return performComplexActionNonTransactionable(new ComplexSessionAction<PersistedFeed>() {
+        final String feedId = feedIdCache.get(name);
+
+        if (feedId != null) {
+            return new PersistedFeed(name, feedId);
+        }
+
+        final PersistedFeed feed = performComplexActionNonTransactionable(new ComplexSessionAction<PersistedFeed>() {
 
             @Override
             public PersistedFeed perform(Session liveSession) {
                 return (PersistedFeed) liveSession.createCriteria(PersistedFeed.class).add(Restrictions.idEq(name)).uniqueResult();
             }
         });
+
+        // Feeds that do not exist yet are looked up again, they appear with their first entry
+        if (feed != null && feed.getFeedId() != null) {
+            feedIdCache.put(name, feed.getFeedId());
+        }
+
+        return feed;
+    }
+
+    private void addCachedCategoryTerms(String feedName, Set<String> categoryTerms) {
+        Set<String> cachedTerms = categoryTermsCache.get(feedName);
+
+        while (cachedTerms != null && !cachedTerms.containsAll(categoryTerms)) {
+            final Set<String> terms = new HashSet<String>(cachedTerms);
+            terms.addAll(categoryTerms);
+
+            if (categoryTermsCache.replace(feedName, cachedTerms, Collections.unmodifiableSet(terms))) {
+                return;
+            }
+
+            cachedTerms = categoryTermsCache.get(feedName);
+        }
+    }
+
+    private static final class CachedEntry {
+
+        private final String entryId;
+        private final String entryBody;
+        private final long creationDate;
+        private final long dateLastUpdated;
+
+        private CachedEntry(PersistedEntry entry) {
+            this.entryId = entry.getEntryId();
+            this.entryBody = entry.getEntryBody();
+            this.creationDate = entry.getCreationDate().getTime();
+            this.dateLastUpdated = entry.getDateLastUpdated().getTime();
+        }
+
+        private PersistedEntry toPersistedEntry() {
+            final PersistedEntry entry = new PersistedEntry(entryId);
+            entry.setEntryBody(entryBody);
+            entry.setCreationDate(new Date(creationDate));
+            entry.setDateLastUpdated(new Date(dateLastUpdated));
+
+            return entry;
+        }
     }
 
     @Override
     public List<PersistedEntry> getLastPage(final String feedName, final int pageSize, final CategoryCriteriaGenerator criteriaGenerator) {
 
-        return performComplexActionNonTransactionable(new ComplexSessionAction<List<PersistedEntry>>() {
+        return performReadOnlyAction(new StatelessSessionAction<List<PersistedEntry>>() {
 
             @Override
-            public List<PersistedEntry> perform(Session liveSession) {
-                Criteria criteria = liveSession.createCriteria(PersistedEntry.class)
-                        .add(Restrictions.eq(FEED_NAME, feedName))
-                        .addOrder(Order.asc(DATE_LAST_UPDATED))
-                        .setMaxResults(pageSize);
-
-                criteriaGenerator.enhanceCriteria(criteria);
-
-                List<PersistedEntry> entries = criteria.list();
+            public List<PersistedEntry> perform(StatelessSession liveSession) {
+                List<PersistedEntry> entries = feedQuery(liveSession, "lastPage", feedName, criteriaGenerator).setMaxResults(pageSize).list();
 
                 return entries.size() > 0 ? entries : null;
             }
@@ -284,24 +586,91 @@ public class HibernateFeedRepository implements FeedRepository {
     @Override
     public PersistedEntry getNextMarker(final PersistedEntry persistedEntry, final String feedName, final CategoryCriteriaGenerator criteriaGenerator) {
 
-        return performComplexActionNonTransactionable(new ComplexSessionAction<PersistedEntry>() {
+        return performReadOnlyAction(new StatelessSessionAction<PersistedEntry>() {
+
+            @Override
+            public PersistedEntry perform(StatelessSession liveSession) {
+                List<PersistedEntry> entries = pageQuery(liveSession, "nextMarker", feedName, persistedEntry, criteriaGenerator)
+                        .setMaxResults(1).list();
+
+                return entries.size() > 0 ? entries.get(0) : null;
+            }
+        });
+    }
+
+    @Override
+    public PersistedEntry getEntryAt(final String feedName, final int position) {
+        return performReadOnlyAction(new StatelessSessionAction<PersistedEntry>() {
+
+            @Override
+            public PersistedEntry perform(StatelessSession liveSession) {
+                List<PersistedEntry> entries = liveSession.getNamedQuery("feedHead").setString("feedName", feedName)
+                        .setFirstResult(position).setMaxResults(1).list();
+
+                return entries.size() > 0 ? entries.get(0) : null;
+            }
+        });
+    }
+
+    @Override
+    public long countEntriesBefore(final String feedName, final Date cutoffDate, final String cutoffId) {
+        return performReadOnlyAction(new StatelessSessionAction<Long>() {
 
             @Override
-            public PersistedEntry perform(Session liveSession) {
-                Criteria criteria = liveSession.createCriteria(PersistedEntry.class);
+            public Long perform(StatelessSession liveSession) {
+                return ((Number) liveSession.getNamedQuery("countEntriesBefore").setString("feedName", feedName)
+                        .setTimestamp("cutoffDate", cutoffDate).setString("cutoffId", cutoffId).uniqueResult()).longValue();
+            }
+        });
+    }
 
-                criteria.add(Restrictions.eq(FEED_NAME, feedName))
-                        .add(Restrictions.lt(DATE_LAST_UPDATED, persistedEntry.getCreationDate()))
-                        .addOrder(Order.desc(DATE_LAST_UPDATED))
-                        .setMaxResults(1);
+    @Override
+    public int deleteEntriesBefore(final String feedName, final Date cutoffDate, final String cutoffId, final int batchSize) {
+        final int deleted = performComplexAction(new ComplexSessionAction<Integer>() {
 
-                criteriaGenerator.enhanceCriteria(criteria);
+            @Override
+            public Integer perform(Session liveSession) {
+                final List<String> entryIds = liveSession.getNamedQuery("entryIdsBefore").setString("feedName", feedName)
+                        .setTimestamp("cutoffDate", cutoffDate).setString("cutoffId", cutoffId).setMaxResults(batchSize).list();
 
-                List<PersistedEntry> entries = criteria.list();
+                if (entryIds.isEmpty()) {
+                    return 0;
+                }
 
-                return entries.size() > 0 ? (PersistedEntry) entries.get(0) : null;
+                // HQL bulk deletes skip the join table, its rows go first
+                liveSession.getNamedQuery("deleteCategoryReferences").setParameterList("entryIds", entryIds).executeUpdate();
+                return liveSession.getNamedQuery("deleteEntries").setParameterList("entryIds", entryIds).executeUpdate();
             }
         });
+
+        if (deleted > 0) {
+            evictFeedHeads(feedName);
+        }
+
+        return deleted;
+    }
+
+    /*
+     * The named queries live in feed-queries.hbm.xml. Categories are not fetched, the
+     * feed source only hydrates the stored entry body.
+     */
+    private static Query feedQuery(StatelessSession liveSession, String queryName, String feedName, CategoryCriteriaGenerator criteriaGenerator) {
+        final List<String> terms = criteriaGenerator.getInclusionTerms();
+        final Query query = liveSession.getNamedQuery(terms.isEmpty() ? queryName : queryName + IN_CATEGORIES)
+                .setString("feedName", feedName);
+
+        if (!terms.isEmpty()) {
+            query.setParameterList("terms", terms);
+        }
+
+        return query;
+    }
+
+    private static Query pageQuery(StatelessSession liveSession, String queryName, String feedName, PersistedEntry marker,
+                                   CategoryCriteriaGenerator criteriaGenerator) {
+        return feedQuery(liveSession, queryName, feedName, criteriaGenerator)
+                .setTimestamp("markerDate", marker.getDateLastUpdated())
+                .setString("markerId", marker.getEntryId());
     }
 
     private int safeLongToInt(long value) {
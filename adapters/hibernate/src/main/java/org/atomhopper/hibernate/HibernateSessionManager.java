@@ -6,6 +6,7 @@ import org.atomhopper.adapter.jpa.PersistedEntry;
 import org.atomhopper.adapter.jpa.PersistedFeed;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.cfg.Configuration;
 
 public class HibernateSessionManager {
@@ -20,7 +21,10 @@ public class HibernateSessionManager {
         final Configuration hibernateConfiguration = new Configuration()
                 .addAnnotatedClass(PersistedFeed.class)
                 .addAnnotatedClass(PersistedEntry.class)
-                .addAnnotatedClass(PersistedCategory.class);
+                .addAnnotatedClass(PersistedCategory.class)
+                .addResource("org/atomhopper/hibernate/feed-queries.hbm.xml")
+                .setProperty("hibernate.jdbc.batch_size", "50")
+                .setProperty("hibernate.order_inserts", "true");
 
         for (Map.Entry<String, String> userParameter : parameters.entrySet()) {
             hibernateConfiguration.setProperty(userParameter.getKey(), userParameter.getValue());
@@ -32,4 +36,12 @@ public class HibernateSessionManager {
     public Session getSession() {
         return sessionFactory.openSession();
     }
+
+    /**
+     * Sessions without a persistence context for reads; entities they return are
+     * detached right away and their lazy associations cannot be loaded.
+     */
+    public StatelessSession getStatelessSession() {
+        return sessionFactory.openStatelessSession();
+    }
 }
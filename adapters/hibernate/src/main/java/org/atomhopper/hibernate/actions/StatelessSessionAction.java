@@ -0,0 +1,8 @@
+package org.atomhopper.hibernate.actions;
+
+import org.hibernate.StatelessSession;
+
+public interface StatelessSessionAction<T> {
+
+    T perform(StatelessSession liveSession);
+}
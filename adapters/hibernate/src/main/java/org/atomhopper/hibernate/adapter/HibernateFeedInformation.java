@@ -2,7 +2,7 @@ package org.atomhopper.hibernate.adapter;
 
 import org.apache.abdera.model.Categories;
 import org.atomhopper.adapter.FeedInformation;
-import org.atomhopper.adapter.NotImplemented;
+import org.atomhopper.adapter.jpa.PersistedCategory;
 import org.atomhopper.adapter.request.adapter.GetCategoriesRequest;
 import org.atomhopper.adapter.request.feed.FeedRequest;
 import org.atomhopper.dbal.FeedRepository;
@@ -20,8 +20,14 @@ public class HibernateFeedInformation implements FeedInformation {
         return feedRepository.getFeed(feedRequest.getFeedName()).getFeedId();
     }
 
-    @Override @NotImplemented
+    @Override
     public Categories getCategories(GetCategoriesRequest getCategoriesRequest) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        final Categories categories = getCategoriesRequest.newCategories();
+
+        for (PersistedCategory category : feedRepository.getCategoriesForFeed(getCategoriesRequest.getFeedName())) {
+            categories.addCategory(category.getTerm());
+        }
+
+        return categories;
     }
 }
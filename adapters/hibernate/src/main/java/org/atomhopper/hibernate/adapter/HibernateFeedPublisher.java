@@ -6,18 +6,22 @@ import org.atomhopper.adapter.FeedPublisher;
 import org.atomhopper.adapter.NotImplemented;
 import org.atomhopper.adapter.PublicationException;
 import org.atomhopper.adapter.ResponseBuilder;
-import org.atomhopper.adapter.jpa.PersistedCategory;
 import org.atomhopper.adapter.jpa.PersistedEntry;
 import org.atomhopper.adapter.jpa.PersistedFeed;
 import org.atomhopper.adapter.request.adapter.DeleteEntryRequest;
 import org.atomhopper.adapter.request.adapter.PostEntryRequest;
 import org.atomhopper.adapter.request.adapter.PutEntryRequest;
+import org.atomhopper.dbal.AtomDatabaseException;
 import org.atomhopper.dbal.FeedRepository;
 import org.atomhopper.response.AdapterResponse;
 import org.atomhopper.response.EmptyBody;
+import org.atomhopper.util.id.EntryIdGenerator;
+import org.atomhopper.util.id.RandomUuidEntryIdGenerator;
+import org.atomhopper.util.id.RecentEntryIdFilter;
 import org.atomhopper.util.uri.template.EnumKeyedTemplateParameters;
 import org.atomhopper.util.uri.template.URITemplate;
 import org.slf4j.Logger;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
@@ -26,15 +30,17 @@ import java.util.*;
 
 import com.yammer.metrics.Metrics;
 import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
 
 import static org.apache.abdera.i18n.text.UrlEncoding.decode;
 
 
 public class HibernateFeedPublisher implements FeedPublisher {
     private static final Logger LOG = LoggerFactory.getLogger(HibernateFeedPublisher.class);
-    private static final String UUID_URI_SCHEME = "urn:uuid:";
     private static final String LINKREL_SELF = "self";
 
+    private EntryIdGenerator entryIdGenerator = new RandomUuidEntryIdGenerator();
+    private RecentEntryIdFilter recentEntryIdFilter;
     private boolean allowOverrideId = false;
     private boolean allowOverrideDate = false;
 
@@ -46,6 +52,38 @@ public class HibernateFeedPublisher implements FeedPublisher {
         this.feedRepository = feedRepository;
     }
 
+    public void setEntryIdGenerator(EntryIdGenerator entryIdGenerator) {
+        this.entryIdGenerator = entryIdGenerator;
+    }
+
+    /**
+     * With allowOverrideId, supplied ids the filter has not seen recently are
+     * saved without looking them up first (the primary key rejects real
+     * duplicates) and ids in its exact recent id list are rejected right away.
+     */
+    public void setRecentEntryIdFilter(final RecentEntryIdFilter recentEntryIdFilter) {
+        this.recentEntryIdFilter = recentEntryIdFilter;
+
+        Metrics.newGauge(HibernateFeedPublisher.class, "recent-id-filter-skipped-lookups", new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return recentEntryIdFilter.getDefiniteMisses();
+            }
+        });
+        Metrics.newGauge(HibernateFeedPublisher.class, "recent-id-filter-duplicates", new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return recentEntryIdFilter.getExactHits();
+            }
+        });
+        Metrics.newGauge(HibernateFeedPublisher.class, "recent-id-filter-false-positive-rate", new Gauge<Double>() {
+            @Override
+            public Double value() {
+                return recentEntryIdFilter.getObservedFalsePositiveRate();
+            }
+        });
+    }
+
     public void setAllowOverrideId(boolean allowOverrideId) {
         this.allowOverrideId = allowOverrideId;
     }
@@ -66,24 +104,27 @@ public class HibernateFeedPublisher implements FeedPublisher {
         final Entry abderaParsedEntry = postEntryRequest.getEntry();
         final PersistedEntry persistedEntry = new PersistedEntry();
 
-        // Update our category indicies
-        final Set<PersistedCategory> entryCategories = feedRepository.updateCategories(processCategories(abderaParsedEntry.getCategories()));
-        persistedEntry.setCategories(entryCategories);
+        final Set<String> categoryTerms = processCategories(abderaParsedEntry.getCategories());
 
+        boolean checkForDuplicate = false;
         boolean entryIdSent = abderaParsedEntry.getId() != null;
 
         // Generate an ID for this entry
         if (allowOverrideId && entryIdSent && StringUtils.isNotBlank(abderaParsedEntry.getId().toString().trim())) {
             String entryId = abderaParsedEntry.getId().toString();
-            // Check to see if entry with this id already exists
-            PersistedEntry exists = feedRepository.getEntry(entryId, postEntryRequest.getFeedName());
-            if (exists != null) {
-                String errMsg = String.format("Unable to persist entry. Reason: entryId (%s) not unique.", entryId);
-                return ResponseBuilder.conflict(errMsg);
+            RecentEntryIdFilter.Verdict verdict = recentEntryIdFilter != null
+                    ? recentEntryIdFilter.check(postEntryRequest.getFeedName(), entryId)
+                    : RecentEntryIdFilter.Verdict.UNKNOWN;
+
+            if (verdict == RecentEntryIdFilter.Verdict.DUPLICATE) {
+                return conflict(entryId);
             }
+
+            // The repository checks whether an entry with this id already exists while saving
+            checkForDuplicate = verdict == RecentEntryIdFilter.Verdict.UNKNOWN;
             persistedEntry.setEntryId(abderaParsedEntry.getId().toString());
         } else {
-            persistedEntry.setEntryId(UUID_URI_SCHEME + UUID.randomUUID().toString());
+            persistedEntry.setEntryId(entryIdGenerator.newEntryId());
             abderaParsedEntry.setId(persistedEntry.getEntryId());
         }
 
@@ -101,7 +142,8 @@ public class HibernateFeedPublisher implements FeedPublisher {
                                           + "entries/" + persistedEntry.getEntryId()).setRel(LINKREL_SELF);
         }
 
-        final PersistedFeed feedRef = new PersistedFeed(postEntryRequest.getFeedName(), UUID_URI_SCHEME + UUID.randomUUID().toString());
+        // The id is only stored if the feed is created with this entry
+        final PersistedFeed feedRef = new PersistedFeed(postEntryRequest.getFeedName(), entryIdGenerator.newEntryId());
 
         persistedEntry.setFeed(feedRef);
         persistedEntry.setEntryBody(entryToString(abderaParsedEntry));
@@ -109,18 +151,37 @@ public class HibernateFeedPublisher implements FeedPublisher {
         abderaParsedEntry.setUpdated(persistedEntry.getDateLastUpdated());
         abderaParsedEntry.setPublished(persistedEntry.getCreationDate());
 
-        feedRepository.saveEntry(persistedEntry);
+        try {
+            if (!feedRepository.saveNewEntry(persistedEntry, categoryTerms, checkForDuplicate)) {
+                return conflict(persistedEntry.getEntryId());
+            }
+        } catch (AtomDatabaseException dbEx) {
+            if (dbEx.getCause() instanceof ConstraintViolationException) {
+                return conflict(persistedEntry.getEntryId());
+            }
+
+            throw dbEx;
+        }
+
+        if (allowOverrideId && recentEntryIdFilter != null) {
+            recentEntryIdFilter.record(postEntryRequest.getFeedName(), persistedEntry.getEntryId());
+        }
 
         incrementCounterForFeed(postEntryRequest.getFeedName());
 
         return ResponseBuilder.created(abderaParsedEntry);
     }
 
-    private Set<PersistedCategory> processCategories(List<org.apache.abdera.model.Category> abderaCategories) {
-        final Set<PersistedCategory> entryCategories = new HashSet<PersistedCategory>();
+    private AdapterResponse<Entry> conflict(String entryId) {
+        String errMsg = String.format("Unable to persist entry. Reason: entryId (%s) not unique.", entryId);
+        return ResponseBuilder.conflict(errMsg);
+    }
+
+    private Set<String> processCategories(List<org.apache.abdera.model.Category> abderaCategories) {
+        final Set<String> entryCategories = new HashSet<String>();
 
         for (org.apache.abdera.model.Category abderaCat : abderaCategories) {
-            entryCategories.add(new PersistedCategory(abderaCat.getTerm().toLowerCase()));
+            entryCategories.add(abderaCat.getTerm().toLowerCase());
         }
 
         return entryCategories;
@@ -0,0 +1,78 @@
+package org.atomhopper.hibernate.adapter;
+
+import org.atomhopper.adapter.jpa.PersistedEntry;
+import org.atomhopper.dbal.FeedRepository;
+import org.atomhopper.retention.BatchPause;
+import org.atomhopper.retention.RetentionEnforcer;
+import org.atomhopper.retention.RetentionPolicy;
+import org.atomhopper.retention.RetentionProgress;
+
+import java.util.Date;
+
+/**
+ * Purges a feed's oldest entries batchSize at a time, each batch in its own
+ * transaction together with its category references, pausing
+ * batchPauseInMillis between batches.
+ *
+ * The cutoff is the later of the age cutoff and the feed's oldest retained
+ * entry in (dateLastUpdated, entryId) order.
+ */
+public class HibernateFeedRetention implements RetentionEnforcer {
+
+    private FeedRepository feedRepository;
+    private int batchSize = 500;
+    private long batchPauseInMillis = 100;
+
+    public void setFeedRepository(FeedRepository feedRepository) {
+        this.feedRepository = feedRepository;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setBatchPauseInMillis(long batchPauseInMillis) {
+        this.batchPauseInMillis = batchPauseInMillis;
+    }
+
+    @Override
+    public long enforce(String feedName, RetentionPolicy policy, RetentionProgress progress) {
+        Date cutoffDate = policy.getAgeCutoff(System.currentTimeMillis());
+        String cutoffId = "";
+
+        if (policy.hasMaxEntries()) {
+            final PersistedEntry oldestRetained = feedRepository.getEntryAt(feedName, safeLongToInt(policy.getMaxEntries() - 1));
+
+            if (oldestRetained != null && (cutoffDate == null || !oldestRetained.getDateLastUpdated().before(cutoffDate))) {
+                cutoffDate = oldestRetained.getDateLastUpdated();
+                cutoffId = oldestRetained.getEntryId();
+            }
+        }
+
+        if (cutoffDate == null) {
+            return 0;
+        }
+
+        if (policy.isDryRun()) {
+            return feedRepository.countEntriesBefore(feedName, cutoffDate, cutoffId);
+        }
+
+        long purged = 0;
+        int deleted;
+
+        do {
+            deleted = feedRepository.deleteEntriesBefore(feedName, cutoffDate, cutoffId, batchSize);
+            purged += deleted;
+            progress.purged(deleted);
+        } while (deleted >= batchSize && BatchPause.pause(batchPauseInMillis));
+
+        return purged;
+    }
+
+    private static int safeLongToInt(long value) {
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(value + " cannot be cast to int without changing its value.");
+        }
+        return (int) value;
+    }
+}
@@ -10,6 +10,7 @@ import java.util.UUID;
 import org.apache.abdera.Abdera;
 import static org.apache.abdera.i18n.text.UrlEncoding.decode;
 import static org.apache.abdera.i18n.text.UrlEncoding.encode;
+import static org.atomhopper.adapter.KeysetPaging.removeNextMarker;
 import org.apache.abdera.model.Document;
 import org.apache.abdera.model.Entry;
 import org.apache.abdera.model.Feed;
@@ -88,7 +89,8 @@ public class HibernateFeedSource implements FeedSource {
         hyrdatedFeed.addLink( url, Link.REL_CURRENT);
     }
 
-    private Feed hydrateFeed(Abdera abdera, List<PersistedEntry> persistedEntries, GetFeedRequest getFeedRequest, final int pageSize) {
+    private Feed hydrateFeed(Abdera abdera, List<PersistedEntry> persistedEntries, PersistedEntry nextPersistedEntry,
+                             GetFeedRequest getFeedRequest, final int pageSize) {
         final Feed hydratedFeed = abdera.newFeed();
         final String uuidUriScheme = "urn:uuid:";
         final String baseFeedUri = decode(getFeedRequest.urlFor(new EnumKeyedTemplateParameters<URITemplate>(URITemplate.FEED)));
@@ -103,8 +105,6 @@ public class HibernateFeedSource implements FeedSource {
         addFeedCurrentLink(hydratedFeed, baseFeedUri);
         addFeedSelfLink(hydratedFeed, baseFeedUri, getFeedRequest, pageSize, searchString);
 
-        PersistedEntry nextPersistedEntry = null;
-
         // TODO: We should have a link builder method for these
         if (!(persistedEntries.isEmpty())) {
             hydratedFeed.setId( uuidUriScheme + UUID.randomUUID().toString() );
@@ -121,10 +121,6 @@ public class HibernateFeedSource implements FeedSource {
                                         .append( "&direction=forward" ).toString() )
                     .setRel( helper.getPrevLink() );
 
-
-            nextPersistedEntry = feedRepository.getNextMarker(persistedEntries.get(persistedEntries.size() - 1),
-                    getFeedRequest.getFeedName().toString(), new SimpleCategoryCriteriaGenerator(searchString));
-
             // If limit > actual number of entries in the database, there
             // is not a next link
             if (nextPersistedEntry != null) {
@@ -142,7 +138,7 @@ public class HibernateFeedSource implements FeedSource {
         }
 
         // if we are at the last page & there is an archive link, provide it
-        if ( nextPersistedEntry == null && helper.getArchiveUrl() != null ) {
+        if ( (persistedEntries.isEmpty() || nextPersistedEntry == null) && helper.getArchiveUrl() != null ) {
             hydratedFeed.addLink(new StringBuilder().append( helper.getArchiveUrl() ).append( "?limit=" ).append(String.valueOf(pageSize))
                                        .append( "&direction=backward" ).toString())
                   .setRel( FeedSource.REL_ARCHIVE_NEXT );
@@ -224,9 +220,10 @@ public class HibernateFeedSource implements FeedSource {
 
         if (persistedFeed != null) {
             final String searchString = getFeedRequest.getSearchQuery() != null ? getFeedRequest.getSearchQuery() : "";
-            final List<PersistedEntry> persistedEntries = feedRepository.getFeedHead(feedName, new SimpleCategoryCriteriaGenerator(searchString), pageSize);
+            final List<PersistedEntry> persistedEntries = feedRepository.getFeedHead(feedName, new SimpleCategoryCriteriaGenerator(searchString), pageSize + 1);
+            final PersistedEntry nextPersistedEntry = removeNextMarker(persistedEntries, pageSize);
 
-            Feed hyrdatedFeed = hydrateFeed(abdera, persistedEntries, getFeedRequest, pageSize);
+            Feed hyrdatedFeed = hydrateFeed(abdera, persistedEntries, nextPersistedEntry, getFeedRequest, pageSize);
             // Set the last link in the feed head
             final String baseFeedUri = decode(getFeedRequest.urlFor(new EnumKeyedTemplateParameters<URITemplate>(URITemplate.FEED)));
 
@@ -266,9 +263,20 @@ public class HibernateFeedSource implements FeedSource {
 
         if (markerEntry != null) {
             final String searchString = getFeedRequest.getSearchQuery() != null ? getFeedRequest.getSearchQuery() : "";
-            final Feed feed = hydrateFeed(getFeedRequest.getAbdera(),
-                    feedRepository.getFeedPage(getFeedRequest.getFeedName(), markerEntry, pageDirection,
-                    new SimpleCategoryCriteriaGenerator(searchString), pageSize), getFeedRequest, pageSize);
+            final List<PersistedEntry> feedPage;
+            final PersistedEntry nextPersistedEntry;
+
+            if (pageDirection == PageDirection.BACKWARD) {
+                feedPage = feedRepository.getFeedPage(getFeedRequest.getFeedName(), markerEntry, pageDirection,
+                        new SimpleCategoryCriteriaGenerator(searchString), pageSize + 1);
+                nextPersistedEntry = removeNextMarker(feedPage, pageSize);
+            } else {
+                feedPage = feedRepository.getFeedPage(getFeedRequest.getFeedName(), markerEntry, pageDirection,
+                        new SimpleCategoryCriteriaGenerator(searchString), pageSize);
+                nextPersistedEntry = markerEntry;
+            }
+
+            final Feed feed = hydrateFeed(getFeedRequest.getAbdera(), feedPage, nextPersistedEntry, getFeedRequest, pageSize);
 
             response = ResponseBuilder.found(feed);
         } else {
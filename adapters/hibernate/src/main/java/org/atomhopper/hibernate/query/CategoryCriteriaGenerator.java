@@ -2,7 +2,14 @@ package org.atomhopper.hibernate.query;
 
 import org.hibernate.Criteria;
 
+import java.util.List;
+
 public interface CategoryCriteriaGenerator {
 
     void enhanceCriteria(Criteria ongoingCriteria);
+
+    /**
+     * @return the terms an entry needs one of to match, empty when every entry matches
+     */
+    List<String> getInclusionTerms();
 }
@@ -3,6 +3,7 @@ package org.atomhopper.hibernate.query;
 import org.hibernate.Criteria;
 import org.hibernate.criterion.Restrictions;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -59,6 +60,11 @@ public class SimpleCategoryCriteriaGenerator implements CategoryCriteriaGenerato
         }
     }
 
+    @Override
+    public List<String> getInclusionTerms() {
+        return hasTerms ? Collections.unmodifiableList(inclusionTerms) : Collections.<String>emptyList();
+    }
+
     private static int readTerm(String searchString, StringBuilder builder, int currentCharIndex) {
         int charIndex = currentCharIndex;
         boolean isEscaped = false;
@@ -28,6 +28,7 @@ CREATE TABLE entries (
 );
 ALTER TABLE public.entries OWNER TO atomschema;
 CREATE INDEX datelastupdated_idx on entries(datelastupdated);
+CREATE INDEX entries_feed_datelastupdated_entryid_idx on entries(feed, datelastupdated, entryid);
 
 CREATE TABLE categories (
     term character varying(255) CONSTRAINT categories_pkey PRIMARY KEY
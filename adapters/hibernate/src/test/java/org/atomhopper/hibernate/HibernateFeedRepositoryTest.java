@@ -1,16 +1,30 @@
 package org.atomhopper.hibernate;
 
+import org.atomhopper.adapter.jpa.PersistedCategory;
+import org.atomhopper.adapter.jpa.PersistedEntry;
+import org.atomhopper.adapter.jpa.PersistedFeed;
 import org.atomhopper.dbal.AtomDatabaseException;
+import org.atomhopper.dbal.PageDirection;
 import org.atomhopper.hibernate.actions.ComplexSessionAction;
 import org.atomhopper.hibernate.actions.SimpleSessionAction;
+import org.atomhopper.hibernate.query.SimpleCategoryCriteriaGenerator;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -73,6 +87,197 @@ public class HibernateFeedRepositoryTest {
         }
     }
 
+    public static class WhenSavingNewEntries {
+
+        private static final String FEED = "namespace/feed";
+
+        HibernateFeedRepository feedRepository;
+
+        @Before
+        public void setup() throws Exception {
+            Map<String, String> parameters = new HashMap<String, String>();
+            parameters.put("hibernate.connection.driver_class", "org.h2.Driver");
+            parameters.put("hibernate.connection.url", "jdbc:h2:mem:save-new-entries;DB_CLOSE_DELAY=-1");
+            parameters.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            parameters.put("hibernate.connection.username", "sa");
+            parameters.put("hibernate.connection.password", "");
+            parameters.put("hibernate.hbm2ddl.auto", "create");
+
+            feedRepository = new HibernateFeedRepository(parameters);
+        }
+
+        @Test
+        public void shouldCreateTheFeedAndCategoriesAlongWithTheEntry() throws Exception {
+            assertTrue(feedRepository.saveNewEntry(entry("urn:uuid:1"), terms("a", "b"), false));
+            assertTrue(feedRepository.saveNewEntry(entry("urn:uuid:2"), terms("b", "c"), false));
+
+            assertEquals(2, feedRepository.getFeedHead(FEED, new SimpleCategoryCriteriaGenerator(""), 10).size());
+            assertEquals(1, feedRepository.getFeedHead(FEED, new SimpleCategoryCriteriaGenerator("+a"), 10).size());
+            assertEquals(2, feedRepository.getFeedHead(FEED, new SimpleCategoryCriteriaGenerator("+b"), 10).size());
+            assertEquals(3, feedRepository.getCategoriesForFeed(FEED).size());
+        }
+
+        @Test
+        public void shouldReportDuplicatesWhenAskedToCheck() throws Exception {
+            assertTrue(feedRepository.saveNewEntry(entry("urn:uuid:1"), terms("a"), false));
+
+            assertFalse(feedRepository.saveNewEntry(entry("urn:uuid:1"), terms("a"), true));
+        }
+
+        @Test
+        public void shouldReuseCategoriesCreatedOutsideTheRepositoryCache() throws Exception {
+            feedRepository.updateCategories(new HashSet<PersistedCategory>(Arrays.asList(new PersistedCategory("a"))));
+
+            assertTrue(feedRepository.saveNewEntry(entry("urn:uuid:1"), terms("a"), false));
+            assertEquals(1, feedRepository.getFeedHead(FEED, new SimpleCategoryCriteriaGenerator("+a"), 10).size());
+        }
+
+        @Test
+        public void shouldServeCategoriesFromTheCacheAndAddNewTerms() throws Exception {
+            feedRepository.saveNewEntry(entry("urn:uuid:1"), terms("a"), false);
+            assertEquals(1, feedRepository.getCategoriesForFeed(FEED).size());
+
+            final PersistedEntry storedElsewhere = entry("urn:uuid:2");
+            storedElsewhere.setCategories(feedRepository.updateCategories(
+                    new HashSet<PersistedCategory>(Arrays.asList(new PersistedCategory("b")))));
+            feedRepository.saveEntry(storedElsewhere);
+            feedRepository.saveNewEntry(entry("urn:uuid:3"), terms("c"), false);
+
+            final Set<PersistedCategory> categories = feedRepository.getCategoriesForFeed(FEED);
+
+            assertEquals(2, categories.size());
+            assertTrue(categories.contains(new PersistedCategory("c")));
+            assertFalse(categories.contains(new PersistedCategory("b")));
+        }
+
+        @Test
+        public void shouldCacheFeeds() throws Exception {
+            feedRepository.saveNewEntry(entry("urn:uuid:1"), terms(), false);
+
+            assertEquals("urn:uuid:feed", feedRepository.getFeed(FEED).getFeedId());
+            assertEquals(1, feedRepository.getAllFeeds().size());
+        }
+
+        @Test
+        public void shouldNotLetCallersChangeCachedFeeds() throws Exception {
+            feedRepository.saveNewEntry(entry("urn:uuid:1"), terms("a"), false);
+
+            feedRepository.getFeed(FEED).setFeedId("urn:uuid:changed");
+            feedRepository.getAllFeeds().iterator().next().setFeedId("urn:uuid:changed");
+            feedRepository.getCategoriesForFeed(FEED).clear();
+
+            assertEquals("urn:uuid:feed", feedRepository.getFeed(FEED).getFeedId());
+            assertEquals("urn:uuid:feed", feedRepository.getAllFeeds().iterator().next().getFeedId());
+            assertEquals(1, feedRepository.getCategoriesForFeed(FEED).size());
+        }
+
+        private static PersistedEntry entry(String entryId) {
+            final PersistedEntry entry = new PersistedEntry(entryId);
+            entry.setFeed(new PersistedFeed(FEED, "urn:uuid:feed"));
+            entry.setEntryBody("<entry xmlns=\"http://www.w3.org/2005/Atom\"/>");
+            return entry;
+        }
+
+        private static Set<String> terms(String... terms) {
+            return new HashSet<String>(Arrays.asList(terms));
+        }
+    }
+
+    public static class WhenReadingFeeds {
+
+        private static final String FEED = "namespace/feed";
+
+        HibernateFeedRepository feedRepository;
+
+        @Before
+        public void setup() throws Exception {
+            Map<String, String> parameters = new HashMap<String, String>();
+            parameters.put("hibernate.connection.driver_class", "org.h2.Driver");
+            parameters.put("hibernate.connection.url", "jdbc:h2:mem:read-feeds;DB_CLOSE_DELAY=-1");
+            parameters.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            parameters.put("hibernate.connection.username", "sa");
+            parameters.put("hibernate.connection.password", "");
+            parameters.put("hibernate.hbm2ddl.auto", "create");
+
+            feedRepository = new HibernateFeedRepository(parameters);
+
+            // Entries 1 to 3 share their timestamp, entry 4 is newer; odd entries are in category odd
+            final Date updated = new Date();
+
+            for (int i = 1; i <= 4; i++) {
+                final PersistedEntry entry = new PersistedEntry("urn:uuid:" + i);
+                entry.setFeed(new PersistedFeed(FEED, "urn:uuid:feed"));
+                entry.setEntryBody("<entry xmlns=\"http://www.w3.org/2005/Atom\"/>");
+                entry.setDateLastUpdated(i < 4 ? updated : new Date(updated.getTime() + 1000));
+                feedRepository.saveNewEntry(entry, i % 2 == 1 ? terms("odd") : terms(), false);
+            }
+        }
+
+        @Test
+        public void shouldReadTheHeadNewestFirst() throws Exception {
+            assertEquals(Arrays.asList("urn:uuid:4", "urn:uuid:3", "urn:uuid:2"), ids(feedRepository.getFeedHead(FEED, everything(), 3)));
+            assertEquals(Arrays.asList("urn:uuid:3", "urn:uuid:1"), ids(feedRepository.getFeedHead(FEED, new SimpleCategoryCriteriaGenerator("+odd"), 3)));
+        }
+
+        @Test
+        public void shouldPageInBothDirectionsAroundTheMarker() throws Exception {
+            final PersistedEntry marker = feedRepository.getEntry("urn:uuid:2", FEED);
+
+            assertEquals(Arrays.asList("urn:uuid:2", "urn:uuid:1"), ids(feedRepository.getFeedPage(FEED, marker, PageDirection.BACKWARD, everything(), 5)));
+            assertEquals(Arrays.asList("urn:uuid:4", "urn:uuid:3"), ids(feedRepository.getFeedPage(FEED, marker, PageDirection.FORWARD, everything(), 5)));
+            assertEquals(Arrays.asList("urn:uuid:1"), ids(feedRepository.getFeedPage(FEED, marker, PageDirection.BACKWARD, new SimpleCategoryCriteriaGenerator("+odd"), 5)));
+            assertEquals("urn:uuid:1", feedRepository.getNextMarker(marker, FEED, everything()).getEntryId());
+        }
+
+        @Test
+        public void shouldReadTheLastPageOldestFirst() throws Exception {
+            assertEquals(Arrays.asList("urn:uuid:1", "urn:uuid:2"), ids(feedRepository.getLastPage(FEED, 2, everything())));
+        }
+
+        @Test
+        public void shouldDropCachedHeadsWhenAnEntryIsStored() throws Exception {
+            feedRepository.setFeedHeadCacheTtlInMillis(60000);
+            feedRepository.getFeedHead(FEED, everything(), 1).clear();
+
+            assertEquals(Arrays.asList("urn:uuid:4"), ids(feedRepository.getFeedHead(FEED, everything(), 1)));
+
+            final PersistedEntry entry = new PersistedEntry("urn:uuid:5");
+            entry.setFeed(new PersistedFeed(FEED, "urn:uuid:feed"));
+            entry.setEntryBody("<entry xmlns=\"http://www.w3.org/2005/Atom\"/>");
+            entry.setDateLastUpdated(new Date(System.currentTimeMillis() + 5000));
+            feedRepository.saveNewEntry(entry, terms(), false);
+
+            assertEquals(Arrays.asList("urn:uuid:5"), ids(feedRepository.getFeedHead(FEED, everything(), 1)));
+        }
+
+        @Test
+        public void shouldNotLetCallersChangeCachedHeads() throws Exception {
+            feedRepository.setFeedHeadCacheTtlInMillis(60000);
+            feedRepository.getFeedHead(FEED, everything(), 1).get(0).setEntryId("urn:uuid:changed");
+            feedRepository.getFeedHead(FEED, everything(), 1).get(0).setEntryId("urn:uuid:changed");
+
+            assertEquals(Arrays.asList("urn:uuid:4"), ids(feedRepository.getFeedHead(FEED, everything(), 1)));
+        }
+
+        private static SimpleCategoryCriteriaGenerator everything() {
+            return new SimpleCategoryCriteriaGenerator("");
+        }
+
+        private static List<String> ids(List<PersistedEntry> entries) {
+            final List<String> ids = new ArrayList<String>();
+
+            for (PersistedEntry entry : entries) {
+                ids.add(entry.getEntryId());
+            }
+
+            return ids;
+        }
+
+        private static Set<String> terms(String... terms) {
+            return new HashSet<String>(Arrays.asList(terms));
+        }
+    }
+
     public static class WhenGettingCategories {
 
         @Before
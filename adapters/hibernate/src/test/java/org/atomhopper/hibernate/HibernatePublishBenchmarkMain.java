@@ -0,0 +1,120 @@
+package org.atomhopper.hibernate;
+
+import org.atomhopper.adapter.jpa.PersistedCategory;
+import org.atomhopper.adapter.jpa.PersistedEntry;
+import org.atomhopper.adapter.jpa.PersistedFeed;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes entries with a handful of categories into an in-memory H2
+ * database, first the way HibernateFeedPublisher used to (categories, duplicate
+ * lookup and entry each in their own transaction) and then through
+ * saveNewEntry, and prints the entries per second of both.
+ *
+ * The feed and category rows are created before the threads start; the old
+ * path fails when concurrent posts race to insert the same category.
+ */
+public class HibernatePublishBenchmarkMain {
+
+    private static final String FEED = "benchmark/feed";
+    private static final int THREADS = 8;
+    private static final int ENTRIES_PER_THREAD = 2500;
+    private static final String[] TERMS = {"type:event", "tenant:1234", "region:dfw", "product:servers", "action:create"};
+
+    public static void main(String[] args) throws Exception {
+        final HibernateFeedRepository separate = repository("separate-transactions");
+        final HibernateFeedRepository single = repository("single-transaction");
+
+        publishSeparately(separate, "urn:uuid:seed");
+        single.saveNewEntry(entry("urn:uuid:seed"), new HashSet<String>(Arrays.asList(TERMS)), false);
+
+        // Warm up
+        run(separate, false, "warm-");
+        run(single, true, "warm-");
+
+        System.out.println(String.format("%24s %16s", "path", "entries/s"));
+        System.out.println(String.format("%24s %16d", "separate transactions", run(separate, false, "")));
+        System.out.println(String.format("%24s %16d", "saveNewEntry", run(single, true, "")));
+    }
+
+    private static HibernateFeedRepository repository(String database) {
+        final Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("hibernate.connection.driver_class", "org.h2.Driver");
+        parameters.put("hibernate.connection.url", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;MULTI_THREADED=1");
+        parameters.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        parameters.put("hibernate.connection.username", "sa");
+        parameters.put("hibernate.connection.password", "");
+        parameters.put("hibernate.hbm2ddl.auto", "create");
+
+        return new HibernateFeedRepository(parameters);
+    }
+
+    private static long run(final HibernateFeedRepository feedRepository, final boolean singleTransaction, final String prefix) throws Exception {
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicInteger failures = new AtomicInteger();
+        final long begin = System.nanoTime();
+
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < ENTRIES_PER_THREAD; i++) {
+                            final String entryId = "urn:uuid:" + prefix + thread + "-" + i;
+
+                            if (singleTransaction) {
+                                feedRepository.saveNewEntry(entry(entryId), new HashSet<String>(Arrays.asList(TERMS)), true);
+                            } else {
+                                publishSeparately(feedRepository, entryId);
+                            }
+                        }
+                    } catch (RuntimeException ex) {
+                        failures.incrementAndGet();
+                        ex.printStackTrace();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        done.await();
+
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " publishing threads failed");
+        }
+
+        return (long) THREADS * ENTRIES_PER_THREAD * 1000000000L / (System.nanoTime() - begin);
+    }
+
+    private static void publishSeparately(HibernateFeedRepository feedRepository, String entryId) {
+        final Set<PersistedCategory> categories = new HashSet<PersistedCategory>();
+
+        for (String term : TERMS) {
+            categories.add(new PersistedCategory(term));
+        }
+
+        final PersistedEntry entry = entry(entryId);
+        entry.setCategories(feedRepository.updateCategories(categories));
+
+        if (feedRepository.getEntry(entryId, FEED) == null) {
+            feedRepository.saveEntry(entry);
+        }
+    }
+
+    private static PersistedEntry entry(String entryId) {
+        final PersistedEntry entry = new PersistedEntry(entryId);
+        entry.setFeed(new PersistedFeed(FEED, "urn:uuid:benchmark"));
+        entry.setEntryBody("<entry xmlns=\"http://www.w3.org/2005/Atom\"><content>benchmark</content></entry>");
+        return entry;
+    }
+}
@@ -0,0 +1,153 @@
+package org.atomhopper.hibernate;
+
+import org.atomhopper.adapter.jpa.PersistedEntry;
+import org.atomhopper.adapter.jpa.PersistedFeed;
+import org.atomhopper.dbal.PageDirection;
+import org.atomhopper.hibernate.actions.ComplexSessionAction;
+import org.atomhopper.hibernate.actions.SimpleSessionAction;
+import org.atomhopper.hibernate.query.SimpleCategoryCriteriaGenerator;
+import org.hibernate.Session;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads a feed whose entries are published in bursts sharing a timestamp into
+ * an in-memory H2 database and times reading a backward page at increasing
+ * depths through the (dateLastUpdated, entryId) keyset the feed source uses.
+ * Also checks that walking the whole feed page by page returns every entry
+ * exactly once although thousands of entries share their timestamp.
+ */
+public class KeysetPagingBenchmarkMain {
+
+    private static final String FEED = "benchmark/feed";
+    private static final int ENTRIES = 200000;
+    private static final int ENTRIES_PER_TIMESTAMP = 50;
+    private static final int PAGE_SIZE = 25;
+    private static final int PAGES_PER_DEPTH = 200;
+    private static final int[] DEPTHS = {0, 1000, 10000, 50000, 100000, 199000};
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("hibernate.connection.driver_class", "org.h2.Driver");
+        parameters.put("hibernate.connection.url", "jdbc:h2:mem:keyset-paging;DB_CLOSE_DELAY=-1");
+        parameters.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        parameters.put("hibernate.connection.username", "sa");
+        parameters.put("hibernate.connection.password", "");
+        parameters.put("hibernate.hbm2ddl.auto", "create");
+
+        final HibernateFeedRepository feedRepository = new HibernateFeedRepository(parameters);
+        load(feedRepository);
+        addDescendingIndex(feedRepository);
+
+        System.out.println("Walked " + walk(feedRepository) + " distinct entries of " + ENTRIES);
+
+        // Warm up
+        for (int depth : DEPTHS) {
+            time(feedRepository, markerAt(feedRepository, depth));
+        }
+
+        System.out.println(String.format("%8s %16s", "depth", "us/page"));
+
+        for (int depth : DEPTHS) {
+            System.out.println(String.format("%8d %16d", depth, time(feedRepository, markerAt(feedRepository, depth))));
+        }
+    }
+
+    private static long time(HibernateFeedRepository feedRepository, PersistedEntry marker) {
+        final SimpleCategoryCriteriaGenerator noCategories = new SimpleCategoryCriteriaGenerator("");
+        final long begin = System.nanoTime();
+
+        for (int i = 0; i < PAGES_PER_DEPTH; i++) {
+            feedRepository.getFeedPage(FEED, marker, PageDirection.BACKWARD, noCategories, PAGE_SIZE + 1);
+        }
+
+        return (System.nanoTime() - begin) / 1000 / PAGES_PER_DEPTH;
+    }
+
+    private static void load(HibernateFeedRepository feedRepository) {
+        final PersistedFeed feed = new PersistedFeed(FEED, "urn:uuid:benchmark");
+        feedRepository.saveFeed(feed);
+
+        feedRepository.performSimpleAction(new SimpleSessionAction() {
+            @Override
+            public void perform(Session liveSession) {
+                final long start = System.currentTimeMillis() - ENTRIES;
+
+                for (int i = 0; i < ENTRIES; i++) {
+                    final PersistedEntry entry = new PersistedEntry(String.format("urn:uuid:%08x", i * 7919 % ENTRIES));
+                    final Date updated = new Date(start + i / ENTRIES_PER_TIMESTAMP);
+
+                    entry.setFeed(feed);
+                    entry.setEntryBody("<entry xmlns=\"http://www.w3.org/2005/Atom\"/>");
+                    entry.setCreationDate(updated);
+                    entry.setDateLastUpdated(updated);
+                    liveSession.save(entry);
+
+                    if (i % 1000 == 999) {
+                        liveSession.flush();
+                        liveSession.clear();
+                    }
+                }
+            }
+        });
+    }
+
+    /*
+     * Postgres reads the ascending feed, dateLastUpdated, entryId index backwards for the
+     * newest first pages; H2 1.3 cannot, so it gets a descending copy of the index.
+     */
+    private static void addDescendingIndex(HibernateFeedRepository feedRepository) {
+        feedRepository.performSimpleAction(new SimpleSessionAction() {
+            @Override
+            public void perform(Session liveSession) {
+                liveSession.createSQLQuery("CREATE INDEX entries_feed_datelastupdated_entryid_desc_idx"
+                        + " ON Entries(Feed, DateLastUpdated DESC, EntryID DESC)").executeUpdate();
+            }
+        });
+    }
+
+    private static int walk(HibernateFeedRepository feedRepository) {
+        final SimpleCategoryCriteriaGenerator noCategories = new SimpleCategoryCriteriaGenerator("");
+        final Set<String> seen = new HashSet<String>();
+
+        List<PersistedEntry> page = feedRepository.getFeedHead(FEED, noCategories, PAGE_SIZE + 1);
+
+        while (true) {
+            final PersistedEntry next = page.size() > PAGE_SIZE ? page.remove(PAGE_SIZE) : null;
+
+            for (PersistedEntry entry : page) {
+                if (!seen.add(entry.getEntryId())) {
+                    throw new IllegalStateException("Entry " + entry.getEntryId() + " was read twice");
+                }
+            }
+
+            if (next == null) {
+                return seen.size();
+            }
+
+            page = feedRepository.getFeedPage(FEED, next, PageDirection.BACKWARD, noCategories, PAGE_SIZE + 1);
+        }
+    }
+
+    private static PersistedEntry markerAt(HibernateFeedRepository feedRepository, final int depth) {
+        return feedRepository.performComplexActionNonTransactionable(new ComplexSessionAction<PersistedEntry>() {
+            @Override
+            public PersistedEntry perform(Session liveSession) {
+                return (PersistedEntry) liveSession.createCriteria(PersistedEntry.class)
+                        .add(Restrictions.eq("feed.name", FEED))
+                        .addOrder(Order.desc("dateLastUpdated"))
+                        .addOrder(Order.desc("entryId"))
+                        .setFirstResult(depth)
+                        .setMaxResults(1)
+                        .uniqueResult();
+            }
+        });
+    }
+}
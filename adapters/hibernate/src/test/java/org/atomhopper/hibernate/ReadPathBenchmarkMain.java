@@ -0,0 +1,180 @@
+package org.atomhopper.hibernate;
+
+import org.atomhopper.adapter.jpa.PersistedEntry;
+import org.atomhopper.adapter.jpa.PersistedFeed;
+import org.atomhopper.dbal.PageDirection;
+import org.atomhopper.hibernate.actions.ComplexSessionAction;
+import org.atomhopper.hibernate.actions.SimpleSessionAction;
+import org.atomhopper.hibernate.query.SimpleCategoryCriteriaGenerator;
+import org.hibernate.Session;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the feed head and page reads of HibernateFeedRepository, which use
+ * stateless sessions and named queries, with the Session and Criteria reads
+ * they replaced. Prints the latency and the heap allocated per query for pages
+ * of 25 and 1000 entries against an in-memory H2 database.
+ */
+public class ReadPathBenchmarkMain {
+
+    private static final String FEED = "benchmark/feed";
+    private static final int ENTRIES = 50000;
+    private static final int[] PAGE_SIZES = {25, 1000};
+    private static final String ENTRY_BODY = "<entry xmlns=\"http://www.w3.org/2005/Atom\"><content>" + pad(1024) + "</content></entry>";
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("hibernate.connection.driver_class", "org.h2.Driver");
+        parameters.put("hibernate.connection.url", "jdbc:h2:mem:read-path;DB_CLOSE_DELAY=-1");
+        parameters.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        parameters.put("hibernate.connection.username", "sa");
+        parameters.put("hibernate.connection.password", "");
+        parameters.put("hibernate.hbm2ddl.auto", "create");
+
+        final HibernateFeedRepository feedRepository = new HibernateFeedRepository(parameters);
+        load(feedRepository);
+
+        final PersistedEntry marker = feedRepository.getEntry(String.format("urn:uuid:%08d", ENTRIES / 2), FEED);
+
+        System.out.println(String.format("%-8s %6s %-12s %12s %14s", "query", "limit", "path", "us/query", "bytes/query"));
+
+        for (final int pageSize : PAGE_SIZES) {
+            final int iterations = pageSize > 100 ? 200 : 2000;
+
+            report("head", pageSize, "criteria", iterations, new Runnable() {
+                @Override
+                public void run() {
+                    criteriaHead(feedRepository, pageSize);
+                }
+            });
+            report("head", pageSize, "stateless", iterations, new Runnable() {
+                @Override
+                public void run() {
+                    feedRepository.getFeedHead(FEED, new SimpleCategoryCriteriaGenerator(""), pageSize);
+                }
+            });
+            report("page", pageSize, "criteria", iterations, new Runnable() {
+                @Override
+                public void run() {
+                    criteriaPage(feedRepository, marker, pageSize);
+                }
+            });
+            report("page", pageSize, "stateless", iterations, new Runnable() {
+                @Override
+                public void run() {
+                    feedRepository.getFeedPage(FEED, marker, PageDirection.BACKWARD, new SimpleCategoryCriteriaGenerator(""), pageSize);
+                }
+            });
+        }
+    }
+
+    private static void report(String query, int pageSize, String path, int iterations, Runnable read) {
+        // Warm up
+        for (int i = 0; i < iterations; i++) {
+            read.run();
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        final long begin = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            read.run();
+        }
+
+        final long micros = (System.nanoTime() - begin) / 1000 / iterations;
+        final long bytes = (THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore) / iterations;
+
+        System.out.println(String.format("%-8s %6d %-12s %12d %14d", query, pageSize, path, micros, bytes));
+    }
+
+    private static List<PersistedEntry> criteriaHead(HibernateFeedRepository feedRepository, final int pageSize) {
+        return feedRepository.performComplexActionNonTransactionable(new ComplexSessionAction<List<PersistedEntry>>() {
+            @Override
+            public List<PersistedEntry> perform(Session liveSession) {
+                return liveSession.createCriteria(PersistedEntry.class)
+                        .add(Restrictions.eq("feed.name", FEED))
+                        .setMaxResults(pageSize)
+                        .addOrder(Order.asc("feed.name"))
+                        .addOrder(Order.desc("dateLastUpdated"))
+                        .addOrder(Order.desc("entryId"))
+                        .list();
+            }
+        });
+    }
+
+    private static List<PersistedEntry> criteriaPage(HibernateFeedRepository feedRepository, final PersistedEntry marker, final int pageSize) {
+        return feedRepository.performComplexActionNonTransactionable(new ComplexSessionAction<List<PersistedEntry>>() {
+            @Override
+            public List<PersistedEntry> perform(Session liveSession) {
+                return liveSession.createCriteria(PersistedEntry.class)
+                        .add(Restrictions.eq("feed.name", FEED))
+                        .add(Restrictions.le("dateLastUpdated", marker.getDateLastUpdated()))
+                        .add(Restrictions.or(
+                                Restrictions.lt("dateLastUpdated", marker.getDateLastUpdated()),
+                                Restrictions.le("entryId", marker.getEntryId())))
+                        .setMaxResults(pageSize)
+                        .addOrder(Order.asc("feed.name"))
+                        .addOrder(Order.desc("dateLastUpdated"))
+                        .addOrder(Order.desc("entryId"))
+                        .list();
+            }
+        });
+    }
+
+    private static void load(HibernateFeedRepository feedRepository) {
+        final PersistedFeed feed = new PersistedFeed(FEED, "urn:uuid:benchmark");
+        feedRepository.saveFeed(feed);
+
+        feedRepository.performSimpleAction(new SimpleSessionAction() {
+            @Override
+            public void perform(Session liveSession) {
+                final long start = System.currentTimeMillis() - ENTRIES;
+
+                for (int i = 0; i < ENTRIES; i++) {
+                    final PersistedEntry entry = new PersistedEntry(String.format("urn:uuid:%08d", i));
+                    final Date updated = new Date(start + i);
+
+                    entry.setFeed(feed);
+                    entry.setEntryBody(ENTRY_BODY);
+                    entry.setCreationDate(updated);
+                    entry.setDateLastUpdated(updated);
+                    liveSession.save(entry);
+
+                    if (i % 1000 == 999) {
+                        liveSession.flush();
+                        liveSession.clear();
+                    }
+                }
+            }
+        });
+
+        // H2 1.3 cannot read the ascending index backwards for the newest first pages
+        feedRepository.performSimpleAction(new SimpleSessionAction() {
+            @Override
+            public void perform(Session liveSession) {
+                liveSession.createSQLQuery("CREATE INDEX entries_feed_datelastupdated_entryid_desc_idx"
+                        + " ON Entries(Feed, DateLastUpdated DESC, EntryID DESC)").executeUpdate();
+            }
+        });
+    }
+
+    private static String pad(int length) {
+        final StringBuilder builder = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+
+        return builder.toString();
+    }
+}
@@ -1,5 +1,8 @@
 package org.atomhopper.hibernate.adapter;
 
+import org.apache.abdera.Abdera;
+import org.apache.abdera.model.Categories;
+import org.atomhopper.adapter.jpa.PersistedCategory;
 import org.atomhopper.adapter.jpa.PersistedFeed;
 import org.atomhopper.adapter.request.adapter.GetCategoriesRequest;
 import org.atomhopper.adapter.request.feed.FeedRequest;
@@ -10,6 +13,9 @@ import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import static junit.framework.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.mock;
@@ -42,6 +48,10 @@ public class HibernateFeedInformationTest {
             when(feedRepository.getFeed("feedname")).thenReturn(persistedFeed);
             when(feedRequest.getFeedName()).thenReturn("feedname");
             when(persistedFeed.getFeedId()).thenReturn(id);
+            when(getCategoriesRequest.getFeedName()).thenReturn("feedname");
+            when(getCategoriesRequest.newCategories()).thenReturn(new Abdera().newCategories());
+            when(feedRepository.getCategoriesForFeed("feedname")).thenReturn(
+                    new HashSet<PersistedCategory>(Arrays.asList(new PersistedCategory("a"), new PersistedCategory("b"))));
             
             hibernateFeedInformation = new HibernateFeedInformation(feedRepository);
         }
@@ -57,9 +67,11 @@ public class HibernateFeedInformationTest {
                     hibernateFeedInformation.getId(feedRequest), id);
         } 
 
-        @Test(expected=UnsupportedOperationException.class)
+        @Test
         public void shouldReturnCategories() throws Exception {
-            hibernateFeedInformation.getCategories(getCategoriesRequest);
-        }        
+            Categories categories = hibernateFeedInformation.getCategories(getCategoriesRequest);
+
+            assertEquals("Should return every category of the feed", 2, categories.getCategories().size());
+        }
     }
 }
@@ -1,19 +1,128 @@
 package org.atomhopper.hibernate.adapter;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.parser.stax.FOMEntry;
+import org.atomhopper.adapter.jpa.PersistedEntry;
 import org.atomhopper.adapter.request.adapter.DeleteEntryRequest;
+import org.atomhopper.adapter.request.adapter.PostEntryRequest;
 import org.atomhopper.adapter.request.adapter.PutEntryRequest;
+import org.atomhopper.dbal.FeedRepository;
+import org.atomhopper.response.AdapterResponse;
+import org.atomhopper.util.id.EntryIdGenerator;
+import org.atomhopper.util.id.RecentEntryIdFilter;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anySet;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 @RunWith(Enclosed.class)
 public class HibernateFeedPublisherTest {
 
+    public static class WhenPostingEntries {
+
+        private static final String FEED_NAME = "namespace/feed";
+
+        private HibernateFeedPublisher hibernateFeedPublisher;
+        private FeedRepository feedRepository;
+        private PostEntryRequest postEntryRequest;
+
+        @Before
+        public void setUp() throws Exception {
+            feedRepository = mock(FeedRepository.class);
+            when(feedRepository.saveNewEntry(any(PersistedEntry.class), anySet(), anyBoolean())).thenReturn(true);
+
+            hibernateFeedPublisher = new HibernateFeedPublisher();
+            hibernateFeedPublisher.setFeedRepository(feedRepository);
+
+            postEntryRequest = mock(PostEntryRequest.class);
+            final Entry entry = entry();
+            when(postEntryRequest.getEntry()).thenReturn(entry);
+            when(postEntryRequest.getFeedName()).thenReturn(FEED_NAME);
+        }
+
+        @Test
+        public void shouldSaveTheEntryAndItsCategoriesInOneCall() throws Exception {
+            AdapterResponse<Entry> adapterResponse = hibernateFeedPublisher.postEntry(postEntryRequest);
+
+            assertEquals("Should return HTTP 201 (Created)", HttpStatus.CREATED, adapterResponse.getResponseStatus());
+            verify(feedRepository).saveNewEntry(any(PersistedEntry.class), eq((Set<String>) Collections.singleton("category")), eq(false));
+            verify(feedRepository, never()).updateCategories(anySet());
+            verify(feedRepository, never()).getEntry(anyString(), anyString());
+            verify(feedRepository, never()).saveEntry(any(PersistedEntry.class));
+        }
+
+        @Test
+        public void shouldTakeTheFeedIdFromTheEntryIdGenerator() throws Exception {
+            final EntryIdGenerator entryIdGenerator = mock(EntryIdGenerator.class);
+            when(entryIdGenerator.newEntryId()).thenReturn("urn:uuid:entry", "urn:uuid:feed");
+            hibernateFeedPublisher.setEntryIdGenerator(entryIdGenerator);
+
+            hibernateFeedPublisher.postEntry(postEntryRequest);
+
+            final ArgumentCaptor<PersistedEntry> saved = ArgumentCaptor.forClass(PersistedEntry.class);
+            verify(feedRepository).saveNewEntry(saved.capture(), anySet(), anyBoolean());
+            assertEquals("urn:uuid:feed", saved.getValue().getFeed().getFeedId());
+        }
+
+        @Test
+        public void shouldAskTheRepositoryToCheckSuppliedIdsWithoutAFilter() throws Exception {
+            hibernateFeedPublisher.setAllowOverrideId(true);
+
+            hibernateFeedPublisher.postEntry(postEntryRequest);
+
+            verify(feedRepository).saveNewEntry(any(PersistedEntry.class), anySet(), eq(true));
+            verify(feedRepository, never()).getEntry(anyString(), anyString());
+        }
+
+        @Test
+        public void shouldSkipTheCheckForIdsTheFilterHasNotSeen() throws Exception {
+            hibernateFeedPublisher.setAllowOverrideId(true);
+            hibernateFeedPublisher.setRecentEntryIdFilter(new RecentEntryIdFilter());
+
+            hibernateFeedPublisher.postEntry(postEntryRequest);
+
+            verify(feedRepository).saveNewEntry(any(PersistedEntry.class), anySet(), eq(false));
+        }
+
+        @Test
+        public void shouldReturnConflictWhenTheRepositoryFindsADuplicate() throws Exception {
+            hibernateFeedPublisher.setAllowOverrideId(true);
+            when(feedRepository.saveNewEntry(any(PersistedEntry.class), anySet(), eq(true))).thenReturn(false);
+
+            AdapterResponse<Entry> adapterResponse = hibernateFeedPublisher.postEntry(postEntryRequest);
+
+            assertEquals("Should return HTTP 409 (Conflict)", HttpStatus.CONFLICT, adapterResponse.getResponseStatus());
+        }
+
+        public Entry entry() {
+            final FOMEntry entry = new FOMEntry();
+            entry.setId(UUID.randomUUID().toString());
+            entry.setContent("testing");
+            entry.addCategory("Category");
+            entry.addLink("http://localhost/namespace/feed/entries/1", "self");
+            return entry;
+        }
+    }
+
     public static class WhenCallingNonImplementedFunctionality {
 
         private HibernateFeedPublisher hibernateFeedPublisher;
@@ -0,0 +1,102 @@
+package org.atomhopper.hibernate.adapter;
+
+import org.atomhopper.adapter.jpa.PersistedEntry;
+import org.atomhopper.adapter.jpa.PersistedFeed;
+import org.atomhopper.hibernate.HibernateFeedRepository;
+import org.atomhopper.hibernate.query.SimpleCategoryCriteriaGenerator;
+import org.atomhopper.retention.RetentionPolicy;
+import org.atomhopper.retention.RetentionProgress;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(Enclosed.class)
+public class HibernateFeedRetentionTest {
+
+    public static class WhenPurgingEntries {
+
+        private static final String FEED = "namespace/feed";
+        private static final long HOUR = 60 * 60 * 1000;
+
+        private HibernateFeedRepository feedRepository;
+        private HibernateFeedRetention feedRetention;
+        private RetentionProgress progress;
+
+        @Before
+        public void setup() throws Exception {
+            Map<String, String> parameters = new HashMap<String, String>();
+            parameters.put("hibernate.connection.driver_class", "org.h2.Driver");
+            parameters.put("hibernate.connection.url", "jdbc:h2:mem:feed-retention;DB_CLOSE_DELAY=-1");
+            parameters.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            parameters.put("hibernate.connection.username", "sa");
+            parameters.put("hibernate.connection.password", "");
+            parameters.put("hibernate.hbm2ddl.auto", "create");
+
+            feedRepository = new HibernateFeedRepository(parameters);
+
+            // Entry n is n hours old and in category "a"
+            final long now = System.currentTimeMillis();
+
+            for (int i = 1; i <= 5; i++) {
+                final PersistedEntry entry = new PersistedEntry("urn:uuid:" + i);
+                entry.setFeed(new PersistedFeed(FEED, "urn:uuid:feed"));
+                entry.setEntryBody("<entry xmlns=\"http://www.w3.org/2005/Atom\"/>");
+                entry.setDateLastUpdated(new Date(now - i * HOUR));
+                feedRepository.saveNewEntry(entry, new HashSet<String>(Arrays.asList("a")), false);
+            }
+
+            feedRetention = new HibernateFeedRetention();
+            feedRetention.setFeedRepository(feedRepository);
+            feedRetention.setBatchSize(2);
+            feedRetention.setBatchPauseInMillis(0);
+            progress = mock(RetentionProgress.class);
+        }
+
+        @Test
+        public void shouldPurgeEntriesOlderThanTheMaxAgeInBatches() throws Exception {
+            assertEquals(3, feedRetention.enforce(FEED, new RetentionPolicy(2 * HOUR + HOUR / 2, 0, false), progress));
+
+            assertEquals(Arrays.asList("urn:uuid:1", "urn:uuid:2"), remainingIds());
+            verify(progress).purged(2);
+            verify(progress).purged(1);
+        }
+
+        @Test
+        public void shouldKeepTheNewestMaxEntriesAndTheirCategoryReferences() throws Exception {
+            assertEquals(2, feedRetention.enforce(FEED, new RetentionPolicy(0, 3, false), progress));
+
+            assertEquals(Arrays.asList("urn:uuid:1", "urn:uuid:2", "urn:uuid:3"), remainingIds());
+            assertEquals(3, feedRepository.getFeedHead(FEED, new SimpleCategoryCriteriaGenerator("+a"), 10).size());
+        }
+
+        @Test
+        public void shouldOnlyCountInDryRun() throws Exception {
+            assertEquals(4, feedRetention.enforce(FEED, new RetentionPolicy(HOUR + HOUR / 2, 3, true), progress));
+
+            assertEquals(5, remainingIds().size());
+        }
+
+        private List<String> remainingIds() {
+            final List<String> ids = new ArrayList<String>();
+
+            for (PersistedEntry entry : feedRepository.getFeedHead(FEED, new SimpleCategoryCriteriaGenerator(""), 10)) {
+                ids.add(entry.getEntryId());
+            }
+
+            return ids;
+        }
+    }
+}
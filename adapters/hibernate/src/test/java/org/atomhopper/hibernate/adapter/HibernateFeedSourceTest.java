@@ -117,7 +117,7 @@ public class HibernateFeedSourceTest {
             when( feedRepository.getEntry( MOCK_LAST_MARKER, FEED_NAME ) ).thenReturn( persistedEntry );
             when( feedRepository.getFeedPage( FEED_NAME, persistedEntry, PageDirection.BACKWARD,
                                               new SimpleCategoryCriteriaGenerator( "" ),
-                                              PAGE_SIZE ) ).thenReturn( new ArrayList<PersistedEntry>() );
+                                              PAGE_SIZE + 1 ) ).thenReturn( new ArrayList<PersistedEntry>() );
 
             hibernateFeedSource.setFeedRepository( feedRepository );
             assertEquals( "Should get a 200 response with marker of \"last\"", HttpStatus.OK,
@@ -143,7 +143,7 @@ public class HibernateFeedSourceTest {
             when( feedRepository.getEntry( MOCK_LAST_MARKER, FEED_NAME ) ).thenReturn( persistedEntry );
             when( feedRepository.getFeedPage( FEED_NAME, persistedEntry, PageDirection.BACKWARD,
                                               new SimpleCategoryCriteriaGenerator( "" ),
-                                              PAGE_SIZE ) ).thenReturn( new ArrayList<PersistedEntry>() );
+                                              PAGE_SIZE + 1 ) ).thenReturn( new ArrayList<PersistedEntry>() );
 
             archiveSource.setFeedRepository( feedRepository );
             assertEquals( "Should get a 200 response with marker of \"last\"", HttpStatus.OK,
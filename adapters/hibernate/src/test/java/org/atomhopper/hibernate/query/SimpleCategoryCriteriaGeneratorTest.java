@@ -8,6 +8,7 @@ import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -52,6 +53,12 @@ public class SimpleCategoryCriteriaGeneratorTest {
             assertEquals("Generated inclusion term should match 'term_3'", "term_3", inclusionTerms.get(2));
         }
 
+        @Test
+        public void shouldExposeInclusionTerms() {
+            assertEquals(Arrays.asList("term_1", "term_2"), new SimpleCategoryCriteriaGenerator("+term_1+term_2").getInclusionTerms());
+            assertTrue(new SimpleCategoryCriteriaGenerator("").getInclusionTerms().isEmpty());
+        }
+
         @Test
         public void shouldHandleEscapeOperators() {
             final SimpleCategoryCriteriaGenerator generator = new SimpleCategoryCriteriaGenerator("+\\+term_1+\\+term_2", inclusionTerms);
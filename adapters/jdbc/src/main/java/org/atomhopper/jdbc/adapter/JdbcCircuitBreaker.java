@@ -0,0 +1,112 @@
+package org.atomhopper.jdbc.adapter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the health of one DataSource for the {@link JdbcRetryOnFailureAdvice}.
+ *
+ * <ul>
+ *     <li>CLOSED - calls go through; after failureThreshold consecutive resource
+ *     failures the breaker opens</li>
+ *     <li>OPEN - calls fail fast until openIntervalInMillis has passed</li>
+ *     <li>HALF_OPEN - up to halfOpenTrials calls are let through to probe the
+ *     database; a success closes the breaker, a failure opens it again</li>
+ * </ul>
+ *
+ * The closed state is checked without locking; only state transitions synchronize.
+ */
+public class JdbcCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openIntervalInMillis;
+    private final int halfOpenTrials;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicInteger trialsInFlight = new AtomicInteger();
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+
+    public JdbcCircuitBreaker(int failureThreshold, long openIntervalInMillis, int halfOpenTrials) {
+        this.failureThreshold = failureThreshold;
+        this.openIntervalInMillis = openIntervalInMillis;
+        this.halfOpenTrials = halfOpenTrials;
+    }
+
+    /**
+     * @return true if the call may go to the database. A caller that was
+     * allowed through must report back through {@link #onSuccess()} or
+     * {@link #onFailure()}.
+     */
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (currentTimeMillis() - openedAt < openIntervalInMillis) {
+                    return false;
+                }
+
+                state = State.HALF_OPEN;
+                trialsInFlight.set(0);
+            }
+
+            if (state == State.HALF_OPEN) {
+                if (trialsInFlight.get() >= halfOpenTrials) {
+                    return false;
+                }
+
+                trialsInFlight.incrementAndGet();
+            }
+
+            return true;
+        }
+    }
+
+    public void onSuccess() {
+        if (state != State.CLOSED) {
+            synchronized (this) {
+                state = State.CLOSED;
+                trialsInFlight.set(0);
+            }
+        }
+
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * @return true if this failure opened the breaker
+     */
+    public boolean onFailure() {
+        if (state == State.CLOSED && consecutiveFailures.incrementAndGet() < failureThreshold) {
+            return false;
+        }
+
+        synchronized (this) {
+            if (state == State.OPEN) {
+                return false;
+            }
+
+            state = State.OPEN;
+            openedAt = currentTimeMillis();
+            consecutiveFailures.set(0);
+            return true;
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
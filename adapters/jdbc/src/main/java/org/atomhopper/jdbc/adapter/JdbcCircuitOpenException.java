@@ -0,0 +1,14 @@
+package org.atomhopper.jdbc.adapter;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+/**
+ * Thrown by the {@link JdbcRetryOnFailureAdvice} instead of calling the database
+ * while the circuit breaker of its DataSource is open.
+ */
+public class JdbcCircuitOpenException extends DataAccessResourceFailureException {
+
+    public JdbcCircuitOpenException(String msg) {
+        super(msg);
+    }
+}
@@ -2,7 +2,9 @@ package org.atomhopper.jdbc.adapter;
 
 import com.yammer.metrics.Metrics;
 import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
 import com.yammer.metrics.core.TimerContext;
+import org.apache.abdera.Abdera;
 import org.apache.abdera.model.Categories;
 import org.apache.abdera.model.Entry;
 import org.apache.commons.lang.StringUtils;
@@ -17,6 +19,12 @@ import org.atomhopper.jdbc.model.PersistedEntry;
 import org.atomhopper.jdbc.query.PostgreSQLTextArray;
 import org.atomhopper.response.AdapterResponse;
 import org.atomhopper.response.EmptyBody;
+import org.atomhopper.util.id.EntryIdGenerator;
+import org.atomhopper.util.id.RandomUuidEntryIdGenerator;
+import org.atomhopper.util.id.RecentEntryIdFilter;
+import org.atomhopper.util.stax.StreamedEntry;
+import org.atomhopper.util.stax.StreamedEntryPatcher;
+import org.atomhopper.util.stax.StreamingEntryProcessor;
 import org.atomhopper.util.uri.template.EnumKeyedTemplateParameters;
 import org.atomhopper.util.uri.template.URITemplate;
 import org.slf4j.Logger;
@@ -39,10 +47,12 @@ import static org.apache.abdera.i18n.text.UrlEncoding.decode;
  *     <li>Populates a PersistedEntry instance to be written to the database</li>
  *     <li>Records performance metrics</li>
  *     <li>Supports overriding the timestamp</li>
- *     <li>Supports overriding the id</li>
+ *     <li>Supports overriding the id, optionally rejecting recently published duplicates without an insert</li>
+ *     <li>Pluggable generation of entry ids, e.g. time ordered ids for better index locality</li>
  *     <li>Insert categories with predefined prefixes to specified columns for better search performance</li>
  *     <li>Insert specified categories into the generic categories column as well as to the specified column
  *     for migration purposes</li>
+ *     <li>Optionally streams posted entries instead of parsing them into an Abdera document</li>
  * </ul>
  *
  * Mapping category prefixes to postgres columns is done through the following:
@@ -57,13 +67,16 @@ import static org.apache.abdera.i18n.text.UrlEncoding.decode;
 public class JdbcFeedPublisher implements FeedPublisher, InitializingBean {
 
     private static final Logger LOG = LoggerFactory.getLogger( JdbcFeedPublisher.class );
-    private static final String UUID_URI_SCHEME = "urn:uuid:";
     private static final String LINKREL_SELF = "self";
+    private static final StreamingEntryProcessor STREAMING_ENTRY_PROCESSOR = new StreamingEntryProcessor();
     private JdbcTemplate jdbcTemplate;
 
+    private EntryIdGenerator entryIdGenerator = new RandomUuidEntryIdGenerator();
+    private RecentEntryIdFilter recentEntryIdFilter;
     private boolean allowOverrideId = false;
     private boolean allowOverrideDate = false;
     private boolean enableTimers = false;
+    private boolean streamingIngest = false;
 
     private Map<String, String> mapPrefix = new HashMap<String, String>();
     private Set<String> setBothSet = new HashSet<String>();
@@ -76,6 +89,31 @@ public class JdbcFeedPublisher implements FeedPublisher, InitializingBean {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    public void setEntryIdGenerator(EntryIdGenerator entryIdGenerator) {
+        this.entryIdGenerator = entryIdGenerator;
+    }
+
+    /**
+     * With allowOverrideId, ids found in the filter's exact recent id list are
+     * rejected as duplicates without attempting the insert.
+     */
+    public void setRecentEntryIdFilter(final RecentEntryIdFilter recentEntryIdFilter) {
+        this.recentEntryIdFilter = recentEntryIdFilter;
+
+        Metrics.newGauge(JdbcFeedPublisher.class, "recent-id-filter-duplicates", new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return recentEntryIdFilter.getExactHits();
+            }
+        });
+        Metrics.newGauge(JdbcFeedPublisher.class, "recent-id-filter-false-positive-rate", new Gauge<Double>() {
+            @Override
+            public Double value() {
+                return recentEntryIdFilter.getObservedFalsePositiveRate();
+            }
+        });
+    }
+
     public void setAllowOverrideId(boolean allowOverrideId) {
         this.allowOverrideId = allowOverrideId;
     }
@@ -88,6 +126,16 @@ public class JdbcFeedPublisher implements FeedPublisher, InitializingBean {
         this.enableTimers = enableTimers;
     }
 
+    /**
+     * When enabled, posted entries are read with a single StAX pass and stored
+     * without being parsed into an Abdera document. The created response then
+     * echoes the id, self link, dates and categories of the entry rather than
+     * the whole entry.
+     */
+    public void setStreamingIngest(boolean streamingIngest) {
+        this.streamingIngest = streamingIngest;
+    }
+
     protected JdbcTemplate getJdbcTemplate() {
 
         return jdbcTemplate;
@@ -199,6 +247,10 @@ public class JdbcFeedPublisher implements FeedPublisher, InitializingBean {
         final TimerContext context = startTimer("post-entry");
 
         try {
+            if (streamingIngest) {
+                return postStreamedEntry(postEntryRequest);
+            }
+
             final Entry abderaParsedEntry = postEntryRequest.getEntry();
             final PersistedEntry persistedEntry = new PersistedEntry();
 
@@ -208,7 +260,7 @@ public class JdbcFeedPublisher implements FeedPublisher, InitializingBean {
                 persistedEntry.setEntryId(abderaParsedEntry.getId().toString());
             } else {
                 // Generate an ID for this entry
-                persistedEntry.setEntryId(UUID_URI_SCHEME + UUID.randomUUID().toString());
+                persistedEntry.setEntryId(entryIdGenerator.newEntryId());
                 abderaParsedEntry.setId(persistedEntry.getEntryId());
             }
 
@@ -233,22 +285,9 @@ public class JdbcFeedPublisher implements FeedPublisher, InitializingBean {
             abderaParsedEntry.setUpdated(persistedEntry.getDateLastUpdated());
             abderaParsedEntry.setPublished(persistedEntry.getCreationDate());
 
-            final TimerContext dbcontext = startTimer("db-post-entry");
-            try {
-                if ( allowOverrideDate ) {
-
-                    insertDbOverrideDate( persistedEntry );
-
-                } else {
-
-                    insertDb( persistedEntry );
-                }
-
-            } catch (DuplicateKeyException dupEx) {
+            if (!insertEntry(persistedEntry)) {
                 String errMsg = String.format("Unable to persist entry. Reason: entryId (%s) not unique.", abderaParsedEntry.getId().toString());
                 return ResponseBuilder.conflict( errMsg );
-            }  finally {
-                stopTimer(dbcontext);
             }
 
             incrementCounterForFeed(postEntryRequest.getFeedName());
@@ -258,6 +297,93 @@ public class JdbcFeedPublisher implements FeedPublisher, InitializingBean {
         }
     }
 
+    private AdapterResponse<Entry> postStreamedEntry(PostEntryRequest postEntryRequest) {
+        final String feedUrl = decode(postEntryRequest.urlFor(new EnumKeyedTemplateParameters<URITemplate>(URITemplate.FEED)));
+
+        final StreamedEntry streamedEntry = STREAMING_ENTRY_PROCESSOR.process(postEntryRequest.getEntryStream(), new StreamedEntryPatcher() {
+
+            @Override
+            public String resolveEntryId(String suppliedId) {
+                return allowOverrideId && suppliedId != null ? suppliedId : entryIdGenerator.newEntryId();
+            }
+
+            @Override
+            public String selfLinkFor(String entryId) {
+                return feedUrl + "entries/" + entryId;
+            }
+        });
+
+        final PersistedEntry persistedEntry = new PersistedEntry();
+        persistedEntry.setEntryId(streamedEntry.getEntryId());
+
+        if (allowOverrideDate && streamedEntry.getUpdated() != null) {
+            persistedEntry.setDateLastUpdated(streamedEntry.getUpdated());
+            persistedEntry.setCreationDate(streamedEntry.getUpdated());
+        }
+
+        final List<String> categoryTerms = new ArrayList<String>();
+
+        for (String term : streamedEntry.getCategoryTerms()) {
+            categoryTerms.add(term.toLowerCase());
+        }
+
+        persistedEntry.setCategories(categoryTerms.toArray(new String[categoryTerms.size()]));
+        persistedEntry.setFeed(postEntryRequest.getFeedName());
+        persistedEntry.setEntryBody(streamedEntry.getEntryBody());
+
+        if (!insertEntry(persistedEntry)) {
+            String errMsg = String.format("Unable to persist entry. Reason: entryId (%s) not unique.", persistedEntry.getEntryId());
+            return ResponseBuilder.conflict( errMsg );
+        }
+
+        incrementCounterForFeed(postEntryRequest.getFeedName());
+
+        final Entry createdEntry = Abdera.getInstance().newEntry();
+        createdEntry.setId(persistedEntry.getEntryId());
+        createdEntry.addLink(streamedEntry.getSelfLink()).setRel(LINKREL_SELF);
+        createdEntry.setUpdated(persistedEntry.getDateLastUpdated());
+        createdEntry.setPublished(persistedEntry.getCreationDate());
+
+        for (String term : streamedEntry.getCategoryTerms()) {
+            createdEntry.addCategory(term);
+        }
+
+        return ResponseBuilder.created(createdEntry);
+    }
+
+    /**
+     * @return false if an entry with the same id already exists
+     */
+    private boolean insertEntry(PersistedEntry persistedEntry) {
+        final boolean filterIds = allowOverrideId && recentEntryIdFilter != null;
+
+        if (filterIds && recentEntryIdFilter.check(persistedEntry.getFeed(), persistedEntry.getEntryId()) == RecentEntryIdFilter.Verdict.DUPLICATE) {
+            return false;
+        }
+
+        final TimerContext dbcontext = startTimer("db-post-entry");
+        try {
+            if ( allowOverrideDate ) {
+
+                insertDbOverrideDate( persistedEntry );
+
+            } else {
+
+                insertDb( persistedEntry );
+            }
+
+            if (filterIds) {
+                recentEntryIdFilter.record(persistedEntry.getFeed(), persistedEntry.getEntryId());
+            }
+
+            return true;
+        } catch (DuplicateKeyException dupEx) {
+            return false;
+        }  finally {
+            stopTimer(dbcontext);
+        }
+    }
+
     private String[] processCategories(List<org.apache.abdera.model.Category> abderaCategories) {
         final List<String> categoriesList = new ArrayList<String>();
 
@@ -0,0 +1,131 @@
+package org.atomhopper.jdbc.adapter;
+
+import org.atomhopper.retention.BatchPause;
+import org.atomhopper.retention.RetentionEnforcer;
+import org.atomhopper.retention.RetentionPolicy;
+import org.atomhopper.retention.RetentionProgress;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Purges entries from the entries table in the (datelastupdated, id) order of
+ * its primary key, batchSize rows per statement.
+ *
+ * Every batch is its own short transaction, so a purge never holds locks on
+ * more than batchSize rows and replication sees small commits. The purge
+ * pauses batchPauseInMillis between batches to leave I/O to the publishers.
+ *
+ * The cutoff is the later of the age cutoff and the (datelastupdated, id) of
+ * the feed's maxEntries-th newest entry, everything before it is purged.
+ */
+public class JdbcFeedRetention implements RetentionEnforcer {
+
+    private static final String SELECT_COUNT_CUTOFF = "SELECT datelastupdated, id FROM entries WHERE feed = ? "
+            + "ORDER BY datelastupdated DESC, id DESC LIMIT 1 OFFSET ?";
+
+    private static final String COUNT_BEFORE = "SELECT COUNT(*) FROM entries WHERE feed = ? AND (datelastupdated, id) < (?, ?)";
+
+    // Matched on the whole primary key, nothing indexes id by itself
+    private static final String DELETE_BATCH = "DELETE FROM entries WHERE (datelastupdated, id) IN "
+            + "(SELECT datelastupdated, id FROM entries WHERE feed = ? AND (datelastupdated, id) < (?, ?) ORDER BY datelastupdated, id LIMIT ?)";
+
+    private JdbcTemplate jdbcTemplate;
+    private int batchSize = 1000;
+    private long batchPauseInMillis = 100;
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setBatchPauseInMillis(long batchPauseInMillis) {
+        this.batchPauseInMillis = batchPauseInMillis;
+    }
+
+    @Override
+    public long enforce(String feedName, RetentionPolicy policy, RetentionProgress progress) {
+        final Cutoff cutoff = getCutoff(feedName, policy);
+
+        if (cutoff == null) {
+            return 0;
+        }
+
+        if (policy.isDryRun()) {
+            return jdbcTemplate.queryForLong(COUNT_BEFORE, feedName, cutoff.dateLastUpdated, cutoff.id);
+        }
+
+        long purged = 0;
+        int deleted;
+
+        do {
+            deleted = jdbcTemplate.update(DELETE_BATCH, feedName, cutoff.dateLastUpdated, cutoff.id, batchSize);
+            purged += deleted;
+            progress.purged(deleted);
+        } while (deleted >= batchSize && BatchPause.pause(batchPauseInMillis));
+
+        return purged;
+    }
+
+    Cutoff getCutoff(String feedName, RetentionPolicy policy) {
+        Cutoff cutoff = policy.hasMaxAge()
+                ? new Cutoff(new Timestamp(policy.getAgeCutoff(System.currentTimeMillis()).getTime()), 0)
+                : null;
+
+        if (policy.hasMaxEntries()) {
+            final Cutoff countCutoff = getCountCutoff(feedName, policy.getMaxEntries());
+
+            if (countCutoff != null && (cutoff == null || countCutoff.isAfter(cutoff))) {
+                cutoff = countCutoff;
+            }
+        }
+
+        return cutoff;
+    }
+
+    private Cutoff getCountCutoff(String feedName, long maxEntries) {
+        try {
+            // The oldest entry retained, everything before it goes
+            return jdbcTemplate.queryForObject(SELECT_COUNT_CUTOFF, new RowMapper<Cutoff>() {
+                @Override
+                public Cutoff mapRow(ResultSet rs, int rowNum) throws SQLException {
+                    return new Cutoff(rs.getTimestamp("datelastupdated"), rs.getLong("id"));
+                }
+            }, feedName, maxEntries - 1);
+        } catch (EmptyResultDataAccessException ex) {
+            return null;
+        }
+    }
+
+    static final class Cutoff {
+
+        private final Timestamp dateLastUpdated;
+        private final long id;
+
+        Cutoff(Timestamp dateLastUpdated, long id) {
+            this.dateLastUpdated = dateLastUpdated;
+            this.id = id;
+        }
+
+        Timestamp getDateLastUpdated() {
+            return dateLastUpdated;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        private boolean isAfter(Cutoff other) {
+            final int byDate = dateLastUpdated.compareTo(other.dateLastUpdated);
+
+            return byDate > 0 || (byDate == 0 && id > other.id);
+        }
+    }
+}
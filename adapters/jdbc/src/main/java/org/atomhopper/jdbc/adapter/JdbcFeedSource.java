@@ -51,6 +51,7 @@ import static org.apache.abdera.i18n.text.UrlEncoding.decode;
  *     <li>Generating the feed entries from PersistedEntry instances</li>
  *     <li>Accessing data from a postgres table where all categories are treated equally</li>
  *     <li>Read categories with predefined prefixes from specified columns for better search performance</li>
+ *     <li>Optionally paging in commit order, see {@link #setEnableCommitOrdering(Boolean)}</li>
  * </ul>
  *
  * Mapping category prefixes to postgres columns is done through the following:
@@ -82,6 +83,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
     private boolean enableTimers = false;
     private boolean enableLoggingOnShortPage = false;
     private int feedHeadDelayInSeconds = 2;
+    private boolean enableCommitOrdering = false;
 
     private Map<String, String> mapPrefix = new HashMap<String, String>();
     private Map<String, String> mapColumn = new HashMap<String, String>();
@@ -142,6 +144,17 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
         this.feedHeadDelayInSeconds = feedHeadDelayInSeconds;
     }
 
+    /**
+     * When enabled, pages and markers are ordered by the id of the transaction
+     * that inserted each entry (the 'txid' column) and an entry becomes visible
+     * as soon as every older transaction has finished, instead of after the
+     * fixed feedHeadDelayInSeconds. Requires the ddl/jdbc/add-commit-sequence.sql
+     * migration to have completed all of its steps.
+     */
+    public void setEnableCommitOrdering(Boolean enableCommitOrdering) {
+        this.enableCommitOrdering = enableCommitOrdering;
+    }
+
     public void setPrefixColumnMap( Map<String, String> prefix ) {
 
         mapPrefix = new HashMap<String, String>( prefix );
@@ -208,7 +221,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
     }
 
     protected List<PersistedEntry> getFeedBackward( String feedName,
-                                                    Date markerTimestamp,
+                                                    Object markerPosition,
                                                     long markerId,
                                                     String searchString,
                                                     int pageSize ) {
@@ -217,9 +230,9 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
 
 
         List<PersistedEntry> feedPage;
-        Object[] parmsBack = createParams( feedName, markerTimestamp, markerId, pageSize, categoriesList );
+        Object[] parmsBack = createParams( feedName, markerPosition, markerId, pageSize, categoriesList );
         SqlBuilder sqlBac = new SqlBuilder( getSearchToSqlConverter() ).searchString(searchString);
-        sqlBac.searchType( SearchType.FEED_BACKWARD);
+        sqlBac.searchType( SearchType.FEED_BACKWARD).commitOrdered( enableCommitOrdering );
 
         feedPage = getJdbcTemplate().query(sqlBac.toString(),parmsBack, getRowMapper() );
 
@@ -227,7 +240,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
     }
 
     protected List<PersistedEntry> getFeedForward( String feedName,
-                                                   Date markerTimestamp,
+                                                   Object markerPosition,
                                                    long markerId,
                                                    String searchString,
                                                    int pageSize,
@@ -236,9 +249,10 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
         List<String> categoriesList = getSearchToSqlConverter().getParamsFromSearchString( searchString );
 
         List<PersistedEntry> feedPage;
-        Object[] parmsFor = createParams( feedName, markerTimestamp, markerId, pageSize, categoriesList );
+        Object[] parmsFor = createParams( feedName, markerPosition, markerId, pageSize, categoriesList );
         SqlBuilder sqlFor = new SqlBuilder( getSearchToSqlConverter() ).searchString(searchString);
-        sqlFor.searchType( SearchType.FEED_FORWARD).feedHeadDelayInSeconds( feedHeadDelayInSeconds );
+        sqlFor.searchType( SearchType.FEED_FORWARD).feedHeadDelayInSeconds( feedHeadDelayInSeconds )
+              .commitOrdered( enableCommitOrdering );
         feedPage = getJdbcTemplate().query( sqlFor.toString(), parmsFor, getRowMapper() );
 
         return feedPage;
@@ -255,7 +269,8 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
 
         SqlBuilder sqlBuilder = new SqlBuilder( getSearchToSqlConverter() )
               .searchType(direction == PageDirection.BACKWARD ? SearchType.BY_TIMESTAMP_BACKWARD : SearchType.BY_TIMESTAMP_FORWARD)
-              .startingTimestamp(markerDate);
+              .startingTimestamp(markerDate)
+              .commitOrdered(enableCommitOrdering);
 
         List<PersistedEntry> entry = getJdbcTemplate()
               .query(sqlBuilder.toString(), new Object[]{feedName}, getRowMapper());
@@ -465,7 +480,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
 
         final Feed feed = hydrateFeed(getFeedRequest.getAbdera(),
                                       enhancedGetFeedPage(getFeedRequest.getFeedName(),
-                                                          entryMarker.getDateLastUpdated(),
+                                                          markerPosition(entryMarker),
                                                           entryMarker.getId(),
                                                           pageDirection,
                                                           searchString, pageSize),
@@ -492,7 +507,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
 
         final Feed feed = hydrateFeed(getFeedRequest.getAbdera(),
                                       enhancedGetFeedPage(getFeedRequest.getFeedName(),
-                                                          entryMarker.getDateLastUpdated(),
+                                                          markerPosition(entryMarker),
                                                           entryMarker.getId(),
                                                           pageDirection,
                                                           searchString, pageSize),
@@ -518,7 +533,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
-    private List<PersistedEntry> enhancedGetFeedPage(final String feedName, final Date markerTimestamp,
+    private List<PersistedEntry> enhancedGetFeedPage(final String feedName, final Object markerPosition,
                                                      final long markerId,
                                                      final PageDirection direction, final String searchString,
                                                      final int pageSize) {
@@ -542,7 +557,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
                               String.format("db-get-feed-page-forward-%s", getMetricBucketForPageSize(pageSize)));
                     }
                     feedPage = getFeedForward( feedName,
-                                               markerTimestamp,
+                                               markerPosition,
                                                markerId,
                                                searchString,
                                                pageSize,
@@ -562,7 +577,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
                               String.format("db-get-feed-page-backward-%s", getMetricBucketForPageSize(pageSize)));
                     }
                     feedPage = getFeedBackward( feedName,
-                                                markerTimestamp,
+                                                markerPosition,
                                                 markerId,
                                                 searchString,
                                                 pageSize );
@@ -607,7 +622,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
             }
 
             SqlBuilder sql = new SqlBuilder( getSearchToSqlConverter() ).searchType(SearchType.FEED_HEAD).searchString(searchString)
-                  .feedHeadDelayInSeconds(feedHeadDelayInSeconds);
+                  .feedHeadDelayInSeconds(feedHeadDelayInSeconds).commitOrdered(enableCommitOrdering);
 
             return jdbcTemplate.query(sql.toString(), parms, getRowMapper() );
 
@@ -648,7 +663,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
             }
 
             SqlBuilder sql = new SqlBuilder( getSearchToSqlConverter() ).searchType( SearchType.LAST_PAGE ).searchString( searchString )
-                  .feedHeadDelayInSeconds( feedHeadDelayInSeconds );
+                  .feedHeadDelayInSeconds( feedHeadDelayInSeconds ).commitOrdered( enableCommitOrdering );
 
             lastPersistedEntries = jdbcTemplate.query(sql.toString(), parms, getRowMapper());
 
@@ -674,23 +689,24 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
             parms = new Object[numCats * 2 + 5];
             int index = 0;
             parms[index++] = feedName;
-            parms[index++] = persistedEntry.getDateLastUpdated();
+            parms[index++] = markerPosition(persistedEntry);
             parms[index++] = persistedEntry.getId();
             for (String s : categoriesList) {
                 parms[index++] = s;
             }
             parms[index++] = feedName;
-            parms[index++] = persistedEntry.getDateLastUpdated();
+            parms[index++] = markerPosition(persistedEntry);
             for (String s : categoriesList) {
                 parms[index++] = s;
             }
 
         } else {
-            parms = new Object[]{feedName, persistedEntry.getDateLastUpdated(), persistedEntry.getId(),
-                  feedName, persistedEntry.getDateLastUpdated()};
+            parms = new Object[]{feedName, markerPosition(persistedEntry), persistedEntry.getId(),
+                  feedName, markerPosition(persistedEntry)};
         }
 
-        SqlBuilder sql = new SqlBuilder( getSearchToSqlConverter() ).searchType(SearchType.NEXT_LINK).searchString(searchString);
+        SqlBuilder sql = new SqlBuilder( getSearchToSqlConverter() ).searchType(SearchType.NEXT_LINK).searchString(searchString)
+              .commitOrdered(enableCommitOrdering);
 
         List<PersistedEntry> nextEntry = jdbcTemplate
               .query(sql.toString(), parms, getRowMapper());
@@ -698,6 +714,13 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
         return nextEntry.size() > 0 ? nextEntry.get(0) : null;
     }
 
+    /**
+     * @return the value of the column pages are ordered by for the given marker entry
+     */
+    private Object markerPosition(PersistedEntry persistedEntry) {
+        return enableCommitOrdering ? (Object) persistedEntry.getTxid() : persistedEntry.getDateLastUpdated();
+    }
+
     private String urlEncode(String searchString) {
         try {
             return URLEncoder.encode( searchString, "UTF-8" );
@@ -738,7 +761,7 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
     }
 
     protected Object[] createParams( String feedName,
-                                     Date markerTimestamp,
+                                     Object markerPosition,
                                      long markerId,
                                      int pageSize,
                                      List<String> categoriesList ) {
@@ -751,21 +774,21 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
             parms = new Object[numCats * 2 + 7];
             int index = 0;
             parms[index++] = feedName;
-            parms[index++] = markerTimestamp;
+            parms[index++] = markerPosition;
             parms[index++] = markerId;
             for (String s : categoriesList) {
                 parms[index++] = s;
             }
             parms[index++] = feedName;
-            parms[index++] = markerTimestamp;
+            parms[index++] = markerPosition;
             for (String s : categoriesList) {
                 parms[index++] = s;
             }
             parms[index++] = pageSize;
             parms[index++] = pageSize;
         } else {
-            parms = new Object[]{feedName, markerTimestamp, markerId,
-                  feedName, markerTimestamp, pageSize, pageSize};
+            parms = new Object[]{feedName, markerPosition, markerId,
+                  feedName, markerPosition, pageSize, pageSize};
         }
         return parms;
     }
@@ -793,6 +816,9 @@ public class JdbcFeedSource implements FeedSource, InitializingBean {
             entry.setEntryBody(rs.getString("entrybody"));
             entry.setEntryId(rs.getString("entryid"));
 
+            if ( enableCommitOrdering ) {
+                entry.setTxid(rs.getLong("txid"));
+            }
 
             List<String> cats = new ArrayList<String>( Arrays.asList( (String[])rs.getArray( "categories" ).getArray() ) );
 
@@ -1,15 +1,37 @@
 package org.atomhopper.jdbc.adapter;
 
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.MetricName;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.postgresql.util.PSQLException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.support.JdbcAccessor;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class is an Around Advice meant to surround a call to the JdbcTemplate accessing
  * a Postgres database.
  *
+ * <ul>
+ *     <li>Retries calls failing with one of the configured SQL states, waiting an exponentially
+ *     growing, jittered interval starting at retryWaitInMillis and capped at maxRetryWaitInMillis</li>
+ *     <li>Limits retries across all request threads with a retry budget: every call deposits
+ *     retryBudgetRatio tokens, every retry spends one, and the balance never exceeds
+ *     retryBudgetCapacity. Once the budget is spent failures are returned immediately</li>
+ *     <li>When circuitBreakerFailureThreshold is set, keeps a {@link JdbcCircuitBreaker} per
+ *     DataSource. While it is open calls fail fast with a {@link JdbcCircuitOpenException}
+ *     instead of waiting on the database</li>
+ *     <li>Publishes the breaker states and retry counters through yammer metrics</li>
+ * </ul>
+ *
  * User: shin4590
  * Date: 7/23/13
  * Time: 4:21 PM
@@ -18,39 +40,200 @@ public class JdbcRetryOnFailureAdvice {
 
     private static final Logger LOG = LoggerFactory.getLogger(JdbcRetryOnFailureAdvice.class);
 
+    private static final long TOKEN = 1000;
+
     private String sqlStatesToRetry = "";
 
     private int maxRetriesOnConnDrop = 0;
 
     private long retryWaitInMillis = 1000;
 
+    private long maxRetryWaitInMillis = 10000;
+
+    private double retryBudgetRatio = 0.2;
+
+    private int retryBudgetCapacity = 100;
+
+    private int circuitBreakerFailureThreshold = 0;
+
+    private long circuitBreakerOpenIntervalInMillis = 5000;
+
+    private int circuitBreakerHalfOpenTrials = 1;
+
+    // Retry budget balance in thousandths of a retry, starts out full
+    private final AtomicLong retryBudget = new AtomicLong(retryBudgetCapacity * TOKEN);
+
+    private final ConcurrentMap<Object, JdbcCircuitBreaker> circuitBreakers = new ConcurrentHashMap<Object, JdbcCircuitBreaker>();
+
+    private final Random jitter = new Random();
+
+    private final Counter retries = Metrics.newCounter(JdbcRetryOnFailureAdvice.class, "retries");
+    private final Counter retryBudgetExhausted = Metrics.newCounter(JdbcRetryOnFailureAdvice.class, "retry-budget-exhausted");
+    private final Counter shortCircuited = Metrics.newCounter(JdbcRetryOnFailureAdvice.class, "short-circuited");
+    private final Counter circuitsOpened = Metrics.newCounter(JdbcRetryOnFailureAdvice.class, "circuits-opened");
+
     public Object retryOnFailure(ProceedingJoinPoint jp) throws Throwable {
-        Object result = null;
+        final JdbcCircuitBreaker circuitBreaker = circuitBreakerFor(jp.getTarget());
+        depositRetryBudget();
+
         int retryCount = 0;
-        do {
+        while (true) {
+            if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+                shortCircuited.inc();
+                throw new JdbcCircuitOpenException("Circuit breaker is open, the database is considered unavailable");
+            }
+
             try {
                 Object[] args = jp.getArgs();
+                final Object result;
                 if ( args != null && args.length > 0 )
                     result = jp.proceed(jp.getArgs());
                 else
                     result = jp.proceed();
-                break;
+
+                if (circuitBreaker != null) {
+                    circuitBreaker.onSuccess();
+                }
+                return result;
             } catch (DataAccessResourceFailureException ex) {
-                if ( ex.getCause() instanceof PSQLException ) {
-                    PSQLException psqlEx = (PSQLException) ex.getCause();
-                    String sqlState = psqlEx.getSQLState();
-                    LOG.warn("Got exception with sqlState=" + sqlState + ": " + ex);
-                    if ( sqlStatesToRetry.contains(sqlState) && retryCount < maxRetriesOnConnDrop ) {
-                        LOG.warn("Retrying...(retryCount=" + retryCount + ")");
-                        sleep(retryWaitInMillis);
-                    } else {
-                        throw ex;
-                    }
+                if (circuitBreaker != null && circuitBreaker.onFailure()) {
+                    circuitsOpened.inc();
+                    LOG.error("Opened the circuit breaker after repeated database failures: " + ex);
                 }
+
+                if ( !isRetryable(ex) || retryCount >= maxRetriesOnConnDrop ) {
+                    throw ex;
+                }
+
+                if ( !withdrawRetryBudget() ) {
+                    retryBudgetExhausted.inc();
+                    LOG.warn("Retry budget exhausted, not retrying: " + ex);
+                    throw ex;
+                }
+
+                LOG.warn("Retrying...(retryCount=" + retryCount + ")");
+                retries.inc();
+
+                if ( !sleep(backoff(retryCount)) ) {
+                    throw ex;
+                }
+            } catch (Throwable ex) {
+                // Anything else means the database answered
+                if (circuitBreaker != null) {
+                    circuitBreaker.onSuccess();
+                }
+                throw ex;
             }
             retryCount++;
-        } while ( retryCount <= maxRetriesOnConnDrop );
-        return result;
+        }
+    }
+
+    private boolean isRetryable(DataAccessResourceFailureException ex) {
+        if ( ex.getCause() instanceof PSQLException ) {
+            PSQLException psqlEx = (PSQLException) ex.getCause();
+            String sqlState = psqlEx.getSQLState();
+            LOG.warn("Got exception with sqlState=" + sqlState + ": " + ex);
+            return sqlState != null && sqlStatesToRetry.contains(sqlState);
+        }
+
+        return false;
+    }
+
+    /**
+     * @return a random wait between half and all of retryWaitInMillis * 2^retryCount,
+     * capped at maxRetryWaitInMillis
+     */
+    long backoff(int retryCount) {
+        final long ceiling = Math.min(maxRetryWaitInMillis, retryWaitInMillis << Math.min(retryCount, 30));
+        final long half = ceiling / 2;
+
+        synchronized (jitter) {
+            return half + (half > 0 ? (long) (jitter.nextDouble() * (ceiling - half + 1)) : 0);
+        }
+    }
+
+    private void depositRetryBudget() {
+        final long capacity = retryBudgetCapacity * TOKEN;
+        final long deposit = (long) (retryBudgetRatio * TOKEN);
+
+        while (true) {
+            final long balance = retryBudget.get();
+            final long updated = Math.min(capacity, balance + deposit);
+
+            if (updated == balance || retryBudget.compareAndSet(balance, updated)) {
+                return;
+            }
+        }
+    }
+
+    private boolean withdrawRetryBudget() {
+        while (true) {
+            final long balance = retryBudget.get();
+
+            if (balance < TOKEN) {
+                return false;
+            }
+
+            if (retryBudget.compareAndSet(balance, balance - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    private JdbcCircuitBreaker circuitBreakerFor(Object target) {
+        if (circuitBreakerFailureThreshold <= 0) {
+            return null;
+        }
+
+        final Object key = target instanceof JdbcAccessor && ((JdbcAccessor) target).getDataSource() != null
+                ? ((JdbcAccessor) target).getDataSource()
+                : target;
+
+        if (key == null) {
+            return null;
+        }
+
+        JdbcCircuitBreaker circuitBreaker = circuitBreakers.get(key);
+
+        if (circuitBreaker == null) {
+            final JdbcCircuitBreaker created = new JdbcCircuitBreaker(circuitBreakerFailureThreshold,
+                    circuitBreakerOpenIntervalInMillis, circuitBreakerHalfOpenTrials);
+            circuitBreaker = circuitBreakers.putIfAbsent(key, created);
+
+            if (circuitBreaker == null) {
+                circuitBreaker = created;
+                registerStateGauge(key, created);
+            }
+        }
+
+        return circuitBreaker;
+    }
+
+    private void registerStateGauge(Object key, final JdbcCircuitBreaker circuitBreaker) {
+        final String scope = key.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(key));
+
+        Metrics.newGauge(new MetricName(JdbcRetryOnFailureAdvice.class, "circuit-breaker-state", scope), new Gauge<String>() {
+            @Override
+            public String value() {
+                return circuitBreaker.getState().name();
+            }
+        });
+    }
+
+    /**
+     * @return the state of the circuit breaker guarding the given JdbcTemplate's DataSource
+     */
+    public JdbcCircuitBreaker.State getCircuitBreakerState(JdbcAccessor jdbcAccessor) {
+        final JdbcCircuitBreaker circuitBreaker = circuitBreakers.get(jdbcAccessor.getDataSource());
+
+        return circuitBreaker != null ? circuitBreaker.getState() : JdbcCircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * @return the number of retries that may currently be spent
+     */
+    public long getRetryBudgetBalance() {
+        return retryBudget.get() / TOKEN;
     }
 
     public String getSqlStatesToRetry() {
@@ -77,11 +260,66 @@ public class JdbcRetryOnFailureAdvice {
         this.retryWaitInMillis = retryWaitInMillis;
     }
 
-    private void sleep(long sleepTime) {
+    public long getMaxRetryWaitInMillis() {
+        return maxRetryWaitInMillis;
+    }
+
+    public void setMaxRetryWaitInMillis(long maxRetryWaitInMillis) {
+        this.maxRetryWaitInMillis = maxRetryWaitInMillis;
+    }
+
+    public double getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    public void setRetryBudgetRatio(double retryBudgetRatio) {
+        this.retryBudgetRatio = retryBudgetRatio;
+    }
+
+    public int getRetryBudgetCapacity() {
+        return retryBudgetCapacity;
+    }
+
+    public void setRetryBudgetCapacity(int retryBudgetCapacity) {
+        this.retryBudgetCapacity = retryBudgetCapacity;
+        this.retryBudget.set(retryBudgetCapacity * TOKEN);
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * @param circuitBreakerFailureThreshold consecutive resource failures that open the
+     * circuit breaker, 0 or less (the default) disables it
+     */
+    public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    public long getCircuitBreakerOpenIntervalInMillis() {
+        return circuitBreakerOpenIntervalInMillis;
+    }
+
+    public void setCircuitBreakerOpenIntervalInMillis(long circuitBreakerOpenIntervalInMillis) {
+        this.circuitBreakerOpenIntervalInMillis = circuitBreakerOpenIntervalInMillis;
+    }
+
+    public int getCircuitBreakerHalfOpenTrials() {
+        return circuitBreakerHalfOpenTrials;
+    }
+
+    public void setCircuitBreakerHalfOpenTrials(int circuitBreakerHalfOpenTrials) {
+        this.circuitBreakerHalfOpenTrials = circuitBreakerHalfOpenTrials;
+    }
+
+    private boolean sleep(long sleepTime) {
         try {
             Thread.sleep(sleepTime);
-        } catch(Exception ex) {
-            // ignore
+            return true;
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 }
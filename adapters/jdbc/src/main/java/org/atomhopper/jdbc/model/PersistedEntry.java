@@ -10,6 +10,7 @@ import java.util.TimeZone;
 public class PersistedEntry {
 
     private long id;
+    private long txid;
     private String entryId;
     private String feed;
     private String entryBody;
@@ -33,6 +34,18 @@ public class PersistedEntry {
         this.id = id;
     }
 
+    /**
+     * @return the id of the transaction that inserted this entry, which is
+     * only read when the feed source pages in commit order
+     */
+    public long getTxid() {
+        return txid;
+    }
+
+    public void setTxid(long txid) {
+        this.txid = txid;
+    }
+
     public String getEntryId() {
         return entryId;
     }
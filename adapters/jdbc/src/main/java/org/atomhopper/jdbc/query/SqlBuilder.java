@@ -10,6 +10,7 @@ public class SqlBuilder {
     private String searchString;
     private SearchType type;
     private int feedHeadDelayInSeconds = -1;
+    private boolean commitOrdered = false;
     private DateTime startingTimestamp;
 
     private static final String EQUALS = "=";
@@ -24,16 +25,23 @@ public class SqlBuilder {
     private static final String SELECT = "SELECT * FROM entries WHERE feed = ?";
     private static final String AND = "AND";
     private static final String SPACE = " ";
-    private static final String DATELASTUPDATED = "datelastupdated %s ?";
+    private static final String DATELASTUPDATED = "datelastupdated";
+    private static final String COMMIT_TXID = "txid";
+    private static final String POSITION = "%s %s ?";
     private static final String ID = "id %s ?";
 
     private static final String UNION_ALL = "UNION ALL";
 
-    private static final String ORDER_BY_ASC = "ORDER BY datelastupdated ASC, id ASC LIMIT ?";
+    private static final String ORDER_BY_ASC = "ORDER BY %s ASC, id ASC LIMIT ?";
     private static final String ORDER_BY_ASC_LIMIT = "ORDER BY datelastupdated ASC, id ASC LIMIT %s";
     private static final String ORDER_BY_DATE_ASC_ID_DESC_LIMIT = "ORDER BY datelastupdated ASC, id DESC LIMIT %s";
-    private static final String ORDER_BY_DESC_LIMIT = "ORDER BY datelastupdated DESC, id DESC LIMIT %s";
+    private static final String ORDER_BY_DESC_LIMIT = "ORDER BY %s DESC, id DESC LIMIT %s";
     private static final String ORDER_BY_DATE_DESC_ID_ASC_LIMIT = "ORDER BY datelastupdated DESC, id ASC LIMIT %s";
+
+    // Every transaction with an id below the xmin of the current snapshot has
+    // finished, and no transaction that starts later can be assigned a lower id.
+    // Rows under this watermark can therefore be paged over without skipping any.
+    private static final String COMMITTED_WATERMARK = " txid < txid_snapshot_xmin(txid_current_snapshot()) ";
     private static final String DB_TIMESTAMP_PATTERN = "yyyy-MM-dd HH:mm:ss.SSS z";
 
     private SearchToSqlConverter searchToSqlConverter;
@@ -58,6 +66,16 @@ public class SqlBuilder {
         return this;
     }
 
+    /**
+     * Pages on the (txid, id) commit sequence instead of (datelastupdated, id)
+     * and hides only the entries of transactions that may still be in flight.
+     * The feed head delay is ignored in this mode.
+     */
+    public SqlBuilder commitOrdered(boolean commitOrdered) {
+        this.commitOrdered = commitOrdered;
+        return this;
+    }
+
     public SqlBuilder startingTimestamp(DateTime timestamp) {
         this.startingTimestamp = timestamp;
         return this;
@@ -74,7 +92,7 @@ public class SqlBuilder {
                 builder.append(OPEN_PARENS);
                 builder.append(String.format(SELECT));
                 builder.append(SPACE + AND + SPACE);
-                builder.append(String.format(DATELASTUPDATED, EQUALS));
+                builder.append(String.format(POSITION, orderColumn(), EQUALS));
                 builder.append(SPACE + AND + SPACE);
                 builder.append(String.format(ID, GREATER_THAN));
                 builder.append(SPACE);
@@ -84,26 +102,14 @@ public class SqlBuilder {
                     builder.append(searchSql);
                 }
 
-                // D-15000: when we are getting feed head and there are
-                // aggressive inserts going on at the same time, Postgres
-                // does not guarantee that entries that are inserted later
-                // will have later timestamps. This is just due to the nature
-                // of multi-process and multi-threaded-ness of the database.
-                // Therefore, we return only entries that have been inserted
-                // in the database n seconds from the current select time.
-                if ( feedHeadDelayInSeconds != -1 ) {
-                    builder.append(AND);
-                    builder.append(" datelastupdated < now() - interval '");
-                    builder.append(feedHeadDelayInSeconds);
-                    builder.append(" seconds' ");
-                }
+                appendVisibilityFilter(builder);
 
                 builder.append(CLOSE_PARENS);
                 builder.append(SPACE + UNION_ALL + SPACE);
                 builder.append(OPEN_PARENS);
                 builder.append(String.format(SELECT));
                 builder.append(SPACE + AND + SPACE);
-                builder.append(String.format(DATELASTUPDATED, GREATER_THAN));
+                builder.append(String.format(POSITION, orderColumn(), GREATER_THAN));
                 builder.append(SPACE);
 
                 if (StringUtils.isNotBlank(searchSql)) {
@@ -111,23 +117,11 @@ public class SqlBuilder {
                     builder.append(searchSql);
                 }
 
-                // D-15000: when we are getting feed head and there are
-                // aggressive inserts going on at the same time, Postgres
-                // does not guarantee that entries that are inserted later
-                // will have later timestamps. This is just due to the nature
-                // of multi-process and multi-threaded-ness of the database.
-                // Therefore, we return only entries that have been inserted
-                // in the database n seconds from the current select time.
-                if ( feedHeadDelayInSeconds != -1 ) {
-                    builder.append(AND);
-                    builder.append(" datelastupdated < now() - interval '");
-                    builder.append(feedHeadDelayInSeconds);
-                    builder.append(" seconds' ");
-                }
+                appendVisibilityFilter(builder);
 
-                builder.append(String.format(ORDER_BY_ASC));
+                builder.append(String.format(ORDER_BY_ASC, orderColumn()));
                 builder.append(CLOSE_PARENS + SPACE);
-                builder.append(String.format(ORDER_BY_ASC));
+                builder.append(String.format(ORDER_BY_ASC, orderColumn()));
 
                 return builder.toString();
 
@@ -135,7 +129,7 @@ public class SqlBuilder {
                 builder.append(OPEN_PARENS);
                 builder.append(String.format(SELECT));
                 builder.append(SPACE + AND + SPACE);
-                builder.append(String.format(DATELASTUPDATED, EQUALS));
+                builder.append(String.format(POSITION, orderColumn(), EQUALS));
                 builder.append(SPACE + AND + SPACE);
                 builder.append(String.format(ID, LESS_THAN+EQUALS));
                 builder.append(SPACE);
@@ -150,7 +144,7 @@ public class SqlBuilder {
                 builder.append(OPEN_PARENS);
                 builder.append(String.format(SELECT));
                 builder.append(SPACE + AND + SPACE);
-                builder.append(String.format(DATELASTUPDATED, LESS_THAN));
+                builder.append(String.format(POSITION, orderColumn(), LESS_THAN));
                 builder.append(SPACE);
 
                 if (StringUtils.isNotBlank(searchSql)) {
@@ -158,9 +152,9 @@ public class SqlBuilder {
                     builder.append(searchSql);
                 }
 
-                builder.append(String.format(ORDER_BY_DESC_LIMIT, QUESTION_MARK));
+                builder.append(String.format(ORDER_BY_DESC_LIMIT, orderColumn(), QUESTION_MARK));
                 builder.append(CLOSE_PARENS + SPACE);
-                builder.append(String.format(ORDER_BY_DESC_LIMIT, QUESTION_MARK));
+                builder.append(String.format(ORDER_BY_DESC_LIMIT, orderColumn(), QUESTION_MARK));
 
                 return builder.toString();
 
@@ -173,21 +167,9 @@ public class SqlBuilder {
                     builder.append(searchSql);
                 }
 
-                // D-15000: when we are getting feed head and there are
-                // aggressive inserts going on at the same time, Postgres
-                // does not guarantee that entries that are inserted later
-                // will have later timestamps. This is just due to the nature
-                // of multi-process and multi-threaded-ness of the database.
-                // Therefore, we return only entries that have been inserted
-                // in the database n seconds from the current select time.
-                if ( feedHeadDelayInSeconds != -1 ) {
-                    builder.append(AND);
-                    builder.append(" datelastupdated < now() - interval '");
-                    builder.append(feedHeadDelayInSeconds);
-                    builder.append(" seconds' ");
-                }
+                appendVisibilityFilter(builder);
 
-                builder.append(String.format(ORDER_BY_DESC_LIMIT, QUESTION_MARK));
+                builder.append(String.format(ORDER_BY_DESC_LIMIT, orderColumn(), QUESTION_MARK));
 
                 return builder.toString();
 
@@ -195,7 +177,7 @@ public class SqlBuilder {
                 builder.append(OPEN_PARENS);
                 builder.append(String.format(SELECT));
                 builder.append(SPACE + AND + SPACE);
-                builder.append(String.format(DATELASTUPDATED, EQUALS));
+                builder.append(String.format(POSITION, orderColumn(), EQUALS));
                 builder.append(SPACE + AND + SPACE);
                 builder.append(String.format(ID, LESS_THAN));
                 builder.append(SPACE);
@@ -210,7 +192,7 @@ public class SqlBuilder {
                 builder.append(OPEN_PARENS);
                 builder.append(String.format(SELECT));
                 builder.append(SPACE + AND + SPACE);
-                builder.append(String.format(DATELASTUPDATED, LESS_THAN));
+                builder.append(String.format(POSITION, orderColumn(), LESS_THAN));
                 builder.append(SPACE);
 
                 if (StringUtils.isNotBlank(searchSql)) {
@@ -218,9 +200,9 @@ public class SqlBuilder {
                     builder.append(searchSql);
                 }
 
-                builder.append(String.format(ORDER_BY_DESC_LIMIT, 1));
+                builder.append(String.format(ORDER_BY_DESC_LIMIT, orderColumn(), 1));
                 builder.append(CLOSE_PARENS + SPACE);
-                builder.append(String.format(ORDER_BY_DESC_LIMIT, 1));
+                builder.append(String.format(ORDER_BY_DESC_LIMIT, orderColumn(), 1));
 
                 return builder.toString();
 
@@ -232,12 +214,7 @@ public class SqlBuilder {
                 builder.append(SELECT);
                 builder.append(" ");
 
-                if ( feedHeadDelayInSeconds != -1 ) {
-                    builder.append(AND);
-                    builder.append(" datelastupdated < now() - interval '");
-                    builder.append(feedHeadDelayInSeconds);
-                    builder.append(" seconds' ");
-                }
+                appendVisibilityFilter(builder);
 
                 DateTimeZone timeZone = startingTimestamp.getZone();
 
@@ -272,24 +249,34 @@ public class SqlBuilder {
                     builder.append(searchSql);
                 }
 
-                // D-15000: when we are getting feed head and there are
-                // aggressive inserts going on at the same time, Postgres
-                // does not guarantee that entries that are inserted later
-                // will have later timestamps. This is just due to the nature
-                // of multi-process and multi-threaded-ness of the database.
-                // Therefore, we return only entries that have been inserted
-                // in the database n seconds from the current select time.
-                if ( feedHeadDelayInSeconds != -1 ) {
-                    builder.append(AND);
-                    builder.append(" datelastupdated < now() - interval '");
-                    builder.append(feedHeadDelayInSeconds);
-                    builder.append(" seconds' ");
-                }
+                appendVisibilityFilter(builder);
 
-                builder.append(String.format(ORDER_BY_ASC));
+                builder.append(String.format(ORDER_BY_ASC, orderColumn()));
 
                 return builder.toString();
         }
     }
 
+    private String orderColumn() {
+        return commitOrdered ? COMMIT_TXID : DATELASTUPDATED;
+    }
+
+    private void appendVisibilityFilter(StringBuilder builder) {
+        if ( commitOrdered ) {
+            builder.append(AND);
+            builder.append(COMMITTED_WATERMARK);
+        } else if ( feedHeadDelayInSeconds != -1 ) {
+            // D-15000: when we are getting feed head and there are
+            // aggressive inserts going on at the same time, Postgres
+            // does not guarantee that entries that are inserted later
+            // will have later timestamps. This is just due to the nature
+            // of multi-process and multi-threaded-ness of the database.
+            // Therefore, we return only entries that have been inserted
+            // in the database n seconds from the current select time.
+            builder.append(AND);
+            builder.append(" datelastupdated < now() - interval '");
+            builder.append(feedHeadDelayInSeconds);
+            builder.append(" seconds' ");
+        }
+    }
 }
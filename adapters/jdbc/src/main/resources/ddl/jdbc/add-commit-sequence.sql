@@ -0,0 +1,32 @@
+-- Adds the column JdbcFeedSource pages by when enableCommitOrdering is set.
+-- Existing rows are given txid 0 so they keep their relative (id) order and
+-- sort before everything inserted after the migration.
+--
+-- The steps run one at a time against the live database, outside of a
+-- transaction, while Atom Hopper keeps serving with enableCommitOrdering off:
+--
+--   1. add the column and its default, new entries get their txid from then on
+--   2. backfill the existing rows in batches, repeating the UPDATE until it
+--      reports UPDATE 0
+--   3. make the column NOT NULL
+--   4. build the index concurrently
+--
+-- Only once all four are done is enableCommitOrdering turned on.
+
+-- 1. Both statements only change the catalog, neither rewrites the table
+ALTER TABLE entries ADD COLUMN txid bigint;
+ALTER TABLE entries ALTER COLUMN txid SET DEFAULT txid_current();
+
+-- 2. Each batch is a short transaction of its own, repeat until UPDATE 0
+UPDATE entries SET txid = 0 WHERE id IN ( SELECT id FROM entries WHERE txid IS NULL LIMIT 10000 );
+
+-- 3. The NOT VALID check is added without a scan and validated without
+-- blocking writes; SET NOT NULL then relies on it instead of scanning the
+-- table under an exclusive lock (PostgreSQL 12 and later, older versions scan)
+ALTER TABLE entries ADD CONSTRAINT entries_txid_not_null CHECK ( txid IS NOT NULL ) NOT VALID;
+ALTER TABLE entries VALIDATE CONSTRAINT entries_txid_not_null;
+ALTER TABLE entries ALTER COLUMN txid SET NOT NULL;
+ALTER TABLE entries DROP CONSTRAINT entries_txid_not_null;
+
+-- 4. CONCURRENTLY cannot run inside a transaction block
+CREATE INDEX CONCURRENTLY feed_txid_id_idx on entries( feed, txid, id );
@@ -0,0 +1,3 @@
+-- Adds the index JdbcFeedRetention purges by, so every batch reads the oldest
+-- entries of one feed instead of scanning the primary key across all feeds.
+CREATE INDEX CONCURRENTLY feed_datelastupdated_id_idx on entries( feed, datelastupdated, id );
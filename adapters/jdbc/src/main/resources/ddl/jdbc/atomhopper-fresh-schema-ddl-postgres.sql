@@ -29,12 +29,16 @@ CREATE TABLE entries (
     tenantid text,
 -- ---------------------
     categories character varying[],
+-- transaction which inserted the entry, used when paging in commit order
+    txid bigint NOT NULL DEFAULT txid_current(),
     PRIMARY KEY(datelastupdated, id)
 );
 CREATE INDEX entryid_idx on entries(entryid);
 CREATE INDEX categories_idx on entries(categories);
 CREATE INDEX feed_idx on entries(feed);
 CREATE INDEX feed_entryid_idx on entries(feed, entryid);
+CREATE INDEX feed_txid_id_idx on entries(feed, txid, id);
+CREATE INDEX feed_datelastupdated_id_idx on entries(feed, datelastupdated, id);
 
 -- categories which are mapped to specific columns
 -- remove if you aren't configuring your FeedSource & FeedPublisher accordingly
@@ -1,11 +1,13 @@
 package org.atomhopper.jdbc.adapter;
 
+import java.io.ByteArrayInputStream;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 
 import org.apache.abdera.model.Entry;
 import org.apache.abdera.parser.stax.FOMEntry;
@@ -15,6 +17,7 @@ import org.atomhopper.adapter.request.adapter.PutEntryRequest;
 import org.atomhopper.jdbc.model.PersistedEntry;
 import org.atomhopper.jdbc.query.PostgreSQLTextArray;
 import org.atomhopper.response.AdapterResponse;
+import org.atomhopper.util.id.RecentEntryIdFilter;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
@@ -24,6 +27,8 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.springframework.dao.DuplicateKeyException;
@@ -106,6 +111,28 @@ public class JdbcFeedPublisherTest {
             assertEquals("Should return HTTP 409 (Conflict)", HttpStatus.CONFLICT, adapterResponse.getResponseStatus());
         }
 
+        @Test
+        public void shouldRejectRecentlyPublishedIdsWithoutInserting() throws Exception {
+            jdbcFeedPublisher.setAllowOverrideId(true);
+            jdbcFeedPublisher.setRecentEntryIdFilter(new RecentEntryIdFilter());
+
+            jdbcFeedPublisher.postEntry(postEntryRequest);
+            AdapterResponse<Entry> adapterResponse = jdbcFeedPublisher.postEntry(postEntryRequest);
+
+            assertEquals("Should return HTTP 409 (Conflict)", HttpStatus.CONFLICT, adapterResponse.getResponseStatus());
+            verify(jdbcTemplate, times(1)).update(anyString(), anyString(), anyString(), anyString(), anyObject());
+        }
+
+        @Test
+        public void shouldReturnHTTPCreatedWhenStreamingEntries() throws Exception {
+            jdbcFeedPublisher.setStreamingIngest(true);
+            when(postEntryRequest.getEntryStream()).thenReturn(new ByteArrayInputStream(ENTRY_BODY.getBytes("UTF-8")));
+
+            AdapterResponse<Entry> adapterResponse = jdbcFeedPublisher.postEntry(postEntryRequest);
+            assertEquals("Should return HTTP 201 (Created)", HttpStatus.CREATED, adapterResponse.getResponseStatus());
+            assertTrue("Should generate an entry id", adapterResponse.getBody().getId().toString().startsWith("urn:uuid:"));
+        }
+
         @Test(expected = UnsupportedOperationException.class)
         public void shouldPutEntry() throws Exception {
             jdbcFeedPublisher.putEntry(putEntryRequest);
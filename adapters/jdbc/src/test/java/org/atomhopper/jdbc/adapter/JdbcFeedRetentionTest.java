@@ -0,0 +1,98 @@
+package org.atomhopper.jdbc.adapter;
+
+import org.atomhopper.retention.RetentionPolicy;
+import org.atomhopper.retention.RetentionProgress;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class JdbcFeedRetentionTest {
+
+    public static class WhenPurgingEntries {
+
+        private static final String FEED_NAME = "namespace/feed";
+
+        private JdbcTemplate jdbcTemplate;
+        private RetentionProgress progress;
+        private JdbcFeedRetention jdbcFeedRetention;
+
+        @Before
+        public void setUp() throws Exception {
+            jdbcTemplate = mock(JdbcTemplate.class);
+            progress = mock(RetentionProgress.class);
+
+            jdbcFeedRetention = new JdbcFeedRetention();
+            jdbcFeedRetention.setJdbcTemplate(jdbcTemplate);
+            jdbcFeedRetention.setBatchSize(10);
+            jdbcFeedRetention.setBatchPauseInMillis(0);
+        }
+
+        @Test
+        public void shouldDeleteInBatchesUntilABatchComesUpShort() throws Exception {
+            when(jdbcTemplate.update(anyString(), eq(FEED_NAME), any(Timestamp.class), eq(0L), eq(10))).thenReturn(10, 10, 3);
+
+            final long purged = jdbcFeedRetention.enforce(FEED_NAME, new RetentionPolicy(60000, 0, false), progress);
+
+            assertEquals("Should sum every batch", 23, purged);
+            verify(progress, times(2)).purged(10);
+            verify(progress).purged(3);
+        }
+
+        @Test
+        public void shouldDeleteByPrimaryKey() throws Exception {
+            jdbcFeedRetention.enforce(FEED_NAME, new RetentionPolicy(60000, 0, false), progress);
+
+            verify(jdbcTemplate).update(startsWith("DELETE FROM entries WHERE (datelastupdated, id) IN (SELECT datelastupdated, id FROM entries"),
+                    eq(FEED_NAME), any(Timestamp.class), eq(0L), eq(10));
+        }
+
+        @Test
+        public void shouldOnlyCountInDryRun() throws Exception {
+            when(jdbcTemplate.queryForLong(anyString(), eq(FEED_NAME), any(Timestamp.class), eq(0L))).thenReturn(42L);
+
+            assertEquals(42, jdbcFeedRetention.enforce(FEED_NAME, new RetentionPolicy(60000, 0, true), progress));
+            verify(jdbcTemplate, never()).update(anyString(), any(), any(), any(), any());
+        }
+
+        @Test
+        public void shouldCutOffAtTheOldestRetainedEntry() throws Exception {
+            final Timestamp oldestRetained = new Timestamp(System.currentTimeMillis());
+            when(jdbcTemplate.queryForObject(anyString(), any(RowMapper.class), eq(FEED_NAME), eq(99L)))
+                    .thenReturn(new JdbcFeedRetention.Cutoff(oldestRetained, 7));
+
+            final JdbcFeedRetention.Cutoff cutoff = jdbcFeedRetention.getCutoff(FEED_NAME, new RetentionPolicy(60000, 100, false));
+
+            assertEquals("Should keep the newest entries", oldestRetained, cutoff.getDateLastUpdated());
+            assertEquals(7, cutoff.getId());
+        }
+
+        @Test
+        public void shouldNotPurgeFeedsWithinTheirMaxEntries() throws Exception {
+            when(jdbcTemplate.queryForObject(anyString(), any(RowMapper.class), eq(FEED_NAME), anyLong()))
+                    .thenThrow(new EmptyResultDataAccessException(1));
+
+            assertNull(jdbcFeedRetention.getCutoff(FEED_NAME, new RetentionPolicy(0, 100, false)));
+            assertEquals(0, jdbcFeedRetention.enforce(FEED_NAME, new RetentionPolicy(0, 100, false), progress));
+        }
+    }
+}
@@ -8,7 +8,13 @@ import org.junit.runner.RunWith;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import javax.sql.DataSource;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 import static org.mockito.Mockito.*;
 
 /**
@@ -60,5 +66,134 @@ public class JdbcRetryOnFailureAdviceTest {
             jdbcRetryOnFailureAdvice.retryOnFailure(jointPoint);
             verify(jointPoint, times(3)).proceed();
         }
+
+        @Test(expected=DataAccessResourceFailureException.class)
+        public void shouldNotRetryFailuresWithoutASqlState() throws Throwable {
+            jdbcRetryOnFailureAdvice.setMaxRetriesOnConnDrop(2);
+            jdbcRetryOnFailureAdvice.setRetryWaitInMillis(10);
+            jdbcRetryOnFailureAdvice.setSqlStatesToRetry(PSQLState.CONNECTION_UNABLE_TO_CONNECT.getState());
+
+            when(jointPoint.getArgs()).thenReturn(null);
+            when(jointPoint.proceed()).thenThrow(new DataAccessResourceFailureException("foo"));
+
+            try {
+                jdbcRetryOnFailureAdvice.retryOnFailure(jointPoint);
+            } finally {
+                verify(jointPoint, times(1)).proceed();
+            }
+        }
+
+        @Test
+        public void shouldStopRetryingWhenTheRetryBudgetIsSpent() throws Throwable {
+            jdbcRetryOnFailureAdvice.setMaxRetriesOnConnDrop(5);
+            jdbcRetryOnFailureAdvice.setRetryWaitInMillis(1);
+            jdbcRetryOnFailureAdvice.setRetryBudgetRatio(0);
+            jdbcRetryOnFailureAdvice.setRetryBudgetCapacity(1);
+            jdbcRetryOnFailureAdvice.setSqlStatesToRetry(PSQLState.CONNECTION_UNABLE_TO_CONNECT.getState());
+
+            when(jointPoint.getArgs()).thenReturn(null);
+            when(jointPoint.proceed()).thenThrow(new DataAccessResourceFailureException("foo", new PSQLException("foo", PSQLState.CONNECTION_UNABLE_TO_CONNECT)));
+
+            try {
+                jdbcRetryOnFailureAdvice.retryOnFailure(jointPoint);
+                fail("Expected the failure to be returned");
+            } catch (DataAccessResourceFailureException expected) {
+                verify(jointPoint, times(2)).proceed();
+                assertEquals(0, jdbcRetryOnFailureAdvice.getRetryBudgetBalance());
+            }
+        }
+
+        @Test
+        public void shouldBackOffExponentiallyWithJitter() {
+            jdbcRetryOnFailureAdvice.setRetryWaitInMillis(100);
+            jdbcRetryOnFailureAdvice.setMaxRetryWaitInMillis(1000);
+
+            for (int i = 0; i < 100; i++) {
+                long first = jdbcRetryOnFailureAdvice.backoff(0);
+                long third = jdbcRetryOnFailureAdvice.backoff(2);
+                long capped = jdbcRetryOnFailureAdvice.backoff(10);
+
+                assertTrue("first retry waits " + first, first >= 50 && first <= 100);
+                assertTrue("third retry waits " + third, third >= 200 && third <= 400);
+                assertTrue("capped retry waits " + capped, capped >= 500 && capped <= 1000);
+            }
+        }
+    }
+
+    public static class WhenTheDatabaseIsDown {
+
+        private JdbcRetryOnFailureAdvice jdbcRetryOnFailureAdvice;
+        private ProceedingJoinPoint jointPoint;
+        private JdbcTemplate jdbcTemplate;
+
+        @Before
+        public void setUp() throws Exception {
+            jdbcTemplate = new JdbcTemplate(mock(DataSource.class));
+
+            jointPoint = mock(ProceedingJoinPoint.class);
+            when(jointPoint.getArgs()).thenReturn(null);
+            when(jointPoint.getTarget()).thenReturn(jdbcTemplate);
+
+            jdbcRetryOnFailureAdvice = new JdbcRetryOnFailureAdvice();
+            jdbcRetryOnFailureAdvice.setCircuitBreakerFailureThreshold(2);
+        }
+
+        private void failTwice() throws Throwable {
+            when(jointPoint.proceed()).thenThrow(new DataAccessResourceFailureException("foo"));
+
+            for (int i = 0; i < 2; i++) {
+                try {
+                    jdbcRetryOnFailureAdvice.retryOnFailure(jointPoint);
+                    fail("Expected the failure to be returned");
+                } catch (DataAccessResourceFailureException expected) {
+                }
+            }
+        }
+
+        @Test
+        public void shouldNotBreakTheCircuitUnlessEnabled() throws Throwable {
+            jdbcRetryOnFailureAdvice = new JdbcRetryOnFailureAdvice();
+            when(jointPoint.proceed()).thenThrow(new DataAccessResourceFailureException("foo"));
+
+            for (int i = 0; i < 10; i++) {
+                try {
+                    jdbcRetryOnFailureAdvice.retryOnFailure(jointPoint);
+                    fail("Expected the failure to be returned");
+                } catch (DataAccessResourceFailureException expected) {
+                }
+            }
+
+            verify(jointPoint, times(10)).proceed();
+            assertEquals(JdbcCircuitBreaker.State.CLOSED, jdbcRetryOnFailureAdvice.getCircuitBreakerState(jdbcTemplate));
+        }
+
+        @Test
+        public void shouldFailFastWhileTheCircuitIsOpen() throws Throwable {
+            jdbcRetryOnFailureAdvice.setCircuitBreakerOpenIntervalInMillis(60000);
+            failTwice();
+
+            assertEquals(JdbcCircuitBreaker.State.OPEN, jdbcRetryOnFailureAdvice.getCircuitBreakerState(jdbcTemplate));
+
+            try {
+                jdbcRetryOnFailureAdvice.retryOnFailure(jointPoint);
+                fail("Expected the call to be short circuited");
+            } catch (JdbcCircuitOpenException expected) {
+                verify(jointPoint, times(2)).proceed();
+            }
+        }
+
+        @Test
+        public void shouldCloseTheCircuitAfterASuccessfulTrial() throws Throwable {
+            jdbcRetryOnFailureAdvice.setCircuitBreakerOpenIntervalInMillis(0);
+            failTwice();
+
+            reset(jointPoint);
+            when(jointPoint.getArgs()).thenReturn(null);
+            when(jointPoint.getTarget()).thenReturn(jdbcTemplate);
+            when(jointPoint.proceed()).thenReturn("result");
+
+            assertEquals("result", jdbcRetryOnFailureAdvice.retryOnFailure(jointPoint));
+            assertEquals(JdbcCircuitBreaker.State.CLOSED, jdbcRetryOnFailureAdvice.getCircuitBreakerState(jdbcTemplate));
+        }
     }
 }
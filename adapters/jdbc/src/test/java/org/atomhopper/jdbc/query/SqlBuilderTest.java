@@ -50,6 +50,10 @@ public class SqlBuilderTest {
         private String result_next_with_cats_not_prefix = "(SELECT * FROM entries WHERE feed = ? AND datelastupdated = ? AND id < ? AND NOT ( categories @> ?::varchar[]  AND  tenantId = ? )) UNION ALL (SELECT * FROM entries WHERE feed = ? AND datelastupdated < ? AND NOT ( categories @> ?::varchar[]  AND  tenantId = ? )ORDER BY datelastupdated DESC, id DESC LIMIT 1) ORDER BY datelastupdated DESC, id DESC LIMIT 1";
         private String result_next_with_cats_or_prefix = "(SELECT * FROM entries WHERE feed = ? AND datelastupdated = ? AND id < ? AND( categories @> ?::varchar[]  OR  tenantId = ? )) UNION ALL (SELECT * FROM entries WHERE feed = ? AND datelastupdated < ? AND( categories @> ?::varchar[]  OR  tenantId = ? )ORDER BY datelastupdated DESC, id DESC LIMIT 1) ORDER BY datelastupdated DESC, id DESC LIMIT 1";
 
+        private String result_forward_commit_ordered = "(SELECT * FROM entries WHERE feed = ? AND txid = ? AND id > ? AND txid < txid_snapshot_xmin(txid_current_snapshot()) ) UNION ALL (SELECT * FROM entries WHERE feed = ? AND txid > ? AND txid < txid_snapshot_xmin(txid_current_snapshot()) ORDER BY txid ASC, id ASC LIMIT ?) ORDER BY txid ASC, id ASC LIMIT ?";
+        private String result_head_commit_ordered = "SELECT * FROM entries WHERE feed = ? AND txid < txid_snapshot_xmin(txid_current_snapshot()) ORDER BY txid DESC, id DESC LIMIT ?";
+        private String result_backward_commit_ordered = "(SELECT * FROM entries WHERE feed = ? AND txid = ? AND id <= ? ) UNION ALL (SELECT * FROM entries WHERE feed = ? AND txid < ? ORDER BY txid DESC, id DESC LIMIT ?) ORDER BY txid DESC, id DESC LIMIT ?";
+
         private DateTimeFormatter isoDTF = ISODateTimeFormat.dateTime();
 
         private Map<String, String> map;
@@ -370,6 +374,43 @@ public class SqlBuilderTest {
                                     .toString();
         }
 
+        @Test
+        public void ShouldGetCommitOrderedSqlForForward() throws Exception {
+            SearchToSqlConverter searchToSqlConverter = new SearchToSqlConverter( map, PREFIX_SPLIT );
+
+            String result = new SqlBuilder( searchToSqlConverter )
+                    .searchType( SearchType.FEED_FORWARD )
+                    .feedHeadDelayInSeconds( 2 )
+                    .commitOrdered( true )
+                    .toString();
+
+            Assert.assertEquals(result_forward_commit_ordered, result);
+        }
+
+        @Test
+        public void ShouldGetCommitOrderedSqlForHead() throws Exception {
+            SearchToSqlConverter searchToSqlConverter = new SearchToSqlConverter( map, PREFIX_SPLIT );
+
+            String result = new SqlBuilder( searchToSqlConverter )
+                    .searchType( SearchType.FEED_HEAD )
+                    .commitOrdered( true )
+                    .toString();
+
+            Assert.assertEquals(result_head_commit_ordered, result);
+        }
+
+        @Test
+        public void ShouldGetCommitOrderedSqlForBackward() throws Exception {
+            SearchToSqlConverter searchToSqlConverter = new SearchToSqlConverter( map, PREFIX_SPLIT );
+
+            String result = new SqlBuilder( searchToSqlConverter )
+                    .searchType( SearchType.FEED_BACKWARD )
+                    .commitOrdered( true )
+                    .toString();
+
+            Assert.assertEquals(result_backward_commit_ordered, result);
+        }
+
         @Test(expected = IllegalArgumentException.class)
         public void shouldGetExceptionOnStartingAtInvalidFormat() throws Exception {
             DateTime startAt = isoDTF.parseDateTime("20140303T08:51:32.000Z");
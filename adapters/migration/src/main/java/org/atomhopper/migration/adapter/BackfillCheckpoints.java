@@ -0,0 +1,145 @@
+package org.atomhopper.migration.adapter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Remembers how far every time range of the backfill got, in a properties
+ * file, so a restarted backfill resumes where it stopped instead of copying
+ * from the top again.
+ *
+ * A range is keyed by its feed and bounds and records the marker of its next
+ * page, the updated date it reached and whether it is done. The upper bound
+ * the first run split the feeds at is kept too, so later runs split them the
+ * same way and find their ranges again. The file is
+ * rewritten after every page, to a temporary file that is then renamed over
+ * it, so a crash leaves the previous checkpoint behind rather than half a file.
+ * Without a file the checkpoints only last as long as the process.
+ */
+final class BackfillCheckpoints {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BackfillCheckpoints.class);
+
+    private static final String MARKER = ".marker";
+    private static final String REACHED = ".reached";
+    private static final String DONE = ".done";
+    private static final String UPPER_BOUND = "upper-bound";
+
+    private final Properties checkpoints = new Properties();
+    private final File file;
+
+    BackfillCheckpoints(File file) {
+        this.file = file;
+
+        if (file != null && file.exists()) {
+            load();
+        }
+    }
+
+    /**
+     * @return the upper bound of an earlier run, or the one given when this is
+     * the first run, which is kept for the runs to come
+     */
+    synchronized long upperBound(long firstRunUpperBound) {
+        final String upperBound = checkpoints.getProperty(UPPER_BOUND);
+
+        if (upperBound != null) {
+            return Long.parseLong(upperBound);
+        }
+
+        checkpoints.setProperty(UPPER_BOUND, String.valueOf(firstRunUpperBound));
+        save();
+
+        return firstRunUpperBound;
+    }
+
+    synchronized String getMarker(String range) {
+        return checkpoints.getProperty(range + MARKER);
+    }
+
+    synchronized long getReached(String range) {
+        final String reached = checkpoints.getProperty(range + REACHED);
+
+        return reached != null ? Long.parseLong(reached) : -1;
+    }
+
+    synchronized boolean isDone(String range) {
+        return Boolean.parseBoolean(checkpoints.getProperty(range + DONE));
+    }
+
+    synchronized void pageCopied(String range, String nextMarker, long reached) {
+        checkpoints.setProperty(range + MARKER, nextMarker);
+
+        if (reached >= 0) {
+            checkpoints.setProperty(range + REACHED, String.valueOf(reached));
+        }
+
+        save();
+    }
+
+    synchronized void rangeDone(String range) {
+        checkpoints.remove(range + MARKER);
+        checkpoints.setProperty(range + DONE, Boolean.TRUE.toString());
+
+        save();
+    }
+
+    private void load() {
+        InputStream in = null;
+
+        try {
+            in = new FileInputStream(file);
+            checkpoints.load(in);
+        } catch (IOException ioe) {
+            throw new IllegalStateException("Unable to read backfill checkpoints from " + file, ioe);
+        } finally {
+            close(in);
+        }
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+
+        final File temporary = new File(file.getPath() + ".tmp");
+        FileOutputStream out = null;
+
+        try {
+            out = new FileOutputStream(temporary);
+            checkpoints.store(out, "atom hopper migration backfill");
+            out.getFD().sync();
+            out.close();
+            out = null;
+
+            if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+                throw new IOException("Unable to replace " + file);
+            }
+        } catch (IOException ioe) {
+            // The previous checkpoint stays, a resume repeats some pages the publisher answers with 409s
+            LOG.error("Unable to save backfill checkpoints to " + file, ioe);
+        } finally {
+            close(out);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing left to read or write
+        }
+    }
+}
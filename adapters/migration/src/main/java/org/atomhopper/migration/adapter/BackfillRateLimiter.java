@@ -0,0 +1,41 @@
+package org.atomhopper.migration.adapter;
+
+/**
+ * Spaces out the backfill's writes to at most entriesPerSecond across all of
+ * its workers, so the copy does not crowd out production traffic. Each acquire
+ * reserves the next free slot and sleeps until it comes up; idle time is not
+ * saved up, so there are no bursts after a slow page.
+ */
+final class BackfillRateLimiter {
+
+    private final long intervalInNanos;
+    private long nextSlot;
+
+    /**
+     * @param entriesPerSecond 0 or less disables the limit
+     */
+    BackfillRateLimiter(double entriesPerSecond) {
+        this.intervalInNanos = entriesPerSecond > 0 ? (long) (1000000000L / entriesPerSecond) : 0;
+        this.nextSlot = System.nanoTime();
+    }
+
+    void acquire() throws InterruptedException {
+        if (intervalInNanos == 0) {
+            return;
+        }
+
+        final long waitInNanos;
+
+        synchronized (this) {
+            final long now = System.nanoTime();
+            // nanoTime has an arbitrary origin, so slots are compared by difference
+            final long slot = now - nextSlot > 0 ? now : nextSlot;
+            nextSlot = slot + intervalInNanos;
+            waitInNanos = slot - now;
+        }
+
+        if (waitInNanos > 0) {
+            Thread.sleep(waitInNanos / 1000000L, (int) (waitInNanos % 1000000L));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.atomhopper.migration.adapter;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.i18n.templates.HashMapContext;
+import org.apache.abdera.i18n.templates.Template;
+import org.atomhopper.abdera.TargetResolverField;
+import org.atomhopper.adapter.request.ClientRequest;
+import org.atomhopper.util.uri.template.EnumKeyedTemplateParameters;
+import org.atomhopper.util.uri.template.TemplateParameters;
+import org.atomhopper.util.uri.template.URITemplate;
+import org.atomhopper.util.uri.template.URITemplateParameter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class of the requests that outlive the servlet request they were copied
+ * from. The servlet container recycles the original request once it completes,
+ * so they keep the feed's target parameters and URL instead of wrapping it.
+ *
+ * URLs are built from the feed's URL: the part of the templates past the
+ * workspace URL is expanded against the parameters asked for, the way the
+ * WorkspaceProvider expands the whole template. Should the feed's URL not end
+ * the way the FEED template does, the feed's URL itself is answered.
+ */
+abstract class DetachedClientRequest implements ClientRequest {
+
+    private static final String FEED_PATH_TEMPLATE = URITemplate.FEED.toString().substring(URITemplate.WORKSPACE.toString().length());
+
+    private final Abdera abdera;
+    private final String workspace;
+    private final String feed;
+    private final String feedUrl;
+    private final String workspaceUrl;
+
+    protected DetachedClientRequest(ClientRequest request) {
+        this(request.getAbdera(),
+                request.getTargetParameter(TargetResolverField.WORKSPACE.name()),
+                request.getTargetParameter(TargetResolverField.FEED.name()),
+                request.urlFor(new EnumKeyedTemplateParameters<URITemplate>(URITemplate.FEED)));
+    }
+
+    protected DetachedClientRequest(Abdera abdera, String workspace, String feed, String feedUrl) {
+        this.abdera = abdera;
+        this.workspace = workspace;
+        this.feed = feed;
+        this.feedUrl = feedUrl;
+
+        final String feedPath = expandFeedPath(Collections.<String, Object>emptyMap());
+        this.workspaceUrl = feedUrl != null && feedPath != null && feedUrl.endsWith(feedPath)
+                ? feedUrl.substring(0, feedUrl.length() - feedPath.length())
+                : null;
+    }
+
+    public String getFeedName() {
+        return workspace + "/" + feed;
+    }
+
+    @Override
+    public String getTargetParameter(String parameter) {
+        if (TargetResolverField.WORKSPACE.name().equals(parameter)) {
+            return workspace;
+        } else if (TargetResolverField.FEED.name().equals(parameter)) {
+            return feed;
+        }
+
+        return null;
+    }
+
+    @Override
+    public String getRequestParameter(String parameter) {
+        return null;
+    }
+
+    @Override
+    public List<String> getRequestParameters(String parameter) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String urlFor(TemplateParameters param) {
+        final Object template = param.getTargetTemplateKey();
+
+        if (workspaceUrl == null) {
+            return feedUrl;
+        } else if (template == URITemplate.WORKSPACE) {
+            return workspaceUrl;
+        } else if (template == URITemplate.FEED) {
+            return param.toMap().isEmpty() ? feedUrl : workspaceUrl + expandFeedPath(param.toMap());
+        }
+
+        return feedUrl;
+    }
+
+    @Override
+    public Abdera getAbdera() {
+        return abdera;
+    }
+
+    private String expandFeedPath(Map<String, Object> parameters) {
+        if (feed == null) {
+            return null;
+        }
+
+        final HashMapContext context = new HashMapContext(parameters);
+        context.put(URITemplateParameter.FEED_RESOURCE.toString(), feed);
+
+        return Template.expand(FEED_PATH_TEMPLATE, context);
+    }
+}
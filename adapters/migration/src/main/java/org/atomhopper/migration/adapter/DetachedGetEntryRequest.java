@@ -0,0 +1,39 @@
+package org.atomhopper.migration.adapter;
+
+import org.apache.abdera.model.Entry;
+import org.atomhopper.abdera.TargetResolverField;
+import org.atomhopper.adapter.request.adapter.GetEntryRequest;
+
+/**
+ * A copy of an entry request that outlives the servlet request, for the shadow
+ * reads done after the response is sent.
+ */
+final class DetachedGetEntryRequest extends DetachedClientRequest implements GetEntryRequest {
+
+    private final String entryId;
+
+    DetachedGetEntryRequest(GetEntryRequest request) {
+        super(request);
+
+        this.entryId = request.getEntryId();
+    }
+
+    @Override
+    public Entry newEntry() {
+        return getAbdera().newEntry();
+    }
+
+    @Override
+    public String getEntryId() {
+        return entryId;
+    }
+
+    @Override
+    public String getTargetParameter(String parameter) {
+        if (TargetResolverField.ENTRY.name().equals(parameter)) {
+            return entryId;
+        }
+
+        return super.getTargetParameter(parameter);
+    }
+}
@@ -0,0 +1,90 @@
+package org.atomhopper.migration.adapter;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.model.Feed;
+import org.atomhopper.adapter.request.adapter.GetFeedRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A request for one page of a feed that outlives the servlet request, for the
+ * shadow reads done after the response is sent and for the backfill, which
+ * walks old feeds backward from a marker or, for the first page of a time
+ * range, from a startingAt timestamp.
+ *
+ * It carries what the sources read off a request: the paging parameters on
+ * top of the feed's target parameters and URL, which they build their links
+ * from.
+ */
+final class DetachedGetFeedRequest extends DetachedClientRequest implements GetFeedRequest {
+
+    private static final String BACKWARD = "backward";
+
+    private final List<String> categories;
+    private final String searchQuery;
+    private final String marker;
+    private final String pageSize;
+    private final String direction;
+    private final String startingAt;
+
+    DetachedGetFeedRequest(GetFeedRequest request) {
+        super(request);
+
+        this.categories = request.getCategories() != null
+                ? Collections.unmodifiableList(new ArrayList<String>(request.getCategories()))
+                : Collections.<String>emptyList();
+        this.searchQuery = request.getSearchQuery();
+        this.marker = request.getPageMarker();
+        this.pageSize = request.getPageSize();
+        this.direction = request.getDirection();
+        this.startingAt = request.getStartingAt();
+    }
+
+    DetachedGetFeedRequest(Abdera abdera, String workspace, String feed, String feedUrl, String marker, String startingAt, int pageSize) {
+        super(abdera, workspace, feed, feedUrl);
+
+        this.categories = Collections.emptyList();
+        this.searchQuery = null;
+        this.marker = marker;
+        this.pageSize = String.valueOf(pageSize);
+        this.direction = BACKWARD;
+        this.startingAt = marker == null ? startingAt : null;
+    }
+
+    @Override
+    public Feed newFeed() {
+        return getAbdera().newFeed();
+    }
+
+    @Override
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    @Override
+    public String getSearchQuery() {
+        return searchQuery;
+    }
+
+    @Override
+    public String getPageMarker() {
+        return marker;
+    }
+
+    @Override
+    public String getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public String getDirection() {
+        return direction;
+    }
+
+    @Override
+    public String getStartingAt() {
+        return startingAt;
+    }
+}
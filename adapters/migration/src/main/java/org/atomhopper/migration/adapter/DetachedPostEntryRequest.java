@@ -0,0 +1,66 @@
+package org.atomhopper.migration.adapter;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.model.Document;
+import org.apache.abdera.model.Entry;
+import org.atomhopper.adapter.request.adapter.PostEntryRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * A copy of a posted entry that outlives its request, so the entry can be
+ * written to the secondary store after the response is sent.
+ *
+ * On top of the feed's target parameters and URL it carries the entry, which
+ * is parsed anew on every getEntry since publishers add links to the entry
+ * they are given.
+ *
+ * The backfill builds them from the entries of an old feed's pages as well.
+ */
+final class DetachedPostEntryRequest extends DetachedClientRequest implements PostEntryRequest {
+
+    private final String entryId;
+    private final String entryXml;
+
+    DetachedPostEntryRequest(PostEntryRequest request) {
+        super(request);
+
+        final Entry entry = request.getEntry();
+        this.entryId = entry.getId() != null ? entry.getId().toString() : null;
+        this.entryXml = entry.toString();
+    }
+
+    DetachedPostEntryRequest(Abdera abdera, String workspace, String feed, String feedUrl, Entry entry) {
+        super(abdera, workspace, feed, feedUrl);
+
+        this.entryId = entry.getId() != null ? entry.getId().toString() : null;
+        this.entryXml = entry.toString();
+    }
+
+    String getEntryXml() {
+        return entryXml;
+    }
+
+    String getEntryId() {
+        return entryId;
+    }
+
+    @Override
+    public Entry getEntry() {
+        final Document<Entry> document = getAbdera().getParser().parse(new StringReader(entryXml));
+
+        return document.getRoot();
+    }
+
+    @Override
+    public InputStream getEntryStream() {
+        try {
+            return new ByteArrayInputStream(entryXml.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException uee) {
+            throw new IllegalStateException(uee);
+        }
+    }
+}
@@ -0,0 +1,633 @@
+package org.atomhopper.migration.adapter;
+
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Meter;
+import org.apache.abdera.Abdera;
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.model.Feed;
+import org.apache.abdera.model.Link;
+import org.atomhopper.adapter.BatchFeedPublisher;
+import org.atomhopper.adapter.FeedPublisher;
+import org.atomhopper.adapter.FeedSource;
+import org.atomhopper.adapter.request.adapter.PostEntryRequest;
+import org.atomhopper.response.AdapterResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies the entries already in the old store to the new one, so a migration
+ * can move past dual writing. New traffic reaches both stores through the
+ * MigrationFeedPublisher meanwhile.
+ *
+ * Every feed is split into as many time ranges as there are workers, between
+ * oldestEntry and newestEntry. Unless given, newestEntry is the start of the
+ * first run, which the checkpointFile keeps for the runs after it. A worker walks
+ * its range backward, in the old source's keyset order: the first page starts at
+ * the range's upper bound through startingAt, the following ones at the marker
+ * of the page's next link. Sources that ignore startingAt start every range at
+ * the feed head and skip the newer entries, which is correct but slower.
+ * Without an oldestEntry every feed is a single range.
+ *
+ * Entries are posted to the new publisher as they were read, a page at a time
+ * when it is a BatchFeedPublisher, so it must be configured with
+ * allowOverrideId and allowOverrideDate to keep their ids and dates. A 409 means the entry is there already, from dual writing or from an
+ * earlier run, and counts as copied. Other failures are retried up to
+ * maxAttempts times before the range is given up; run answers whether every
+ * range completed.
+ *
+ * The writes of all workers are throttled to entriesPerSecond. Every range
+ * checkpoints the marker of its next page to the checkpointFile, which a new
+ * run resumes from. Progress, the throughput and an estimate of the time left,
+ * from how much of the ranges' time span is covered, is logged every
+ * progressIntervalInSeconds and kept in metrics.
+ *
+ * The backfill is started by calling run, or as a Spring bean whose init-method
+ * is start, which runs it in the background, and whose destroy-method is stop:
+ *
+ * <pre>
+ * &lt;bean id="migration-backfill" class="org.atomhopper.migration.adapter.MigrationBackfill"
+ *       init-method="start" destroy-method="stop"&gt;
+ *     &lt;property name="oldFeedSource" ref="old-feed-source"/&gt;
+ *     &lt;property name="newFeedPublisher" ref="new-feed-publisher"/&gt;
+ *     &lt;property name="feeds" value="namespace/feed"/&gt;
+ *     &lt;property name="oldestEntry" value="2012-01-01T00:00:00Z"/&gt;
+ *     &lt;property name="checkpointFile" value="/var/lib/atomhopper/backfill.properties"/&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ */
+public class MigrationBackfill {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MigrationBackfill.class);
+
+    private static final String MARKER_PARAMETER = "marker=";
+
+    private final Meter copied = Metrics.newMeter(MigrationBackfill.class, "backfill-entries-copied", "entries", TimeUnit.SECONDS);
+    private final Counter duplicates = Metrics.newCounter(MigrationBackfill.class, "backfill-duplicates");
+    private final Counter retries = Metrics.newCounter(MigrationBackfill.class, "backfill-retries");
+    private final Counter failedRanges = Metrics.newCounter(MigrationBackfill.class, "backfill-failed-ranges");
+
+    private final Abdera abdera = new Abdera();
+    private final List<Range> ranges = Collections.synchronizedList(new ArrayList<Range>());
+
+    private FeedSource oldFeedSource;
+    private FeedPublisher newFeedPublisher;
+    private List<String> feeds = Collections.emptyList();
+    private String baseUrl = "http://localhost:8080/";
+    private int workers = 4;
+    private int pageSize = 100;
+    private double entriesPerSecond = 200;
+    private int maxAttempts = 3;
+    private long retryBackoffInMillis = 1000;
+    private long progressIntervalInSeconds = 30;
+    private Date oldestEntry;
+    private Date newestEntry;
+    private File checkpointFile;
+
+    private volatile boolean stopped;
+    private volatile long startedAt;
+    private volatile long copiedAtStart;
+
+    public MigrationBackfill() {
+        Metrics.newGauge(MigrationBackfill.class, "backfill-seconds-remaining", new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return getEstimatedSecondsRemaining();
+            }
+        });
+    }
+
+    public void setOldFeedSource(FeedSource oldFeedSource) {
+        this.oldFeedSource = oldFeedSource;
+    }
+
+    public void setNewFeedPublisher(FeedPublisher newFeedPublisher) {
+        this.newFeedPublisher = newFeedPublisher;
+    }
+
+    /**
+     * @param feeds the feeds to copy, as workspace/feed
+     */
+    public void setFeeds(List<String> feeds) {
+        this.feeds = feeds;
+    }
+
+    /**
+     * @param baseUrl the URL the feeds are served under, which the sources and
+     * publishers build their links from
+     */
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @param entriesPerSecond the writes per second of all workers together, 0
+     * for no limit
+     */
+    public void setEntriesPerSecond(double entriesPerSecond) {
+        this.entriesPerSecond = entriesPerSecond;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void setRetryBackoffInMillis(long retryBackoffInMillis) {
+        this.retryBackoffInMillis = retryBackoffInMillis;
+    }
+
+    public void setProgressIntervalInSeconds(long progressIntervalInSeconds) {
+        this.progressIntervalInSeconds = progressIntervalInSeconds;
+    }
+
+    /**
+     * @param oldestEntry an ISO 8601 timestamp, entries updated before it are
+     * not copied
+     */
+    public void setOldestEntry(String oldestEntry) {
+        this.oldestEntry = DatatypeConverter.parseDateTime(oldestEntry).getTime();
+    }
+
+    /**
+     * @param newestEntry an ISO 8601 timestamp, entries updated at or after it
+     * are not copied
+     */
+    public void setNewestEntry(String newestEntry) {
+        this.newestEntry = DatatypeConverter.parseDateTime(newestEntry).getTime();
+    }
+
+    public void setCheckpointFile(String checkpointFile) {
+        this.checkpointFile = new File(checkpointFile);
+    }
+
+    /**
+     * Copies every range of every feed, blocking until they are all done or
+     * given up, or the backfill is stopped. A backfill stopped before it runs
+     * copies nothing.
+     *
+     * @return true when every range was copied completely
+     */
+    public boolean run() throws InterruptedException {
+        startedAt = System.currentTimeMillis();
+        copiedAtStart = copied.count();
+
+        final BackfillCheckpoints checkpoints = new BackfillCheckpoints(checkpointFile);
+        final BackfillRateLimiter rateLimiter = new BackfillRateLimiter(entriesPerSecond);
+
+        ranges.clear();
+        ranges.addAll(splitIntoRanges(newestEntry != null ? newestEntry.getTime() : checkpoints.upperBound(startedAt)));
+
+        final ExecutorService executor = newExecutor();
+
+        for (final Range range : ranges) {
+            range.reached = checkpoints.getReached(range.key);
+
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    copyRange(range, checkpoints, rateLimiter);
+                }
+            });
+        }
+
+        executor.shutdown();
+
+        try {
+            while (!executor.awaitTermination(progressIntervalInSeconds, TimeUnit.SECONDS)) {
+                logProgress();
+            }
+        } catch (InterruptedException ie) {
+            stop();
+            executor.shutdownNow();
+            throw ie;
+        }
+
+        logProgress();
+
+        for (Range range : ranges) {
+            if (!range.done) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Runs the backfill on a thread of its own, returning right away. A stop
+     * made once this returns stops the run, even before its thread gets going.
+     */
+    public void start() {
+        stopped = false;
+
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (MigrationBackfill.this.run()) {
+                        LOG.info("Backfill complete");
+                    } else {
+                        LOG.warn("Backfill incomplete, a new run resumes from the checkpoints");
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "atomhopper-migration-backfill");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the workers after their current entry, a new run resumes from the
+     * checkpoints.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public long getCopiedEntries() {
+        return copied.count();
+    }
+
+    /**
+     * @return the share of the ranges' time span copied, between 0 and 1, or -1
+     * when the ranges have no lower bound
+     */
+    public double getCompletion() {
+        final List<Range> snapshot;
+
+        synchronized (ranges) {
+            snapshot = new ArrayList<Range>(ranges);
+        }
+
+        if (snapshot.isEmpty() || oldestEntry == null) {
+            return -1;
+        }
+
+        double completion = 0;
+
+        for (Range range : snapshot) {
+            completion += range.completion();
+        }
+
+        return completion / snapshot.size();
+    }
+
+    /**
+     * @return the seconds left at the throughput so far, or -1 when unknown
+     */
+    public long getEstimatedSecondsRemaining() {
+        final double completion = getCompletion();
+        final long elapsed = System.currentTimeMillis() - startedAt;
+
+        if (completion <= 0 || startedAt == 0) {
+            return -1;
+        }
+
+        return (long) (elapsed * (1 - completion) / completion / 1000);
+    }
+
+    List<Range> splitIntoRanges(long newest) {
+        final List<Range> split = new ArrayList<Range>();
+
+        for (String feedName : feeds) {
+            final String feed = feedName.trim();
+
+            if (oldestEntry == null || workers < 2 || newest - oldestEntry.getTime() < workers) {
+                split.add(new Range(feed, oldestEntry != null ? oldestEntry.getTime() : Long.MIN_VALUE, newest));
+                continue;
+            }
+
+            final long oldest = oldestEntry.getTime();
+            final long span = (newest - oldest) / workers;
+
+            for (int i = 0; i < workers; i++) {
+                split.add(new Range(feed, oldest + i * span, i == workers - 1 ? newest : oldest + (i + 1) * span));
+            }
+        }
+
+        return split;
+    }
+
+    void copyRange(Range range, BackfillCheckpoints checkpoints, BackfillRateLimiter rateLimiter) {
+        if (checkpoints.isDone(range.key)) {
+            range.done = true;
+            return;
+        }
+
+        String marker = checkpoints.getMarker(range.key);
+
+        try {
+            while (!stopped) {
+                final AdapterResponse<Feed> response = oldFeedSource.getFeed(new DetachedGetFeedRequest(abdera, range.workspace, range.feed,
+                        range.feedUrl, marker, formatTimestamp(range.to), pageSize));
+                final HttpStatus status = response.getResponseStatus();
+
+                // No entry at or before the range's upper bound
+                if (status == HttpStatus.NOT_FOUND && marker == null) {
+                    break;
+                }
+
+                if (status != HttpStatus.OK) {
+                    throw new IllegalStateException("Reading " + range + " answered " + status + ": " + response.getMessage());
+                }
+
+                final Feed page = response.getBody();
+                final List<Entry> inRange = new ArrayList<Entry>();
+                boolean pastLowerBound = false;
+                long reached = -1;
+
+                for (Entry entry : page.getEntries()) {
+                    final long updated = entry.getUpdated() != null ? entry.getUpdated().getTime() : range.to - 1;
+
+                    if (updated >= range.to) {
+                        continue;
+                    }
+
+                    if (updated < range.from) {
+                        pastLowerBound = true;
+                        break;
+                    }
+
+                    inRange.add(entry);
+                    reached = updated;
+                }
+
+                if (newFeedPublisher instanceof BatchFeedPublisher && !inRange.isEmpty()) {
+                    if (stopped) {
+                        return;
+                    }
+
+                    copyBatch(range, inRange, rateLimiter);
+                } else {
+                    for (Entry entry : inRange) {
+                        if (stopped) {
+                            return;
+                        }
+
+                        rateLimiter.acquire();
+                        copyEntry(range, entry);
+                    }
+                }
+
+                final String nextMarker = nextMarker(page);
+
+                if (pastLowerBound || nextMarker == null || nextMarker.equals(marker)) {
+                    break;
+                }
+
+                checkpoints.pageCopied(range.key, nextMarker, reached);
+                range.reached = reached >= 0 ? reached : range.reached;
+                marker = nextMarker;
+            }
+
+            if (!stopped) {
+                checkpoints.rangeDone(range.key);
+                range.done = true;
+                LOG.info("Backfilled " + range);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            failedRanges.inc();
+            LOG.error("Giving up backfilling " + range + ", a new run resumes from its checkpoint", ex);
+        }
+    }
+
+    private void copyEntry(Range range, Entry entry) throws InterruptedException {
+        final DetachedPostEntryRequest request = new DetachedPostEntryRequest(abdera, range.workspace, range.feed, range.feedUrl, entry);
+        String failure = null;
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (attempt > 1) {
+                retries.inc();
+                Thread.sleep(retryBackoffInMillis << (attempt - 2));
+            }
+
+            try {
+                final AdapterResponse<Entry> response = newFeedPublisher.postEntry(request);
+                final HttpStatus status = response != null ? response.getResponseStatus() : null;
+
+                if (status == HttpStatus.CONFLICT) {
+                    duplicates.inc();
+                    copied.mark();
+                    return;
+                }
+
+                if (status == null || status.value() < 300) {
+                    copied.mark();
+                    return;
+                }
+
+                failure = "status " + status.value();
+
+                if (status.value() < 500) {
+                    break;
+                }
+            } catch (RuntimeException ex) {
+                failure = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+            }
+        }
+
+        throw new IllegalStateException("Unable to copy entry " + request.getEntryId() + ", " + failure);
+    }
+
+    private void copyBatch(Range range, List<Entry> entries, BackfillRateLimiter rateLimiter) throws InterruptedException {
+        List<PostEntryRequest> requests = new ArrayList<PostEntryRequest>(entries.size());
+
+        for (Entry entry : entries) {
+            rateLimiter.acquire();
+            requests.add(new DetachedPostEntryRequest(abdera, range.workspace, range.feed, range.feedUrl, entry));
+        }
+
+        String failure = null;
+
+        for (int attempt = 1; attempt <= maxAttempts && !requests.isEmpty(); attempt++) {
+            if (attempt > 1) {
+                retries.inc();
+                Thread.sleep(retryBackoffInMillis << (attempt - 2));
+            }
+
+            final List<AdapterResponse<Entry>> responses;
+
+            try {
+                responses = ((BatchFeedPublisher) newFeedPublisher).postEntries(requests);
+            } catch (RuntimeException ex) {
+                failure = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+                continue;
+            }
+
+            final List<PostEntryRequest> failed = new ArrayList<PostEntryRequest>();
+
+            for (int i = 0; i < requests.size(); i++) {
+                final HttpStatus status = responses.get(i) != null ? responses.get(i).getResponseStatus() : null;
+
+                if (status == HttpStatus.CONFLICT) {
+                    duplicates.inc();
+                    copied.mark();
+                } else if (status == null || status.value() < 300) {
+                    copied.mark();
+                } else if (status.value() < 500) {
+                    throw new IllegalStateException("Unable to copy entry "
+                            + ((DetachedPostEntryRequest) requests.get(i)).getEntryId() + ", status " + status.value());
+                } else {
+                    failure = "status " + status.value();
+                    failed.add(requests.get(i));
+                }
+            }
+
+            requests = failed;
+        }
+
+        if (!requests.isEmpty()) {
+            throw new IllegalStateException("Unable to copy " + requests.size() + " entries of a page, " + failure);
+        }
+    }
+
+    private void logProgress() {
+        final long copiedThisRun = copied.count() - copiedAtStart;
+        final double elapsedInSeconds = Math.max(1, System.currentTimeMillis() - startedAt) / 1000.0;
+        final double completion = getCompletion();
+        final long secondsRemaining = getEstimatedSecondsRemaining();
+
+        LOG.info(String.format("Backfill copied %d entries (%d duplicates) at %.1f entries/s, %s done, %s left",
+                copiedThisRun, duplicates.count(), copiedThisRun / elapsedInSeconds,
+                completion < 0 ? "unknown" : String.format("%.1f%%", completion * 100),
+                secondsRemaining < 0 ? "unknown" : secondsRemaining + "s"));
+    }
+
+    private ExecutorService newExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(Math.max(1, workers), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "atomhopper-migration-backfill-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return the marker of the page's next link, in or outside the archive
+     */
+    static String nextMarker(Feed page) {
+        Link next = page.getLink(Link.REL_NEXT);
+
+        if (next == null) {
+            next = page.getLink(FeedSource.REL_ARCHIVE_NEXT);
+        }
+
+        if (next == null || next.getHref() == null) {
+            return null;
+        }
+
+        final String query = next.getHref().getQuery();
+
+        if (query == null) {
+            return null;
+        }
+
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(MARKER_PARAMETER)) {
+                try {
+                    return URLDecoder.decode(parameter.substring(MARKER_PARAMETER.length()), "UTF-8");
+                } catch (UnsupportedEncodingException uee) {
+                    throw new IllegalStateException(uee);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static String formatTimestamp(long millis) {
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        return format.format(new Date(millis));
+    }
+
+    final class Range {
+
+        private final String workspace;
+        private final String feed;
+        private final String feedUrl;
+        private final long from;
+        private final long to;
+        private final String key;
+
+        private volatile long reached = -1;
+        private volatile boolean done;
+
+        private Range(String feedName, long from, long to) {
+            final int separator = feedName.indexOf('/');
+
+            if (separator < 1 || separator == feedName.length() - 1) {
+                throw new IllegalArgumentException("Feeds are given as workspace/feed: " + feedName);
+            }
+
+            this.workspace = feedName.substring(0, separator);
+            this.feed = feedName.substring(separator + 1);
+            this.feedUrl = baseUrl + feedName + "/";
+            this.from = from;
+            this.to = to;
+            this.key = feedName + "@" + (from == Long.MIN_VALUE ? "" : formatTimestamp(from)) + ".." + formatTimestamp(to);
+        }
+
+        long getFrom() {
+            return from;
+        }
+
+        long getTo() {
+            return to;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        private double completion() {
+            if (done) {
+                return 1;
+            }
+
+            return reached < 0 ? 0 : Math.min(1, (double) (to - reached) / (to - from));
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+    }
+}
@@ -12,24 +12,27 @@ import org.atomhopper.migration.domain.MigrationReadFrom;
 import org.atomhopper.migration.domain.MigrationWriteTo;
 import org.atomhopper.response.AdapterResponse;
 import org.atomhopper.response.EmptyBody;
+import org.atomhopper.util.id.EntryIdGenerator;
+import org.atomhopper.util.id.RandomUuidEntryIdGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 
 import java.util.Map;
-import java.util.UUID;
 
 public class MigrationFeedPublisher implements FeedPublisher {
 
     private static final Logger LOG = LoggerFactory.getLogger(MigrationFeedPublisher.class);
-    private static final String UUID_URI_SCHEME = "urn:uuid:";
 
     private FeedPublisher oldFeedPublisher;
     private FeedPublisher newFeedPublisher;
     private MigrationWriteTo writeTo;
     private MigrationReadFrom readFrom;
 
+    private EntryIdGenerator entryIdGenerator = new RandomUuidEntryIdGenerator();
     private boolean allowOverrideId = false;
     private boolean allowOverrideDate = false;
+    private MigrationSecondaryWriter secondaryWriter = new MigrationSecondaryWriter();
 
     public void setOldFeedPublisher(FeedPublisher oldFeedPublisher) {
         this.oldFeedPublisher = oldFeedPublisher;
@@ -47,6 +50,18 @@ public class MigrationFeedPublisher implements FeedPublisher {
         this.readFrom = readFrom;
     }
 
+    public void setEntryIdGenerator(EntryIdGenerator entryIdGenerator) {
+        this.entryIdGenerator = entryIdGenerator;
+    }
+
+    /**
+     * Sets the writer that stores entries in the secondary store when writing
+     * to both; the default has 2 workers and no dead letter file.
+     */
+    public void setSecondaryWriter(MigrationSecondaryWriter secondaryWriter) {
+        this.secondaryWriter = secondaryWriter;
+    }
+
     public void setAllowOverrideId(boolean allowOverrideId) {
         this.allowOverrideId = allowOverrideId;
     }
@@ -63,7 +78,7 @@ public class MigrationFeedPublisher implements FeedPublisher {
         // If allowOverrideId is false then set the Id
         // Also set the id if allowOverrideId is true, but no Id was sent in the entry
         if (!allowOverrideId || postEntryRequest.getEntry().getId() == null || StringUtils.isBlank(postEntryRequest.getEntry().getId().toString().trim())) {
-            postEntryRequest.getEntry().setId(UUID_URI_SCHEME + UUID.randomUUID().toString());
+            postEntryRequest.getEntry().setId(entryIdGenerator.newEntryId());
         }
 
         // If allowOverrideDate is false then set the DateLastUpdated
@@ -81,30 +96,52 @@ public class MigrationFeedPublisher implements FeedPublisher {
             default:
                 switch (readFrom) {
                     case NEW:
-                        AdapterResponse<Entry> newEntry = newFeedPublisher.postEntry(postEntryRequest);
-
-                        try {
-                            oldFeedPublisher.postEntry(postEntryRequest);
-                        } catch (Exception ex) {
-                            LOG.error("Error writing entry to OLD feed:" + postEntryRequest.getFeedName() + " EntryId=" + postEntryRequest.getEntry().getId());
-                        }
-
-                        return newEntry;
+                        return writeToBoth(postEntryRequest, newFeedPublisher, oldFeedPublisher, "OLD");
 
                     case OLD:
                     default:
-                        AdapterResponse<Entry> oldEntry = oldFeedPublisher.postEntry(postEntryRequest);
+                        return writeToBoth(postEntryRequest, oldFeedPublisher, newFeedPublisher, "NEW");
+                }
 
-                        try {
-                            newFeedPublisher.postEntry(postEntryRequest);
-                        } catch (Exception ex) {
-                            LOG.error("Error writing entry to NEW feed:" + postEntryRequest.getFeedName() + " EntryId=" + postEntryRequest.getEntry().getId());
-                        }
+        }
+    }
 
-                        return oldEntry;
-                }
+    /**
+     * Writes the entry to the store read from and queues it for the other one,
+     * the response is the primary's. The entry is copied before the primary adds
+     * its links to it. Entries the primary fails to store are not queued.
+     */
+    private AdapterResponse<Entry> writeToBoth(PostEntryRequest postEntryRequest, FeedPublisher primary,
+                                               FeedPublisher secondary, String secondaryName) {
+        DetachedPostEntryRequest secondaryRequest = null;
+
+        try {
+            secondaryRequest = new DetachedPostEntryRequest(postEntryRequest);
+        } catch (Exception ex) {
+            LOG.error("Error copying entry for " + secondaryName + " feed:" + postEntryRequest.getFeedName()
+                    + " EntryId=" + postEntryRequest.getEntry().getId(), ex);
+        }
 
+        final AdapterResponse<Entry> response = primary.postEntry(postEntryRequest);
+
+        if (secondaryRequest != null && isStored(response)) {
+            secondaryWriter.submit(secondary, secondaryName, secondaryRequest);
         }
+
+        return response;
+    }
+
+    private static boolean isStored(AdapterResponse<Entry> response) {
+        return response != null && response.getResponseStatus() != null
+                && response.getResponseStatus().series() == HttpStatus.Series.SUCCESSFUL;
+    }
+
+    /**
+     * Writes the entries still queued for the secondary store, to be called
+     * when the application shuts down, e.g. as the bean's destroy-method.
+     */
+    public void shutdown() {
+        secondaryWriter.shutdown();
     }
 
     @Override
@@ -1,5 +1,7 @@
 package org.atomhopper.migration.adapter;
 
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
 import org.apache.abdera.model.Entry;
 import org.apache.abdera.model.Feed;
 import org.atomhopper.adapter.FeedInformation;
@@ -9,7 +11,9 @@ import org.atomhopper.adapter.request.adapter.GetEntryRequest;
 import org.atomhopper.adapter.request.adapter.GetFeedRequest;
 import org.atomhopper.migration.domain.MigrationReadFrom;
 import org.atomhopper.response.AdapterResponse;
+import org.springframework.http.HttpStatus;
 
+import javax.xml.bind.DatatypeConverter;
 import java.net.URL;
 import java.util.Map;
 
@@ -18,6 +22,11 @@ public class MigrationFeedSource implements FeedSource {
     private FeedSource oldFeedSource;
     private FeedSource newFeedSource;
     private MigrationReadFrom readFrom;
+    private MigrationShadowReader shadowReader;
+    private MigrationLocationCache locationCache = new MigrationLocationCache();
+    private boolean fallbackReads;
+
+    private final Counter fallbackReadCount = Metrics.newCounter(MigrationFeedSource.class, "fallback-reads");
 
     public void setOldFeedSource(FeedSource oldFeedSource) {
         this.oldFeedSource = oldFeedSource;
@@ -31,6 +40,30 @@ public class MigrationFeedSource implements FeedSource {
         this.readFrom = readFrom;
     }
 
+    /**
+     * @param shadowReader repeats a sample of the reads against the source not
+     * read from, to compare the two stores
+     */
+    public void setShadowReader(MigrationShadowReader shadowReader) {
+        this.shadowReader = shadowReader;
+    }
+
+    /**
+     * @param fallbackReads whether an entry, or a page starting at an entry or a
+     * time, that the store read from does not have is looked up in the other
+     */
+    public void setFallbackReads(boolean fallbackReads) {
+        this.fallbackReads = fallbackReads;
+    }
+
+    /**
+     * @param locationCache remembers which store answered the fallback reads,
+     * for the following reads to go there directly
+     */
+    public void setLocationCache(MigrationLocationCache locationCache) {
+        this.locationCache = locationCache;
+    }
+
     @Override
     public FeedInformation getFeedInformation() {
         return readFrom == MigrationReadFrom.NEW ? newFeedSource.getFeedInformation()
@@ -39,14 +72,83 @@ public class MigrationFeedSource implements FeedSource {
 
     @Override
     public AdapterResponse<Feed> getFeed(GetFeedRequest getFeedRequest) {
-        return readFrom == MigrationReadFrom.NEW ? newFeedSource.getFeed(getFeedRequest)
-                : oldFeedSource.getFeed(getFeedRequest);
+        final boolean shadowRead = shadowReader != null && shadowReader.sample();
+        final String feedName = getFeedRequest.getFeedName();
+        final String marker = getFeedRequest.getPageMarker();
+        final Long startingAt = fallbackReads && marker == null ? parseTimestamp(getFeedRequest.getStartingAt()) : null;
+        final boolean backward = "backward".equalsIgnoreCase(getFeedRequest.getDirection());
+
+        MigrationReadFrom store = readFrom;
+
+        if (fallbackReads && marker != null) {
+            store = locationCache.locateEntry(feedName, marker, readFrom);
+        } else if (startingAt != null) {
+            store = locationCache.locateTime(feedName, startingAt, backward, readFrom);
+        }
+
+        final long start = System.nanoTime();
+        AdapterResponse<Feed> response = source(store).getFeed(getFeedRequest);
+
+        // Only pages that start at an entry or a time can miss in one store and not the other
+        if (fallbackReads && isNotFound(response) && (marker != null || startingAt != null)) {
+            fallbackReadCount.inc();
+
+            final MigrationReadFrom other = MigrationLocationCache.other(store);
+            final AdapterResponse<Feed> fallback = source(other).getFeed(getFeedRequest);
+
+            if (!isNotFound(fallback)) {
+                if (marker != null) {
+                    locationCache.entryFound(feedName, marker, other, readFrom);
+                } else if (store == readFrom) {
+                    locationCache.timeMissing(feedName, startingAt, backward, readFrom);
+                } else {
+                    // Sent away from the preferred store, which had the entries after all
+                    locationCache.timeFound(feedName, readFrom);
+                }
+
+                response = fallback;
+                store = other;
+            }
+        }
+
+        if (shadowRead) {
+            shadowReader.compareFeed(source(MigrationLocationCache.other(store)), store, getFeedRequest, response,
+                    System.nanoTime() - start);
+        }
+
+        return response;
     }
 
     @Override
     public AdapterResponse<Entry> getEntry(GetEntryRequest getEntryRequest) {
-        return readFrom == MigrationReadFrom.NEW ? newFeedSource.getEntry(getEntryRequest)
-                : oldFeedSource.getEntry(getEntryRequest);
+        final boolean shadowRead = shadowReader != null && shadowReader.sample();
+        final String feedName = getEntryRequest.getFeedName();
+        final String entryId = getEntryRequest.getEntryId();
+
+        MigrationReadFrom store = fallbackReads ? locationCache.locateEntry(feedName, entryId, readFrom) : readFrom;
+
+        final long start = System.nanoTime();
+        AdapterResponse<Entry> response = source(store).getEntry(getEntryRequest);
+
+        if (fallbackReads && isNotFound(response)) {
+            fallbackReadCount.inc();
+
+            final MigrationReadFrom other = MigrationLocationCache.other(store);
+            final AdapterResponse<Entry> fallback = source(other).getEntry(getEntryRequest);
+
+            if (!isNotFound(fallback)) {
+                locationCache.entryFound(feedName, entryId, other, readFrom);
+                response = fallback;
+                store = other;
+            }
+        }
+
+        if (shadowRead) {
+            shadowReader.compareEntry(source(MigrationLocationCache.other(store)), store, getEntryRequest, response,
+                    System.nanoTime() - start);
+        }
+
+        return response;
     }
 
     @Override
@@ -63,6 +165,27 @@ public class MigrationFeedSource implements FeedSource {
         newFeedSource.setArchiveUrl( url );
     }
 
+    private FeedSource source(MigrationReadFrom store) {
+        return store == MigrationReadFrom.NEW ? newFeedSource : oldFeedSource;
+    }
+
+    private static boolean isNotFound(AdapterResponse<?> response) {
+        return response != null && response.getResponseStatus() == HttpStatus.NOT_FOUND;
+    }
+
+    private static Long parseTimestamp(String timestamp) {
+        if (timestamp == null || timestamp.trim().isEmpty()) {
+            return null;
+        }
+
+        try {
+            return DatatypeConverter.parseDateTime(timestamp.trim()).getTimeInMillis();
+        } catch (IllegalArgumentException iae) {
+            // The source answers malformed timestamps with a 400
+            return null;
+        }
+    }
+
     @Override
     @NotImplemented
     public void setParameters(Map<String, String> params) {
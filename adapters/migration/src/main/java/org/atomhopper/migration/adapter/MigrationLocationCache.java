@@ -0,0 +1,152 @@
+package org.atomhopper.migration.adapter;
+
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
+import org.atomhopper.migration.domain.MigrationReadFrom;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers where MigrationFeedSource found what its preferred store missed,
+ * so the next read goes to the right store directly instead of missing first.
+ *
+ * Entries are remembered by feed and entry id, up to maxEntries, dropping the
+ * least recently read. Only entries held by the store not read from take room:
+ * an entry found in the preferred store again is forgotten.
+ *
+ * Time ranges are remembered per feed from the backward startingAt reads the
+ * preferred store answered with a 404, meaning it holds nothing up to that
+ * time, for coverageTtlInSeconds after the last such read, since the backfill
+ * fills the gap in eventually. Forward misses are not remembered: at the live
+ * tail they only last until the store catches up.
+ */
+public class MigrationLocationCache {
+
+    private final Counter hits = Metrics.newCounter(MigrationLocationCache.class, "location-cache-hits");
+
+    private final ConcurrentMap<String, Coverage> coverages = new ConcurrentHashMap<String, Coverage>();
+    private final Map<String, MigrationReadFrom> locations;
+
+    private int maxEntries = 10000;
+    private long coverageTtlInMillis = 300000;
+
+    public MigrationLocationCache() {
+        locations = new LinkedHashMap<String, MigrationReadFrom>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MigrationReadFrom> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        Metrics.newGauge(MigrationLocationCache.class, "location-cache-size", new Gauge<Integer>() {
+            @Override
+            public Integer value() {
+                synchronized (locations) {
+                    return locations.size();
+                }
+            }
+        });
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public void setCoverageTtlInSeconds(long coverageTtlInSeconds) {
+        this.coverageTtlInMillis = coverageTtlInSeconds * 1000;
+    }
+
+    /**
+     * @return the store the entry was last found in, or the preferred store
+     */
+    public MigrationReadFrom locateEntry(String feedName, String entryId, MigrationReadFrom preferred) {
+        final MigrationReadFrom location;
+
+        synchronized (locations) {
+            location = locations.get(key(feedName, entryId));
+        }
+
+        if (location == null) {
+            return preferred;
+        }
+
+        hits.inc();
+        return location;
+    }
+
+    /**
+     * @return the store holding the entries a page starting at the time reads,
+     * as far as is known, or the preferred store
+     */
+    public MigrationReadFrom locateTime(String feedName, long startingAt, boolean backward, MigrationReadFrom preferred) {
+        final Coverage coverage = coverages.get(key(feedName, preferred.name()));
+
+        if (backward && coverage != null && !coverage.isExpired() && startingAt <= coverage.missingUpTo) {
+            hits.inc();
+            return other(preferred);
+        }
+
+        return preferred;
+    }
+
+    public void entryFound(String feedName, String entryId, MigrationReadFrom store, MigrationReadFrom preferred) {
+        synchronized (locations) {
+            if (store == preferred) {
+                locations.remove(key(feedName, entryId));
+            } else {
+                locations.put(key(feedName, entryId), store);
+            }
+        }
+    }
+
+    /**
+     * Records that the preferred store has no entry up to the time, when the
+     * read was backward.
+     */
+    public void timeMissing(String feedName, long startingAt, boolean backward, MigrationReadFrom preferred) {
+        if (!backward) {
+            return;
+        }
+
+        final String key = key(feedName, preferred.name());
+        final Coverage coverage = coverages.get(key);
+        final long missingUpTo = coverage != null && !coverage.isExpired() ? Math.max(coverage.missingUpTo, startingAt) : startingAt;
+
+        coverages.put(key, new Coverage(missingUpTo, System.currentTimeMillis() + coverageTtlInMillis));
+    }
+
+    /**
+     * Forgets what the preferred store was missing, once a read sent to the
+     * other store found nothing there either.
+     */
+    public void timeFound(String feedName, MigrationReadFrom preferred) {
+        coverages.remove(key(feedName, preferred.name()));
+    }
+
+    static MigrationReadFrom other(MigrationReadFrom store) {
+        return store == MigrationReadFrom.NEW ? MigrationReadFrom.OLD : MigrationReadFrom.NEW;
+    }
+
+    private static String key(String feedName, String id) {
+        return feedName + '\n' + id;
+    }
+
+    private static final class Coverage {
+
+        private final long missingUpTo;
+        private final long expiresAt;
+
+        private Coverage(long missingUpTo, long expiresAt) {
+            this.missingUpTo = missingUpTo;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
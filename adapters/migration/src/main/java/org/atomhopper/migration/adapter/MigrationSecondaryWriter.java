@@ -0,0 +1,291 @@
+package org.atomhopper.migration.adapter;
+
+import com.google.gson.JsonObject;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Timer;
+import org.apache.abdera.model.Entry;
+import org.atomhopper.adapter.FeedPublisher;
+import org.atomhopper.adapter.request.adapter.PostEntryRequest;
+import org.atomhopper.response.AdapterResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes entries to the secondary store of a dual-writing MigrationFeedPublisher
+ * off the request thread, so producers only wait for the primary store.
+ *
+ * Entries wait in a queue of queueCapacity for one of the workers. A write that
+ * throws or answers with a 5xx is retried up to maxAttempts times, backing off
+ * retryBackoffInMillis, doubled after every attempt. A 409 means the secondary
+ * has the entry already and counts as written.
+ *
+ * Entries that cannot be written, because they ran out of attempts, were
+ * rejected, found the queue full or were still queued at shutdown, are appended
+ * to the deadLetterFile as one JSON document per line, carrying the entry so it
+ * can be replayed. Without a deadLetterFile they are logged at ERROR instead.
+ *
+ * The queue-depth gauge and the lag timer, from enqueueing to the secondary
+ * write, show whether the secondary keeps up before readFrom is flipped.
+ */
+public class MigrationSecondaryWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MigrationSecondaryWriter.class);
+
+    private final Counter writes = Metrics.newCounter(MigrationSecondaryWriter.class, "secondary-writes");
+    private final Counter retries = Metrics.newCounter(MigrationSecondaryWriter.class, "secondary-write-retries");
+    private final Counter deadLetters = Metrics.newCounter(MigrationSecondaryWriter.class, "dead-letters");
+    private final Timer lag = Metrics.newTimer(MigrationSecondaryWriter.class, "secondary-write-lag", TimeUnit.MILLISECONDS, TimeUnit.SECONDS);
+
+    private int workers = 2;
+    private int queueCapacity = 10000;
+    private int maxAttempts = 3;
+    private long retryBackoffInMillis = 100;
+    private long shutdownTimeoutInMillis = 10000;
+    private File deadLetterFile;
+
+    private final Object deadLetterLock = new Object();
+    private volatile ThreadPoolExecutor executor;
+
+    public MigrationSecondaryWriter() {
+        Metrics.newGauge(MigrationSecondaryWriter.class, "queue-depth", new Gauge<Integer>() {
+            @Override
+            public Integer value() {
+                final ThreadPoolExecutor current = executor;
+
+                return current != null ? current.getQueue().size() : 0;
+            }
+        });
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void setRetryBackoffInMillis(long retryBackoffInMillis) {
+        this.retryBackoffInMillis = retryBackoffInMillis;
+    }
+
+    public void setShutdownTimeoutInMillis(long shutdownTimeoutInMillis) {
+        this.shutdownTimeoutInMillis = shutdownTimeoutInMillis;
+    }
+
+    public void setDeadLetterFile(String deadLetterFile) {
+        this.deadLetterFile = new File(deadLetterFile);
+    }
+
+    public int getQueueDepth() {
+        final ThreadPoolExecutor current = executor;
+
+        return current != null ? current.getQueue().size() : 0;
+    }
+
+    /**
+     * Queues the posted entry for the secondary publisher. The entry is copied
+     * right away, the request may be recycled as soon as this returns.
+     */
+    public void submit(FeedPublisher secondary, String storeName, PostEntryRequest postEntryRequest) {
+        final SecondaryWrite write = new SecondaryWrite(secondary, storeName, postEntryRequest instanceof DetachedPostEntryRequest
+                ? (DetachedPostEntryRequest) postEntryRequest
+                : new DetachedPostEntryRequest(postEntryRequest));
+
+        try {
+            executor().execute(write);
+        } catch (RejectedExecutionException ree) {
+            deadLetter(write, "queue full or writer shut down");
+        }
+    }
+
+    /**
+     * Stops taking entries and gives the queued ones shutdownTimeoutInMillis to
+     * be written, those still queued after it are dead-lettered.
+     */
+    public synchronized void shutdown() {
+        final ThreadPoolExecutor current = executor;
+
+        if (current == null) {
+            return;
+        }
+
+        current.shutdown();
+
+        try {
+            current.awaitTermination(shutdownTimeoutInMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Runnable pending : current.shutdownNow()) {
+            deadLetter((SecondaryWrite) pending, "still queued at shutdown");
+        }
+    }
+
+    private ThreadPoolExecutor executor() {
+        ThreadPoolExecutor current = executor;
+
+        if (current == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    executor = newExecutor();
+                }
+
+                current = executor;
+            }
+        }
+
+        return current;
+    }
+
+    private ThreadPoolExecutor newExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        return new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "atomhopper-migration-writer-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+    void write(SecondaryWrite write) {
+        String failure = null;
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (attempt > 1) {
+                retries.inc();
+
+                if (!backOff(attempt)) {
+                    break;
+                }
+            }
+
+            try {
+                final AdapterResponse<Entry> response = write.secondary.postEntry(write.request);
+                final HttpStatus status = response != null ? response.getResponseStatus() : null;
+
+                if (status == null || status.value() < 300 || status == HttpStatus.CONFLICT) {
+                    writes.inc();
+                    lag.update(System.currentTimeMillis() - write.queuedAt, TimeUnit.MILLISECONDS);
+                    return;
+                }
+
+                failure = "status " + status.value();
+
+                if (status.value() < 500) {
+                    break;
+                }
+            } catch (RuntimeException ex) {
+                failure = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+            }
+        }
+
+        deadLetter(write, failure);
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffInMillis << (attempt - 2));
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    void deadLetter(SecondaryWrite write, String reason) {
+        deadLetters.inc();
+
+        final JsonObject record = new JsonObject();
+        record.addProperty("failedAt", new Date().getTime());
+        record.addProperty("store", write.storeName);
+        record.addProperty("feed", write.request.getFeedName());
+        record.addProperty("entryId", write.request.getEntryId());
+        record.addProperty("reason", reason);
+        record.addProperty("entry", write.request.getEntryXml());
+
+        if (deadLetterFile == null) {
+            LOG.error("Unable to write entry to " + write.storeName + " store, dead letter: " + record);
+            return;
+        }
+
+        LOG.error("Unable to write entry " + write.request.getEntryId() + " to " + write.storeName + " store: " + reason);
+
+        // Workers and shutdown dead letter concurrently, the file takes one record at a time
+        synchronized (deadLetterLock) {
+            appendDeadLetter(record);
+        }
+    }
+
+    private void appendDeadLetter(JsonObject record) {
+        final FileOutputStream out;
+
+        try {
+            out = new FileOutputStream(deadLetterFile, true);
+        } catch (IOException ioe) {
+            LOG.error("Unable to open dead letter file " + deadLetterFile + ", dead letter: " + record, ioe);
+            return;
+        }
+
+        try {
+            final Writer writer = new OutputStreamWriter(out, "UTF-8");
+            writer.write(record.toString());
+            writer.write('\n');
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException ioe) {
+            LOG.error("Unable to append to dead letter file " + deadLetterFile + ", dead letter: " + record, ioe);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // Already written or already logged
+            }
+        }
+    }
+
+    final class SecondaryWrite implements Runnable {
+
+        private final FeedPublisher secondary;
+        private final String storeName;
+        private final DetachedPostEntryRequest request;
+        private final long queuedAt = System.currentTimeMillis();
+
+        private SecondaryWrite(FeedPublisher secondary, String storeName, DetachedPostEntryRequest request) {
+            this.secondary = secondary;
+            this.storeName = storeName;
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            write(this);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.atomhopper.migration.adapter;
+
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.MetricName;
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.model.Feed;
+import org.atomhopper.adapter.FeedSource;
+import org.atomhopper.adapter.request.adapter.GetEntryRequest;
+import org.atomhopper.adapter.request.adapter.GetFeedRequest;
+import org.atomhopper.migration.domain.MigrationReadFrom;
+import org.atomhopper.response.AdapterResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Repeats a sample of the reads MigrationFeedSource serves against the store
+ * it does not read from, off the request thread, and compares the answers, so
+ * the new store can be judged on measured data before readFrom is flipped.
+ *
+ * sampleRate of the reads, 0 by default, are timed and handed to the workers
+ * with the ids of the entries they answered. The workers read the same page or
+ * entry from the other store and record, per feed:
+ *
+ * - old-get-feed, new-get-feed, old-get-entry and new-get-entry latency timers
+ * - shadow-reads, and status-mismatches when the statuses differ
+ * - entry-mismatches when the pages hold different entries, order-mismatches
+ *   when they hold the same entries in another order
+ *
+ * Entries published between the two reads show as entry mismatches of the
+ * feed head, those of marker pages are stable. When the queueCapacity shadow
+ * reads waiting are too many the read is dropped rather than slowing the
+ * clients down.
+ */
+public class MigrationShadowReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MigrationShadowReader.class);
+
+    private final Counter dropped = Metrics.newCounter(MigrationShadowReader.class, "shadow-reads-dropped");
+    private final Counter failures = Metrics.newCounter(MigrationShadowReader.class, "shadow-read-failures");
+
+    private double sampleRate = 0;
+    private int workers = 1;
+    private int queueCapacity = 1000;
+
+    private volatile ThreadPoolExecutor executor;
+
+    /**
+     * @param sampleRate the share of the reads repeated against the other
+     * store, between 0 and 1
+     */
+    public void setSampleRate(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("The sample rate is a share between 0 and 1: " + sampleRate);
+        }
+
+        this.sampleRate = sampleRate;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public boolean sample() {
+        return sampleRate > 0 && (sampleRate >= 1 || Math.random() < sampleRate);
+    }
+
+    /**
+     * Queues the comparison of a page served by readFrom with the same page of
+     * the shadow source. The request is copied right away, it may be recycled
+     * as soon as this returns.
+     */
+    public void compareFeed(final FeedSource shadow, MigrationReadFrom readFrom, GetFeedRequest getFeedRequest,
+                            AdapterResponse<Feed> response, long elapsedInNanos) {
+        final String feedName = getFeedRequest.getFeedName();
+        final Stores stores = new Stores(readFrom);
+        time(stores.primary + "-get-feed", feedName, elapsedInNanos);
+
+        final HttpStatus primaryStatus = response != null ? response.getResponseStatus() : null;
+        final List<String> primaryIds = response != null && response.getBody() != null
+                ? entryIds(response.getBody().getEntries())
+                : Collections.<String>emptyList();
+
+        try {
+            final DetachedGetFeedRequest request = new DetachedGetFeedRequest(getFeedRequest);
+
+            submit(new Runnable() {
+                @Override
+                public void run() {
+                    final long start = System.nanoTime();
+                    final AdapterResponse<Feed> shadowResponse = shadow.getFeed(request);
+                    time(stores.shadow + "-get-feed", feedName, System.nanoTime() - start);
+
+                    compare(feedName, primaryStatus, primaryIds, shadowResponse != null ? shadowResponse.getResponseStatus() : null,
+                            shadowResponse != null && shadowResponse.getBody() != null
+                                    ? entryIds(shadowResponse.getBody().getEntries())
+                                    : Collections.<String>emptyList());
+                }
+            });
+        } catch (RuntimeException ex) {
+            // The client's read is answered already, the comparison is best effort
+            failures.inc();
+            LOG.debug("Unable to shadow read " + feedName, ex);
+        }
+    }
+
+    /**
+     * Queues the comparison of an entry served by readFrom with the same entry
+     * of the shadow source.
+     */
+    public void compareEntry(final FeedSource shadow, MigrationReadFrom readFrom, GetEntryRequest getEntryRequest,
+                             AdapterResponse<Entry> response, long elapsedInNanos) {
+        final String feedName = getEntryRequest.getFeedName();
+        final Stores stores = new Stores(readFrom);
+        time(stores.primary + "-get-entry", feedName, elapsedInNanos);
+
+        final HttpStatus primaryStatus = response != null ? response.getResponseStatus() : null;
+        final List<String> primaryIds = response != null && response.getBody() != null
+                ? entryIds(Collections.singletonList(response.getBody()))
+                : Collections.<String>emptyList();
+
+        try {
+            final DetachedGetEntryRequest request = new DetachedGetEntryRequest(getEntryRequest);
+
+            submit(new Runnable() {
+                @Override
+                public void run() {
+                    final long start = System.nanoTime();
+                    final AdapterResponse<Entry> shadowResponse = shadow.getEntry(request);
+                    time(stores.shadow + "-get-entry", feedName, System.nanoTime() - start);
+
+                    compare(feedName, primaryStatus, primaryIds, shadowResponse != null ? shadowResponse.getResponseStatus() : null,
+                            shadowResponse != null && shadowResponse.getBody() != null
+                                    ? entryIds(Collections.singletonList(shadowResponse.getBody()))
+                                    : Collections.<String>emptyList());
+                }
+            });
+        } catch (RuntimeException ex) {
+            failures.inc();
+            LOG.debug("Unable to shadow read " + feedName, ex);
+        }
+    }
+
+    /**
+     * Drops the shadow reads still queued, they only feed metrics.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    void compare(String feedName, HttpStatus primaryStatus, List<String> primaryIds, HttpStatus shadowStatus, List<String> shadowIds) {
+        counter("shadow-reads", feedName).inc();
+
+        if (primaryStatus != shadowStatus) {
+            counter("status-mismatches", feedName).inc();
+            LOG.debug("Shadow read of " + feedName + " answered " + shadowStatus + " instead of " + primaryStatus);
+        } else if (!primaryIds.equals(shadowIds)) {
+            if (new HashSet<String>(primaryIds).equals(new HashSet<String>(shadowIds))) {
+                counter("order-mismatches", feedName).inc();
+            } else {
+                counter("entry-mismatches", feedName).inc();
+            }
+
+            LOG.debug("Shadow read of " + feedName + " answered " + shadowIds + " instead of " + primaryIds);
+        }
+    }
+
+    private void submit(final Runnable shadowRead) {
+        try {
+            executor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        shadowRead.run();
+                    } catch (RuntimeException ex) {
+                        failures.inc();
+                        LOG.debug("Shadow read failed", ex);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            dropped.inc();
+        }
+    }
+
+    private ThreadPoolExecutor executor() {
+        ThreadPoolExecutor current = executor;
+
+        if (current == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    executor = newExecutor();
+                }
+
+                current = executor;
+            }
+        }
+
+        return current;
+    }
+
+    private ThreadPoolExecutor newExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        return new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "atomhopper-migration-shadow-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+    private static List<String> entryIds(List<Entry> entries) {
+        final List<String> ids = new ArrayList<String>(entries.size());
+
+        for (Entry entry : entries) {
+            ids.add(entry.getId() != null ? entry.getId().toString() : null);
+        }
+
+        return ids;
+    }
+
+    private static void time(String name, String feedName, long elapsedInNanos) {
+        Metrics.newTimer(new MetricName(MigrationShadowReader.class, name, feedName), TimeUnit.MILLISECONDS, TimeUnit.SECONDS)
+                .update(elapsedInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Counter counter(String name, String feedName) {
+        return Metrics.newCounter(new MetricName(MigrationShadowReader.class, name, feedName));
+    }
+
+    private static final class Stores {
+
+        private final String primary;
+        private final String shadow;
+
+        private Stores(MigrationReadFrom readFrom) {
+            this.primary = readFrom == MigrationReadFrom.NEW ? "new" : "old";
+            this.shadow = readFrom == MigrationReadFrom.NEW ? "old" : "new";
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.atomhopper.migration.adapter;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.i18n.templates.HashMapContext;
+import org.apache.abdera.i18n.templates.Template;
+import org.atomhopper.util.uri.template.EnumKeyedTemplateParameters;
+import org.atomhopper.util.uri.template.URITemplate;
+import org.atomhopper.util.uri.template.URITemplateParameter;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+
+@RunWith(Enclosed.class)
+public class DetachedClientRequestTest {
+
+    public static class WhenBuildingUrls {
+
+        private static final Abdera ABDERA = new Abdera();
+
+        @Test
+        public void shouldExpandTheTemplatesLikeTheWorkspaceProvider() throws Exception {
+            final DetachedGetFeedRequest request = new DetachedGetFeedRequest(ABDERA, "namespace", "feed", expand(URITemplate.FEED, null), null, null, 25);
+
+            final EnumKeyedTemplateParameters<URITemplate> entryUrl = new EnumKeyedTemplateParameters<URITemplate>(URITemplate.FEED);
+            entryUrl.set(URITemplateParameter.ENTRY_RESOURCE, "urn:uuid:1");
+            entryUrl.set(URITemplateParameter.PAGE_LIMIT, 5);
+
+            assertEquals(expand(URITemplate.FEED, entryUrl.toMap()), request.urlFor(entryUrl));
+            assertEquals(expand(URITemplate.WORKSPACE, null), request.urlFor(new EnumKeyedTemplateParameters<URITemplate>(URITemplate.WORKSPACE)));
+            assertEquals(expand(URITemplate.FEED, null), request.urlFor(new EnumKeyedTemplateParameters<URITemplate>(URITemplate.FEED)));
+        }
+
+        @Test
+        public void shouldFallBackToTheFeedUrlItCannotBuildOn() throws Exception {
+            final DetachedGetFeedRequest request = new DetachedGetFeedRequest(ABDERA, "namespace", "feed", "http://localhost/elsewhere", null, null, 25);
+
+            final EnumKeyedTemplateParameters<URITemplate> entryUrl = new EnumKeyedTemplateParameters<URITemplate>(URITemplate.FEED);
+            entryUrl.set(URITemplateParameter.ENTRY_RESOURCE, "urn:uuid:1");
+
+            assertEquals("http://localhost/elsewhere", request.urlFor(entryUrl));
+            assertEquals("http://localhost/elsewhere", request.urlFor(new EnumKeyedTemplateParameters<URITemplate>(URITemplate.WORKSPACE)));
+        }
+
+        private static String expand(URITemplate template, Map<String, Object> parameters) {
+            final HashMapContext context = parameters != null ? new HashMapContext(parameters) : new HashMapContext();
+            context.put(URITemplateParameter.HOST_SCHEME.toString(), "http");
+            context.put(URITemplateParameter.HOST_DOMAIN.toString(), "localhost");
+            context.put(URITemplateParameter.HOST_PORT.toString(), 8080);
+            context.put("target_base", "/atom");
+            context.put(URITemplateParameter.WORKSPACE_RESOURCE.toString(), "namespace");
+            context.put(URITemplateParameter.FEED_RESOURCE.toString(), "feed");
+
+            return Template.expand(template.toString(), context);
+        }
+    }
+}
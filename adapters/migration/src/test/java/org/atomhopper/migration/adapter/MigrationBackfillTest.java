@@ -0,0 +1,305 @@
+package org.atomhopper.migration.adapter;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.model.Feed;
+import org.apache.abdera.model.Link;
+import org.atomhopper.adapter.BatchFeedPublisher;
+import org.atomhopper.adapter.FeedInformation;
+import org.atomhopper.adapter.FeedPublisher;
+import org.atomhopper.adapter.FeedSource;
+import org.atomhopper.adapter.ResponseBuilder;
+import org.atomhopper.adapter.request.adapter.GetEntryRequest;
+import org.atomhopper.adapter.request.adapter.GetFeedRequest;
+import org.atomhopper.adapter.request.adapter.PostEntryRequest;
+import org.atomhopper.response.AdapterResponse;
+import org.atomhopper.util.uri.template.EnumKeyedTemplateParameters;
+import org.atomhopper.util.uri.template.URITemplate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class MigrationBackfillTest {
+
+    public static class WhenBackfillingTheNewStore {
+
+        private static final long START = DatatypeConverter.parseDateTime("2013-01-01T00:00:00Z").getTimeInMillis();
+        private static final int ENTRIES = 20;
+
+        private File checkpointFile;
+        private FeedPublisher newFeedPublisher;
+        private List<String> posted;
+        private MigrationBackfill backfill;
+
+        @Before
+        public void setUp() throws Exception {
+            checkpointFile = File.createTempFile("backfill", ".properties");
+            checkpointFile.delete();
+
+            posted = Collections.synchronizedList(new ArrayList<String>());
+            newFeedPublisher = mock(FeedPublisher.class);
+
+            backfill = new MigrationBackfill();
+            backfill.setOldFeedSource(new PagedFeedSource(ENTRIES));
+            backfill.setNewFeedPublisher(newFeedPublisher);
+            backfill.setFeeds(Arrays.asList("namespace/feed"));
+            backfill.setPageSize(3);
+            backfill.setEntriesPerSecond(0);
+            backfill.setRetryBackoffInMillis(1);
+            backfill.setCheckpointFile(checkpointFile.getPath());
+            backfill.setOldestEntry("2013-01-01T00:00:00Z");
+            backfill.setNewestEntry("2013-01-01T00:00:20Z");
+        }
+
+        @After
+        public void tearDown() throws Exception {
+            checkpointFile.delete();
+        }
+
+        @Test
+        public void shouldCopyEveryEntryOnceAcrossTimeRanges() throws Exception {
+            backfill.setWorkers(3);
+            when(newFeedPublisher.postEntry(any(PostEntryRequest.class))).thenAnswer(new Answer<AdapterResponse<Entry>>() {
+                @Override
+                public AdapterResponse<Entry> answer(InvocationOnMock invocation) throws Throwable {
+                    final Entry entry = ((PostEntryRequest) invocation.getArguments()[0]).getEntry();
+                    posted.add(entry.getId().toString());
+
+                    return ResponseBuilder.created(entry);
+                }
+            });
+
+            assertTrue("Should complete every range", backfill.run());
+            assertEquals("Should copy every entry", ENTRIES, posted.size());
+            assertEquals("Should copy no entry twice", ENTRIES, new HashSet<String>(posted).size());
+            assertEquals("Should cover the whole span", 1.0, backfill.getCompletion());
+        }
+
+        @Test
+        public void shouldPostAPageAtATimeToBatchPublishers() throws Exception {
+            backfill.setWorkers(1);
+
+            final BatchFeedPublisher batchFeedPublisher = mock(BatchFeedPublisher.class);
+            final AdapterResponse<Entry> unavailable = ResponseBuilder.error("unavailable");
+            final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+            final boolean[] failedOnce = new boolean[1];
+
+            when(batchFeedPublisher.postEntries(any(List.class))).thenAnswer(new Answer<List<AdapterResponse<Entry>>>() {
+                @Override
+                public List<AdapterResponse<Entry>> answer(InvocationOnMock invocation) throws Throwable {
+                    final List<PostEntryRequest> requests = (List<PostEntryRequest>) invocation.getArguments()[0];
+                    final List<AdapterResponse<Entry>> responses = new ArrayList<AdapterResponse<Entry>>();
+                    batchSizes.add(requests.size());
+
+                    for (PostEntryRequest request : requests) {
+                        if (!failedOnce[0]) {
+                            failedOnce[0] = true;
+                            responses.add(unavailable);
+                        } else {
+                            posted.add(request.getEntry().getId().toString());
+                            responses.add(ResponseBuilder.created(request.getEntry()));
+                        }
+                    }
+
+                    return responses;
+                }
+            });
+            backfill.setNewFeedPublisher(batchFeedPublisher);
+
+            assertTrue("Should complete every range", backfill.run());
+            assertEquals("Should copy every entry once", ENTRIES, new HashSet<String>(posted).size());
+            assertEquals("Should retry only the entry that failed", ENTRIES, posted.size());
+            assertEquals("Should post a page at a time", Integer.valueOf(3), batchSizes.get(0));
+            assertEquals("Should retry the failed entry on its own", Integer.valueOf(1), batchSizes.get(1));
+            verify(batchFeedPublisher, never()).postEntry(any(PostEntryRequest.class));
+        }
+
+        @Test
+        public void shouldSplitTheSpanEvenlyBetweenWorkers() throws Exception {
+            backfill.setWorkers(4);
+
+            final List<MigrationBackfill.Range> ranges = backfill.splitIntoRanges(START + 20000);
+
+            assertEquals("Should split into one range per worker", 4, ranges.size());
+            assertEquals("Should start at the oldest entry", START, ranges.get(0).getFrom());
+            assertEquals("Should leave no gaps", ranges.get(0).getTo(), ranges.get(1).getFrom());
+            assertEquals("Should end at the newest entry", START + 20000, ranges.get(3).getTo());
+        }
+
+        @Test
+        public void shouldCountDuplicatesAsCopied() throws Exception {
+            final AdapterResponse<Entry> conflict = ResponseBuilder.conflict("duplicate");
+            when(newFeedPublisher.postEntry(any(PostEntryRequest.class))).thenReturn(conflict);
+
+            assertTrue("Should complete every range", backfill.run());
+        }
+
+        @Test
+        public void shouldCopyNothingWhenStoppedBeforeRunning() throws Exception {
+            backfill.stop();
+
+            assertFalse("Should leave every range to a new run", backfill.run());
+            verify(newFeedPublisher, never()).postEntry(any(PostEntryRequest.class));
+        }
+
+        @Test
+        public void shouldResumeFromTheCheckpoint() throws Exception {
+            backfill.setWorkers(1);
+            backfill.setMaxAttempts(1);
+
+            final AdapterResponse<Entry> created = ResponseBuilder.created(new Abdera().newEntry());
+            final AdapterResponse<Entry> badRequest = ResponseBuilder.badRequest("bad entry");
+            when(newFeedPublisher.postEntry(any(PostEntryRequest.class))).thenReturn(created, created, created, created, badRequest);
+
+            assertFalse("Should give up the range", backfill.run());
+
+            final MigrationBackfill resumed = new MigrationBackfill();
+            final PagedFeedSource oldFeedSource = new PagedFeedSource(ENTRIES);
+            resumed.setOldFeedSource(oldFeedSource);
+            resumed.setNewFeedPublisher(mock(FeedPublisher.class));
+            resumed.setFeeds(Arrays.asList("namespace/feed"));
+            resumed.setPageSize(3);
+            resumed.setEntriesPerSecond(0);
+            resumed.setWorkers(1);
+            resumed.setCheckpointFile(checkpointFile.getPath());
+            resumed.setOldestEntry("2013-01-01T00:00:00Z");
+            resumed.setNewestEntry("2013-01-01T00:00:20Z");
+
+            assertTrue("Should complete the range", resumed.run());
+            assertEquals("Should start at the page that failed", "urn:uuid:16", oldFeedSource.requestedMarkers.get(0));
+        }
+
+        @Test
+        public void shouldResumeAtTheUpperBoundOfTheFirstRun() throws Exception {
+            final FeedPublisher failingPublisher = mock(FeedPublisher.class);
+            final AdapterResponse<Entry> created = ResponseBuilder.created(new Abdera().newEntry());
+            final AdapterResponse<Entry> badRequest = ResponseBuilder.badRequest("bad entry");
+            when(failingPublisher.postEntry(any(PostEntryRequest.class))).thenReturn(created, created, created, created, badRequest);
+
+            assertFalse("Should give up the range", unboundedBackfill(new PagedFeedSource(ENTRIES), failingPublisher).run());
+
+            // A later run starts at a later time, the ranges keep the first run's upper bound
+            Thread.sleep(5);
+
+            final PagedFeedSource oldFeedSource = new PagedFeedSource(ENTRIES);
+
+            assertTrue("Should complete the range", unboundedBackfill(oldFeedSource, mock(FeedPublisher.class)).run());
+            assertEquals("Should start at the page that failed", "urn:uuid:16", oldFeedSource.requestedMarkers.get(0));
+        }
+
+        private MigrationBackfill unboundedBackfill(FeedSource oldFeedSource, FeedPublisher newFeedPublisher) {
+            final MigrationBackfill unbounded = new MigrationBackfill();
+            unbounded.setOldFeedSource(oldFeedSource);
+            unbounded.setNewFeedPublisher(newFeedPublisher);
+            unbounded.setFeeds(Arrays.asList("namespace/feed"));
+            unbounded.setPageSize(3);
+            unbounded.setEntriesPerSecond(0);
+            unbounded.setWorkers(1);
+            unbounded.setMaxAttempts(1);
+            unbounded.setCheckpointFile(checkpointFile.getPath());
+            unbounded.setOldestEntry("2013-01-01T00:00:00Z");
+
+            return unbounded;
+        }
+
+        @Test
+        public void shouldReadTheMarkerOfTheNextLink() throws Exception {
+            final Feed page = new Abdera().newFeed();
+            page.addLink("http://localhost/namespace/feed/?marker=urn%3Auuid%3A5&limit=3&direction=backward").setRel(Link.REL_NEXT);
+
+            assertEquals("Should decode the marker", "urn:uuid:5", MigrationBackfill.nextMarker(page));
+            assertNull("Should find no marker without a next link", MigrationBackfill.nextMarker(new Abdera().newFeed()));
+        }
+    }
+
+    /**
+     * Pages entries updated a second apart backward, with inclusive markers and
+     * startingAt like the JDBC source.
+     */
+    static class PagedFeedSource implements FeedSource {
+
+        private final List<String> requestedMarkers = Collections.synchronizedList(new ArrayList<String>());
+        private final int entries;
+
+        PagedFeedSource(int entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public AdapterResponse<Feed> getFeed(GetFeedRequest getFeedRequest) {
+            int newest = entries - 1;
+
+            if (getFeedRequest.getPageMarker() != null) {
+                requestedMarkers.add(getFeedRequest.getPageMarker());
+                newest = Integer.parseInt(getFeedRequest.getPageMarker().substring("urn:uuid:".length()));
+            } else if (getFeedRequest.getStartingAt() != null) {
+                final long startingAt = DatatypeConverter.parseDateTime(getFeedRequest.getStartingAt()).getTimeInMillis();
+                newest = (int) Math.min(entries - 1, (startingAt - WhenBackfillingTheNewStore.START) / 1000);
+            }
+
+            final Feed feed = getFeedRequest.newFeed();
+            final int pageSize = Integer.parseInt(getFeedRequest.getPageSize());
+            int index = newest;
+
+            for (; index >= 0 && index > newest - pageSize; index--) {
+                final Entry entry = feed.addEntry();
+                entry.setId("urn:uuid:" + index);
+                entry.setUpdated(new Date(WhenBackfillingTheNewStore.START + index * 1000L));
+            }
+
+            if (index >= 0) {
+                feed.addLink(getFeedRequest.urlFor(new EnumKeyedTemplateParameters<URITemplate>(URITemplate.FEED)) + "?marker=urn:uuid:" + index + "&direction=backward").setRel(Link.REL_NEXT);
+            }
+
+            return ResponseBuilder.found(feed);
+        }
+
+        @Override
+        public FeedInformation getFeedInformation() {
+            return null;
+        }
+
+        @Override
+        public AdapterResponse<Entry> getEntry(GetEntryRequest getEntryRequest) {
+            return null;
+        }
+
+        @Override
+        public void setCurrentUrl(URL urlCurrent) {
+        }
+
+        @Override
+        public void setArchiveUrl(URL url) {
+        }
+
+        @Override
+        public void setParameters(Map<String, String> params) {
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import static junit.framework.Assert.assertEquals;
+import org.apache.abdera.Abdera;
 import org.apache.abdera.model.Entry;
 import org.apache.abdera.parser.stax.FOMEntry;
 import org.atomhopper.adapter.FeedPublisher;
@@ -18,7 +19,12 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatcher;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.springframework.http.HttpStatus;
 
@@ -53,6 +59,7 @@ public class MigrationFeedPublisherTest {
             postEntryRequest = mock(PostEntryRequest.class);
             when(postEntryRequest.getEntry()).thenReturn(entry());
             when(postEntryRequest.getFeedName()).thenReturn("namespace/feed");
+            when(postEntryRequest.getAbdera()).thenReturn(new Abdera());
         }
 
         @Test
@@ -125,6 +132,40 @@ public class MigrationFeedPublisherTest {
             assertEquals("Should return HTTP 201 (Created)", HttpStatus.CREATED, adapterResponse.getResponseStatus());
         }
 
+        @Test
+        public void shouldWriteTheSecondaryOffTheRequestThread() throws Exception {
+            migrationFeedPublisher.setWriteTo(MigrationWriteTo.BOTH);
+            migrationFeedPublisher.setReadFrom(MigrationReadFrom.OLD);
+
+            when(oldFeedPublisher.postEntry(postEntryRequest)).thenReturn(ResponseBuilder.created(entry()));
+
+            migrationFeedPublisher.postEntry(postEntryRequest);
+            migrationFeedPublisher.shutdown();
+
+            verify(newFeedPublisher).postEntry(argThat(new ArgumentMatcher<PostEntryRequest>() {
+                @Override
+                public boolean matches(Object request) {
+                    return request instanceof DetachedPostEntryRequest
+                            && "testing".equals(((PostEntryRequest) request).getEntry().getContent());
+                }
+            }));
+        }
+
+        @Test
+        public void shouldNotWriteTheSecondaryWhenThePrimaryFails() throws Exception {
+            migrationFeedPublisher.setWriteTo(MigrationWriteTo.BOTH);
+            migrationFeedPublisher.setReadFrom(MigrationReadFrom.OLD);
+
+            final AdapterResponse<Entry> conflict = ResponseBuilder.conflict("duplicate");
+            when(oldFeedPublisher.postEntry(postEntryRequest)).thenReturn(conflict);
+
+            AdapterResponse<Entry> adapterResponse = migrationFeedPublisher.postEntry(postEntryRequest);
+            migrationFeedPublisher.shutdown();
+
+            assertEquals("Should return the primary's response", HttpStatus.CONFLICT, adapterResponse.getResponseStatus());
+            verify(newFeedPublisher, never()).postEntry(any(PostEntryRequest.class));
+        }
+
         @Test(expected = UnsupportedOperationException.class)
         public void shouldPutEntry() throws Exception {
             migrationFeedPublisher.putEntry(putEntryRequest);
@@ -13,6 +13,7 @@ import org.apache.abdera.Abdera;
 import org.apache.abdera.model.Feed;
 import org.apache.abdera.model.Entry;
 import org.atomhopper.adapter.FeedSource;
+import org.atomhopper.adapter.ResponseBuilder;
 import org.atomhopper.adapter.jpa.PersistedFeed;
 import org.atomhopper.adapter.request.adapter.GetEntryRequest;
 import org.atomhopper.adapter.request.adapter.GetFeedRequest;
@@ -142,6 +143,83 @@ public class MigrationFeedSourceTest {
             AdapterResponse<Entry> entryRead = migrationFeedSource.getEntry(getEntryRequest);
         }
 
+        @Test
+        public void shouldShadowReadFromTheOtherSource() throws Exception {
+            final MigrationShadowReader shadowReader = new MigrationShadowReader();
+            shadowReader.setSampleRate(1);
+            migrationFeedSource.setShadowReader(shadowReader);
+            migrationFeedSource.setReadFrom(MigrationReadFrom.OLD);
+            when(oldFeedSource.getFeed(getFeedRequest)).thenReturn(feedResponse);
+
+            AdapterResponse<Feed> feedRead = migrationFeedSource.getFeed(getFeedRequest);
+
+            assertEquals(feedResponse, feedRead);
+            verify(newFeedSource, timeout(1000)).getFeed(any(DetachedGetFeedRequest.class));
+        }
+
+        @Test
+        public void shouldFallBackToTheOtherSourceOnAMiss() throws Exception {
+            migrationFeedSource.setReadFrom(MigrationReadFrom.NEW);
+            migrationFeedSource.setFallbackReads(true);
+
+            final AdapterResponse<Entry> notFound = ResponseBuilder.notFound();
+            final AdapterResponse<Entry> found = ResponseBuilder.found(new Abdera().newEntry());
+            when(newFeedSource.getEntry(getEntryRequest)).thenReturn(notFound);
+            when(oldFeedSource.getEntry(getEntryRequest)).thenReturn(found);
+
+            assertEquals(found, migrationFeedSource.getEntry(getEntryRequest));
+            assertEquals(found, migrationFeedSource.getEntry(getEntryRequest));
+
+            verify(newFeedSource, times(1)).getEntry(getEntryRequest);
+            verify(oldFeedSource, times(2)).getEntry(getEntryRequest);
+        }
+
+        @Test
+        public void shouldNotFallBackByDefault() throws Exception {
+            migrationFeedSource.setReadFrom(MigrationReadFrom.NEW);
+
+            final AdapterResponse<Entry> notFound = ResponseBuilder.notFound();
+            when(newFeedSource.getEntry(getEntryRequest)).thenReturn(notFound);
+
+            assertEquals(notFound, migrationFeedSource.getEntry(getEntryRequest));
+            verify(oldFeedSource, never()).getEntry(getEntryRequest);
+        }
+
+        @Test
+        public void shouldRouteTimesTheStoreMissedToTheOtherSource() throws Exception {
+            migrationFeedSource.setReadFrom(MigrationReadFrom.NEW);
+            migrationFeedSource.setFallbackReads(true);
+            when(getFeedRequest.getStartingAt()).thenReturn("2013-01-01T00:00:00Z");
+            when(getFeedRequest.getDirection()).thenReturn("backward");
+
+            final AdapterResponse<Feed> notFound = ResponseBuilder.notFound();
+            when(newFeedSource.getFeed(getFeedRequest)).thenReturn(notFound);
+            when(oldFeedSource.getFeed(getFeedRequest)).thenReturn(feedResponse);
+
+            migrationFeedSource.getFeed(getFeedRequest);
+            migrationFeedSource.getFeed(getFeedRequest);
+
+            verify(newFeedSource, times(1)).getFeed(getFeedRequest);
+            verify(oldFeedSource, times(2)).getFeed(getFeedRequest);
+        }
+
+        @Test
+        public void shouldKeepReadingForwardFromTheStoreReadFrom() throws Exception {
+            migrationFeedSource.setReadFrom(MigrationReadFrom.NEW);
+            migrationFeedSource.setFallbackReads(true);
+            when(getFeedRequest.getStartingAt()).thenReturn("2013-01-01T00:00:00Z");
+            when(getFeedRequest.getDirection()).thenReturn("forward");
+
+            final AdapterResponse<Feed> notFound = ResponseBuilder.notFound();
+            when(newFeedSource.getFeed(getFeedRequest)).thenReturn(notFound);
+            when(oldFeedSource.getFeed(getFeedRequest)).thenReturn(feedResponse);
+
+            migrationFeedSource.getFeed(getFeedRequest);
+            migrationFeedSource.getFeed(getFeedRequest);
+
+            verify(newFeedSource, times(2)).getFeed(getFeedRequest);
+        }
+
         @Test(expected=UnsupportedOperationException.class)
         public void shouldSetParameters() throws Exception {
             Map<String, String> map = new HashMap<String, String>();
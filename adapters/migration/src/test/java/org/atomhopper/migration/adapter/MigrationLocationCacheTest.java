@@ -0,0 +1,89 @@
+package org.atomhopper.migration.adapter;
+
+import org.atomhopper.migration.domain.MigrationReadFrom;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+
+@RunWith(Enclosed.class)
+public class MigrationLocationCacheTest {
+
+    public static class WhenLocatingEntries {
+
+        private static final String FEED_NAME = "namespace/feed";
+
+        private MigrationLocationCache locationCache;
+
+        @Before
+        public void setUp() throws Exception {
+            locationCache = new MigrationLocationCache();
+            locationCache.setMaxEntries(2);
+        }
+
+        @Test
+        public void shouldPreferTheStoreReadFromForUnknownEntries() throws Exception {
+            assertEquals(MigrationReadFrom.NEW, locationCache.locateEntry(FEED_NAME, "1", MigrationReadFrom.NEW));
+        }
+
+        @Test
+        public void shouldRememberEntriesFoundInTheOtherStore() throws Exception {
+            locationCache.entryFound(FEED_NAME, "1", MigrationReadFrom.OLD, MigrationReadFrom.NEW);
+
+            assertEquals(MigrationReadFrom.OLD, locationCache.locateEntry(FEED_NAME, "1", MigrationReadFrom.NEW));
+        }
+
+        @Test
+        public void shouldForgetEntriesFoundInThePreferredStore() throws Exception {
+            locationCache.entryFound(FEED_NAME, "1", MigrationReadFrom.OLD, MigrationReadFrom.NEW);
+            locationCache.entryFound(FEED_NAME, "1", MigrationReadFrom.NEW, MigrationReadFrom.NEW);
+
+            assertEquals(MigrationReadFrom.NEW, locationCache.locateEntry(FEED_NAME, "1", MigrationReadFrom.NEW));
+        }
+
+        @Test
+        public void shouldDropTheLeastRecentlyReadEntries() throws Exception {
+            locationCache.entryFound(FEED_NAME, "1", MigrationReadFrom.OLD, MigrationReadFrom.NEW);
+            locationCache.entryFound(FEED_NAME, "2", MigrationReadFrom.OLD, MigrationReadFrom.NEW);
+            locationCache.locateEntry(FEED_NAME, "1", MigrationReadFrom.NEW);
+            locationCache.entryFound(FEED_NAME, "3", MigrationReadFrom.OLD, MigrationReadFrom.NEW);
+
+            assertEquals(MigrationReadFrom.OLD, locationCache.locateEntry(FEED_NAME, "1", MigrationReadFrom.NEW));
+            assertEquals(MigrationReadFrom.NEW, locationCache.locateEntry(FEED_NAME, "2", MigrationReadFrom.NEW));
+        }
+
+        @Test
+        public void shouldRouteTimesBeforeTheMissingRangeToTheOtherStore() throws Exception {
+            locationCache.timeMissing(FEED_NAME, 1000, true, MigrationReadFrom.NEW);
+
+            assertEquals(MigrationReadFrom.OLD, locationCache.locateTime(FEED_NAME, 500, true, MigrationReadFrom.NEW));
+            assertEquals(MigrationReadFrom.NEW, locationCache.locateTime(FEED_NAME, 1500, true, MigrationReadFrom.NEW));
+            assertEquals(MigrationReadFrom.NEW, locationCache.locateTime(FEED_NAME, 500, false, MigrationReadFrom.NEW));
+        }
+
+        @Test
+        public void shouldNotRememberForwardMisses() throws Exception {
+            locationCache.timeMissing(FEED_NAME, 1000, false, MigrationReadFrom.NEW);
+
+            assertEquals(MigrationReadFrom.NEW, locationCache.locateTime(FEED_NAME, 1500, false, MigrationReadFrom.NEW));
+        }
+
+        @Test
+        public void shouldForgetMissingRangesOnceExpired() throws Exception {
+            locationCache.setCoverageTtlInSeconds(0);
+            locationCache.timeMissing(FEED_NAME, 1000, true, MigrationReadFrom.NEW);
+
+            assertEquals(MigrationReadFrom.NEW, locationCache.locateTime(FEED_NAME, 500, true, MigrationReadFrom.NEW));
+        }
+
+        @Test
+        public void shouldForgetMissingRangesTheOtherStoreDoesNotHave() throws Exception {
+            locationCache.timeMissing(FEED_NAME, 1000, true, MigrationReadFrom.NEW);
+            locationCache.timeFound(FEED_NAME, MigrationReadFrom.NEW);
+
+            assertEquals(MigrationReadFrom.NEW, locationCache.locateTime(FEED_NAME, 500, true, MigrationReadFrom.NEW));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.atomhopper.migration.adapter;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.model.Entry;
+import org.atomhopper.abdera.TargetResolverField;
+import org.atomhopper.adapter.FeedPublisher;
+import org.atomhopper.adapter.ResponseBuilder;
+import org.atomhopper.adapter.request.adapter.PostEntryRequest;
+import org.atomhopper.response.AdapterResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.springframework.http.HttpStatus;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class MigrationSecondaryWriterTest {
+
+    public static class WhenWritingToTheSecondaryStore {
+
+        private File deadLetterFile;
+        private FeedPublisher secondary;
+        private PostEntryRequest postEntryRequest;
+        private MigrationSecondaryWriter secondaryWriter;
+
+        @Before
+        public void setUp() throws Exception {
+            deadLetterFile = File.createTempFile("dead-letters", ".json");
+            secondary = mock(FeedPublisher.class);
+
+            final Entry entry = new Abdera().newEntry();
+            entry.setId("urn:uuid:1");
+            entry.setContent("testing");
+
+            postEntryRequest = mock(PostEntryRequest.class);
+            when(postEntryRequest.getEntry()).thenReturn(entry);
+            when(postEntryRequest.getAbdera()).thenReturn(new Abdera());
+            when(postEntryRequest.getTargetParameter(TargetResolverField.WORKSPACE.name())).thenReturn("namespace");
+            when(postEntryRequest.getTargetParameter(TargetResolverField.FEED.name())).thenReturn("feed");
+
+            secondaryWriter = new MigrationSecondaryWriter();
+            secondaryWriter.setWorkers(1);
+            secondaryWriter.setRetryBackoffInMillis(1);
+            secondaryWriter.setDeadLetterFile(deadLetterFile.getPath());
+        }
+
+        @After
+        public void tearDown() throws Exception {
+            deadLetterFile.delete();
+        }
+
+        @Test
+        public void shouldRetryServerErrors() throws Exception {
+            final AdapterResponse<Entry> serverError = response(HttpStatus.INTERNAL_SERVER_ERROR);
+            final AdapterResponse<Entry> created = ResponseBuilder.created(postEntryRequest.getEntry());
+            when(secondary.postEntry(any(PostEntryRequest.class))).thenReturn(serverError, created);
+
+            secondaryWriter.submit(secondary, "NEW", postEntryRequest);
+            secondaryWriter.shutdown();
+
+            verify(secondary, times(2)).postEntry(any(PostEntryRequest.class));
+            assertTrue("Should not dead letter the entry", deadLetters().isEmpty());
+        }
+
+        @Test
+        public void shouldTreatConflictsAsWritten() throws Exception {
+            final AdapterResponse<Entry> conflict = response(HttpStatus.CONFLICT);
+            when(secondary.postEntry(any(PostEntryRequest.class))).thenReturn(conflict);
+
+            secondaryWriter.submit(secondary, "NEW", postEntryRequest);
+            secondaryWriter.shutdown();
+
+            verify(secondary, times(1)).postEntry(any(PostEntryRequest.class));
+            assertTrue("Should not dead letter the entry", deadLetters().isEmpty());
+        }
+
+        @Test
+        public void shouldDeadLetterEntriesThatRunOutOfAttempts() throws Exception {
+            when(secondary.postEntry(any(PostEntryRequest.class))).thenThrow(new RuntimeException("down"));
+
+            secondaryWriter.submit(secondary, "NEW", postEntryRequest);
+            secondaryWriter.shutdown();
+
+            verify(secondary, times(3)).postEntry(any(PostEntryRequest.class));
+
+            final List<String> deadLetters = deadLetters();
+            assertEquals(1, deadLetters.size());
+            assertTrue("Should record the entry id", deadLetters.get(0).contains("\"entryId\":\"urn:uuid:1\""));
+            assertTrue("Should record the feed", deadLetters.get(0).contains("\"feed\":\"namespace/feed\""));
+            assertTrue("Should keep the entry for replay", deadLetters.get(0).contains("testing"));
+        }
+
+        @Test
+        public void shouldNotRetryClientErrors() throws Exception {
+            final AdapterResponse<Entry> badRequest = response(HttpStatus.BAD_REQUEST);
+            when(secondary.postEntry(any(PostEntryRequest.class))).thenReturn(badRequest);
+
+            secondaryWriter.submit(secondary, "NEW", postEntryRequest);
+            secondaryWriter.shutdown();
+
+            verify(secondary, times(1)).postEntry(any(PostEntryRequest.class));
+            assertEquals(1, deadLetters().size());
+        }
+
+        @Test
+        public void shouldDeadLetterEntriesSubmittedAfterShutdown() throws Exception {
+            secondaryWriter.submit(secondary, "NEW", postEntryRequest);
+            secondaryWriter.shutdown();
+            secondaryWriter.submit(secondary, "NEW", postEntryRequest);
+
+            assertEquals(1, deadLetters().size());
+        }
+
+        private static AdapterResponse<Entry> response(HttpStatus status) {
+            return ResponseBuilder.reply(status, "testing");
+        }
+
+        private List<String> deadLetters() throws Exception {
+            final List<String> lines = new ArrayList<String>();
+            final BufferedReader reader = new BufferedReader(new FileReader(deadLetterFile));
+
+            try {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    lines.add(line);
+                }
+            } finally {
+                reader.close();
+            }
+
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.atomhopper.migration.adapter;
+
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.MetricName;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(Enclosed.class)
+public class MigrationShadowReaderTest {
+
+    public static class WhenComparingShadowReads {
+
+        private final MigrationShadowReader shadowReader = new MigrationShadowReader();
+
+        @Test
+        public void shouldCountMatchingReads() throws Exception {
+            shadowReader.compare("namespace/matching", HttpStatus.OK, Arrays.asList("1", "2"), HttpStatus.OK, Arrays.asList("1", "2"));
+
+            assertEquals("Should count the read", 1, count("shadow-reads", "namespace/matching"));
+            assertEquals("Should find no mismatch", 0, count("entry-mismatches", "namespace/matching"));
+        }
+
+        @Test
+        public void shouldCountStatusMismatches() throws Exception {
+            shadowReader.compare("namespace/status", HttpStatus.OK, Arrays.asList("1"), HttpStatus.NOT_FOUND, Collections.<String>emptyList());
+
+            assertEquals("Should count the status mismatch", 1, count("status-mismatches", "namespace/status"));
+        }
+
+        @Test
+        public void shouldCountEntryMismatches() throws Exception {
+            shadowReader.compare("namespace/entries", HttpStatus.OK, Arrays.asList("1", "2"), HttpStatus.OK, Arrays.asList("1", "3"));
+
+            assertEquals("Should count the entry mismatch", 1, count("entry-mismatches", "namespace/entries"));
+        }
+
+        @Test
+        public void shouldCountOrderMismatches() throws Exception {
+            shadowReader.compare("namespace/order", HttpStatus.OK, Arrays.asList("1", "2"), HttpStatus.OK, Arrays.asList("2", "1"));
+
+            assertEquals("Should count the order mismatch", 1, count("order-mismatches", "namespace/order"));
+            assertEquals("Should not count an entry mismatch", 0, count("entry-mismatches", "namespace/order"));
+        }
+
+        @Test
+        public void shouldSampleByRate() throws Exception {
+            assertFalse("Should not sample by default", shadowReader.sample());
+
+            shadowReader.setSampleRate(1);
+
+            assertTrue("Should sample every read", shadowReader.sample());
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void shouldRejectRatesAboveOne() throws Exception {
+            shadowReader.setSampleRate(1.5);
+        }
+
+        private static long count(String name, String feedName) {
+            return Metrics.newCounter(new MetricName(MigrationShadowReader.class, name, feedName)).count();
+        }
+    }
+}
@@ -1,20 +1,195 @@
 package org.atomhopper.mongodb.adapter;
 
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DBObject;
 import org.apache.abdera.model.Categories;
 import org.atomhopper.adapter.FeedInformation;
 import org.atomhopper.adapter.NotImplemented;
 import org.atomhopper.adapter.request.adapter.GetCategoriesRequest;
 import org.atomhopper.adapter.request.feed.FeedRequest;
+import org.atomhopper.mongodb.domain.FeedStatistics;
+import org.atomhopper.util.ExpiringCache;
+import org.springframework.data.mongodb.core.MongoTemplate;
 
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import static org.atomhopper.mongodb.adapter.MongodbUtilities.formatCollectionName;
+
+/**
+ * Answers category documents and feed statistics with aggregation pipelines
+ * run on the server, so only the distinct terms and the bucket counts cross
+ * the wire instead of the feed's entries.
+ *
+ * Both pipelines start with a $match on feed and a $project of the one field
+ * they need, so they read through the feed's category and paging indexes.
+ * Results are cached for cacheTtlInSeconds.
+ */
 public class MongodbFeedInformation implements FeedInformation {
 
-    @Override
+    public enum TimeBucket {
+        HOUR, DAY
+    }
+
+    private static final String FEED = "feed";
+    private static final String CATEGORIES = "categories";
+    private static final String CATEGORY_TERM = "categories.term";
+    private static final String DATE_LAST_UPDATED = "dateLastUpdated";
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final ExpiringCache<String, List<String>> categoriesCache = new ExpiringCache<String, List<String>>(60000);
+    private final ExpiringCache<String, FeedStatistics> statisticsCache = new ExpiringCache<String, FeedStatistics>(60000);
+
+    private MongoTemplate mongoTemplate;
+    private TimeBucket statisticsBucket = TimeBucket.HOUR;
+
+    public void setMongoTemplate(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void setCacheTtlInSeconds(long cacheTtlInSeconds) {
+        categoriesCache.setTtlInMillis(cacheTtlInSeconds * 1000);
+        statisticsCache.setTtlInMillis(cacheTtlInSeconds * 1000);
+    }
+
+    /**
+     * @param statisticsBucket hour or day
+     */
+    public void setStatisticsBucket(String statisticsBucket) {
+        this.statisticsBucket = TimeBucket.valueOf(statisticsBucket.trim().toUpperCase());
+    }
+
+    @Override @NotImplemented
     public String getId(FeedRequest feedRequest) {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
-    @Override @NotImplemented
+    @Override
     public Categories getCategories(GetCategoriesRequest getCategoriesRequest) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        final Categories categories = getCategoriesRequest.newCategories();
+
+        for (String term : getCategoryTerms(getCategoriesRequest.getFeedName())) {
+            categories.addCategory(term);
+        }
+
+        return categories;
+    }
+
+    /**
+     * @return the distinct category terms of the feed's entries, sorted
+     */
+    public List<String> getCategoryTerms(String feedName) {
+        final List<String> cached = categoriesCache.get(feedName);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final List<DBObject> pipeline = new ArrayList<DBObject>();
+        pipeline.add(new BasicDBObject("$match", new BasicDBObject(FEED, feedName)));
+        pipeline.add(new BasicDBObject("$project", new BasicDBObject("_id", 0).append(CATEGORY_TERM, 1)));
+        pipeline.add(new BasicDBObject("$unwind", "$" + CATEGORIES));
+        pipeline.add(new BasicDBObject("$group", new BasicDBObject("_id", "$" + CATEGORY_TERM)));
+        pipeline.add(new BasicDBObject("$sort", new BasicDBObject("_id", 1)));
+
+        final List<String> terms = new ArrayList<String>();
+
+        for (DBObject group : aggregate(feedName, pipeline)) {
+            if (group.get("_id") != null) {
+                terms.add(group.get("_id").toString());
+            }
+        }
+
+        final List<String> unmodifiableTerms = Collections.unmodifiableList(terms);
+        categoriesCache.put(feedName, unmodifiableTerms);
+
+        return unmodifiableTerms;
+    }
+
+    /**
+     * @return the feed's entry count, in total and per statisticsBucket
+     */
+    public FeedStatistics getStatistics(String feedName) {
+        final FeedStatistics cached = statisticsCache.get(feedName);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final BasicDBObject bucket = new BasicDBObject("year", new BasicDBObject("$year", "$" + DATE_LAST_UPDATED))
+                .append("month", new BasicDBObject("$month", "$" + DATE_LAST_UPDATED))
+                .append("day", new BasicDBObject("$dayOfMonth", "$" + DATE_LAST_UPDATED));
+
+        if (statisticsBucket == TimeBucket.HOUR) {
+            bucket.append("hour", new BasicDBObject("$hour", "$" + DATE_LAST_UPDATED));
+        }
+
+        final List<DBObject> pipeline = new ArrayList<DBObject>();
+        pipeline.add(new BasicDBObject("$match", new BasicDBObject(FEED, feedName)));
+        pipeline.add(new BasicDBObject("$project", new BasicDBObject("_id", 0).append(DATE_LAST_UPDATED, 1)));
+        pipeline.add(new BasicDBObject("$group", new BasicDBObject("_id", bucket)
+                .append("count", new BasicDBObject("$sum", 1))
+                .append("oldest", new BasicDBObject("$min", "$" + DATE_LAST_UPDATED))
+                .append("newest", new BasicDBObject("$max", "$" + DATE_LAST_UPDATED))));
+
+        final SortedMap<Date, Long> entriesPerBucket = new TreeMap<Date, Long>();
+        long entryCount = 0;
+        Date oldest = null;
+        Date newest = null;
+
+        for (DBObject group : aggregate(feedName, pipeline)) {
+            final long count = ((Number) group.get("count")).longValue();
+            final Date groupOldest = (Date) group.get("oldest");
+            final Date groupNewest = (Date) group.get("newest");
+
+            entriesPerBucket.put(bucketStart((DBObject) group.get("_id")), count);
+            entryCount += count;
+            oldest = oldest == null || groupOldest.before(oldest) ? groupOldest : oldest;
+            newest = newest == null || groupNewest.after(newest) ? groupNewest : newest;
+        }
+
+        final FeedStatistics statistics = new FeedStatistics(feedName, entryCount, oldest, newest, entriesPerBucket);
+        statisticsCache.put(feedName, statistics);
+
+        return statistics;
+    }
+
+    private List<DBObject> aggregate(String feedName, List<DBObject> pipeline) {
+        final BasicDBList stages = new BasicDBList();
+        stages.addAll(pipeline);
+
+        final CommandResult result = mongoTemplate.executeCommand(
+                new BasicDBObject("aggregate", formatCollectionName(feedName)).append("pipeline", stages));
+        result.throwOnError();
+
+        final List<DBObject> groups = new ArrayList<DBObject>();
+        final List<?> documents = (List<?>) result.get("result");
+
+        if (documents != null) {
+            for (Object document : documents) {
+                groups.add((DBObject) document);
+            }
+        }
+
+        return groups;
+    }
+
+    private static Date bucketStart(DBObject bucket) {
+        final Calendar start = Calendar.getInstance(UTC);
+        start.clear();
+        start.set(((Number) bucket.get("year")).intValue(),
+                ((Number) bucket.get("month")).intValue() - 1,
+                ((Number) bucket.get("day")).intValue(),
+                bucket.containsField("hour") ? ((Number) bucket.get("hour")).intValue() : 0, 0);
+
+        return start.getTime();
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,13 @@
 package org.atomhopper.mongodb.adapter;
 
+import com.mongodb.DB;
 import com.yammer.metrics.Metrics;
 import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
 import org.apache.abdera.model.Category;
 import org.apache.abdera.model.Entry;
 import org.apache.commons.lang.StringUtils;
-import org.atomhopper.adapter.FeedPublisher;
+import org.atomhopper.adapter.BatchFeedPublisher;
 import org.atomhopper.adapter.NotImplemented;
 import org.atomhopper.adapter.PublicationException;
 import org.atomhopper.adapter.ResponseBuilder;
@@ -16,10 +18,16 @@ import org.atomhopper.mongodb.domain.PersistedCategory;
 import org.atomhopper.mongodb.domain.PersistedEntry;
 import org.atomhopper.response.AdapterResponse;
 import org.atomhopper.response.EmptyBody;
+import org.atomhopper.util.id.EntryIdGenerator;
+import org.atomhopper.util.id.RandomUuidEntryIdGenerator;
+import org.atomhopper.util.id.RecentEntryIdFilter;
 import org.atomhopper.util.uri.template.EnumKeyedTemplateParameters;
 import org.atomhopper.util.uri.template.URITemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.MongoDbFactory;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
@@ -27,26 +35,120 @@ import org.springframework.data.mongodb.core.query.Query;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.apache.abdera.i18n.text.UrlEncoding.decode;
 import static org.atomhopper.mongodb.adapter.MongodbUtilities.formatCollectionName;
 
 
-public class MongodbFeedPublisher implements FeedPublisher {
+public class MongodbFeedPublisher implements BatchFeedPublisher {
 
     private static final Logger LOG = LoggerFactory.getLogger(MongodbFeedPublisher.class);
     private static final String ID = "_id";
-    private static final String UUID_URI_SCHEME = "urn:uuid:";
+    private static final String ENTRY_BODY = "entryBody";
     private static final String LINKREL_SELF = "self";
     private MongoTemplate mongoTemplate;
 
+    private EntryIdGenerator entryIdGenerator = new RandomUuidEntryIdGenerator();
+    private RecentEntryIdFilter recentEntryIdFilter;
     private boolean allowOverrideId = false;
     private boolean allowOverrideDate = false;
 
-    private Map<String, Counter> counterMap = Collections.synchronizedMap(new HashMap<String, Counter>());
+    private final ConcurrentMap<String, Counter> counterMap = new ConcurrentHashMap<String, Counter>();
+    private MongodbIndexBootstrapper indexBootstrapper;
+    private MongodbWriteConcernResolver writeConcernResolver = new MongodbWriteConcernResolver();
 
+    /**
+     * The publisher writes through a template of its own on the same database,
+     * which carries the publisher's write concern resolver, so the given
+     * template's write concerns are left alone.
+     */
     public void setMongoTemplate(MongoTemplate mongoTemplate) {
-        this.mongoTemplate = mongoTemplate;
+        this.mongoTemplate = newPublisherTemplate(mongoTemplate);
+        this.mongoTemplate.setWriteConcernResolver(writeConcernResolver);
+
+        if (indexBootstrapper == null) {
+            indexBootstrapper = new MongodbIndexBootstrapper();
+            indexBootstrapper.setMongoTemplate(mongoTemplate);
+        }
+    }
+
+    MongoTemplate newPublisherTemplate(final MongoTemplate sharedTemplate) {
+        return new MongoTemplate(new MongoDbFactory() {
+            @Override
+            public DB getDb() throws DataAccessException {
+                return sharedTemplate.getDb();
+            }
+
+            @Override
+            public DB getDb(String dbName) throws DataAccessException {
+                return sharedTemplate.getDb().getMongo().getDB(dbName);
+            }
+        }, sharedTemplate.getConverter());
+    }
+
+    /**
+     * Sets the bootstrapper that indexes feed collections before their first
+     * write. Defaults to one of its own on the publisher's MongoTemplate.
+     */
+    public void setIndexBootstrapper(MongodbIndexBootstrapper indexBootstrapper) {
+        this.indexBootstrapper = indexBootstrapper;
+    }
+
+    /**
+     * Sets the resolver of the write concern per feed. Defaults to SAFE for
+     * every feed.
+     */
+    public void setWriteConcernResolver(MongodbWriteConcernResolver writeConcernResolver) {
+        this.writeConcernResolver = writeConcernResolver;
+
+        if (mongoTemplate != null) {
+            mongoTemplate.setWriteConcernResolver(writeConcernResolver);
+        }
+    }
+
+    /**
+     * Registers the entries-created counters of the given feeds up front.
+     * Counters of other feeds are registered on their first post.
+     */
+    public void setFeedNames(Collection<String> feedNames) {
+        for (String feedName : feedNames) {
+            counterFor(feedName);
+        }
+    }
+
+    public void setEntryIdGenerator(EntryIdGenerator entryIdGenerator) {
+        this.entryIdGenerator = entryIdGenerator;
+    }
+
+    /**
+     * With allowOverrideId, ids in the filter's exact recent id list are
+     * rejected without a round trip. Feeds written with an unacknowledged write
+     * concern have to look supplied ids up before inserting them; they skip the
+     * lookup for ids the filter has not seen recently.
+     */
+    public void setRecentEntryIdFilter(final RecentEntryIdFilter recentEntryIdFilter) {
+        this.recentEntryIdFilter = recentEntryIdFilter;
+
+        Metrics.newGauge(MongodbFeedPublisher.class, "recent-id-filter-skipped-lookups", new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return recentEntryIdFilter.getDefiniteMisses();
+            }
+        });
+        Metrics.newGauge(MongodbFeedPublisher.class, "recent-id-filter-duplicates", new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return recentEntryIdFilter.getExactHits();
+            }
+        });
+        Metrics.newGauge(MongodbFeedPublisher.class, "recent-id-filter-false-positive-rate", new Gauge<Double>() {
+            @Override
+            public Double value() {
+                return recentEntryIdFilter.getObservedFalsePositiveRate();
+            }
+        });
     }
 
     public void setAllowOverrideId(boolean allowOverrideId) {
@@ -65,23 +167,174 @@ public class MongodbFeedPublisher implements FeedPublisher {
 
     @Override
     public AdapterResponse<Entry> postEntry(PostEntryRequest postEntryRequest) {
+        final PreparedEntry prepared = prepare(postEntryRequest);
+
+        if (prepared.rejection != null) {
+            return prepared.rejection;
+        }
+
+        final String collectionName = formatCollectionName(postEntryRequest.getFeedName());
+        indexBootstrapper.ensureIndexes(collectionName);
+
+        if (prepared.lookup && getEntry(prepared.persistedEntry.getEntryId(), postEntryRequest.getFeedName()) != null) {
+            return conflict(prepared.persistedEntry.getEntryId());
+        }
+
+        // The _id index rejects duplicates, provided the write concern waits for the insert
+        try {
+            mongoTemplate.insert(prepared.persistedEntry, collectionName);
+        } catch (DuplicateKeyException dupEx) {
+            return conflict(prepared.persistedEntry.getEntryId());
+        }
+
+        return published(prepared);
+    }
+
+    /**
+     * Publishes a batch of entries with one unordered bulk insert per feed
+     * collection instead of one insert per entry.
+     *
+     * Supplied ids the recent id filter cannot rule out are looked up with one
+     * query per collection first, those already stored conflict as they do in
+     * postEntry. When the bulk insert still reports a duplicate id, written in
+     * the meantime, the stored documents of the batch are read back; entries
+     * stored with the body this call wrote are created, the others conflict.
+     */
+    @Override
+    public List<AdapterResponse<Entry>> postEntries(List<PostEntryRequest> postEntryRequests) {
+        final List<AdapterResponse<Entry>> responses = new ArrayList<AdapterResponse<Entry>>(
+                Collections.<AdapterResponse<Entry>>nCopies(postEntryRequests.size(), null));
+        final Map<String, Map<String, Integer>> batches = new LinkedHashMap<String, Map<String, Integer>>();
+        final PreparedEntry[] preparedEntries = new PreparedEntry[postEntryRequests.size()];
+
+        for (int i = 0; i < postEntryRequests.size(); i++) {
+            final PreparedEntry prepared = prepare(postEntryRequests.get(i));
+
+            if (prepared.rejection != null) {
+                responses.set(i, prepared.rejection);
+                continue;
+            }
+
+            final String collectionName = formatCollectionName(postEntryRequests.get(i).getFeedName());
+            Map<String, Integer> batch = batches.get(collectionName);
+
+            if (batch == null) {
+                batch = new LinkedHashMap<String, Integer>();
+                batches.put(collectionName, batch);
+            }
+
+            final String entryId = prepared.persistedEntry.getEntryId();
+
+            if (batch.containsKey(entryId)) {
+                responses.set(i, conflict(entryId));
+            } else {
+                batch.put(entryId, i);
+                preparedEntries[i] = prepared;
+            }
+        }
+
+        for (Map.Entry<String, Map<String, Integer>> batch : batches.entrySet()) {
+            insertBatch(batch.getKey(), batch.getValue(), preparedEntries, responses);
+        }
+
+        return responses;
+    }
+
+    private void insertBatch(String collectionName, Map<String, Integer> batch, PreparedEntry[] preparedEntries,
+                             List<AdapterResponse<Entry>> responses) {
+        indexBootstrapper.ensureIndexes(collectionName);
+
+        final List<String> lookups = new ArrayList<String>();
+
+        for (Map.Entry<String, Integer> entry : batch.entrySet()) {
+            if (preparedEntries[entry.getValue()].suppliedIdMayExist) {
+                lookups.add(entry.getKey());
+            }
+        }
+
+        if (!lookups.isEmpty()) {
+            for (String existingId : storedEntryBodies(collectionName, lookups).keySet()) {
+                responses.set(batch.remove(existingId), conflict(existingId));
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        final List<PersistedEntry> persistedEntries = new ArrayList<PersistedEntry>(batch.size());
+
+        for (Integer index : batch.values()) {
+            persistedEntries.add(preparedEntries[index].persistedEntry);
+        }
+
+        try {
+            mongoTemplate.insert(persistedEntries, collectionName);
+        } catch (DuplicateKeyException dupEx) {
+            final Map<String, String> storedBodies = storedEntryBodies(collectionName, new ArrayList<String>(batch.keySet()));
+
+            for (Map.Entry<String, Integer> entry : batch.entrySet()) {
+                final PreparedEntry prepared = preparedEntries[entry.getValue()];
+                final String storedBody = storedBodies.get(entry.getKey());
+
+                if (storedBody == null) {
+                    responses.set(entry.getValue(), ResponseBuilder.<Entry>error(
+                            String.format("Unable to persist entry. Reason: entry (%s) was not stored.", entry.getKey())));
+                } else if (storedBody.equals(prepared.persistedEntry.getEntryBody())) {
+                    responses.set(entry.getValue(), published(prepared));
+                } else {
+                    responses.set(entry.getValue(), conflict(entry.getKey()));
+                }
+            }
+
+            return;
+        }
+
+        for (Integer index : batch.values()) {
+            responses.set(index, published(preparedEntries[index]));
+        }
+    }
+
+    private Map<String, String> storedEntryBodies(String collectionName, List<String> entryIds) {
+        final Query query = new Query(Criteria.where(ID).in(entryIds));
+        query.fields().include(ID).include(ENTRY_BODY);
+
+        final Map<String, String> storedBodies = new HashMap<String, String>();
+
+        for (PersistedEntry stored : mongoTemplate.find(query, PersistedEntry.class, collectionName)) {
+            storedBodies.put(stored.getEntryId(), stored.getEntryBody());
+        }
+
+        return storedBodies;
+    }
+
+    private PreparedEntry prepare(PostEntryRequest postEntryRequest) {
         final Entry abderaParsedEntry = postEntryRequest.getEntry();
         final PersistedEntry persistedEntry = new PersistedEntry();
+        final PreparedEntry prepared = new PreparedEntry(postEntryRequest.getFeedName(), abderaParsedEntry, persistedEntry);
 
         boolean entryIdSent = abderaParsedEntry.getId() != null;
 
         // Generate an ID for this entry
         if (allowOverrideId && entryIdSent && StringUtils.isNotBlank(abderaParsedEntry.getId().toString().trim())) {
             String entryId = abderaParsedEntry.getId().toString();
-            // Check to see if entry with this id already exists
-            PersistedEntry exists = getEntry(entryId, postEntryRequest.getFeedName());
-            if (exists != null) {
-                String errMsg = String.format("Unable to persist entry. Reason: entryId (%s) not unique.", entryId);
-                return ResponseBuilder.conflict(errMsg);
+            RecentEntryIdFilter.Verdict verdict = recentEntryIdFilter != null
+                    ? recentEntryIdFilter.check(postEntryRequest.getFeedName(), entryId)
+                    : RecentEntryIdFilter.Verdict.UNKNOWN;
+
+            if (verdict == RecentEntryIdFilter.Verdict.DUPLICATE) {
+                prepared.rejection = conflict(entryId);
+                return prepared;
             }
-            persistedEntry.setEntryId(abderaParsedEntry.getId().toString());
+
+            prepared.suppliedIdMayExist = verdict == RecentEntryIdFilter.Verdict.UNKNOWN;
+
+            // Unacknowledged inserts cannot report duplicate ids, those have to be looked up first
+            prepared.lookup = prepared.suppliedIdMayExist
+                    && !writeConcernResolver.getWriteConcern(formatCollectionName(postEntryRequest.getFeedName())).callGetLastError();
+            persistedEntry.setEntryId(entryId);
         } else {
-            persistedEntry.setEntryId(UUID_URI_SCHEME + UUID.randomUUID().toString());
+            persistedEntry.setEntryId(entryIdGenerator.newEntryId());
             abderaParsedEntry.setId(persistedEntry.getEntryId());
         }
 
@@ -113,11 +366,22 @@ public class MongodbFeedPublisher implements FeedPublisher {
         abderaParsedEntry.setUpdated(persistedEntry.getDateLastUpdated());
         abderaParsedEntry.setPublished(persistedEntry.getCreationDate());
 
-        mongoTemplate.save(persistedEntry, formatCollectionName(postEntryRequest.getFeedName()));
+        return prepared;
+    }
+
+    private AdapterResponse<Entry> published(PreparedEntry prepared) {
+        if (allowOverrideId && recentEntryIdFilter != null) {
+            recentEntryIdFilter.record(prepared.feedName, prepared.persistedEntry.getEntryId());
+        }
+
+        counterFor(prepared.feedName).inc();
 
-        incrementCounterForFeed(postEntryRequest.getFeedName());
+        return ResponseBuilder.created(prepared.abderaParsedEntry);
+    }
 
-        return ResponseBuilder.created(abderaParsedEntry);
+    private AdapterResponse<Entry> conflict(String entryId) {
+        String errMsg = String.format("Unable to persist entry. Reason: entryId (%s) not unique.", entryId);
+        return ResponseBuilder.conflict(errMsg);
     }
 
     private String entryToString(Entry entry) {
@@ -152,17 +416,31 @@ public class MongodbFeedPublisher implements FeedPublisher {
         return entry;
     }
 
-    private void incrementCounterForFeed(String feedName) {
+    private Counter counterFor(String feedName) {
+        Counter counter = counterMap.get(feedName);
 
-        if (!counterMap.containsKey(feedName)) {
-            synchronized (counterMap) {
-                if (!counterMap.containsKey(feedName)) {
-                    Counter counter = Metrics.newCounter(MongodbFeedPublisher.class, "entries-created-for-" + feedName);
-                    counterMap.put(feedName, counter);
-                }
-            }
+        if (counter == null) {
+            // Metrics hands out the same counter for the same name, losing the race is harmless
+            counter = Metrics.newCounter(MongodbFeedPublisher.class, "entries-created-for-" + feedName);
+            counterMap.putIfAbsent(feedName, counter);
         }
 
-        counterMap.get(feedName).inc();
+        return counter;
+    }
+
+    private static final class PreparedEntry {
+
+        private final String feedName;
+        private final Entry abderaParsedEntry;
+        private final PersistedEntry persistedEntry;
+        private AdapterResponse<Entry> rejection;
+        private boolean suppliedIdMayExist;
+        private boolean lookup;
+
+        private PreparedEntry(String feedName, Entry abderaParsedEntry, PersistedEntry persistedEntry) {
+            this.feedName = feedName;
+            this.abderaParsedEntry = abderaParsedEntry;
+            this.persistedEntry = persistedEntry;
+        }
     }
 }
@@ -0,0 +1,193 @@
+package org.atomhopper.mongodb.adapter;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import org.atomhopper.mongodb.domain.PersistedEntry;
+import org.atomhopper.retention.BatchPause;
+import org.atomhopper.retention.RetentionEnforcer;
+import org.atomhopper.retention.RetentionPolicy;
+import org.atomhopper.retention.RetentionProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Order;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.atomhopper.mongodb.adapter.MongodbUtilities.formatCollectionName;
+
+/**
+ * Leaves the max age of a feed to a TTL index and purges the entries past its
+ * max entries in batches.
+ *
+ * Every feed has its own collection, so the feed's dateLastUpdated index is
+ * a TTL index expiring after the max age, and the server removes expired
+ * entries in the background. Those removals are not counted. A TTL
+ * index is not taken down when the policy is removed from the configuration.
+ *
+ * Entries past the max entries are removed batchSize at a time, oldest first,
+ * pausing batchPauseInMillis between batches. In dry run nothing is changed and
+ * the entries either limit would purge are counted.
+ */
+public class MongodbFeedRetention implements RetentionEnforcer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MongodbFeedRetention.class);
+
+    private static final String FEED = "feed";
+    private static final String ID = "_id";
+    private static final String DATE_LAST_UPDATED = "dateLastUpdated";
+    private static final String EXPIRE_AFTER_SECONDS = "expireAfterSeconds";
+
+    private MongoTemplate mongoTemplate;
+    private int batchSize = 1000;
+    private long batchPauseInMillis = 100;
+
+    public void setMongoTemplate(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setBatchPauseInMillis(long batchPauseInMillis) {
+        this.batchPauseInMillis = batchPauseInMillis;
+    }
+
+    @Override
+    public long enforce(String feedName, RetentionPolicy policy, RetentionProgress progress) {
+        final String collectionName = formatCollectionName(feedName);
+        final Date ageCutoff = policy.getAgeCutoff(System.currentTimeMillis());
+        final PersistedEntry countCutoff = policy.hasMaxEntries() ? oldestRetainedEntry(feedName, collectionName, policy.getMaxEntries()) : null;
+
+        if (policy.isDryRun()) {
+            return countDryRun(feedName, collectionName, ageCutoff, countCutoff);
+        }
+
+        if (policy.hasMaxAge()) {
+            // Rounded up, an expiry of 0 would expire entries right away
+            ensureTtlIndex(collectionName, (policy.getMaxAgeInMillis() + 999) / 1000);
+        }
+
+        return countCutoff != null ? purgeBefore(feedName, collectionName, countCutoff, progress) : 0;
+    }
+
+    /**
+     * Makes the dateLastUpdated index of the collection expire entries after
+     * expireAfterSeconds. The expiry of a TTL index is changed in place with
+     * collMod; a plain dateLastUpdated index cannot be, it is left as it is and
+     * has to be dropped by hand for the TTL index to be created.
+     */
+    public void ensureTtlIndex(String collectionName, final long expireAfterSeconds) {
+        mongoTemplate.execute(collectionName, new CollectionCallback<Void>() {
+            @Override
+            public Void doInCollection(DBCollection collection) throws MongoException, DataAccessException {
+                final DBObject keys = new BasicDBObject(DATE_LAST_UPDATED, 1);
+
+                for (DBObject index : collection.getIndexInfo()) {
+                    if (!isDateLastUpdatedIndex((DBObject) index.get("key"))) {
+                        continue;
+                    }
+
+                    final Object current = index.get(EXPIRE_AFTER_SECONDS);
+
+                    if (!(current instanceof Number)) {
+                        LOG.warn("Index " + index.get("name") + " of " + collection.getName() + " is not a TTL index,"
+                                + " entries past the max age are not expired until it is dropped");
+                    } else if (((Number) current).longValue() != expireAfterSeconds) {
+                        changeExpiry(collection, (DBObject) index.get("key"), expireAfterSeconds);
+                    }
+
+                    return null;
+                }
+
+                collection.createIndex(keys, new BasicDBObject("name", DATE_LAST_UPDATED)
+                        .append(EXPIRE_AFTER_SECONDS, expireAfterSeconds)
+                        .append("background", true));
+
+                return null;
+            }
+        });
+    }
+
+    // Indexes built from the shell store their direction as 1.0 rather than 1
+    private static boolean isDateLastUpdatedIndex(DBObject key) {
+        return key != null && key.keySet().size() == 1 && key.get(DATE_LAST_UPDATED) instanceof Number;
+    }
+
+    private static void changeExpiry(DBCollection collection, DBObject keys, long expireAfterSeconds) {
+        final CommandResult result = collection.getDB().command(new BasicDBObject("collMod", collection.getName())
+                .append("index", new BasicDBObject("keyPattern", keys).append(EXPIRE_AFTER_SECONDS, expireAfterSeconds)));
+
+        if (result.ok()) {
+            LOG.info("Changed the TTL index of " + collection.getName() + " to expire after " + expireAfterSeconds + "s");
+        } else {
+            LOG.warn("Unable to change the TTL index of " + collection.getName() + " to expire after "
+                    + expireAfterSeconds + "s: " + result.getErrorMessage());
+        }
+    }
+
+    private long purgeBefore(String feedName, String collectionName, PersistedEntry cutoff, RetentionProgress progress) {
+        long purged = 0;
+        List<String> batch;
+
+        do {
+            final Query query = before(feedName, cutoff).limit(batchSize);
+            query.fields().include(ID);
+            query.sort().on(DATE_LAST_UPDATED, Order.ASCENDING).on(ID, Order.ASCENDING);
+
+            batch = new ArrayList<String>();
+
+            for (PersistedEntry entry : mongoTemplate.find(query, PersistedEntry.class, collectionName)) {
+                batch.add(entry.getEntryId());
+            }
+
+            if (!batch.isEmpty()) {
+                mongoTemplate.remove(new Query(Criteria.where(ID).in(batch)), collectionName);
+                purged += batch.size();
+                progress.purged(batch.size());
+            }
+        } while (batch.size() >= batchSize && BatchPause.pause(batchPauseInMillis));
+
+        return purged;
+    }
+
+    private long countDryRun(String feedName, String collectionName, Date ageCutoff, PersistedEntry countCutoff) {
+        // Counts with whichever cutoff is later, it purges the other's entries too
+        if (countCutoff != null && (ageCutoff == null || !countCutoff.getDateLastUpdated().before(ageCutoff))) {
+            return mongoTemplate.count(before(feedName, countCutoff), collectionName);
+        }
+
+        return ageCutoff != null
+                ? mongoTemplate.count(new Query(Criteria.where(FEED).is(feedName).and(DATE_LAST_UPDATED).lt(ageCutoff)), collectionName)
+                : 0;
+    }
+
+    private PersistedEntry oldestRetainedEntry(String feedName, String collectionName, long maxEntries) {
+        final Query query = new Query(Criteria.where(FEED).is(feedName)).skip(MongodbUtilities.safeLongToInt(maxEntries - 1)).limit(1);
+        query.fields().include(ID).include(DATE_LAST_UPDATED);
+        query.sort().on(DATE_LAST_UPDATED, Order.DESCENDING).on(ID, Order.DESCENDING);
+
+        return mongoTemplate.findOne(query, PersistedEntry.class, collectionName);
+    }
+
+    /**
+     * Entries are ordered by (dateLastUpdated, _id), as MongodbFeedSource pages them.
+     */
+    private static Query before(String feedName, PersistedEntry cutoff) {
+        final Date cutoffDate = cutoff.getDateLastUpdated();
+
+        return new Query(Criteria.where(FEED).is(feedName).and(DATE_LAST_UPDATED).lte(cutoffDate).orOperator(
+                Criteria.where(DATE_LAST_UPDATED).lt(cutoffDate),
+                Criteria.where(ID).lt(cutoff.getEntryId())));
+    }
+}
@@ -8,6 +8,7 @@ import java.util.*;
 import org.apache.abdera.Abdera;
 import static org.apache.abdera.i18n.text.UrlEncoding.decode;
 import static org.apache.abdera.i18n.text.UrlEncoding.encode;
+import static org.atomhopper.adapter.KeysetPaging.removeNextMarker;
 import org.apache.abdera.model.Document;
 import org.apache.abdera.model.Entry;
 import org.apache.abdera.model.Feed;
@@ -23,6 +24,8 @@ import org.atomhopper.adapter.request.adapter.GetFeedRequest;
 import org.atomhopper.dbal.PageDirection;
 import static org.atomhopper.mongodb.adapter.MongodbUtilities.formatCollectionName;
 
+import org.atomhopper.mongodb.adapter.MongodbReadRouter.QueryType;
+
 import org.atomhopper.mongodb.domain.PersistedEntry;
 import org.atomhopper.mongodb.query.CategoryCriteriaGenerator;
 import org.atomhopper.mongodb.query.SimpleCategoryCriteriaGenerator;
@@ -41,10 +44,38 @@ public class MongodbFeedSource implements FeedSource {
     private static final String FEED = "feed";
     private static final String ID = "_id";
     private MongoTemplate mongoTemplate;
+    private MongodbReadRouter readRouter;
+    private MongodbFeedInformation feedInformation;
     private AdapterHelper helper = new AdapterHelper();
 
     public void setMongoTemplate(MongoTemplate mongoTemplate) {
         this.mongoTemplate = mongoTemplate;
+
+        if (readRouter == null) {
+            readRouter = new MongodbReadRouter();
+            readRouter.setMongoTemplate(mongoTemplate);
+        }
+
+        if (feedInformation == null) {
+            feedInformation = new MongodbFeedInformation();
+            feedInformation.setMongoTemplate(mongoTemplate);
+        }
+    }
+
+    /**
+     * Sets the router that decides which reads may go to secondaries. Defaults
+     * to one of its own on the source's MongoTemplate.
+     */
+    public void setReadRouter(MongodbReadRouter readRouter) {
+        this.readRouter = readRouter;
+    }
+
+    /**
+     * Sets the source of the feeds' categories and statistics. Defaults to one
+     * of its own on the source's MongoTemplate.
+     */
+    public void setFeedInformation(MongodbFeedInformation feedInformation) {
+        this.feedInformation = feedInformation;
     }
 
     @Override
@@ -89,7 +120,8 @@ public class MongodbFeedSource implements FeedSource {
         hyrdatedFeed.addLink( url, Link.REL_CURRENT);
     }
 
-    private Feed hydrateFeed(Abdera abdera, List<PersistedEntry> persistedEntries, GetFeedRequest getFeedRequest, final int pageSize) {
+    private Feed hydrateFeed(Abdera abdera, List<PersistedEntry> persistedEntries, PersistedEntry nextEntry,
+                             GetFeedRequest getFeedRequest, final int pageSize) {
         final Feed hydratedFeed = abdera.newFeed();
         final String uuidUriScheme = "urn:uuid:";
         final String baseFeedUri = decode(getFeedRequest.urlFor(new EnumKeyedTemplateParameters<URITemplate>(URITemplate.FEED)));
@@ -104,8 +136,6 @@ public class MongodbFeedSource implements FeedSource {
         addFeedCurrentLink(hydratedFeed, baseFeedUri);
         addFeedSelfLink(hydratedFeed, baseFeedUri, getFeedRequest, pageSize, searchString);
 
-        PersistedEntry nextEntry = null;
-
         // TODO: We should have a link builder method for these
         if (!(persistedEntries.isEmpty())) {
             hydratedFeed.setId( uuidUriScheme + UUID.randomUUID().toString() );
@@ -120,16 +150,6 @@ public class MongodbFeedSource implements FeedSource {
                                         .append( "&direction=forward" ).toString() )
                     .setRel( helper.getPrevLink() );
 
-            final PersistedEntry lastEntryInCollection = persistedEntries.get(persistedEntries.size() - 1);
-            Query nextLinkQuery = new Query(Criteria.where(FEED).is(lastEntryInCollection.getFeed())).limit(1).addCriteria(Criteria.where(DATE_LAST_UPDATED).lt(lastEntryInCollection.getDateLastUpdated()));
-            nextLinkQuery.sort().on(DATE_LAST_UPDATED, Order.DESCENDING);
-
-            SimpleCategoryCriteriaGenerator simpleCategoryCriteriaGenerator = new SimpleCategoryCriteriaGenerator(searchString);
-            simpleCategoryCriteriaGenerator.enhanceCriteria(nextLinkQuery);
-
-            nextEntry = mongoTemplate.findOne(nextLinkQuery,
-                    PersistedEntry.class, formatCollectionName(lastEntryInCollection.getFeed()));
-
             if (nextEntry != null) {
                 // Set the next link
                 hydratedFeed.addLink( new StringBuilder().append( baseFeedUri )
@@ -142,7 +162,7 @@ public class MongodbFeedSource implements FeedSource {
         }
 
         // if we are at the last page & there is an archive link, provide it
-        if ( nextEntry == null && helper.getArchiveUrl() != null ) {
+        if ( (persistedEntries.isEmpty() || nextEntry == null) && helper.getArchiveUrl() != null ) {
             hydratedFeed.addLink(new StringBuilder().append( helper.getArchiveUrl() ).append( "?limit=" ).append(String.valueOf(pageSize))
                                        .append( "&direction=backward" ).toString())
                   .setRel( FeedSource.REL_ARCHIVE_NEXT );
@@ -172,7 +192,7 @@ public class MongodbFeedSource implements FeedSource {
 
     @Override
     public AdapterResponse<Entry> getEntry(GetEntryRequest getEntryRequest) {
-        final PersistedEntry entry = mongoTemplate.findOne(new Query(
+        final PersistedEntry entry = readRouter.findOne(QueryType.ENTRY, new Query(
                 Criteria.where(ID).is(getEntryRequest.getEntryId())),
                 PersistedEntry.class, formatCollectionName(getEntryRequest.getFeedName()));
 
@@ -220,45 +240,66 @@ public class MongodbFeedSource implements FeedSource {
         return response;
     }
 
+    /*
+     * The head is one query for pageSize + 1 entries; the extra entry is the next marker and
+     * an empty head without a search means the feed does not exist. The marker of the last
+     * link is read with a covered _id only query, and only when the head is not the whole feed.
+     */
     private AdapterResponse<Feed> getFeedHead(GetFeedRequest getFeedRequest, int pageSize) {
         final Abdera abdera = getFeedRequest.getAbdera();
-        Query queryIfFeedExists = new Query(Criteria.where(FEED).is(getFeedRequest.getFeedName()));
-        final PersistedEntry persistedEntry = mongoTemplate.findOne(queryIfFeedExists,
-                PersistedEntry.class, formatCollectionName(getFeedRequest.getFeedName()));
+        final String feedName = getFeedRequest.getFeedName();
+        final String collectionName = formatCollectionName(feedName);
+        final String searchString = getFeedRequest.getSearchQuery() != null ? getFeedRequest.getSearchQuery() : "";
+        final SimpleCategoryCriteriaGenerator simpleCategoryCriteriaGenerator = new SimpleCategoryCriteriaGenerator(searchString);
 
-        AdapterResponse<Feed> response = null;
+        Query queryForFeedHead = new Query(Criteria.where(FEED).is(feedName)).limit(pageSize + 1);
+        queryForFeedHead.sort().on(DATE_LAST_UPDATED, Order.DESCENDING).on(ID, Order.DESCENDING);
+        simpleCategoryCriteriaGenerator.enhanceCriteria(queryForFeedHead);
 
-        if (persistedEntry != null) {
-            final String searchString = getFeedRequest.getSearchQuery() != null ? getFeedRequest.getSearchQuery() : "";
-            Query queryForFeedHead = new Query(Criteria.where(FEED).is(getFeedRequest.getFeedName())).limit(pageSize);
-            queryForFeedHead.sort().on(DATE_LAST_UPDATED, Order.DESCENDING);
+        final List<PersistedEntry> persistedEntries = readRouter.find(QueryType.FEED_HEAD, queryForFeedHead, PersistedEntry.class, collectionName);
+
+        if (persistedEntries.isEmpty() && (searchString.length() == 0 || !feedExists(feedName))) {
+            return ResponseBuilder.found(abdera.newFeed());
+        }
+
+        final PersistedEntry nextEntry = removeNextMarker(persistedEntries, pageSize);
 
-            SimpleCategoryCriteriaGenerator simpleCategoryCriteriaGenerator = new SimpleCategoryCriteriaGenerator(searchString);
-            simpleCategoryCriteriaGenerator.enhanceCriteria(queryForFeedHead);
-            final List<PersistedEntry> persistedEntries = mongoTemplate.find(queryForFeedHead,
-                    PersistedEntry.class, formatCollectionName(getFeedRequest.getFeedName()));
+        Feed hyrdatedFeed = hydrateFeed(abdera, persistedEntries, nextEntry, getFeedRequest, pageSize);
 
-            Feed hyrdatedFeed = hydrateFeed(abdera, persistedEntries, getFeedRequest, pageSize);
+        if (!helper.isArchived() && !persistedEntries.isEmpty()) {
             // Set the last link in the feed head
             final String baseFeedUri = decode(getFeedRequest.urlFor(new EnumKeyedTemplateParameters<URITemplate>(URITemplate.FEED)));
+            final String lastMarker = nextEntry == null
+                    ? persistedEntries.get(0).getEntryId()
+                    : lastPageMarker(feedName, simpleCategoryCriteriaGenerator, pageSize);
 
-            Query feedQuery = new Query(Criteria.where(FEED).is(getFeedRequest.getFeedName()));
-            simpleCategoryCriteriaGenerator.enhanceCriteria(feedQuery);
+            if (lastMarker != null) {
+                hyrdatedFeed.addLink(new StringBuilder().append(baseFeedUri).append("?marker=").append(lastMarker).append("&limit=").append(String.valueOf(pageSize)).append("&search=").append(urlEncode(searchString).toString()).append("&direction=backward").toString()).setRel(Link.REL_LAST);
+            }
+        }
 
-            Query lastLinkQuery = new Query(Criteria.where(FEED).is(getFeedRequest.getFeedName())).limit(pageSize);
-            simpleCategoryCriteriaGenerator.enhanceCriteria(lastLinkQuery);
-            lastLinkQuery.sort().on(DATE_LAST_UPDATED, Order.ASCENDING);
-            final List<PersistedEntry> lastPersistedEntries = mongoTemplate.find(lastLinkQuery,
-                    PersistedEntry.class, formatCollectionName(getFeedRequest.getFeedName()));
+        return ResponseBuilder.found(hyrdatedFeed);
+    }
 
-            if (!helper.isArchived() && lastPersistedEntries != null && !(lastPersistedEntries.isEmpty())) {
-                hyrdatedFeed.addLink(new StringBuilder().append(baseFeedUri).append("?marker=").append(lastPersistedEntries.get(lastPersistedEntries.size() - 1).getEntryId()).append("&limit=").append(String.valueOf(pageSize)).append("&search=").append(urlEncode(searchString).toString()).append("&direction=backward").toString()).setRel(Link.REL_LAST);
-            }
+    private boolean feedExists(String feedName) {
+        final Query queryIfFeedExists = new Query(Criteria.where(FEED).is(feedName)).limit(1);
+        queryIfFeedExists.fields().include(ID);
 
-            response = ResponseBuilder.found(hyrdatedFeed);
-        }
+        return readRouter.findOne(QueryType.FEED_HEAD, queryIfFeedExists, PersistedEntry.class, formatCollectionName(feedName)) != null;
+    }
+
+    /**
+     * @return the id of the newest entry on the last page, the pageSize-th oldest entry
+     */
+    private String lastPageMarker(String feedName, CategoryCriteriaGenerator criteriaGenerator, int pageSize) {
+        final Query lastLinkQuery = new Query(Criteria.where(FEED).is(feedName)).skip(pageSize - 1).limit(1);
+        criteriaGenerator.enhanceCriteria(lastLinkQuery);
+        lastLinkQuery.sort().on(DATE_LAST_UPDATED, Order.ASCENDING).on(ID, Order.ASCENDING);
+        lastLinkQuery.fields().include(ID);
+
+        final List<PersistedEntry> lastPageEntries = readRouter.find(QueryType.FEED_HEAD, lastLinkQuery, PersistedEntry.class, formatCollectionName(feedName));
 
-        return response != null ? response : ResponseBuilder.found(abdera.newFeed());
+        return lastPageEntries.isEmpty() ? null : lastPageEntries.get(0).getEntryId();
     }
 
     private AdapterResponse<Feed> getFeedPage(GetFeedRequest getFeedRequest, String marker, int pageSize) {
@@ -270,17 +311,20 @@ public class MongodbFeedSource implements FeedSource {
         } catch (Exception iae) {
             return ResponseBuilder.badRequest("Marker must have a page direction specified as either \"forward\" or \"backward\"");
         }
-        final PersistedEntry markerEntry = mongoTemplate.findOne(new Query(
+        final PersistedEntry markerEntry = readRouter.findOne(QueryType.FEED_PAGE, new Query(
                 Criteria.where(FEED).is(getFeedRequest.getFeedName()).andOperator(Criteria.where(ID).is(marker))),
                 PersistedEntry.class, formatCollectionName(getFeedRequest.getFeedName()));
 
         if (markerEntry != null) {
             final String searchString = getFeedRequest.getSearchQuery() != null ? getFeedRequest.getSearchQuery() : "";
-            final Feed feed = hydrateFeed(
-                    getFeedRequest.getAbdera(),
-                    enhancedGetFeedPage(
-                    getFeedRequest.getFeedName(), markerEntry, pageDirection, new SimpleCategoryCriteriaGenerator(searchString), pageSize),
-                    getFeedRequest, pageSize);
+            final List<PersistedEntry> feedPage = enhancedGetFeedPage(
+                    getFeedRequest.getFeedName(), markerEntry, pageDirection, new SimpleCategoryCriteriaGenerator(searchString), pageSize);
+
+            final PersistedEntry nextEntry = pageDirection == PageDirection.BACKWARD
+                    ? removeNextMarker(feedPage, pageSize)
+                    : markerEntry;
+
+            final Feed feed = hydrateFeed(getFeedRequest.getAbdera(), feedPage, nextEntry, getFeedRequest, pageSize);
 
             response = ResponseBuilder.found(feed);
         } else {
@@ -294,22 +338,29 @@ public class MongodbFeedSource implements FeedSource {
             final PageDirection direction, final CategoryCriteriaGenerator criteriaGenerator, final int pageSize) {
 
         final LinkedList<PersistedEntry> feedPage = new LinkedList<PersistedEntry>();
-        final Query query = new Query(Criteria.where(FEED).is(feedName)).limit(pageSize);
+        final Date markerDate = markerEntry.getDateLastUpdated();
+        final Query query = new Query(Criteria.where(FEED).is(feedName));
 
         criteriaGenerator.enhanceCriteria(query);
 
+        // Entries are ordered by (dateLastUpdated, _id). The plain bound on dateLastUpdated lets
+        // the feed, dateLastUpdated, _id index seek to the marker, the $or breaks ties on _id
         switch (direction) {
             case FORWARD:
-                query.addCriteria(Criteria.where(DATE_LAST_UPDATED).gt(markerEntry.getCreationDate()));
-                query.sort().on(DATE_LAST_UPDATED, Order.ASCENDING);
-                feedPage.addAll(mongoTemplate.find(query, PersistedEntry.class, formatCollectionName(feedName)));
+                query.addCriteria(Criteria.where(DATE_LAST_UPDATED).gte(markerDate).orOperator(
+                        Criteria.where(DATE_LAST_UPDATED).gt(markerDate),
+                        Criteria.where(ID).gt(markerEntry.getEntryId())));
+                query.limit(pageSize).sort().on(DATE_LAST_UPDATED, Order.ASCENDING).on(ID, Order.ASCENDING);
+                feedPage.addAll(readRouter.find(QueryType.FEED_PAGE, query, PersistedEntry.class, formatCollectionName(feedName)));
                 Collections.reverse(feedPage);
                 break;
 
             case BACKWARD:
-                query.addCriteria(Criteria.where(DATE_LAST_UPDATED).lte(markerEntry.getCreationDate()));
-                query.sort().on(DATE_LAST_UPDATED, Order.DESCENDING);
-                feedPage.addAll(mongoTemplate.find(query, PersistedEntry.class, formatCollectionName(feedName)));
+                query.addCriteria(Criteria.where(DATE_LAST_UPDATED).lte(markerDate).orOperator(
+                        Criteria.where(DATE_LAST_UPDATED).lt(markerDate),
+                        Criteria.where(ID).lte(markerEntry.getEntryId())));
+                query.limit(pageSize + 1).sort().on(DATE_LAST_UPDATED, Order.DESCENDING).on(ID, Order.DESCENDING);
+                feedPage.addAll(readRouter.find(QueryType.FEED_PAGE, query, PersistedEntry.class, formatCollectionName(feedName)));
                 break;
         }
 
@@ -318,7 +369,7 @@ public class MongodbFeedSource implements FeedSource {
 
     @Override
     public FeedInformation getFeedInformation() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return feedInformation;
     }
 
     private String urlEncode(String searchString)  {
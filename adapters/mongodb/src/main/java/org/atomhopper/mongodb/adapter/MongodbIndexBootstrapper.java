@@ -0,0 +1,187 @@
+package org.atomhopper.mongodb.adapter;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.atomhopper.mongodb.domain.PersistedEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.atomhopper.mongodb.adapter.MongodbUtilities.categoryIndex;
+import static org.atomhopper.mongodb.adapter.MongodbUtilities.pagingIndex;
+
+/**
+ * Makes sure every feed collection has the indexes MongodbFeedSource reads
+ * through: the (feed, dateLastUpdated, _id) paging index and the multikey
+ * (feed, categories.term, dateLastUpdated, _id) index for searches.
+ *
+ * Every feed has its own collection, so publishers call {@link #ensureIndexes}
+ * before writing; collections already indexed by this node are remembered and
+ * cost nothing after the first write. {@link #bootstrap} is meant to run as the
+ * bean's init-method; it reports the existing feed collections that lack indexes
+ * and, unless createMissingIndexes is off, creates them. Indexes are built in the
+ * background, so the collection stays writable meanwhile.
+ *
+ * Feed collections are the workspace.feed named ones holding entries, other
+ * collections sharing the database are left alone. Existing indexes are read
+ * from the raw index documents and matched on their key names, since indexes
+ * built elsewhere may store their key directions as doubles or strings.
+ */
+public class MongodbIndexBootstrapper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MongodbIndexBootstrapper.class);
+    private static final String SYSTEM_COLLECTION_PREFIX = "system.";
+    private static final String FEED = "feed";
+    private static final String ID = "_id";
+
+    private final Set<String> indexedCollections = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private MongoTemplate mongoTemplate;
+    private boolean createMissingIndexes = true;
+
+    public void setMongoTemplate(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * With createMissingIndexes off bootstrap and ensureIndexes only report missing indexes, for
+     * deployments that build indexes on large collections themselves.
+     */
+    public void setCreateMissingIndexes(boolean createMissingIndexes) {
+        this.createMissingIndexes = createMissingIndexes;
+    }
+
+    /**
+     * @return the names of the missing indexes of every collection that lacks one
+     */
+    public Map<String, List<String>> bootstrap() {
+        final Map<String, List<String>> report = verifyIndexes();
+
+        for (Map.Entry<String, List<String>> collection : report.entrySet()) {
+            LOG.warn("Feed collection " + collection.getKey() + " is missing the indexes " + collection.getValue()
+                    + (createMissingIndexes ? ", creating them" : ""));
+        }
+
+        if (createMissingIndexes) {
+            for (String collectionName : report.keySet()) {
+                ensureIndexes(collectionName);
+            }
+        }
+
+        LOG.info("Verified the indexes of feed collections, " + report.size() + " were missing indexes");
+
+        return report;
+    }
+
+    /**
+     * @return the names of the missing indexes of every feed collection that lacks one
+     */
+    public Map<String, List<String>> verifyIndexes() {
+        final Map<String, List<String>> report = new TreeMap<String, List<String>>();
+
+        for (String collectionName : mongoTemplate.getCollectionNames()) {
+            if (!isFeedCollection(collectionName)) {
+                continue;
+            }
+
+            final List<String> missing = missingIndexes(collectionName);
+
+            if (missing.isEmpty()) {
+                indexedCollections.add(collectionName);
+            } else {
+                report.put(collectionName, missing);
+            }
+        }
+
+        return report;
+    }
+
+    public void ensureIndexes(String collectionName) {
+        if (indexedCollections.contains(collectionName)) {
+            return;
+        }
+
+        if (createMissingIndexes) {
+            for (Index index : requiredIndexes()) {
+                mongoTemplate.indexOps(collectionName).ensureIndex(inBackground(index));
+            }
+        } else {
+            final List<String> missing = missingIndexes(collectionName);
+
+            if (!missing.isEmpty()) {
+                LOG.warn("Feed collection " + collectionName + " is missing the indexes " + missing + ", not creating them");
+            }
+        }
+
+        indexedCollections.add(collectionName);
+    }
+
+    // Empty collections are indexed by ensureIndexes on their first write
+    private boolean isFeedCollection(String collectionName) {
+        if (collectionName.startsWith(SYSTEM_COLLECTION_PREFIX) || collectionName.indexOf('.') < 0) {
+            return false;
+        }
+
+        final Query entry = new Query(Criteria.where(FEED).exists(true));
+        entry.fields().include(ID);
+
+        return mongoTemplate.findOne(entry, PersistedEntry.class, collectionName) != null;
+    }
+
+    private List<String> missingIndexes(String collectionName) {
+        final List<List<String>> existingKeys = new ArrayList<List<String>>();
+
+        for (DBObject index : mongoTemplate.getCollection(collectionName).getIndexInfo()) {
+            final DBObject key = (DBObject) index.get("key");
+
+            if (key != null) {
+                existingKeys.add(new ArrayList<String>(key.keySet()));
+            }
+        }
+
+        final List<String> missing = new ArrayList<String>();
+
+        // Indexes are matched on their keys, an index created under another name still counts
+        for (Index index : requiredIndexes()) {
+            if (!existingKeys.contains(new ArrayList<String>(index.getIndexKeys().keySet()))) {
+                missing.add(index.getIndexOptions().get("name").toString());
+            }
+        }
+
+        return missing;
+    }
+
+    private static IndexDefinition inBackground(final Index index) {
+        return new IndexDefinition() {
+            @Override
+            public DBObject getIndexKeys() {
+                return index.getIndexKeys();
+            }
+
+            @Override
+            public DBObject getIndexOptions() {
+                final DBObject options = index.getIndexOptions() != null ? index.getIndexOptions() : new BasicDBObject();
+                options.put("background", true);
+
+                return options;
+            }
+        };
+    }
+
+    private static List<Index> requiredIndexes() {
+        return Arrays.asList(pagingIndex(), categoryIndex());
+    }
+}
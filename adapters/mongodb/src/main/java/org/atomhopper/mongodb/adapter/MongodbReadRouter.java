@@ -0,0 +1,178 @@
+package org.atomhopper.mongodb.adapter;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.MetricName;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.QueryMapper;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Routes the reads of MongodbFeedSource to the primary or to a secondary of
+ * the replica set, by query type.
+ *
+ * Every query type has a max staleness: its reads go to a secondary while
+ * every secondary lags the primary by at most that much, and to the primary
+ * otherwise. A max staleness of 0 keeps the query type on the primary, which is
+ * the default for the feed head; marker pages and entries default to 10s.
+ *
+ * A secondary that has not replicated a document yet does not find it, so
+ * single document reads that miss on a secondary are repeated on the primary.
+ *
+ * The read preference is set on each cursor rather than on the template, whose
+ * read preference sticks to the collection objects it shares with the writes.
+ */
+public class MongodbReadRouter {
+
+    public enum QueryType {
+        FEED_HEAD, FEED_PAGE, ENTRY
+    }
+
+    private final Map<QueryType, Long> maxStalenessInMillis = new EnumMap<QueryType, Long>(QueryType.class);
+    private final Map<QueryType, Counter> primaryReads = new EnumMap<QueryType, Counter>(QueryType.class);
+    private final Map<QueryType, Counter> secondaryReads = new EnumMap<QueryType, Counter>(QueryType.class);
+    private final ConcurrentMap<String, Counter> memberReads = new ConcurrentHashMap<String, Counter>();
+    private final Counter secondaryMisses = Metrics.newCounter(MongodbReadRouter.class, "secondary-misses");
+
+    private MongoTemplate mongoTemplate;
+    private MongodbReplicaLagMonitor replicaLagMonitor;
+
+    public MongodbReadRouter() {
+        maxStalenessInMillis.put(QueryType.FEED_HEAD, 0L);
+        maxStalenessInMillis.put(QueryType.FEED_PAGE, 10000L);
+        maxStalenessInMillis.put(QueryType.ENTRY, 10000L);
+
+        for (QueryType queryType : QueryType.values()) {
+            final String scope = queryType.name().toLowerCase();
+            primaryReads.put(queryType, Metrics.newCounter(new MetricName(MongodbReadRouter.class, "primary-reads", scope)));
+            secondaryReads.put(queryType, Metrics.newCounter(new MetricName(MongodbReadRouter.class, "secondary-reads", scope)));
+        }
+    }
+
+    public void setMongoTemplate(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+
+        if (replicaLagMonitor == null) {
+            replicaLagMonitor = new MongodbReplicaLagMonitor();
+            replicaLagMonitor.setMongoTemplate(mongoTemplate);
+        }
+    }
+
+    public void setReplicaLagMonitor(MongodbReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    /**
+     * @param feedHeadMaxStalenessInMillis the lag below which the feed head may
+     * be read from a secondary, 0 keeps it on the primary
+     */
+    public void setFeedHeadMaxStalenessInMillis(long feedHeadMaxStalenessInMillis) {
+        maxStalenessInMillis.put(QueryType.FEED_HEAD, feedHeadMaxStalenessInMillis);
+    }
+
+    public void setFeedPageMaxStalenessInMillis(long feedPageMaxStalenessInMillis) {
+        maxStalenessInMillis.put(QueryType.FEED_PAGE, feedPageMaxStalenessInMillis);
+    }
+
+    public void setEntryMaxStalenessInMillis(long entryMaxStalenessInMillis) {
+        maxStalenessInMillis.put(QueryType.ENTRY, entryMaxStalenessInMillis);
+    }
+
+    public boolean readsFromSecondary(QueryType queryType) {
+        final long maxStaleness = maxStalenessInMillis.get(queryType);
+
+        return maxStaleness > 0 && replicaLagMonitor.getMaxSecondaryLagInMillis() <= maxStaleness;
+    }
+
+    public <T> List<T> find(QueryType queryType, Query query, Class<T> entityClass, String collectionName) {
+        if (readsFromSecondary(queryType)) {
+            secondaryReads.get(queryType).inc();
+            return findOnSecondary(query, entityClass, collectionName);
+        }
+
+        primaryReads.get(queryType).inc();
+        return mongoTemplate.find(query, entityClass, collectionName);
+    }
+
+    public <T> T findOne(QueryType queryType, Query query, Class<T> entityClass, String collectionName) {
+        if (readsFromSecondary(queryType)) {
+            secondaryReads.get(queryType).inc();
+
+            final List<T> found = findOnSecondary(query.limit(1), entityClass, collectionName);
+
+            if (!found.isEmpty()) {
+                return found.get(0);
+            }
+
+            secondaryMisses.inc();
+        }
+
+        primaryReads.get(queryType).inc();
+        return mongoTemplate.findOne(query, entityClass, collectionName);
+    }
+
+    private <T> List<T> findOnSecondary(final Query query, final Class<T> entityClass, String collectionName) {
+        return mongoTemplate.execute(collectionName, new CollectionCallback<List<T>>() {
+            @Override
+            public List<T> doInCollection(DBCollection collection) throws MongoException, DataAccessException {
+                final MongoConverter converter = mongoTemplate.getConverter();
+                final DBObject mappedQuery = new QueryMapper(converter).getMappedObject(
+                        query.getQueryObject(), converter.getMappingContext().getPersistentEntity(entityClass));
+
+                final DBCursor cursor = collection.find(mappedQuery, query.getFieldsObject()).setReadPreference(ReadPreference.SECONDARY);
+
+                if (query.getSortObject() != null) {
+                    cursor.sort(query.getSortObject());
+                }
+
+                cursor.skip(query.getSkip()).limit(query.getLimit());
+
+                try {
+                    final List<T> results = new ArrayList<T>();
+
+                    while (cursor.hasNext()) {
+                        results.add(converter.read(entityClass, cursor.next()));
+                    }
+
+                    countMemberRead(cursor.getServerAddress());
+
+                    return results;
+                } finally {
+                    cursor.close();
+                }
+            }
+        });
+    }
+
+    private void countMemberRead(ServerAddress serverAddress) {
+        if (serverAddress == null) {
+            return;
+        }
+
+        final String member = serverAddress.toString();
+        Counter counter = memberReads.get(member);
+
+        if (counter == null) {
+            counter = Metrics.newCounter(new MetricName(MongodbReadRouter.class, "member-reads", member));
+            memberReads.putIfAbsent(member, counter);
+        }
+
+        counter.inc();
+    }
+}
@@ -0,0 +1,152 @@
+package org.atomhopper.mongodb.adapter;
+
+import com.mongodb.DBObject;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how far the secondaries of the replica set lag behind the primary,
+ * from the optimes replSetGetStatus reports.
+ *
+ * The status is refreshed by the first read after refreshIntervalInMillis, the
+ * other reads keep using the previous figures meanwhile. The optimes have a
+ * resolution of one second. When the status cannot be read, e.g. because the
+ * server is not part of a replica set, the lag is unknown and reported as
+ * Long.MAX_VALUE so no read is routed to a secondary.
+ */
+public class MongodbReplicaLagMonitor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MongodbReplicaLagMonitor.class);
+
+    private static final int PRIMARY = 1;
+    private static final int SECONDARY = 2;
+
+    private final AtomicLong nextRefresh = new AtomicLong();
+    private final ConcurrentMap<String, Long> memberLags = new ConcurrentHashMap<String, Long>();
+
+    private MongoTemplate mongoTemplate;
+    private long refreshIntervalInMillis = 5000;
+    private volatile long maxSecondaryLag = Long.MAX_VALUE;
+
+    public void setMongoTemplate(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void setRefreshIntervalInMillis(long refreshIntervalInMillis) {
+        this.refreshIntervalInMillis = refreshIntervalInMillis;
+    }
+
+    /**
+     * @return the lag of the secondary furthest behind, the driver may route a
+     * secondary read to any of them
+     */
+    public long getMaxSecondaryLagInMillis() {
+        refreshIfDue();
+
+        return maxSecondaryLag;
+    }
+
+    /**
+     * @return the lag of every secondary, keyed by member name
+     */
+    public Map<String, Long> getMemberLagsInMillis() {
+        refreshIfDue();
+
+        return Collections.unmodifiableMap(new HashMap<String, Long>(memberLags));
+    }
+
+    DBObject replicaSetStatus() {
+        return mongoTemplate.getDb().getSisterDB("admin").command("replSetGetStatus");
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private void refreshIfDue() {
+        final long now = currentTimeMillis();
+        final long due = nextRefresh.get();
+
+        if (now >= due && nextRefresh.compareAndSet(due, now + refreshIntervalInMillis)) {
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        try {
+            final DBObject status = replicaSetStatus();
+            final List<DBObject> members = status != null ? (List<DBObject>) status.get("members") : null;
+
+            if (members == null) {
+                LOG.debug("No replica set status, reading from the primary only: " + status);
+                maxSecondaryLag = Long.MAX_VALUE;
+                return;
+            }
+
+            Date primaryOptime = null;
+
+            for (DBObject member : members) {
+                if (state(member) == PRIMARY) {
+                    primaryOptime = (Date) member.get("optimeDate");
+                }
+            }
+
+            final Set<String> secondaries = new HashSet<String>();
+            long maxLag = primaryOptime == null ? Long.MAX_VALUE : -1;
+
+            for (DBObject member : members) {
+                if (state(member) != SECONDARY || primaryOptime == null) {
+                    continue;
+                }
+
+                final String name = String.valueOf(member.get("name"));
+                secondaries.add(name);
+                final long lag = Math.max(0, primaryOptime.getTime() - ((Date) member.get("optimeDate")).getTime());
+
+                if (memberLags.put(name, lag) == null) {
+                    registerLagGauge(name);
+                }
+
+                maxLag = Math.max(maxLag, lag);
+            }
+
+            memberLags.keySet().retainAll(secondaries);
+
+            // Without secondaries there is nothing to route reads to
+            maxSecondaryLag = maxLag < 0 ? Long.MAX_VALUE : maxLag;
+        } catch (RuntimeException ex) {
+            LOG.warn("Unable to read the replica set status, reading from the primary only: " + ex.getMessage());
+            maxSecondaryLag = Long.MAX_VALUE;
+        }
+    }
+
+    private static int state(DBObject member) {
+        final Object state = member.get("state");
+
+        return state instanceof Number ? ((Number) state).intValue() : -1;
+    }
+
+    private void registerLagGauge(final String member) {
+        Metrics.newGauge(new MetricName(MongodbReplicaLagMonitor.class, "replication-lag-millis", member), new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return memberLags.get(member);
+            }
+        });
+    }
+}
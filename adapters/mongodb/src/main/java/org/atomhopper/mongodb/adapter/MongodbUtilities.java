@@ -1,6 +1,9 @@
 
 package org.atomhopper.mongodb.adapter;
 
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Order;
+
 public final class MongodbUtilities {
 
     private MongodbUtilities() {
@@ -15,6 +18,32 @@ public final class MongodbUtilities {
         return (int) value;
     }
 
+    /**
+     * The index feed pages are read through; MongodbFeedSource pages by
+     * (dateLastUpdated, _id) within a feed.
+     */
+    protected static Index pagingIndex() {
+        return new Index()
+                .on("feed", Order.ASCENDING)
+                .on("dateLastUpdated", Order.ASCENDING)
+                .on("_id", Order.ASCENDING)
+                .named("feed_dateLastUpdated_id");
+    }
+
+    /**
+     * The index searched feed pages are read through; MongodbFeedSource matches
+     * categories.term with $in and sorts by (dateLastUpdated, _id). The index is
+     * multikey since every entry has a list of categories.
+     */
+    protected static Index categoryIndex() {
+        return new Index()
+                .on("feed", Order.ASCENDING)
+                .on("categories.term", Order.ASCENDING)
+                .on("dateLastUpdated", Order.ASCENDING)
+                .on("_id", Order.ASCENDING)
+                .named("feed_categories_term_dateLastUpdated_id");
+    }
+
     protected static String formatCollectionName(final String collection) {
         // Note: The maximum size of a collection name is 128 characters
         // (including the name of the db and indexes).
@@ -0,0 +1,66 @@
+package org.atomhopper.mongodb.adapter;
+
+import com.mongodb.WriteConcern;
+import org.springframework.data.mongodb.core.MongoAction;
+import org.springframework.data.mongodb.core.MongoActionOperation;
+import org.springframework.data.mongodb.core.WriteConcernResolver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.atomhopper.mongodb.adapter.MongodbUtilities.formatCollectionName;
+
+/**
+ * Resolves the write concern of every write to a feed collection: the one
+ * configured for the feed, or the default, which is SAFE so duplicate ids
+ * surface as errors. Batch inserts continue past failed documents, the batch
+ * behaves like an unordered bulk insert.
+ *
+ * Concerns are given by the names of the WriteConcern constants, e.g. SAFE,
+ * NORMAL, REPLICAS_SAFE or MAJORITY.
+ */
+public class MongodbWriteConcernResolver implements WriteConcernResolver {
+
+    private final Map<String, WriteConcern> collectionWriteConcerns = new ConcurrentHashMap<String, WriteConcern>();
+    private WriteConcern defaultWriteConcern = WriteConcern.SAFE;
+
+    public void setDefaultWriteConcern(String defaultWriteConcern) {
+        this.defaultWriteConcern = parse(defaultWriteConcern);
+    }
+
+    /**
+     * @param feedWriteConcerns write concern names keyed by feed name
+     */
+    public void setFeedWriteConcerns(Map<String, String> feedWriteConcerns) {
+        collectionWriteConcerns.clear();
+
+        for (Map.Entry<String, String> feedWriteConcern : feedWriteConcerns.entrySet()) {
+            collectionWriteConcerns.put(formatCollectionName(feedWriteConcern.getKey()), parse(feedWriteConcern.getValue()));
+        }
+    }
+
+    public WriteConcern getWriteConcern(String collectionName) {
+        final WriteConcern writeConcern = collectionWriteConcerns.get(collectionName);
+
+        return writeConcern != null ? writeConcern : defaultWriteConcern;
+    }
+
+    @Override
+    public WriteConcern resolve(MongoAction action) {
+        final WriteConcern writeConcern = getWriteConcern(action.getCollectionName());
+
+        return action.getMongoActionOperation() == MongoActionOperation.INSERT_LIST
+                ? writeConcern.continueOnErrorForInsert(true)
+                : writeConcern;
+    }
+
+    private static WriteConcern parse(String name) {
+        final WriteConcern writeConcern = WriteConcern.valueOf(name.trim());
+
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Unknown write concern: " + name);
+        }
+
+        return writeConcern;
+    }
+}
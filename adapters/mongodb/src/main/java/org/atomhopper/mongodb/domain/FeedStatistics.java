@@ -0,0 +1,56 @@
+package org.atomhopper.mongodb.domain;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The number of entries of a feed, in total and per time bucket of their
+ * dateLastUpdated. Buckets without entries are left out.
+ */
+public class FeedStatistics {
+
+    private final String feed;
+    private final long entryCount;
+    private final Date oldestEntry;
+    private final Date newestEntry;
+    private final SortedMap<Date, Long> entriesPerBucket;
+
+    public FeedStatistics(String feed, long entryCount, Date oldestEntry, Date newestEntry, SortedMap<Date, Long> entriesPerBucket) {
+        this.feed = feed;
+        this.entryCount = entryCount;
+        this.oldestEntry = oldestEntry != null ? (Date) oldestEntry.clone() : null;
+        this.newestEntry = newestEntry != null ? (Date) newestEntry.clone() : null;
+        this.entriesPerBucket = Collections.unmodifiableSortedMap(new TreeMap<Date, Long>(entriesPerBucket));
+    }
+
+    public String getFeed() {
+        return feed;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return the dateLastUpdated of the oldest entry, null for an empty feed
+     */
+    public Date getOldestEntry() {
+        return oldestEntry != null ? (Date) oldestEntry.clone() : null;
+    }
+
+    /**
+     * @return the dateLastUpdated of the newest entry, null for an empty feed
+     */
+    public Date getNewestEntry() {
+        return newestEntry != null ? (Date) newestEntry.clone() : null;
+    }
+
+    /**
+     * @return the entry counts keyed by the start of their bucket, in UTC
+     */
+    public SortedMap<Date, Long> getEntriesPerBucket() {
+        return entriesPerBucket;
+    }
+}
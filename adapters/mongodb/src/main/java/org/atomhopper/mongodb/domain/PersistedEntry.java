@@ -2,8 +2,14 @@ package org.atomhopper.mongodb.domain;
 
 import java.util.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 
+@CompoundIndexes({
+    @CompoundIndex(name = "feed_dateLastUpdated_id", def = "{'feed': 1, 'dateLastUpdated': 1, '_id': 1}"),
+    @CompoundIndex(name = "feed_categories_term_dateLastUpdated_id", def = "{'feed': 1, 'categories.term': 1, 'dateLastUpdated': 1, '_id': 1}")
+})
 public class PersistedEntry {
 
     @Id
@@ -1,16 +1,35 @@
 package org.atomhopper.mongodb.adapter;
 
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DBObject;
+import org.apache.abdera.Abdera;
+import org.apache.abdera.model.Categories;
+import org.apache.abdera.model.Category;
 import org.atomhopper.adapter.request.adapter.GetCategoriesRequest;
 import org.atomhopper.adapter.request.feed.FeedRequest;
-import org.springframework.data.mongodb.core.MongoTemplate;
-
+import org.atomhopper.mongodb.domain.FeedStatistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
 
+import static junit.framework.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 @RunWith(Enclosed.class)
@@ -18,6 +37,8 @@ public class MongodbFeedInformationTest {
 
     public static class WhenGettingMongodbFeedInformation {
 
+        private static final String FEED_NAME = "namespace/feed";
+
         private MongoTemplate mongoTemplate;
         private FeedRequest feedRequest;
         private GetCategoriesRequest getCategoriesRequest;
@@ -28,8 +49,11 @@ public class MongodbFeedInformationTest {
             mongoTemplate = mock(MongoTemplate.class);
             feedRequest = mock(FeedRequest.class);
             getCategoriesRequest = mock(GetCategoriesRequest.class);
+            when(getCategoriesRequest.getFeedName()).thenReturn(FEED_NAME);
+            when(getCategoriesRequest.newCategories()).thenReturn(new Abdera().newCategories());
 
             mongodbFeedInformation = new MongodbFeedInformation();
+            mongodbFeedInformation.setMongoTemplate(mongoTemplate);
         }
 
         @Test
@@ -42,9 +66,80 @@ public class MongodbFeedInformationTest {
             mongodbFeedInformation.getId(feedRequest);
         }
 
-        @Test(expected=UnsupportedOperationException.class)
-        public void shouldReturnCategories() throws Exception {
-            mongodbFeedInformation.getCategories(getCategoriesRequest);
+        @Test
+        public void shouldReturnCategoriesAggregatedOnTheServer() throws Exception {
+            stubAggregation(
+                    new BasicDBObject("_id", "a-term"), new BasicDBObject("_id", "b-term"));
+
+            final Categories categories = mongodbFeedInformation.getCategories(getCategoriesRequest);
+            final List<Category> terms = categories.getCategories();
+
+            assertEquals("Should return both terms", 2, terms.size());
+            assertEquals("Should return the terms in order", "a-term", terms.get(0).getTerm());
+
+            final ArgumentCaptor<DBObject> command = ArgumentCaptor.forClass(DBObject.class);
+            verify(mongoTemplate).executeCommand(command.capture());
+            assertEquals("Should aggregate the feed's collection", "namespace.feed", command.getValue().get("aggregate"));
+            assertEquals("Should match the feed first", new BasicDBObject("$match", new BasicDBObject("feed", FEED_NAME)),
+                    ((List) command.getValue().get("pipeline")).get(0));
+        }
+
+        @Test
+        public void shouldCacheCategories() throws Exception {
+            stubAggregation(new BasicDBObject("_id", "a-term"));
+
+            mongodbFeedInformation.getCategoryTerms(FEED_NAME);
+            mongodbFeedInformation.getCategoryTerms(FEED_NAME);
+
+            verify(mongoTemplate, times(1)).executeCommand(any(DBObject.class));
+        }
+
+        @Test
+        public void shouldNotCacheCategoriesWithoutATtl() throws Exception {
+            mongodbFeedInformation.setCacheTtlInSeconds(0);
+            stubAggregation(new BasicDBObject("_id", "a-term"));
+
+            mongodbFeedInformation.getCategoryTerms(FEED_NAME);
+            mongodbFeedInformation.getCategoryTerms(FEED_NAME);
+
+            verify(mongoTemplate, times(2)).executeCommand(any(DBObject.class));
+        }
+
+        @Test
+        public void shouldSumTimeBucketsIntoFeedStatistics() throws Exception {
+            stubAggregation(
+                    bucket(2013, 7, 1, 10, 5, utc(2013, 7, 1, 10, 5), utc(2013, 7, 1, 10, 55)),
+                    bucket(2013, 7, 1, 9, 3, utc(2013, 7, 1, 9, 0), utc(2013, 7, 1, 9, 30)));
+
+            final FeedStatistics statistics = mongodbFeedInformation.getStatistics(FEED_NAME);
+
+            assertEquals("Should count every entry", 8, statistics.getEntryCount());
+            assertEquals("Should find the oldest entry", utc(2013, 7, 1, 9, 0), statistics.getOldestEntry());
+            assertEquals("Should find the newest entry", utc(2013, 7, 1, 10, 55), statistics.getNewestEntry());
+            assertEquals("Should key buckets by their start", Arrays.asList(utc(2013, 7, 1, 9, 0), utc(2013, 7, 1, 10, 0)),
+                    Arrays.asList(statistics.getEntriesPerBucket().keySet().toArray()));
+            assertEquals("Should count the bucket's entries", Long.valueOf(3), statistics.getEntriesPerBucket().get(utc(2013, 7, 1, 9, 0)));
+        }
+
+        private void stubAggregation(DBObject... documents) {
+            final BasicDBList list = new BasicDBList();
+            list.addAll(Arrays.asList(documents));
+
+            final CommandResult result = mock(CommandResult.class);
+            when(result.get("result")).thenReturn(list);
+            when(mongoTemplate.executeCommand(any(DBObject.class))).thenReturn(result);
+        }
+
+        private static DBObject bucket(int year, int month, int day, int hour, int count, Date oldest, Date newest) {
+            return new BasicDBObject("_id", new BasicDBObject("year", year).append("month", month).append("day", day).append("hour", hour))
+                    .append("count", count).append("oldest", oldest).append("newest", newest);
+        }
+
+        private static Date utc(int year, int month, int day, int hour, int minute) {
+            final Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            calendar.clear();
+            calendar.set(year, month - 1, day, hour, minute);
+            return calendar.getTime();
         }
     }
-}
\ No newline at end of file
+}
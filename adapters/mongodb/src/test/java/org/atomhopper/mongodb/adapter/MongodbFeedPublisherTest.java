@@ -1,6 +1,10 @@
 package org.atomhopper.mongodb.adapter;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import static junit.framework.Assert.assertEquals;
@@ -12,15 +16,29 @@ import org.atomhopper.adapter.request.adapter.PostEntryRequest;
 import org.atomhopper.adapter.request.adapter.PutEntryRequest;
 import org.atomhopper.mongodb.domain.PersistedEntry;
 import org.atomhopper.response.AdapterResponse;
+import org.atomhopper.util.id.RecentEntryIdFilter;
+import org.hamcrest.Matcher;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.IndexOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.HttpStatus;
@@ -34,6 +52,7 @@ public class MongodbFeedPublisherTest {
         private DeleteEntryRequest deleteEntryRequest;
         private MongodbFeedPublisher mongodbFeedPublisher;
         private PostEntryRequest postEntryRequest;
+        private MongoTemplate sharedTemplate;
         private MongoTemplate mongoTemplate;
 
         private PersistedEntry persistedEntry;
@@ -53,9 +72,17 @@ public class MongodbFeedPublisherTest {
 
             putEntryRequest = mock(PutEntryRequest.class);
             deleteEntryRequest = mock(DeleteEntryRequest.class);
+            sharedTemplate = mock(MongoTemplate.class);
             mongoTemplate = mock(MongoTemplate.class);
-            mongodbFeedPublisher = new MongodbFeedPublisher();
-            mongodbFeedPublisher.setMongoTemplate(mongoTemplate);
+            final IndexOperations indexOperations = mock(IndexOperations.class);
+            when(sharedTemplate.indexOps(anyString())).thenReturn(indexOperations);
+            mongodbFeedPublisher = new MongodbFeedPublisher() {
+                @Override
+                MongoTemplate newPublisherTemplate(MongoTemplate template) {
+                    return template == sharedTemplate ? mongoTemplate : null;
+                }
+            };
+            mongodbFeedPublisher.setMongoTemplate(sharedTemplate);
             postEntryRequest = mock(PostEntryRequest.class);
             when(postEntryRequest.getEntry()).thenReturn(entry());
             when(postEntryRequest.getFeedName()).thenReturn("namespace/feed");
@@ -70,9 +97,147 @@ public class MongodbFeedPublisherTest {
         @Test
         public void shouldThrowErrorForEntryIdAlreadyExists() throws Exception {
             mongodbFeedPublisher.setAllowOverrideId(true);
-            when(mongoTemplate.findOne(any(Query.class), any(Class.class), eq(COLLECTION_NAME))).thenReturn(persistedEntry);
+            doThrow(new DuplicateKeyException("duplicate")).when(mongoTemplate).insert(any(PersistedEntry.class), eq(COLLECTION_NAME));
             AdapterResponse<Entry> adapterResponse = mongodbFeedPublisher.postEntry(postEntryRequest);
             assertEquals("Should return HTTP 409 (Conflict)",HttpStatus.CONFLICT, adapterResponse.getResponseStatus() );
+            verify(mongoTemplate, never()).findOne(any(Query.class), any(Class.class), any(String.class));
+        }
+
+        @Test
+        public void shouldLookUpSuppliedIdsForUnacknowledgedWriteConcerns() throws Exception {
+            final MongodbWriteConcernResolver writeConcernResolver = new MongodbWriteConcernResolver();
+            writeConcernResolver.setFeedWriteConcerns(Collections.singletonMap(FEED_NAME, "NORMAL"));
+            mongodbFeedPublisher.setWriteConcernResolver(writeConcernResolver);
+            mongodbFeedPublisher.setAllowOverrideId(true);
+            when(mongoTemplate.findOne(any(Query.class), any(Class.class), eq(COLLECTION_NAME))).thenReturn(persistedEntry);
+
+            AdapterResponse<Entry> adapterResponse = mongodbFeedPublisher.postEntry(postEntryRequest);
+
+            assertEquals("Should return HTTP 409 (Conflict)", HttpStatus.CONFLICT, adapterResponse.getResponseStatus());
+            verify(mongoTemplate, never()).insert(any(PersistedEntry.class), anyString());
+        }
+
+        @Test
+        public void shouldInstallTheWriteConcernResolverOnATemplateOfItsOwn() throws Exception {
+            verify(mongoTemplate).setWriteConcernResolver(any(MongodbWriteConcernResolver.class));
+            verify(sharedTemplate, never()).setWriteConcernResolver(any(MongodbWriteConcernResolver.class));
+        }
+
+        @Test
+        public void shouldInsertIdsTheFilterHasNotSeenWithoutLookingThemUp() throws Exception {
+            mongodbFeedPublisher.setAllowOverrideId(true);
+            mongodbFeedPublisher.setRecentEntryIdFilter(new RecentEntryIdFilter());
+
+            AdapterResponse<Entry> adapterResponse = mongodbFeedPublisher.postEntry(postEntryRequest);
+
+            assertEquals("Should return HTTP 201 (Created)", HttpStatus.CREATED, adapterResponse.getResponseStatus());
+            verify(mongoTemplate, never()).findOne(any(Query.class), any(Class.class), any(String.class));
+            verify(mongoTemplate).insert(any(PersistedEntry.class), eq(COLLECTION_NAME));
+        }
+
+        @Test
+        public void shouldRejectRecentlyPublishedIdsWithoutLookingThemUp() throws Exception {
+            mongodbFeedPublisher.setAllowOverrideId(true);
+            mongodbFeedPublisher.setRecentEntryIdFilter(new RecentEntryIdFilter());
+
+            mongodbFeedPublisher.postEntry(postEntryRequest);
+            AdapterResponse<Entry> adapterResponse = mongodbFeedPublisher.postEntry(postEntryRequest);
+
+            assertEquals("Should return HTTP 409 (Conflict)", HttpStatus.CONFLICT, adapterResponse.getResponseStatus());
+            verify(mongoTemplate, never()).findOne(any(Query.class), any(Class.class), any(String.class));
+            verify(mongoTemplate, times(1)).insert(any(PersistedEntry.class), eq(COLLECTION_NAME));
+        }
+
+        @Test
+        public void shouldReturnConflictWhenTheInsertFindsADuplicateKey() throws Exception {
+            mongodbFeedPublisher.setAllowOverrideId(true);
+            mongodbFeedPublisher.setRecentEntryIdFilter(new RecentEntryIdFilter());
+            doThrow(new DuplicateKeyException("duplicate")).when(mongoTemplate).insert(any(PersistedEntry.class), eq(COLLECTION_NAME));
+
+            AdapterResponse<Entry> adapterResponse = mongodbFeedPublisher.postEntry(postEntryRequest);
+
+            assertEquals("Should return HTTP 409 (Conflict)", HttpStatus.CONFLICT, adapterResponse.getResponseStatus());
+        }
+
+        @Test
+        public void shouldInsertBatchesWithOneBulkInsertPerFeed() throws Exception {
+            final List<AdapterResponse<Entry>> responses = mongodbFeedPublisher.postEntries(Arrays.asList(
+                    postEntryRequest(FEED_NAME, entry()), postEntryRequest(FEED_NAME, entry()), postEntryRequest("namespace/other", entry())));
+
+            assertEquals("Should answer every request", 3, responses.size());
+
+            for (AdapterResponse<Entry> response : responses) {
+                assertEquals("Should return HTTP 201 (Created)", HttpStatus.CREATED, response.getResponseStatus());
+            }
+
+            verify(mongoTemplate).insert(argThat(hasSize(2)), eq(COLLECTION_NAME));
+            verify(mongoTemplate).insert(argThat(hasSize(1)), eq("namespace.other"));
+            verify(mongoTemplate, never()).insert(any(PersistedEntry.class), anyString());
+        }
+
+        @Test
+        public void shouldRejectIdsRepeatedWithinABatch() throws Exception {
+            mongodbFeedPublisher.setAllowOverrideId(true);
+            final Entry entry = entry();
+
+            final List<AdapterResponse<Entry>> responses = mongodbFeedPublisher.postEntries(Arrays.asList(
+                    postEntryRequest(FEED_NAME, entry), postEntryRequest(FEED_NAME, entry)));
+
+            assertEquals("Should return HTTP 201 (Created)", HttpStatus.CREATED, responses.get(0).getResponseStatus());
+            assertEquals("Should return HTTP 409 (Conflict)", HttpStatus.CONFLICT, responses.get(1).getResponseStatus());
+            verify(mongoTemplate).insert(argThat(hasSize(1)), eq(COLLECTION_NAME));
+        }
+
+        @Test
+        public void shouldRejectIdsStoredBeforeABatchLikeSinglePosts() throws Exception {
+            mongodbFeedPublisher.setAllowOverrideId(true);
+
+            final Entry created = entry();
+            final Entry duplicate = entry();
+            final PersistedEntry existing = new PersistedEntry();
+            existing.setEntryId(duplicate.getId().toString());
+            existing.setEntryBody(ENTRY_BODY);
+            when(mongoTemplate.find(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME))).thenReturn(Arrays.asList(existing));
+
+            final List<AdapterResponse<Entry>> responses = mongodbFeedPublisher.postEntries(Arrays.asList(
+                    postEntryRequest(FEED_NAME, created), postEntryRequest(FEED_NAME, duplicate)));
+
+            assertEquals("Should return HTTP 201 (Created)", HttpStatus.CREATED, responses.get(0).getResponseStatus());
+            assertEquals("Should return HTTP 409 (Conflict)", HttpStatus.CONFLICT, responses.get(1).getResponseStatus());
+            verify(mongoTemplate).insert(argThat(hasSize(1)), eq(COLLECTION_NAME));
+        }
+
+        @Test
+        public void shouldResolveDuplicatesOfABulkInsertFromTheStoredEntries() throws Exception {
+            mongodbFeedPublisher.setAllowOverrideId(true);
+
+            final Entry created = entry();
+            final Entry duplicate = entry();
+            final PersistedEntry existing = new PersistedEntry();
+            existing.setEntryId(duplicate.getId().toString());
+            existing.setEntryBody(ENTRY_BODY);
+
+            final PersistedEntry[] stored = new PersistedEntry[1];
+            when(mongoTemplate.find(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME))).thenAnswer(new Answer<List<PersistedEntry>>() {
+                @Override
+                public List<PersistedEntry> answer(InvocationOnMock invocation) throws Throwable {
+                    // The duplicate is written by another publisher between the lookup and the insert
+                    return stored[0] == null ? Collections.<PersistedEntry>emptyList() : Arrays.asList(stored[0], existing);
+                }
+            });
+            doAnswer(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) throws Throwable {
+                    stored[0] = (PersistedEntry) ((List) invocation.getArguments()[0]).get(0);
+                    throw new DuplicateKeyException("duplicate");
+                }
+            }).when(mongoTemplate).insert(any(Collection.class), eq(COLLECTION_NAME));
+
+            final List<AdapterResponse<Entry>> responses = mongodbFeedPublisher.postEntries(Arrays.asList(
+                    postEntryRequest(FEED_NAME, created), postEntryRequest(FEED_NAME, duplicate)));
+
+            assertEquals("Should return HTTP 201 (Created)", HttpStatus.CREATED, responses.get(0).getResponseStatus());
+            assertEquals("Should return HTTP 409 (Conflict)", HttpStatus.CONFLICT, responses.get(1).getResponseStatus());
         }
 
         @Test(expected = UnsupportedOperationException.class)
@@ -92,6 +257,22 @@ public class MongodbFeedPublisherTest {
             mongodbFeedPublisher.setParameters(map);
         }
 
+        private PostEntryRequest postEntryRequest(String feedName, Entry entry) {
+            final PostEntryRequest request = mock(PostEntryRequest.class);
+            when(request.getEntry()).thenReturn(entry);
+            when(request.getFeedName()).thenReturn(feedName);
+            return request;
+        }
+
+        private static Matcher<Collection> hasSize(final int size) {
+            return new ArgumentMatcher<Collection>() {
+                @Override
+                public boolean matches(Object argument) {
+                    return ((Collection) argument).size() == size;
+                }
+            };
+        }
+
         public Entry entry() {
             final FOMEntry entry = new FOMEntry();
             entry.setId(UUID.randomUUID().toString());
@@ -0,0 +1,200 @@
+package org.atomhopper.mongodb.adapter;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.atomhopper.mongodb.domain.PersistedEntry;
+import org.atomhopper.retention.RetentionPolicy;
+import org.atomhopper.retention.RetentionProgress;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class MongodbFeedRetentionTest {
+
+    private static final String FEED_NAME = "namespace/feed";
+    private static final String COLLECTION_NAME = "namespace.feed";
+
+    public static class WhenEnforcingMaxAge {
+
+        private MongoTemplate mongoTemplate;
+        private DBCollection collection;
+        private MongodbFeedRetention mongodbFeedRetention;
+
+        @Before
+        public void setUp() throws Exception {
+            mongoTemplate = mock(MongoTemplate.class);
+            collection = mock(DBCollection.class);
+
+            mongodbFeedRetention = new MongodbFeedRetention();
+            mongodbFeedRetention.setMongoTemplate(mongoTemplate);
+        }
+
+        @Test
+        public void shouldCreateATtlIndexWhenThereIsNoDateIndex() throws Exception {
+            when(collection.getIndexInfo()).thenReturn(Collections.<DBObject>emptyList());
+
+            mongodbFeedRetention.enforce(FEED_NAME, new RetentionPolicy(3600000, 0, false), mock(RetentionProgress.class));
+            runCollectionCallback();
+
+            final ArgumentCaptor<DBObject> options = ArgumentCaptor.forClass(DBObject.class);
+            verify(collection).createIndex(eq((DBObject) new BasicDBObject("dateLastUpdated", 1)), options.capture());
+            assertEquals("Should expire after the max age", 3600L, options.getValue().get("expireAfterSeconds"));
+        }
+
+        @Test
+        public void shouldLeaveAPlainDateIndexInPlace() throws Exception {
+            when(collection.getIndexInfo()).thenReturn(Arrays.<DBObject>asList(
+                    new BasicDBObject("key", new BasicDBObject("dateLastUpdated", 1)).append("name", "dateLastUpdated")));
+
+            mongodbFeedRetention.ensureTtlIndex(COLLECTION_NAME, 3600);
+            runCollectionCallback();
+
+            verify(collection, never()).dropIndex(anyString());
+            verify(collection, never()).createIndex(any(DBObject.class), any(DBObject.class));
+        }
+
+        @Test
+        public void shouldChangeTheExpiryOfATtlIndexInPlace() throws Exception {
+            final DB db = mock(DB.class);
+            final CommandResult ok = mock(CommandResult.class);
+            when(ok.ok()).thenReturn(true);
+            when(collection.getName()).thenReturn(COLLECTION_NAME);
+            when(collection.getDB()).thenReturn(db);
+            when(db.command(any(DBObject.class))).thenReturn(ok);
+            when(collection.getIndexInfo()).thenReturn(Arrays.<DBObject>asList(
+                    new BasicDBObject("key", new BasicDBObject("dateLastUpdated", 1)).append("name", "dateLastUpdated")
+                            .append("expireAfterSeconds", 7200)));
+
+            mongodbFeedRetention.ensureTtlIndex(COLLECTION_NAME, 3600);
+            runCollectionCallback();
+
+            final ArgumentCaptor<DBObject> command = ArgumentCaptor.forClass(DBObject.class);
+            verify(db).command(command.capture());
+            assertEquals("Should modify the collection", COLLECTION_NAME, command.getValue().get("collMod"));
+            assertEquals("Should expire after the max age", 3600L, ((DBObject) command.getValue().get("index")).get("expireAfterSeconds"));
+            verify(collection, never()).dropIndex(anyString());
+            verify(collection, never()).createIndex(any(DBObject.class), any(DBObject.class));
+        }
+
+        @Test
+        public void shouldKeepAMatchingTtlIndex() throws Exception {
+            when(collection.getIndexInfo()).thenReturn(Arrays.<DBObject>asList(
+                    new BasicDBObject("key", new BasicDBObject("dateLastUpdated", 1)).append("name", "dateLastUpdated")
+                            .append("expireAfterSeconds", 3600)));
+
+            mongodbFeedRetention.ensureTtlIndex(COLLECTION_NAME, 3600);
+            runCollectionCallback();
+
+            verify(collection, never()).dropIndex(anyString());
+            verify(collection, never()).createIndex(any(DBObject.class), any(DBObject.class));
+        }
+
+        @Test
+        public void shouldMatchADateIndexBuiltFromTheShell() throws Exception {
+            when(collection.getIndexInfo()).thenReturn(Arrays.<DBObject>asList(
+                    new BasicDBObject("key", new BasicDBObject("dateLastUpdated", 1.0)).append("name", "dateLastUpdated_1")
+                            .append("expireAfterSeconds", 3600.0)));
+
+            mongodbFeedRetention.ensureTtlIndex(COLLECTION_NAME, 3600);
+            runCollectionCallback();
+
+            verify(collection, never()).createIndex(any(DBObject.class), any(DBObject.class));
+        }
+
+        @Test
+        public void shouldNotExpireEntriesRightAwayUnderASecond() throws Exception {
+            when(collection.getIndexInfo()).thenReturn(Collections.<DBObject>emptyList());
+
+            mongodbFeedRetention.enforce(FEED_NAME, new RetentionPolicy(500, 0, false), mock(RetentionProgress.class));
+            runCollectionCallback();
+
+            final ArgumentCaptor<DBObject> options = ArgumentCaptor.forClass(DBObject.class);
+            verify(collection).createIndex(any(DBObject.class), options.capture());
+            assertEquals("Should round the max age up", 1L, options.getValue().get("expireAfterSeconds"));
+        }
+
+        @Test
+        public void shouldOnlyCountInDryRun() throws Exception {
+            when(mongoTemplate.count(any(Query.class), eq(COLLECTION_NAME))).thenReturn(12L);
+
+            assertEquals(12, mongodbFeedRetention.enforce(FEED_NAME, new RetentionPolicy(3600000, 0, true), mock(RetentionProgress.class)));
+            verify(mongoTemplate, never()).execute(anyString(), any(CollectionCallback.class));
+        }
+
+        private void runCollectionCallback() {
+            final ArgumentCaptor<CollectionCallback> callback = ArgumentCaptor.forClass(CollectionCallback.class);
+            verify(mongoTemplate).execute(eq(COLLECTION_NAME), callback.capture());
+            callback.getValue().doInCollection(collection);
+        }
+    }
+
+    public static class WhenEnforcingMaxEntries {
+
+        private MongoTemplate mongoTemplate;
+        private RetentionProgress progress;
+        private MongodbFeedRetention mongodbFeedRetention;
+
+        @Before
+        public void setUp() throws Exception {
+            mongoTemplate = mock(MongoTemplate.class);
+            progress = mock(RetentionProgress.class);
+
+            mongodbFeedRetention = new MongodbFeedRetention();
+            mongodbFeedRetention.setMongoTemplate(mongoTemplate);
+            mongodbFeedRetention.setBatchSize(2);
+            mongodbFeedRetention.setBatchPauseInMillis(0);
+        }
+
+        @Test
+        public void shouldRemoveEntriesBeforeTheOldestRetainedInBatches() throws Exception {
+            when(mongoTemplate.findOne(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME))).thenReturn(entry("retained"));
+            when(mongoTemplate.find(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME)))
+                    .thenReturn(Arrays.asList(entry("a"), entry("b")), Arrays.asList(entry("c")));
+
+            final long purged = mongodbFeedRetention.enforce(FEED_NAME, new RetentionPolicy(0, 10, false), progress);
+
+            assertEquals("Should remove every batch", 3, purged);
+            verify(progress).purged(2);
+            verify(progress).purged(1);
+        }
+
+        @Test
+        public void shouldNotPurgeFeedsWithinTheirMaxEntries() throws Exception {
+            when(mongoTemplate.findOne(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME))).thenReturn(null);
+            when(mongoTemplate.find(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME)))
+                    .thenReturn(Collections.<PersistedEntry>emptyList());
+
+            assertEquals(0, mongodbFeedRetention.enforce(FEED_NAME, new RetentionPolicy(0, 10, false), progress));
+            verify(mongoTemplate, never()).remove(any(Query.class), anyString());
+        }
+
+        private static PersistedEntry entry(String entryId) {
+            final PersistedEntry entry = new PersistedEntry();
+            entry.setEntryId(entryId);
+            entry.setDateLastUpdated(new Date(1000));
+            return entry;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.atomhopper.mongodb.adapter;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import static junit.framework.Assert.assertEquals;
@@ -20,9 +21,11 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import org.springframework.data.mongodb.core.MongoTemplate;
@@ -115,6 +118,88 @@ public class MongodbFeedSourceTest {
 
         }
 
+        @Test
+        public void shouldPageBackwardByDateLastUpdatedAndIdReadingOneExtraEntry() throws Exception {
+            when(getFeedRequest.getPageMarker()).thenReturn(MARKER_ID);
+            when(getFeedRequest.getDirection()).thenReturn(BACKWARD);
+            when(getFeedRequest.getAbdera()).thenReturn(new Abdera());
+            when(mongoTemplate.findOne(any(Query.class), any(Class.class), eq(COLLECTION_NAME))).thenReturn(persistedEntry);
+
+            mongodbFeedSource.getFeed(getFeedRequest);
+
+            final ArgumentCaptor<Query> pageQuery = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).find(pageQuery.capture(), eq(PersistedEntry.class), eq(COLLECTION_NAME));
+
+            assertEquals("Should read one entry past the page for the next marker", 26, pageQuery.getValue().getLimit());
+            assertTrue("Should seek on dateLastUpdated",
+                    pageQuery.getValue().getQueryObject().containsField("dateLastUpdated"));
+            assertTrue("Should break dateLastUpdated ties on the id",
+                    pageQuery.getValue().getQueryObject().containsField("$or"));
+            assertEquals("Should sort by dateLastUpdated then id", "{ \"dateLastUpdated\" : -1 , \"_id\" : -1}",
+                    pageQuery.getValue().getSortObject().toString());
+        }
+
+        @Test
+        public void shouldServeTheHeadWithOneQueryAndAnIdOnlyLastMarkerQuery() throws Exception {
+            when(getFeedRequest.getAbdera()).thenReturn(new Abdera());
+            final List<PersistedEntry> head = entries(26);
+            final List<PersistedEntry> lastMarker = entries(1);
+            when(mongoTemplate.find(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME))).thenReturn(head, lastMarker);
+
+            Feed feed = mongodbFeedSource.getFeed(getFeedRequest).getBody();
+
+            final ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate, times(2)).find(queries.capture(), eq(PersistedEntry.class), eq(COLLECTION_NAME));
+            verify(mongoTemplate, never()).findOne(any(Query.class), any(Class.class), anyString());
+
+            assertEquals("Should read one entry past the head for the next marker", 26, queries.getAllValues().get(0).getLimit());
+            assertEquals("Should only read the last page marker", 1, queries.getAllValues().get(1).getLimit());
+            assertEquals("Should skip to the newest entry of the last page", 24, queries.getAllValues().get(1).getSkip());
+            assertEquals("Should only fetch the id of the last page marker", "{ \"_id\" : 1}",
+                    queries.getAllValues().get(1).getFieldsObject().toString());
+            assertEquals(25, feed.getEntries().size());
+            assertTrue(feed.getLink("last").getHref().toString().contains("marker=" + lastMarker.get(0).getEntryId()));
+        }
+
+        @Test
+        public void shouldNotQueryAgainWhenTheHeadIsTheWholeFeed() throws Exception {
+            when(getFeedRequest.getAbdera()).thenReturn(new Abdera());
+            final List<PersistedEntry> head = entries(3);
+            when(mongoTemplate.find(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME))).thenReturn(head);
+
+            Feed feed = mongodbFeedSource.getFeed(getFeedRequest).getBody();
+
+            verify(mongoTemplate, times(1)).find(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME));
+            verify(mongoTemplate, never()).findOne(any(Query.class), any(Class.class), anyString());
+            assertTrue(feed.getLink("last").getHref().toString().contains("marker=" + head.get(0).getEntryId()));
+        }
+
+        @Test
+        public void shouldReturnAnEmptyFeedWhenTheHeadIsEmpty() throws Exception {
+            when(getFeedRequest.getAbdera()).thenReturn(new Abdera());
+            when(mongoTemplate.find(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME))).thenReturn(new ArrayList<PersistedEntry>());
+
+            Feed feed = mongodbFeedSource.getFeed(getFeedRequest).getBody();
+
+            assertTrue(feed.getEntries().isEmpty());
+            assertEquals(null, feed.getLink("current"));
+            verify(mongoTemplate, never()).findOne(any(Query.class), any(Class.class), anyString());
+        }
+
+        private List<PersistedEntry> entries(int count) {
+            final List<PersistedEntry> entries = new ArrayList<PersistedEntry>();
+
+            for (int i = 0; i < count; i++) {
+                final PersistedEntry entry = new PersistedEntry();
+                entry.setFeed(FEED_NAME);
+                entry.setEntryId(UUID.randomUUID().toString());
+                entry.setEntryBody(ENTRY_BODY);
+                entries.add(entry);
+            }
+
+            return entries;
+        }
+
         @Test
         public void shouldReturnBadRequestWhenMarkerUsed() throws Exception {
             when(getFeedRequest.getPageMarker()).thenReturn(MARKER_ID);
@@ -129,9 +214,9 @@ public class MongodbFeedSourceTest {
 
         }
 
-        @Test(expected = UnsupportedOperationException.class)
+        @Test
         public void shouldGetFeedInformation() throws Exception {
-            mongodbFeedSource.getFeedInformation();
+            assertTrue("Should return the Mongo feed information", mongodbFeedSource.getFeedInformation() instanceof MongodbFeedInformation);
         }
 
         @Test(expected = UnsupportedOperationException.class)
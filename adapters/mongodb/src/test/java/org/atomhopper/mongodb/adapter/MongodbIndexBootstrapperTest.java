@@ -0,0 +1,227 @@
+package org.atomhopper.mongodb.adapter;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.atomhopper.mongodb.domain.PersistedEntry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.mongodb.core.IndexOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class MongodbIndexBootstrapperTest {
+
+    /**
+     * Stands in for a collection's indexes since there is no embedded MongoDB
+     * to run the tests against. Its index documents are read through the
+     * collection, getIndexInfo fails the way spring-data's does on key
+     * directions stored as doubles or strings.
+     */
+    static class InMemoryIndexOperations implements IndexOperations {
+
+        private final List<DBObject> indexes = new ArrayList<DBObject>();
+        private final DBCollection collection = mock(DBCollection.class);
+        private int ensureCalls;
+        private DBObject lastOptions;
+
+        InMemoryIndexOperations(DBObject... indexes) {
+            this.indexes.addAll(Arrays.asList(indexes));
+
+            when(collection.getIndexInfo()).thenAnswer(new Answer<List<DBObject>>() {
+                @Override
+                public List<DBObject> answer(InvocationOnMock invocation) throws Throwable {
+                    return new ArrayList<DBObject>(InMemoryIndexOperations.this.indexes);
+                }
+            });
+        }
+
+        @Override
+        public void ensureIndex(IndexDefinition indexDefinition) {
+            ensureCalls++;
+            lastOptions = indexDefinition.getIndexOptions();
+
+            for (DBObject index : indexes) {
+                if (new ArrayList<String>(((DBObject) index.get("key")).keySet()).equals(new ArrayList<String>(indexDefinition.getIndexKeys().keySet()))) {
+                    return;
+                }
+            }
+
+            indexes.add(index(String.valueOf(indexDefinition.getIndexOptions().get("name")), indexDefinition.getIndexKeys()));
+        }
+
+        @Override
+        public void dropIndex(String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void dropAllIndexes() {
+            indexes.clear();
+        }
+
+        @Override
+        public void resetIndexCache() {
+        }
+
+        @Override
+        public List<IndexInfo> getIndexInfo() {
+            throw new ClassCastException("java.lang.Double cannot be cast to java.lang.Integer");
+        }
+    }
+
+    private static DBObject index(String name, DBObject key) {
+        return new BasicDBObject("v", 1).append("key", key).append("name", name);
+    }
+
+    public static class WhenBootstrappingIndexes {
+
+        private MongoTemplate mongoTemplate;
+        private InMemoryIndexOperations indexedCollection;
+        private InMemoryIndexOperations unindexedCollection;
+        private InMemoryIndexOperations renamedIndexCollection;
+        private InMemoryIndexOperations shellBuiltCollection;
+        private InMemoryIndexOperations emptyCollection;
+        private InMemoryIndexOperations otherCollection;
+        private MongodbIndexBootstrapper bootstrapper;
+
+        @Before
+        public void setUp() throws Exception {
+            indexedCollection = new InMemoryIndexOperations(idIndex());
+            indexedCollection.ensureIndex(MongodbUtilities.pagingIndex());
+            indexedCollection.ensureIndex(MongodbUtilities.categoryIndex());
+            indexedCollection.ensureCalls = 0;
+
+            unindexedCollection = new InMemoryIndexOperations(idIndex());
+
+            renamedIndexCollection = new InMemoryIndexOperations(idIndex(), index("paging",
+                    new BasicDBObject("feed", 1).append("dateLastUpdated", 1).append("_id", 1)));
+
+            // As the mongo shell builds them, next to a hashed index
+            shellBuiltCollection = new InMemoryIndexOperations(idIndex(),
+                    index("paging", new BasicDBObject("feed", 1.0).append("dateLastUpdated", 1.0).append("_id", 1.0)),
+                    index("search", new BasicDBObject("feed", 1.0).append("categories.term", 1.0).append("dateLastUpdated", 1.0).append("_id", 1.0)),
+                    index("hashed", new BasicDBObject("feed", "hashed")));
+
+            emptyCollection = new InMemoryIndexOperations(idIndex());
+            otherCollection = new InMemoryIndexOperations(idIndex());
+
+            mongoTemplate = mock(MongoTemplate.class);
+            when(mongoTemplate.getCollectionNames()).thenReturn(new HashSet<String>(Arrays.asList(
+                    "system.indexes", "namespace.indexed", "namespace.unindexed", "namespace.renamed", "namespace.shell",
+                    "namespace.empty", "settings")));
+            collection("namespace.indexed", indexedCollection, true);
+            collection("namespace.unindexed", unindexedCollection, true);
+            collection("namespace.renamed", renamedIndexCollection, true);
+            collection("namespace.shell", shellBuiltCollection, true);
+            collection("namespace.empty", emptyCollection, false);
+            collection("settings", otherCollection, true);
+
+            bootstrapper = new MongodbIndexBootstrapper();
+            bootstrapper.setMongoTemplate(mongoTemplate);
+        }
+
+        @Test
+        public void shouldReportCollectionsMissingIndexes() throws Exception {
+            final Map<String, List<String>> expected = new HashMap<String, List<String>>();
+            expected.put("namespace.unindexed", Arrays.asList("feed_dateLastUpdated_id", "feed_categories_term_dateLastUpdated_id"));
+            expected.put("namespace.renamed", Arrays.asList("feed_categories_term_dateLastUpdated_id"));
+
+            assertEquals("Should report the missing indexes by collection", expected, bootstrapper.verifyIndexes());
+        }
+
+        @Test
+        public void shouldMatchIndexesWhateverTheirKeyDirectionsAreStoredAs() throws Exception {
+            assertTrue("Should find the shell built indexes", !bootstrapper.verifyIndexes().containsKey("namespace.shell"));
+        }
+
+        @Test
+        public void shouldOnlyIndexFeedCollections() throws Exception {
+            bootstrapper.bootstrap();
+
+            assertEquals("Should not index empty collections", 0, emptyCollection.ensureCalls);
+            assertEquals("Should not index other collections", 0, otherCollection.ensureCalls);
+        }
+
+        @Test
+        public void shouldCreateMissingIndexes() throws Exception {
+            bootstrapper.bootstrap();
+
+            assertTrue("Should have no collections missing indexes", bootstrapper.verifyIndexes().isEmpty());
+            assertEquals("Should not rebuild existing indexes", 0, indexedCollection.ensureCalls);
+        }
+
+        @Test
+        public void shouldOnlyReportWhenNotCreatingIndexes() throws Exception {
+            bootstrapper.setCreateMissingIndexes(false);
+
+            assertEquals("Should report two collections", 2, bootstrapper.bootstrap().size());
+            assertEquals("Should not create indexes", 0, unindexedCollection.ensureCalls);
+            assertEquals("Should still be missing indexes", 2, bootstrapper.verifyIndexes().size());
+        }
+
+        @Test
+        public void shouldEnsureIndexesOncePerCollection() throws Exception {
+            bootstrapper.ensureIndexes("namespace.unindexed");
+            bootstrapper.ensureIndexes("namespace.unindexed");
+
+            assertEquals("Should ensure both indexes once", 2, unindexedCollection.ensureCalls);
+        }
+
+        @Test
+        public void shouldBuildIndexesInTheBackground() throws Exception {
+            bootstrapper.ensureIndexes("namespace.unindexed");
+
+            assertEquals("Should build in the background", Boolean.TRUE, unindexedCollection.lastOptions.get("background"));
+        }
+
+        @Test
+        public void shouldNotCreateIndexesOnWriteWhenNotCreatingIndexes() throws Exception {
+            bootstrapper.setCreateMissingIndexes(false);
+
+            bootstrapper.ensureIndexes("namespace.unindexed");
+            bootstrapper.ensureIndexes("namespace.unindexed");
+
+            assertEquals("Should not create indexes", 0, unindexedCollection.ensureCalls);
+        }
+
+        @Test
+        public void shouldNotEnsureIndexesOfVerifiedCollections() throws Exception {
+            bootstrapper.verifyIndexes();
+            bootstrapper.ensureIndexes("namespace.indexed");
+
+            assertEquals("Should not ensure indexes of verified collections", 0, indexedCollection.ensureCalls);
+        }
+
+        private void collection(String name, InMemoryIndexOperations indexes, boolean holdsEntries) {
+            when(mongoTemplate.indexOps(name)).thenReturn(indexes);
+            when(mongoTemplate.getCollection(name)).thenReturn(indexes.collection);
+            when(mongoTemplate.findOne(any(Query.class), eq(PersistedEntry.class), eq(name))).thenReturn(holdsEntries ? new PersistedEntry() : null);
+        }
+
+        private static DBObject idIndex() {
+            return index("_id_", new BasicDBObject("_id", 1));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.atomhopper.mongodb.adapter;
+
+import org.atomhopper.mongodb.adapter.MongodbReadRouter.QueryType;
+import org.atomhopper.mongodb.domain.PersistedEntry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collections;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class MongodbReadRouterTest {
+
+    public static class WhenRoutingReads {
+
+        private static final String COLLECTION_NAME = "namespace.feed";
+
+        private MongoTemplate mongoTemplate;
+        private MongodbReplicaLagMonitor replicaLagMonitor;
+        private MongodbReadRouter readRouter;
+
+        @Before
+        public void setUp() throws Exception {
+            mongoTemplate = mock(MongoTemplate.class);
+            replicaLagMonitor = mock(MongodbReplicaLagMonitor.class);
+            when(replicaLagMonitor.getMaxSecondaryLagInMillis()).thenReturn(2000L);
+
+            readRouter = new MongodbReadRouter();
+            readRouter.setReplicaLagMonitor(replicaLagMonitor);
+            readRouter.setMongoTemplate(mongoTemplate);
+        }
+
+        @Test
+        public void shouldReadTheFeedHeadFromThePrimary() throws Exception {
+            readRouter.find(QueryType.FEED_HEAD, new Query(), PersistedEntry.class, COLLECTION_NAME);
+
+            verify(mongoTemplate).find(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME));
+            verify(mongoTemplate, never()).execute(anyString(), any(CollectionCallback.class));
+        }
+
+        @Test
+        public void shouldReadTheFeedHeadFromSecondariesBelowItsThreshold() throws Exception {
+            readRouter.setFeedHeadMaxStalenessInMillis(5000);
+
+            assertTrue("Should read the head from secondaries", readRouter.readsFromSecondary(QueryType.FEED_HEAD));
+        }
+
+        @Test
+        public void shouldReadPagesFromSecondariesWithinTheBound() throws Exception {
+            when(mongoTemplate.execute(eq(COLLECTION_NAME), any(CollectionCallback.class))).thenReturn(Collections.emptyList());
+
+            readRouter.find(QueryType.FEED_PAGE, new Query(), PersistedEntry.class, COLLECTION_NAME);
+
+            verify(mongoTemplate).execute(eq(COLLECTION_NAME), any(CollectionCallback.class));
+            verify(mongoTemplate, never()).find(any(Query.class), any(Class.class), anyString());
+        }
+
+        @Test
+        public void shouldReadPagesFromThePrimaryWhenSecondariesLag() throws Exception {
+            when(replicaLagMonitor.getMaxSecondaryLagInMillis()).thenReturn(60000L);
+
+            assertFalse("Should read pages from the primary", readRouter.readsFromSecondary(QueryType.FEED_PAGE));
+        }
+
+        @Test
+        public void shouldRepeatEntryReadsMissingOnSecondariesOnThePrimary() throws Exception {
+            final PersistedEntry entry = new PersistedEntry();
+            when(mongoTemplate.execute(eq(COLLECTION_NAME), any(CollectionCallback.class))).thenReturn(Collections.emptyList());
+            when(mongoTemplate.findOne(any(Query.class), eq(PersistedEntry.class), eq(COLLECTION_NAME))).thenReturn(entry);
+
+            assertSame("Should find the entry on the primary", entry,
+                    readRouter.findOne(QueryType.ENTRY, new Query(), PersistedEntry.class, COLLECTION_NAME));
+        }
+
+        @Test
+        public void shouldNotRepeatEntryReadsFoundOnSecondaries() throws Exception {
+            final PersistedEntry entry = new PersistedEntry();
+            when(mongoTemplate.execute(eq(COLLECTION_NAME), any(CollectionCallback.class))).thenReturn(Collections.singletonList(entry));
+
+            assertSame("Should find the entry on a secondary", entry,
+                    readRouter.findOne(QueryType.ENTRY, new Query(), PersistedEntry.class, COLLECTION_NAME));
+            verify(mongoTemplate, never()).findOne(any(Query.class), any(Class.class), anyString());
+        }
+    }
+}
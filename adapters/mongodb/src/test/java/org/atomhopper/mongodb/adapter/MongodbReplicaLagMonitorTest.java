@@ -0,0 +1,94 @@
+package org.atomhopper.mongodb.adapter;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+
+@RunWith(Enclosed.class)
+public class MongodbReplicaLagMonitorTest {
+
+    public static class WhenMonitoringReplicationLag {
+
+        private DBObject status;
+        private long now;
+        private int statusReads;
+        private MongodbReplicaLagMonitor monitor;
+
+        @Before
+        public void setUp() throws Exception {
+            now = 100000;
+            status = replicaSet(
+                    member("primary:27017", 1, 50000),
+                    member("secondary-a:27017", 2, 49000),
+                    member("secondary-b:27017", 2, 47000),
+                    member("arbiter:27017", 7, 0));
+
+            monitor = new MongodbReplicaLagMonitor() {
+                @Override
+                DBObject replicaSetStatus() {
+                    statusReads++;
+                    return status;
+                }
+
+                @Override
+                long currentTimeMillis() {
+                    return now;
+                }
+            };
+            monitor.setRefreshIntervalInMillis(1000);
+        }
+
+        @Test
+        public void shouldReportTheLagOfTheSecondaryFurthestBehind() throws Exception {
+            assertEquals("Should report the largest lag", 3000, monitor.getMaxSecondaryLagInMillis());
+            assertEquals("Should report the lag of secondaries only", 2, monitor.getMemberLagsInMillis().size());
+            assertEquals("Should report the lag by member", Long.valueOf(1000), monitor.getMemberLagsInMillis().get("secondary-a:27017"));
+        }
+
+        @Test
+        public void shouldReadTheStatusOncePerInterval() throws Exception {
+            monitor.getMaxSecondaryLagInMillis();
+            monitor.getMaxSecondaryLagInMillis();
+            now += 1000;
+            monitor.getMaxSecondaryLagInMillis();
+
+            assertEquals("Should read the status twice", 2, statusReads);
+        }
+
+        @Test
+        public void shouldReportUnknownLagOutsideOfReplicaSets() throws Exception {
+            status = new BasicDBObject("ok", 0).append("errmsg", "not running with --replSet");
+
+            assertEquals("Should report an unknown lag", Long.MAX_VALUE, monitor.getMaxSecondaryLagInMillis());
+        }
+
+        @Test
+        public void shouldReportUnknownLagWithoutAPrimary() throws Exception {
+            status = replicaSet(member("secondary-a:27017", 2, 49000));
+
+            assertEquals("Should report an unknown lag", Long.MAX_VALUE, monitor.getMaxSecondaryLagInMillis());
+        }
+
+        private static DBObject replicaSet(DBObject... members) {
+            final BasicDBList list = new BasicDBList();
+
+            for (DBObject member : members) {
+                list.add(member);
+            }
+
+            return new BasicDBObject("ok", 1).append("members", list);
+        }
+
+        private static DBObject member(String name, int state, long optime) {
+            return new BasicDBObject("name", name).append("state", state).append("optimeDate", new Date(optime));
+        }
+    }
+}
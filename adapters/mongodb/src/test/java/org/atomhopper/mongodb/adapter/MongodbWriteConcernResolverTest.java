@@ -0,0 +1,59 @@
+package org.atomhopper.mongodb.adapter;
+
+import com.mongodb.WriteConcern;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.springframework.data.mongodb.core.MongoAction;
+import org.springframework.data.mongodb.core.MongoActionOperation;
+
+import java.util.Collections;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(Enclosed.class)
+public class MongodbWriteConcernResolverTest {
+
+    public static class WhenResolvingWriteConcerns {
+
+        private MongodbWriteConcernResolver resolver;
+
+        @Before
+        public void setUp() throws Exception {
+            resolver = new MongodbWriteConcernResolver();
+            resolver.setFeedWriteConcerns(Collections.singletonMap("namespace/replicated", "replicas_safe"));
+        }
+
+        @Test
+        public void shouldDefaultToSafe() throws Exception {
+            assertEquals("Should default to SAFE", WriteConcern.SAFE, resolver.resolve(action("namespace.feed", MongoActionOperation.INSERT)));
+        }
+
+        @Test
+        public void shouldResolveTheWriteConcernOfTheFeed() throws Exception {
+            assertEquals("Should use the feed's write concern", WriteConcern.REPLICAS_SAFE,
+                    resolver.resolve(action("namespace.replicated", MongoActionOperation.INSERT)));
+        }
+
+        @Test
+        public void shouldContinueBatchInsertsPastFailedDocuments() throws Exception {
+            final WriteConcern writeConcern = resolver.resolve(action("namespace.replicated", MongoActionOperation.INSERT_LIST));
+
+            assertTrue("Should continue on error", writeConcern.getContinueOnErrorForInsert());
+            assertEquals("Should keep the feed's w", WriteConcern.REPLICAS_SAFE.getW(), writeConcern.getW());
+            assertFalse("Should not change the constant", WriteConcern.REPLICAS_SAFE.getContinueOnErrorForInsert());
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void shouldRejectUnknownWriteConcerns() throws Exception {
+            resolver.setDefaultWriteConcern("sometimes");
+        }
+
+        private MongoAction action(String collectionName, MongoActionOperation operation) {
+            return new MongoAction(null, operation, collectionName, Object.class, null, null);
+        }
+    }
+}
@@ -14,6 +14,8 @@ import org.atomhopper.postgres.query.EntryRowMapper;
 import org.atomhopper.postgres.query.PostgreSQLTextArray;
 import org.atomhopper.response.AdapterResponse;
 import org.atomhopper.response.EmptyBody;
+import org.atomhopper.util.id.EntryIdGenerator;
+import org.atomhopper.util.id.RandomUuidEntryIdGenerator;
 import org.atomhopper.util.uri.template.EnumKeyedTemplateParameters;
 import org.atomhopper.util.uri.template.URITemplate;
 import org.slf4j.Logger;
@@ -33,10 +35,10 @@ import static org.apache.abdera.i18n.text.UrlEncoding.decode;
 public class PostgresFeedPublisher implements FeedPublisher {
 
     private static final Logger LOG = LoggerFactory.getLogger(PostgresFeedPublisher.class);
-    private static final String UUID_URI_SCHEME = "urn:uuid:";
     private static final String LINKREL_SELF = "self";
     private JdbcTemplate jdbcTemplate;
 
+    private EntryIdGenerator entryIdGenerator = new RandomUuidEntryIdGenerator();
     private boolean allowOverrideId = false;
     private boolean allowOverrideDate = false;
 
@@ -46,6 +48,10 @@ public class PostgresFeedPublisher implements FeedPublisher {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    public void setEntryIdGenerator(EntryIdGenerator entryIdGenerator) {
+        this.entryIdGenerator = entryIdGenerator;
+    }
+
     public void setAllowOverrideId(boolean allowOverrideId) {
         this.allowOverrideId = allowOverrideId;
     }
@@ -80,7 +86,7 @@ public class PostgresFeedPublisher implements FeedPublisher {
             }
             persistedEntry.setEntryId(abderaParsedEntry.getId().toString());
         } else {
-            persistedEntry.setEntryId(UUID_URI_SCHEME + UUID.randomUUID().toString());
+            persistedEntry.setEntryId(entryIdGenerator.newEntryId());
             abderaParsedEntry.setId(persistedEntry.getEntryId());
         }
 
@@ -32,6 +32,7 @@ import java.util.*;
 
 import static org.apache.abdera.i18n.text.UrlEncoding.decode;
 import static org.apache.abdera.i18n.text.UrlEncoding.encode;
+import static org.atomhopper.adapter.KeysetPaging.removeNextMarker;
 
 
 public class PostgresFeedSource implements FeedSource {
@@ -101,7 +102,7 @@ public class PostgresFeedSource implements FeedSource {
         hyrdatedFeed.addLink( url, Link.REL_CURRENT);
     }
 
-    private Feed hydrateFeed(Abdera abdera, List<PersistedEntry> persistedEntries,
+    private Feed hydrateFeed(Abdera abdera, List<PersistedEntry> persistedEntries, PersistedEntry nextEntry,
                              GetFeedRequest getFeedRequest, final int pageSize) {
 
         final Feed hydratedFeed = abdera.newFeed();
@@ -119,8 +120,6 @@ public class PostgresFeedSource implements FeedSource {
             helper.addArchiveNode( hydratedFeed );
         }
 
-        PersistedEntry nextEntry = null;
-
         // TODO: We should have a link builder method for these
         if (!(persistedEntries.isEmpty())) {
             hydratedFeed.setId( uuidUriScheme + UUID.randomUUID().toString() );
@@ -135,10 +134,6 @@ public class PostgresFeedSource implements FeedSource {
                                         .append( AND_DIRECTION_EQ_FORWARD ).toString() )
                     .setRel( helper.getPrevLink() );
 
-            final PersistedEntry lastEntryInCollection = persistedEntries.get(persistedEntries.size() - 1);
-
-            nextEntry = getNextMarker(lastEntryInCollection, getFeedRequest.getFeedName(), searchString);
-
             if (nextEntry != null) {
                 // Set the next link
                 hydratedFeed.addLink( new StringBuilder().append( baseFeedUri )
@@ -151,7 +146,7 @@ public class PostgresFeedSource implements FeedSource {
         }
 
         // if we are at the last page & there is an archive link, provide it
-        if ( nextEntry == null && helper.getArchiveUrl() != null ) {
+        if ( (persistedEntries.isEmpty() || nextEntry == null) && helper.getArchiveUrl() != null ) {
             hydratedFeed.addLink(new StringBuilder().append( helper.getArchiveUrl() ).append(LIMIT_EQ).append(String.valueOf(pageSize))
                                        .append(AND_DIRECTION_EQ_BACKWARD).toString())
                   .setRel( FeedSource.REL_ARCHIVE_NEXT );
@@ -235,9 +230,10 @@ public class PostgresFeedSource implements FeedSource {
 
         final String searchString = getFeedRequest.getSearchQuery() != null ? getFeedRequest.getSearchQuery() : "";
 
-        List<PersistedEntry> persistedEntries = getFeedHead(getFeedRequest.getFeedName(), pageSize, searchString);
+        List<PersistedEntry> persistedEntries = getFeedHead(getFeedRequest.getFeedName(), pageSize + 1, searchString);
+        PersistedEntry nextEntry = removeNextMarker(persistedEntries, pageSize);
 
-        Feed hyrdatedFeed = hydrateFeed(abdera, persistedEntries, getFeedRequest, pageSize);
+        Feed hyrdatedFeed = hydrateFeed(abdera, persistedEntries, nextEntry, getFeedRequest, pageSize);
 
         // Set the last link in the feed head
         final String baseFeedUri = decode(getFeedRequest.urlFor(
@@ -277,11 +273,15 @@ public class PostgresFeedSource implements FeedSource {
 
         if (markerEntry != null) {
             final String searchString = getFeedRequest.getSearchQuery() != null ? getFeedRequest.getSearchQuery() : "";
-            final Feed feed = hydrateFeed(getFeedRequest.getAbdera(),
-                                          enhancedGetFeedPage(getFeedRequest.getFeedName(),
-                                                              markerEntry, pageDirection,
-                                                              searchString, pageSize),
-                                          getFeedRequest, pageSize);
+            final List<PersistedEntry> feedPage = enhancedGetFeedPage(getFeedRequest.getFeedName(),
+                                                                      markerEntry, pageDirection,
+                                                                      searchString, pageSize);
+
+            final PersistedEntry nextEntry = pageDirection == PageDirection.BACKWARD
+                    ? removeNextMarker(feedPage, pageSize)
+                    : markerEntry;
+
+            final Feed feed = hydrateFeed(getFeedRequest.getAbdera(), feedPage, nextEntry, getFeedRequest, pageSize);
             response = ResponseBuilder.found(feed);
         } else {
             response = ResponseBuilder.notFound(
@@ -305,19 +305,19 @@ public class PostgresFeedSource implements FeedSource {
         switch (direction) {
             case FORWARD:
 
-                final String forwardSQL = "SELECT * FROM entries WHERE feed = ? AND datelastupdated > ? ORDER BY datelastupdated ASC LIMIT ?";
-                final String forwardWithCatsSQL = "SELECT * FROM entries WHERE feed = ? AND datelastupdated > ? AND categories && ?::varchar[] ORDER BY datelastupdated ASC LIMIT ?";
+                final String forwardSQL = "SELECT * FROM entries WHERE feed = ? AND (datelastupdated, entryid) > (?, ?) ORDER BY datelastupdated ASC, entryid ASC LIMIT ?";
+                final String forwardWithCatsSQL = "SELECT * FROM entries WHERE feed = ? AND (datelastupdated, entryid) > (?, ?) AND categories && ?::varchar[] ORDER BY datelastupdated ASC, entryid ASC LIMIT ?";
 
                 if (searchString.length() > 0) {
                     feedPage = jdbcTemplate
                             .query(forwardWithCatsSQL,
-                                   new Object[]{feedName, markerEntry.getDateLastUpdated(),
+                                   new Object[]{feedName, markerEntry.getDateLastUpdated(), markerEntry.getEntryId(),
                                            CategoryStringGenerator.getPostgresCategoryString(searchString), pageSize},
                                    new EntryRowMapper());
                 } else {
                     feedPage = jdbcTemplate
                             .query(forwardSQL,
-                                   new Object[]{feedName, markerEntry.getDateLastUpdated(), pageSize},
+                                   new Object[]{feedName, markerEntry.getDateLastUpdated(), markerEntry.getEntryId(), pageSize},
                                    new EntryRowMapper());
                 }
                 Collections.reverse(feedPage);
@@ -325,19 +325,19 @@ public class PostgresFeedSource implements FeedSource {
 
             case BACKWARD:
 
-                final String backwardSQL = "SELECT * FROM entries WHERE feed = ? AND datelastupdated <= ? ORDER BY datelastupdated DESC LIMIT ?";
-                final String backwardWithCatsSQL = "SELECT * FROM entries WHERE feed = ? AND datelastupdated <= ? AND categories && ?::varchar[] ORDER BY datelastupdated DESC LIMIT ?";
+                final String backwardSQL = "SELECT * FROM entries WHERE feed = ? AND (datelastupdated, entryid) <= (?, ?) ORDER BY datelastupdated DESC, entryid DESC LIMIT ?";
+                final String backwardWithCatsSQL = "SELECT * FROM entries WHERE feed = ? AND (datelastupdated, entryid) <= (?, ?) AND categories && ?::varchar[] ORDER BY datelastupdated DESC, entryid DESC LIMIT ?";
 
                 if (searchString.length() > 0) {
                     feedPage = jdbcTemplate
                             .query(backwardWithCatsSQL,
-                                   new Object[]{feedName, markerEntry.getDateLastUpdated(),
-                                           CategoryStringGenerator.getPostgresCategoryString(searchString), pageSize},
+                                   new Object[]{feedName, markerEntry.getDateLastUpdated(), markerEntry.getEntryId(),
+                                           CategoryStringGenerator.getPostgresCategoryString(searchString), pageSize + 1},
                                    new EntryRowMapper());
                 } else {
                     feedPage = jdbcTemplate
                             .query(backwardSQL,
-                                   new Object[]{feedName, markerEntry.getDateLastUpdated(), pageSize},
+                                   new Object[]{feedName, markerEntry.getDateLastUpdated(), markerEntry.getEntryId(), pageSize + 1},
                                    new EntryRowMapper());
                 }
                 break;
@@ -355,8 +355,8 @@ public class PostgresFeedSource implements FeedSource {
 
     private List<PersistedEntry> getFeedHead(final String feedName, final int pageSize, final String searchString) {
 
-        final String getFeedHeadSQL = "SELECT * FROM entries WHERE feed = ? ORDER BY datelastupdated DESC LIMIT ?";
-        final String getFeedHeadWithCatsSQL = "SELECT * FROM entries WHERE feed = ? AND categories && ?::varchar[] ORDER BY datelastupdated DESC LIMIT ?";
+        final String getFeedHeadSQL = "SELECT * FROM entries WHERE feed = ? ORDER BY datelastupdated DESC, entryid DESC LIMIT ?";
+        final String getFeedHeadWithCatsSQL = "SELECT * FROM entries WHERE feed = ? AND categories && ?::varchar[] ORDER BY datelastupdated DESC, entryid DESC LIMIT ?";
 
         List<PersistedEntry> persistedEntries;
         if (searchString.length() > 0) {
@@ -374,8 +374,8 @@ public class PostgresFeedSource implements FeedSource {
 
     private List<PersistedEntry> getLastPage(final String feedName, final int pageSize, final String searchString) {
 
-        final String lastLinkQuerySQL = "SELECT * FROM entries WHERE feed = ? ORDER BY datelastupdated ASC LIMIT ?";
-        final String lastLinkQueryWithCatsSQL = "SELECT * FROM entries WHERE feed = ? AND categories && ?::varchar[] ORDER BY datelastupdated ASC LIMIT ?";
+        final String lastLinkQuerySQL = "SELECT * FROM entries WHERE feed = ? ORDER BY datelastupdated ASC, entryid ASC LIMIT ?";
+        final String lastLinkQueryWithCatsSQL = "SELECT * FROM entries WHERE feed = ? AND categories && ?::varchar[] ORDER BY datelastupdated ASC, entryid ASC LIMIT ?";
 
         List<PersistedEntry> lastPersistedEntries;
         if (searchString.length() > 0) {
@@ -391,27 +391,6 @@ public class PostgresFeedSource implements FeedSource {
         return lastPersistedEntries;
     }
 
-    private PersistedEntry getNextMarker(final PersistedEntry persistedEntry, final String feedName, final String searchString) {
-        final String nextLinkSQL = "SELECT * FROM entries where feed = ? and datelastupdated < ? ORDER BY datelastupdated DESC LIMIT 1";
-        final String nextLinkWithCatsSQL = "SELECT * FROM entries where feed = ? and datelastupdated < ? AND categories && ?::varchar[] ORDER BY datelastupdated DESC LIMIT 1";
-
-        List<PersistedEntry> nextEntry;
-        if (searchString.length() > 0) {
-
-            nextEntry =  jdbcTemplate
-                    .query(nextLinkWithCatsSQL, new Object[]{feedName,
-                            persistedEntry.getDateLastUpdated(),
-                            CategoryStringGenerator.getPostgresCategoryString(searchString)}, new EntryRowMapper());
-        } else {
-
-            nextEntry =  jdbcTemplate
-                    .query(nextLinkSQL, new Object[]{feedName,
-                            persistedEntry.getDateLastUpdated()}, new EntryRowMapper());
-        }
-
-        return nextEntry.size() > 0 ? nextEntry.get(0) : null;
-    }
-
     private String urlEncode(String searchString)  {
         try {
             return URLEncoder.encode(searchString, "UTF-8");
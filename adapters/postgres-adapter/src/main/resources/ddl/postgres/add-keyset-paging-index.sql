@@ -0,0 +1,6 @@
+-- Adds the index PostgresFeedSource seeks on when paging by (datelastupdated, entryid).
+-- It covers every query feed_datelastupdated_idx served, which is dropped afterwards.
+-- CREATE INDEX CONCURRENTLY cannot run inside a transaction block.
+CREATE INDEX CONCURRENTLY feed_datelastupdated_entryid_idx on entries(feed, datelastupdated, entryid);
+
+DROP INDEX IF EXISTS feed_datelastupdated_idx;
@@ -24,7 +24,7 @@ ALTER TABLE public.entries OWNER TO atomschema;
 CREATE INDEX datelastupdated_idx on entries(datelastupdated);
 CREATE INDEX categories_idx on entries(categories);
 CREATE INDEX feed_idx on entries(feed);
-CREATE INDEX feed_datelastupdated_idx on entries(feed, datelastupdated);
+CREATE INDEX feed_datelastupdated_entryid_idx on entries(feed, datelastupdated, entryid);
 
 REVOKE ALL ON SCHEMA public FROM PUBLIC;
 REVOKE ALL ON SCHEMA public FROM postgres;
@@ -1,20 +1,27 @@
 package org.atomhopper;
 
+import com.codahale.metrics.JmxReporter;
 import org.apache.abdera.Abdera;
 import org.apache.abdera.ext.json.JSONFilter;
 import org.apache.abdera.protocol.server.Filter;
 import org.apache.abdera.protocol.server.Provider;
 import org.apache.abdera.protocol.server.servlet.AbderaServlet;
 import org.apache.commons.lang.StringUtils;
+import org.atomhopper.abdera.Bulkhead;
+import org.atomhopper.abdera.Bulkheads;
 import org.atomhopper.abdera.WorkspaceProvider;
+import org.atomhopper.abdera.filter.ResponseCompressionFilter;
 import org.atomhopper.config.AtomHopperConfigurationPreprocessor;
 import org.atomhopper.config.WorkspaceConfigProcessor;
 import org.atomhopper.config.v1_0.*;
 import org.atomhopper.exceptions.ContextAdapterResolutionException;
 import org.atomhopper.exceptions.ServletInitException;
+import org.atomhopper.retention.RetentionEngine;
 import org.atomhopper.servlet.ApplicationContextAdapter;
+import org.atomhopper.servlet.AsyncRequestExecutor;
 import org.atomhopper.servlet.DefaultEmptyContext;
 import org.atomhopper.servlet.ServletInitParameter;
+import org.atomhopper.util.AtomHopperMetrics;
 import org.atomhopper.util.config.ConfigurationParser;
 import org.atomhopper.util.config.ConfigurationParserException;
 import org.atomhopper.util.config.jaxb.JAXBConfigurationParser;
@@ -24,10 +31,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This class is the entry point for the atom server application. This servlet is
@@ -42,11 +54,19 @@ public final class AtomHopperServlet extends AbderaServlet {
     private static final Logger LOG = LoggerFactory.getLogger(AtomHopperServlet.class);
 
     private static final String DEFAULT_CONFIGURATION_LOCATION = "/etc/atomhopper/atom-server.cfg.xml";
+    private static final int DEFAULT_ASYNC_QUEUE_SIZE = 100;
+    private static final long DEFAULT_ASYNC_MAX_QUEUE_WAIT_MILLIS = 10000;
+    private static final int DEFAULT_ASYNC_RETRY_AFTER_SECONDS = 5;
 
     private final ConfigurationParser<Configuration> configurationParser;
     private ApplicationContextAdapter applicationContextAdapter;
     private Abdera abderaReference;
     private Configuration configuration;
+    private RetentionEngine retentionEngine;
+    private ResponseCompressionFilter responseCompression;
+    private AsyncRequestExecutor asyncRequestExecutor;
+    private Bulkheads bulkheads;
+    private JmxReporter metricsReporter;
 
     public AtomHopperServlet() {
         //TODO: One day I'm going to integrate Power API's configuration framework into this but until this, this'll do
@@ -57,6 +77,9 @@ public final class AtomHopperServlet extends AbderaServlet {
     public void init() throws ServletException {
         abderaReference = getAbdera();
 
+        metricsReporter = JmxReporter.forRegistry(AtomHopperMetrics.registry()).inDomain(AtomHopperMetrics.JMX_DOMAIN).build();
+        metricsReporter.start();
+
         final String configLocation = getConfigurationLocation();
         LOG.info("Reading configuration: " + configLocation);
 
@@ -77,6 +100,8 @@ public final class AtomHopperServlet extends AbderaServlet {
         applicationContextAdapter = getContextAdapter();
         applicationContextAdapter.usingServletContext(getServletContext());
 
+        asyncRequestExecutor = createAsyncRequestExecutor();
+
         super.init();
     }
 
@@ -103,12 +128,92 @@ public final class AtomHopperServlet extends AbderaServlet {
         throw new ContextAdapterResolutionException("Unknown application context adapter class: " + adapterClass);
     }
 
+    /**
+     * Processes the request on the async executor's workers when async-workers
+     * is set and the container supports async processing for this servlet.
+     */
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        if (asyncRequestExecutor == null || !request.isAsyncSupported()) {
+            super.service(request, response);
+            return;
+        }
+
+        asyncRequestExecutor.dispatch(request, response, new AsyncRequestExecutor.RequestHandler() {
+            @Override
+            public void handle(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+                AtomHopperServlet.super.service(request, response);
+            }
+        });
+    }
+
+    protected AsyncRequestExecutor createAsyncRequestExecutor() {
+        final int workers = intInitParameter(ServletInitParameter.ASYNC_WORKERS, 0);
+
+        if (workers <= 0) {
+            return null;
+        }
+
+        LOG.info("Processing requests asynchronously with " + workers + " workers");
+
+        return new AsyncRequestExecutor(workers,
+                intInitParameter(ServletInitParameter.ASYNC_QUEUE_SIZE, DEFAULT_ASYNC_QUEUE_SIZE),
+                longInitParameter(ServletInitParameter.ASYNC_MAX_QUEUE_WAIT, DEFAULT_ASYNC_MAX_QUEUE_WAIT_MILLIS),
+                intInitParameter(ServletInitParameter.ASYNC_RETRY_AFTER, DEFAULT_ASYNC_RETRY_AFTER_SECONDS));
+    }
+
+    private int intInitParameter(ServletInitParameter parameter, int defaultValue) {
+        return (int) longInitParameter(parameter, defaultValue);
+    }
+
+    private long longInitParameter(ServletInitParameter parameter, long defaultValue) {
+        final String value = getInitParameter(parameter.toString());
+
+        return !StringUtils.isBlank(value) ? Long.parseLong(value.trim()) : defaultValue;
+    }
+
     protected String getConfigurationLocation() {
         final String configLocation = getInitParameter(ServletInitParameter.CONFIGURATION_LOCATION.toString());
 
         return !StringUtils.isBlank(configLocation) ? configLocation : DEFAULT_CONFIGURATION_LOCATION;
     }
 
+    protected RetentionEngine createRetentionEngine() {
+        final RetentionEngine engine = new RetentionEngine();
+        final String interval = getInitParameter(ServletInitParameter.RETENTION_INTERVAL.toString());
+
+        if (!StringUtils.isBlank(interval)) {
+            engine.setIntervalInSeconds(Long.parseLong(interval.trim()));
+        }
+
+        return engine;
+    }
+
+    @Override
+    public void destroy() {
+        if (retentionEngine != null) {
+            retentionEngine.stop();
+        }
+
+        if (responseCompression != null) {
+            responseCompression.shutdown();
+        }
+
+        if (asyncRequestExecutor != null) {
+            asyncRequestExecutor.shutdown();
+        }
+
+        if (bulkheads != null) {
+            bulkheads.shutdown();
+        }
+
+        if (metricsReporter != null) {
+            metricsReporter.stop();
+        }
+
+        super.destroy();
+    }
+
     @Override
     protected Provider createProvider() {
         final WorkspaceProvider workspaceProvider = new WorkspaceProvider(getHostConfiguration());
@@ -123,15 +228,20 @@ public final class AtomHopperServlet extends AbderaServlet {
         ConfigurationDefaults configurationDefaults = configuration.getDefaults();
         workspaceProvider.init(abderaReference, parseDefaults(configurationDefaults));
 
+        retentionEngine = createRetentionEngine();
+
         for (WorkspaceConfiguration workspaceCfg : configuration.getWorkspace()) {
             final WorkspaceConfigProcessor cfgProcessor = new WorkspaceConfigProcessor(
                     workspaceCfg, applicationContextAdapter,
                     workspaceProvider.getTargetResolver(), atomhopperUrlPattern,
                     getHostConfiguration() );
+            cfgProcessor.setRetentionEngine(retentionEngine);
 
             workspaceProvider.getWorkspaceManager().addWorkspaces(cfgProcessor.toHandler());
         }
 
+        retentionEngine.start();
+
         // adding the workspace provider filters
         if ( configuration.getProviderFilters() != null ) {
             for (FilterDescriptor filterD : configuration.getProviderFilters().getProviderFilter() ) {
@@ -141,9 +251,50 @@ public final class AtomHopperServlet extends AbderaServlet {
             }
         }
 
+        responseCompression = createResponseCompression();
+        workspaceProvider.setResponseCompression(responseCompression);
+        bulkheads = createBulkheads();
+        workspaceProvider.setBulkheads(bulkheads);
+
         return workspaceProvider;
     }
 
+    protected Bulkheads createBulkheads() {
+        final BulkheadsConfiguration bulkheadsConfiguration = configuration.getBulkheads();
+
+        if (bulkheadsConfiguration == null) {
+            return null;
+        }
+
+        final Bulkheads bulkheads = new Bulkheads(bulkheadsConfiguration.getRetryAfterSeconds());
+
+        final Set<String> names = new HashSet<String>();
+
+        for (BulkheadConfiguration bulkhead : bulkheadsConfiguration.getBulkhead()) {
+            if (!names.add(bulkhead.getName())) {
+                throw new ConfigurationParserException("Bulkhead names must be unique, they name the bulkhead's metrics: " + bulkhead.getName());
+            }
+
+            LOG.info("Limiting " + bulkhead.getName() + " to " + bulkhead.getMaxConcurrent() + " concurrent requests");
+
+            bulkheads.add(bulkhead.getFeeds(), bulkhead.getMethods(), new Bulkhead(bulkhead.getName(),
+                    bulkhead.getMaxConcurrent(), bulkhead.getMaxQueued(), bulkhead.getMaxQueueWaitMillis()));
+        }
+
+        return bulkheads;
+    }
+
+    protected ResponseCompressionFilter createResponseCompression() {
+        final CompressionConfiguration compression = configuration.getCompression();
+
+        // Left out, compression stays with whatever is in front of Atom Hopper
+        if (compression == null || !compression.isEnabled()) {
+            return null;
+        }
+
+        return new ResponseCompressionFilter(compression.getLevel(), compression.getMaxIdleDeflaters());
+    }
+
     private HostConfiguration getHostConfiguration() {
         //Initial parsing validation rules specify that there must always be a host configuration
         final HostConfiguration hostConfiguration = configuration.getHost();
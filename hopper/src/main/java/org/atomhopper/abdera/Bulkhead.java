@@ -0,0 +1,144 @@
+package org.atomhopper.abdera;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.atomhopper.util.AtomHopperMetrics.registerGauge;
+import static org.atomhopper.util.AtomHopperMetrics.registry;
+
+/**
+ * Lets up to maxConcurrent requests through at once. Up to maxQueued more
+ * wait for up to maxQueueWaitInMillis for one of them to leave, any others
+ * are turned away.
+ *
+ * Under the bulkhead's name, the active and queued gauges, the utilization
+ * gauge of the share of maxConcurrent in use, the rejected meter, and the
+ * queue-wait timer are kept.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxQueueWaitInMillis;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Meter rejected;
+    private final Timer queueWait;
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueued, long maxQueueWaitInMillis) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Bulkhead " + name + " needs to let at least one request through");
+        }
+
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = Math.max(0, maxQueued);
+        this.maxQueueWaitInMillis = maxQueueWaitInMillis;
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        rejected = registry().meter(metricName("rejected"));
+        queueWait = registry().timer(metricName("queue-wait"));
+
+        registerGauge(metricName("active"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getActive();
+            }
+        });
+
+        registerGauge(metricName("queued"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getQueued();
+            }
+        });
+
+        registerGauge(metricName("utilization"), new Gauge<Double>() {
+            @Override
+            public Double getValue() {
+                return (double) getActive() / Bulkhead.this.maxConcurrent;
+            }
+        });
+    }
+
+    /**
+     * @return true when the request may go through, in which case it has to
+     * leave the bulkhead once processed
+     */
+    public boolean tryEnter() {
+        try {
+            // The timed tryAcquire honors the fairness the untimed one barges past
+            if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            rejected.mark();
+
+            return false;
+        }
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.mark();
+
+            return false;
+        }
+
+        final long start = System.nanoTime();
+
+        try {
+            if (permits.tryAcquire(maxQueueWaitInMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+
+            rejected.mark();
+            return false;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            rejected.mark();
+
+            return false;
+        } finally {
+            queued.decrementAndGet();
+            queueWait.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void leave() {
+        permits.release();
+    }
+
+    /**
+     * Removes the active, queued and utilization gauges, so a bulkhead of the
+     * same name created after this one reports its own requests.
+     */
+    public void shutdown() {
+        registry().remove(metricName("active"));
+        registry().remove(metricName("queued"));
+        registry().remove(metricName("utilization"));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    private String metricName(String metric) {
+        return MetricRegistry.name(Bulkhead.class, name, metric);
+    }
+}
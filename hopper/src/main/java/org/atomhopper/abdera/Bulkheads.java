@@ -0,0 +1,115 @@
+package org.atomhopper.abdera;
+
+import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.Target;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the bulkhead a request goes through: the first one added whose feed
+ * pattern matches the request's workspace/feed path and whose methods include
+ * the request's method. A bulkhead without a feed pattern takes every feed,
+ * one without methods every method. Requests no bulkhead takes go through
+ * unchecked.
+ */
+public class Bulkheads {
+
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 5;
+
+    private final List<Partition> partitions = new ArrayList<Partition>();
+    private final int retryAfterInSeconds;
+
+    public Bulkheads() {
+        this(DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    public Bulkheads(int retryAfterInSeconds) {
+        this.retryAfterInSeconds = retryAfterInSeconds;
+    }
+
+    /**
+     * @param feeds a regular expression matched against the whole
+     * workspace/feed path, or null for every feed
+     * @param methods the HTTP methods taken, or empty for every method
+     */
+    public void add(String feeds, Collection<String> methods, Bulkhead bulkhead) {
+        final Set<String> upperCaseMethods = new HashSet<String>();
+
+        for (String method : methods) {
+            upperCaseMethods.add(method.trim().toUpperCase());
+        }
+
+        partitions.add(new Partition(feeds != null ? Pattern.compile(feeds) : null, upperCaseMethods, bulkhead));
+    }
+
+    /**
+     * Shuts every bulkhead down, once no request goes through them anymore.
+     */
+    public void shutdown() {
+        for (Partition partition : partitions) {
+            partition.bulkhead.shutdown();
+        }
+    }
+
+    public boolean isEmpty() {
+        return partitions.isEmpty();
+    }
+
+    public int getRetryAfterInSeconds() {
+        return retryAfterInSeconds;
+    }
+
+    /**
+     * @return the bulkhead the request goes through, or null when there is none
+     */
+    public Bulkhead select(RequestContext request) {
+        if (partitions.isEmpty()) {
+            return null;
+        }
+
+        final String path = feedPath(request.getTarget());
+        final String method = request.getMethod() != null ? request.getMethod().toUpperCase() : null;
+
+        for (Partition partition : partitions) {
+            if (partition.takes(path, method)) {
+                return partition.bulkhead;
+            }
+        }
+
+        return null;
+    }
+
+    private static String feedPath(Target target) {
+        final String workspace = target.getParameter(TargetResolverField.WORKSPACE.toString());
+        final String feed = target.getParameter(TargetResolverField.FEED.toString());
+
+        if (workspace == null) {
+            return "";
+        }
+
+        return feed != null ? workspace + "/" + feed : workspace;
+    }
+
+    private static final class Partition {
+
+        private final Pattern feeds;
+        private final Set<String> methods;
+        private final Bulkhead bulkhead;
+
+        private Partition(Pattern feeds, Set<String> methods, Bulkhead bulkhead) {
+            this.feeds = feeds;
+            this.methods = methods;
+            this.bulkhead = bulkhead;
+        }
+
+        private boolean takes(String path, String method) {
+            return (methods.isEmpty() || methods.contains(method))
+                    && (feeds == null || feeds.matcher(path).matches());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package org.atomhopper.abdera;
+
+import org.apache.abdera.protocol.Request;
+import org.apache.abdera.protocol.Resolver;
+import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.Target;
+import org.apache.abdera.protocol.server.TargetType;
+import org.apache.abdera.protocol.server.impl.RegexTargetResolver;
+import org.apache.abdera.protocol.server.impl.SimpleTarget;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves request paths to workspace, feed and entry targets by walking a
+ * trie of their path segments, so resolving costs one hash lookup per segment
+ * however many feeds are configured, where a RegexTargetResolver tries two
+ * patterns per feed in turn.
+ *
+ * The paths are those of the TargetRegexBuilder patterns: an optional context
+ * path, the workspace, the feed, and entries/{entry id} for entries, each with
+ * an optional trailing slash and query. The targets carry the same
+ * parameters as the regex ones, so adapters cannot tell them apart.
+ *
+ * Feeds of workspaces with enableRegexFeeds are regular expressions, which are
+ * given as patterns and tried in turn when no literal path matches.
+ */
+public class TrieTargetResolver implements Resolver<Target> {
+
+    private static final String ENTRIES = "entries";
+
+    private final Node root = new Node();
+    private final RegexTargetResolver regexTargetResolver = new RegexTargetResolver();
+    private boolean hasPatterns;
+
+    /**
+     * @param contextPath the context path as built by TargetRegexBuilder, e.g.
+     * "atom/", or blank
+     */
+    public void addWorkspace(String contextPath, String workspace) {
+        for (Node node : nodesFor(contextPath, workspace)) {
+            node.workspace = new Binding(node.contextPath, workspace, null);
+        }
+    }
+
+    public void addFeed(String contextPath, String workspace, String feed) {
+        final String feedPath = StringUtils.strip(workspace, "/") + "/" + StringUtils.strip(feed, "/");
+
+        for (Node node : nodesFor(contextPath, feedPath)) {
+            node.feed = new Binding(node.contextPath, StringUtils.strip(workspace, "/"), StringUtils.strip(feed, "/"));
+        }
+    }
+
+    /**
+     * Adds a pattern tried when no literal path matches, for regex feeds.
+     */
+    public void setPattern(String pattern, TargetType type, String... fields) {
+        regexTargetResolver.setPattern(pattern, type, fields);
+        hasPatterns = true;
+    }
+
+    @Override
+    public Target resolve(Request request) {
+        final RequestContext context = (RequestContext) request;
+        final Target target = resolveLiteral(context);
+
+        if (target != null || !hasPatterns) {
+            return target;
+        }
+
+        return regexTargetResolver.resolve(request);
+    }
+
+    private Target resolveLiteral(RequestContext context) {
+        String path = context.getTargetPath();
+
+        if (path == null || !path.startsWith("/")) {
+            return null;
+        }
+
+        final int queryStart = path.indexOf('?');
+
+        if (queryStart >= 0) {
+            // Like the patterns' (\?[^#]+)?, an empty query or a fragment does not match
+            if (queryStart == path.length() - 1 || path.indexOf('#', queryStart) >= 0) {
+                return null;
+            }
+
+            path = path.substring(0, queryStart);
+        } else if (path.indexOf('#') >= 0) {
+            return null;
+        }
+
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+
+        final String[] segments = path.substring(1).split("/", -1);
+        Node node = root;
+
+        for (int i = 0; i < segments.length; i++) {
+            node = node.children.get(segments[i]);
+
+            if (node == null) {
+                return null;
+            }
+
+            final int remaining = segments.length - i - 1;
+
+            if (remaining == 0) {
+                if (node.feed != null) {
+                    return node.feed.toTarget(TargetType.TYPE_COLLECTION, context, null);
+                } else if (node.workspace != null) {
+                    return node.workspace.toTarget(TargetType.TYPE_SERVICE, context, null);
+                }
+
+                return null;
+            }
+
+            if (remaining == 2 && node.feed != null && ENTRIES.equals(segments[i + 1]) && segments[i + 2].length() > 0
+                    && !node.children.containsKey(ENTRIES)) {
+                return node.feed.toTarget(TargetType.TYPE_ENTRY, context, segments[i + 2]);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Paths match with and without the context path, like its optional group
+     * in the patterns.
+     */
+    private List<Node> nodesFor(String contextPath, String path) {
+        final List<Node> nodes = new ArrayList<Node>();
+        nodes.add(insert(root, StringUtils.strip(path, "/"), null));
+
+        final String strippedContextPath = StringUtils.strip(contextPath, "/");
+
+        if (!StringUtils.isBlank(strippedContextPath)) {
+            nodes.add(insert(root, strippedContextPath + "/" + StringUtils.strip(path, "/"), strippedContextPath + "/"));
+        }
+
+        return nodes;
+    }
+
+    private static Node insert(Node from, String path, String contextPath) {
+        Node node = from;
+
+        for (String segment : path.split("/", -1)) {
+            Node child = node.children.get(segment);
+
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+            }
+
+            node = child;
+        }
+
+        node.contextPath = contextPath;
+
+        return node;
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        private String contextPath;
+        private Binding workspace;
+        private Binding feed;
+    }
+
+    private static final class Binding {
+
+        private final String contextPath;
+        private final String workspace;
+        private final String feed;
+
+        private Binding(String contextPath, String workspace, String feed) {
+            this.contextPath = contextPath;
+            this.workspace = StringUtils.strip(workspace, "/");
+            this.feed = feed;
+        }
+
+        private Target toTarget(TargetType type, RequestContext context, String entry) {
+            final Map<String, String> parameters = new LinkedHashMap<String, String>();
+            parameters.put(TargetResolverField.CONTEXT_PATH.toString(), contextPath);
+            parameters.put(TargetResolverField.WORKSPACE.toString(), workspace);
+
+            if (type != TargetType.TYPE_SERVICE) {
+                parameters.put(TargetResolverField.FEED.toString(), feed);
+            }
+
+            if (type == TargetType.TYPE_ENTRY) {
+                parameters.put(TargetResolverField.ENTRY.toString(), entry);
+            }
+
+            return new ResolvedTarget(type, context, parameters);
+        }
+    }
+
+    /**
+     * Answers the path parameters it was resolved with, and the request's
+     * query parameters for any other name, like the regex targets.
+     */
+    private static final class ResolvedTarget extends SimpleTarget {
+
+        private final Map<String, String> parameters;
+
+        private ResolvedTarget(TargetType type, RequestContext context, Map<String, String> parameters) {
+            super(type, context);
+            this.parameters = parameters;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+                if (parameter.getKey().equalsIgnoreCase(name)) {
+                    return parameter.getValue();
+                }
+            }
+
+            return super.getParameter(name);
+        }
+
+        @Override
+        public String[] getParameterNames() {
+            final List<String> names = new ArrayList<String>();
+            final String[] requestNames = super.getParameterNames();
+
+            if (requestNames != null) {
+                names.addAll(Arrays.asList(requestNames));
+            }
+
+            names.addAll(parameters.keySet());
+
+            return names.toArray(new String[names.size()]);
+        }
+    }
+}
@@ -4,56 +4,105 @@ import org.apache.abdera.model.Workspace;
 import org.apache.abdera.parser.stax.FOMWorkspace;
 import org.apache.abdera.protocol.server.CollectionInfo;
 import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.Target;
 import org.apache.abdera.protocol.server.WorkspaceInfo;
 import org.apache.commons.lang.StringUtils;
 import org.atomhopper.config.v1_0.WorkspaceConfiguration;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.regex.Pattern;
 
+/**
+ * Holds the collection adapters of the feeds of one workspace.
+ *
+ * Feeds are found by their name in a hash map. The feed names of workspaces
+ * with enableRegexFeeds are regular expressions instead: they are compiled
+ * once and tried in the order they were added, and the adapters they resolve
+ * are remembered for the last MAX_RESOLVED_FEEDS feed names read.
+ */
 public class WorkspaceHandler implements WorkspaceInfo {
 
+    static final int MAX_RESOLVED_FEEDS = 1000;
+
     private final Map<String, TargetAwareAbstractCollectionAdapter> collectionAdapterMap;
+    private final List<FeedPattern> feedPatterns;
+    private final Map<String, TargetAwareAbstractCollectionAdapter> resolvedFeeds;
     private final WorkspaceConfiguration myConfig;
+    private final String workspaceName;
 
     public WorkspaceHandler(WorkspaceConfiguration myConfig) {
         this.myConfig = myConfig;
-        this.collectionAdapterMap = new HashMap<String, TargetAwareAbstractCollectionAdapter>();
+        this.workspaceName = StringUtils.strip(myConfig.getResource(), "/");
+        this.collectionAdapterMap = new LinkedHashMap<String, TargetAwareAbstractCollectionAdapter>();
+        this.feedPatterns = new ArrayList<FeedPattern>();
+        this.resolvedFeeds = new LinkedHashMap<String, TargetAwareAbstractCollectionAdapter>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TargetAwareAbstractCollectionAdapter> eldest) {
+                return size() > MAX_RESOLVED_FEEDS;
+            }
+        };
     }
 
-    public void addCollectionAdapter(String collectionId, TargetAwareAbstractCollectionAdapter adapter) {
-        collectionAdapterMap.put(collectionId, adapter);
+    public String getWorkspaceName() {
+        return workspaceName;
+    }
+
+    /**
+     * @param feedName the feed resource, a regular expression when the
+     * workspace has enableRegexFeeds
+     */
+    public void addCollectionAdapter(String feedName, TargetAwareAbstractCollectionAdapter adapter) {
+        final String strippedFeedName = StringUtils.strip(feedName, "/");
+        collectionAdapterMap.put(strippedFeedName, adapter);
+
+        if (myConfig.isEnableRegexFeeds()) {
+            feedPatterns.add(new FeedPattern(Pattern.compile(strippedFeedName), adapter));
+        }
     }
 
     public TargetAwareAbstractCollectionAdapter getAnsweringAdapter(RequestContext rc) {
-    final String feedSpec = rc.getTarget().getParameter(TargetResolverField.FEED.toString());
-
-        TargetAwareAbstractCollectionAdapter collectionAdapter = null;
-        
-        if(!StringUtils.isBlank(feedSpec)) {
-                final String adapterKey = new StringBuilder().append("/")
-                                .append(rc.getTarget().getParameter(TargetResolverField.WORKSPACE.toString()))
-                                .append("/")
-                                .append(feedSpec).toString();
-
-                if(myConfig.isEnableRegexFeeds()) {
-                        Set<Entry<String, TargetAwareAbstractCollectionAdapter>> adapterEntries = collectionAdapterMap.entrySet();
-                        for(Entry<String, TargetAwareAbstractCollectionAdapter> adapterEntry : adapterEntries) {
-                                if(adapterKey.matches(adapterEntry.getKey())) {
-                                        collectionAdapter = adapterEntry.getValue();
-                                        break;
-                                }
-                        }
-                }
-                else{
-                        collectionAdapter = collectionAdapterMap.get(adapterKey);
+        final Target target = rc.getTarget();
+
+        if (target == null || !workspaceName.equals(target.getParameter(TargetResolverField.WORKSPACE.toString()))) {
+            return null;
+        }
+
+        return getAdapterForFeed(target.getParameter(TargetResolverField.FEED.toString()));
+    }
+
+    public TargetAwareAbstractCollectionAdapter getAdapterForFeed(String feedName) {
+        if (StringUtils.isBlank(feedName)) {
+            return null;
+        }
+
+        if (!myConfig.isEnableRegexFeeds()) {
+            return collectionAdapterMap.get(feedName);
+        }
+
+        synchronized (resolvedFeeds) {
+            final TargetAwareAbstractCollectionAdapter resolved = resolvedFeeds.get(feedName);
+
+            if (resolved != null) {
+                return resolved;
+            }
+        }
+
+        for (FeedPattern feedPattern : feedPatterns) {
+            if (feedPattern.pattern.matcher(feedName).matches()) {
+                synchronized (resolvedFeeds) {
+                    resolvedFeeds.put(feedName, feedPattern.adapter);
                 }
+
+                return feedPattern.adapter;
+            }
         }
-        return collectionAdapter;
+
+        return null;
     }
 
     @Override
@@ -70,4 +119,15 @@ public class WorkspaceHandler implements WorkspaceInfo {
     public String getTitle(RequestContext rc) {
         return myConfig.getTitle();
     }
+
+    private static final class FeedPattern {
+
+        private final Pattern pattern;
+        private final TargetAwareAbstractCollectionAdapter adapter;
+
+        private FeedPattern(Pattern pattern, TargetAwareAbstractCollectionAdapter adapter) {
+            this.pattern = pattern;
+            this.adapter = adapter;
+        }
+    }
 }
@@ -2,22 +2,42 @@ package org.atomhopper.abdera;
 
 import org.apache.abdera.protocol.server.CollectionAdapter;
 import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.Target;
 import org.apache.abdera.protocol.server.WorkspaceInfo;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Finds the workspace of a request by the name its target was resolved with,
+ * so the lookup does not walk the other workspaces.
+ */
 public class WorkspaceManager implements org.apache.abdera.protocol.server.WorkspaceManager {
 
     private final List<WorkspaceHandler> handlers;
+    private final Map<String, List<WorkspaceHandler>> handlersByWorkspace;
 
     public WorkspaceManager() {
         handlers = new LinkedList<WorkspaceHandler>();
+        handlersByWorkspace = new HashMap<String, List<WorkspaceHandler>>();
     }
-    
+
     public void addWorkspaces(List<WorkspaceHandler> workspaces) {
-        handlers.addAll(workspaces);
+        for (WorkspaceHandler workspace : workspaces) {
+            List<WorkspaceHandler> named = handlersByWorkspace.get(workspace.getWorkspaceName());
+
+            // A workspace may be configured more than once, with different feeds
+            if (named == null) {
+                named = new LinkedList<WorkspaceHandler>();
+                handlersByWorkspace.put(workspace.getWorkspaceName(), named);
+            }
+
+            named.add(workspace);
+            handlers.add(workspace);
+        }
     }
 
     @Override
@@ -27,8 +47,22 @@ public class WorkspaceManager implements org.apache.abdera.protocol.server.Works
 
     @Override
     public CollectionAdapter getCollectionAdapter(RequestContext request) {
-        for (WorkspaceHandler workspace : handlers) {
-            final CollectionAdapter adapter = workspace.getAnsweringAdapter(request);
+        final Target target = request.getTarget();
+
+        if (target == null) {
+            return null;
+        }
+
+        final List<WorkspaceHandler> named = handlersByWorkspace.get(target.getParameter(TargetResolverField.WORKSPACE.toString()));
+
+        if (named == null) {
+            return null;
+        }
+
+        final String feedName = target.getParameter(TargetResolverField.FEED.toString());
+
+        for (WorkspaceHandler workspace : named) {
+            final CollectionAdapter adapter = workspace.getAdapterForFeed(feedName);
 
             if (adapter != null) {
                 return adapter;
@@ -5,7 +5,6 @@ import javax.security.auth.Subject;
 import org.apache.abdera.Abdera;
 import org.apache.abdera.protocol.server.*;
 import org.apache.abdera.protocol.server.context.ResponseContextException;
-import org.apache.abdera.protocol.server.impl.RegexTargetResolver;
 import org.apache.abdera.protocol.server.impl.SimpleSubjectResolver;
 import org.apache.abdera.protocol.server.impl.TemplateTargetBuilder;
 import org.apache.abdera.protocol.server.processors.CategoriesRequestProcessor;
@@ -26,19 +25,22 @@ public class WorkspaceProvider implements Provider {
     private static final int MIN_ERROR_CODE = 400;
     private static final int MAX_ERROR_CODE = 500;
     private static final String XML = "application/xml";
+    private static final String RETRY_AFTER = "Retry-After";
     private final Map<TargetType, RequestProcessor> requestProcessors;
     private final List<Filter> filters;
     private final WorkspaceManager workspaceManager;
-    private final RegexTargetResolver targetResolver;
+    private final TrieTargetResolver targetResolver;
     private final HostConfiguration hostConfiguration;
     private final TemplateTargetBuilder templateTargetBuilder;
+    private Filter responseCompression;
+    private Bulkheads bulkheads;
     private Map<String, String> properties;
     private Abdera abdera;
 
     public WorkspaceProvider(HostConfiguration hostConfiguration) {
         requestProcessors = new HashMap<TargetType, RequestProcessor>();
         filters = new LinkedList<Filter>();
-        targetResolver = new RegexTargetResolver();
+        targetResolver = new TrieTargetResolver();
 
         // Set the host configuration
         this.hostConfiguration = hostConfiguration;
@@ -56,7 +58,7 @@ public class WorkspaceProvider implements Provider {
         workspaceManager = new WorkspaceManager();
     }
 
-    public RegexTargetResolver getTargetResolver() {
+    public TrieTargetResolver getTargetResolver() {
         return targetResolver;
     }
 
@@ -148,16 +150,20 @@ public class WorkspaceProvider implements Provider {
         ResponseContext response = null;
 
         if (adapter != null) {
-            final Transactional transaction = adapter instanceof Transactional ? (Transactional) adapter : null;
+            final Bulkhead bulkhead = bulkheads != null ? bulkheads.select(request) : null;
+
+            if (bulkhead != null && !bulkhead.tryEnter()) {
+                return ProviderHelper.unavailable(request, "Bulkhead " + bulkhead.getName() + " is full")
+                        .setHeader(RETRY_AFTER, String.valueOf(bulkheads.getRetryAfterInSeconds()))
+                        .setContentType(XML);
+            }
 
             try {
-                transactionStart(transaction, request);
-                response = processor.process(request, workspaceManager, adapter);
-                response = response != null ? response : processExtensionRequest(request, adapter);
-            } catch (Exception ex) {
-                response = handleAdapterException(ex, transaction, request);
+                response = processWithAdapter(request, processor, adapter);
             } finally {
-                transactionEnd(transaction, request, response);
+                if (bulkhead != null) {
+                    bulkhead.leave();
+                }
             }
         } else {
             response = ProviderHelper.notfound(request).setContentType(XML);
@@ -166,6 +172,23 @@ public class WorkspaceProvider implements Provider {
         return response != null ? response : ProviderHelper.badrequest(request).setContentType(XML);
     }
 
+    private ResponseContext processWithAdapter(RequestContext request, RequestProcessor processor, CollectionAdapter adapter) {
+        final Transactional transaction = adapter instanceof Transactional ? (Transactional) adapter : null;
+        ResponseContext response = null;
+
+        try {
+            transactionStart(transaction, request);
+            response = processor.process(request, workspaceManager, adapter);
+            response = response != null ? response : processExtensionRequest(request, adapter);
+        } catch (Exception ex) {
+            response = handleAdapterException(ex, transaction, request);
+        } finally {
+            transactionEnd(transaction, request, response);
+        }
+
+        return response;
+    }
+
     private ResponseContext handleAdapterException(Exception ex, Transactional transaction, RequestContext request) {
         if (ex instanceof ResponseContextException) {
             final ResponseContextException rce = (ResponseContextException) ex;
@@ -208,13 +231,34 @@ public class WorkspaceProvider implements Provider {
 
     @Override
     public Filter[] getFilters(RequestContext request) {
-        return filters.toArray(new Filter[filters.size()]);
+        if (responseCompression == null) {
+            return filters.toArray(new Filter[filters.size()]);
+        }
+
+        // Compression comes first, so it compresses what the other filters answer
+        final Filter[] chain = new Filter[filters.size() + 1];
+        chain[0] = responseCompression;
+
+        int i = 1;
+        for (Filter filter : filters) {
+            chain[i++] = filter;
+        }
+
+        return chain;
     }
 
     public void addFilter(Filter... filters) {
         this.filters.addAll(Arrays.asList(filters));
     }
 
+    public void setResponseCompression(Filter responseCompression) {
+        this.responseCompression = responseCompression;
+    }
+
+    public void setBulkheads(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
     @Override
     public void setRequestProcessors(Map<TargetType, RequestProcessor> requestProcessors) {
         this.requestProcessors.clear();
@@ -0,0 +1,132 @@
+package org.atomhopper.abdera.filter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses what is written to it with a Deflater it is handed, where
+ * GZIPOutputStream and DeflaterOutputStream allocate their own, and counts
+ * the bytes in and out and the time spent deflating.
+ *
+ * The gzip encoding writes the gzip header and trailer around the raw deflate
+ * stream, the deflate encoding writes the zlib stream as is.
+ */
+class CompressingOutputStream extends OutputStream {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+    private final Deflater deflater;
+    private final CRC32 crc;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private long bytesIn;
+    private long bytesOut;
+    private long deflateNanos;
+    private boolean finished;
+
+    CompressingOutputStream(OutputStream out, Deflater deflater, boolean gzip) throws IOException {
+        this.out = out;
+        this.deflater = deflater;
+        this.crc = gzip ? new CRC32() : null;
+
+        if (gzip) {
+            out.write(GZIP_HEADER);
+            bytesOut += GZIP_HEADER.length;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (finished) {
+            throw new IOException("The compressed stream is finished");
+        }
+
+        if (length == 0) {
+            return;
+        }
+
+        if (crc != null) {
+            crc.update(bytes, offset, length);
+        }
+
+        bytesIn += length;
+        deflater.setInput(bytes, offset, length);
+
+        while (!deflater.needsInput()) {
+            deflate();
+        }
+    }
+
+    /**
+     * Writes what is left of the compressed stream, without closing the
+     * stream written to.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+
+        finished = true;
+        deflater.finish();
+
+        while (!deflater.finished()) {
+            deflate();
+        }
+
+        if (crc != null) {
+            writeIntLittleEndian(crc.getValue());
+            writeIntLittleEndian(bytesIn);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getDeflateNanos() {
+        return deflateNanos;
+    }
+
+    private void deflate() throws IOException {
+        final long start = System.nanoTime();
+        final int length = deflater.deflate(buffer, 0, buffer.length);
+        deflateNanos += System.nanoTime() - start;
+
+        if (length > 0) {
+            out.write(buffer, 0, length);
+            bytesOut += length;
+        }
+    }
+
+    private void writeIntLittleEndian(long value) throws IOException {
+        out.write((int) (value & 0xff));
+        out.write((int) ((value >> 8) & 0xff));
+        out.write((int) ((value >> 16) & 0xff));
+        out.write((int) ((value >> 24) & 0xff));
+        bytesOut += 4;
+    }
+}
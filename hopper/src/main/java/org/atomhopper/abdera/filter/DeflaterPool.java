@@ -0,0 +1,52 @@
+package org.atomhopper.abdera.filter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Keeps up to maxIdle Deflaters for reuse, since each one allocates its
+ * zlib buffers natively and only frees them when ended or finalized.
+ */
+public class DeflaterPool {
+
+    private final BlockingQueue<Deflater> idle;
+    private final int level;
+    private final boolean nowrap;
+
+    /**
+     * @param nowrap true for the raw deflate stream gzip wraps, false for the
+     * zlib format of the deflate content encoding
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxIdle) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.idle = new ArrayBlockingQueue<Deflater>(Math.max(1, maxIdle));
+    }
+
+    public Deflater borrow() {
+        final Deflater deflater = idle.poll();
+
+        return deflater != null ? deflater : new Deflater(level, nowrap);
+    }
+
+    public void release(Deflater deflater) {
+        deflater.reset();
+
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    public int getIdle() {
+        return idle.size();
+    }
+
+    public void clear() {
+        Deflater deflater;
+
+        while ((deflater = idle.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.atomhopper.abdera.filter;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.ext.json.JSONWriter;
+import org.apache.abdera.model.Base;
+import org.apache.abdera.model.Document;
+import org.apache.abdera.model.Element;
+import org.apache.abdera.protocol.server.ResponseContext;
+import org.apache.abdera.protocol.server.context.ResponseContextWrapper;
+import org.apache.abdera.writer.Writer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the body of a response as JSON instead of XML.
+ *
+ * Feeds, entries and the other responses holding the Abdera model are
+ * written straight from it by Abdera's streaming JSON writer. Any other
+ * response is written as XML, parsed back and written as JSON, which is how
+ * Abdera's JSONFilter writes all of them.
+ */
+public class JsonResponseContext extends ResponseContextWrapper {
+
+    public static final String JSON = "application/json";
+
+    private final Abdera abdera;
+    private final Base base;
+
+    /**
+     * @param base the model the response writes, or null when it is not known
+     */
+    public JsonResponseContext(ResponseContext response, Base base, Abdera abdera) {
+        super(response);
+        this.base = asDocument(base);
+        this.abdera = abdera;
+
+        setContentType(JSON);
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        writeTo(out, null);
+    }
+
+    @Override
+    public void writeTo(OutputStream out, Writer writer) throws IOException {
+        final Writer jsonWriter = abdera.getWriterFactory().getWriter(JSONWriter.NAME);
+
+        if (base != null) {
+            jsonWriter.writeTo(base, out);
+        } else {
+            final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+
+            if (writer == null) {
+                super.writeTo(xml);
+            } else {
+                super.writeTo(xml, writer);
+            }
+
+            final Document<Element> document = abdera.getParser().parse(new ByteArrayInputStream(xml.toByteArray()));
+            jsonWriter.writeTo(document, out);
+        }
+
+        out.flush();
+    }
+
+    /**
+     * The JSON of a document names its root element, {"feed":{...}}, where
+     * that of an element does not, so elements are written as the document
+     * they are the root of, like the XML parsed back.
+     */
+    private static Base asDocument(Base base) {
+        if (base instanceof Element) {
+            final Document<Element> document = ((Element) base).getDocument();
+
+            return document != null && document.getRoot() == base ? document : null;
+        }
+
+        return base;
+    }
+}
@@ -0,0 +1,258 @@
+package org.atomhopper.abdera.filter;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.abdera.protocol.server.Filter;
+import org.apache.abdera.protocol.server.FilterChain;
+import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.ResponseContext;
+import org.apache.abdera.protocol.server.Target;
+import org.apache.abdera.protocol.server.TargetType;
+import org.apache.abdera.protocol.server.context.ResponseContextWrapper;
+import org.apache.abdera.util.EntityTag;
+import org.apache.abdera.writer.Writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import static org.atomhopper.util.AtomHopperMetrics.registerGauge;
+import static org.atomhopper.util.AtomHopperMetrics.registry;
+
+/**
+ * Compresses feed and entry responses with the gzip or deflate content
+ * encoding, whichever the request's Accept-Encoding prefers, gzip on a tie.
+ *
+ * The WorkspaceProvider runs this filter before any configured provider
+ * filter, so what they answer, JSON included, is compressed as well. The
+ * Deflaters are pooled, up to maxIdleDeflaters per encoding. Compressed
+ * responses carry a weak entity tag, the bytes differing from those of the
+ * uncompressed response, and all compressible ones Vary on Accept-Encoding.
+ *
+ * Per encoding, the uncompressed-bytes and compressed-bytes counters, the
+ * compression-time timer of the time spent deflating each response and the
+ * idle-deflaters gauge of the pool are kept.
+ */
+public class ResponseCompressionFilter implements Filter {
+
+    public static final int DEFAULT_LEVEL = 6;
+    public static final int DEFAULT_MAX_IDLE_DEFLATERS = 16;
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String VARY = "Vary";
+    private static final String IDLE_DEFLATERS = "idle-deflaters";
+
+    private final Map<ContentEncoding, DeflaterPool> pools = new EnumMap<ContentEncoding, DeflaterPool>(ContentEncoding.class);
+    private final Map<ContentEncoding, EncodingMetrics> metrics = new EnumMap<ContentEncoding, EncodingMetrics>(ContentEncoding.class);
+
+    public ResponseCompressionFilter() {
+        this(DEFAULT_LEVEL, DEFAULT_MAX_IDLE_DEFLATERS);
+    }
+
+    public ResponseCompressionFilter(int level, int maxIdleDeflaters) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("The compression level is between 1 and 9: " + level);
+        }
+
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            final DeflaterPool pool = new DeflaterPool(level, encoding == ContentEncoding.GZIP, maxIdleDeflaters);
+
+            pools.put(encoding, pool);
+            metrics.put(encoding, new EncodingMetrics(encoding, pool));
+        }
+    }
+
+    @Override
+    public ResponseContext filter(RequestContext request, FilterChain chain) {
+        final ResponseContext response = chain.next(request);
+
+        if (!isFeedOrEntry(request.getTarget()) || !response.hasEntity() || !isCompressible(response)) {
+            return response;
+        }
+
+        response.addHeader(VARY, ACCEPT_ENCODING);
+
+        final ContentEncoding encoding = negotiate(request.getHeader(ACCEPT_ENCODING));
+
+        return encoding != null ? new CompressedResponseContext(response, encoding) : response;
+    }
+
+    /**
+     * Also removes the idle-deflaters gauges, so a filter created after this
+     * one reports its own pools.
+     */
+    public void shutdown() {
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            registry().remove(EncodingMetrics.metricName(IDLE_DEFLATERS, encoding));
+            pools.get(encoding).clear();
+        }
+    }
+
+    /**
+     * @return the encoding the Accept-Encoding header prefers, or null when
+     * it accepts neither
+     */
+    static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+
+        float gzip = -1, deflate = -1, any = -1;
+
+        for (String coding : acceptEncoding.split(",")) {
+            final String[] parts = coding.split(";");
+            final String name = parts[0].trim().toLowerCase();
+            final float quality = quality(parts);
+
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = quality;
+            } else if (name.equals("deflate")) {
+                deflate = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+
+        if (gzip > 0 && gzip >= deflate) {
+            return ContentEncoding.GZIP;
+        }
+
+        return deflate > 0 ? ContentEncoding.DEFLATE : null;
+    }
+
+    private static float quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            final String parameter = parts[i].trim();
+
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(parameter.substring(2));
+                } catch (NumberFormatException nfe) {
+                    return 0;
+                }
+            }
+        }
+
+        return 1;
+    }
+
+    private static boolean isFeedOrEntry(Target target) {
+        return target != null && (target.getType() == TargetType.TYPE_COLLECTION || target.getType() == TargetType.TYPE_ENTRY);
+    }
+
+    private static boolean isCompressible(ResponseContext response) {
+        if (response.getContentType() == null || response.getHeader(CONTENT_ENCODING) != null) {
+            return false;
+        }
+
+        final String contentType = response.getContentType().toString().toLowerCase();
+
+        return contentType.contains("xml") || contentType.contains("json") || contentType.startsWith("text/");
+    }
+
+    public enum ContentEncoding {
+
+        GZIP("gzip"), DEFLATE("deflate");
+
+        private final String token;
+
+        ContentEncoding(String token) {
+            this.token = token;
+        }
+
+        @Override
+        public String toString() {
+            return token;
+        }
+    }
+
+    private final class CompressedResponseContext extends ResponseContextWrapper {
+
+        private final ContentEncoding encoding;
+
+        private CompressedResponseContext(ResponseContext response, ContentEncoding encoding) {
+            super(response);
+            this.encoding = encoding;
+
+            setHeader(CONTENT_ENCODING, encoding.toString());
+
+            final EntityTag entityTag = response.getEntityTag();
+
+            if (entityTag != null && !entityTag.isWeak()) {
+                setEntityTag(new EntityTag(entityTag.getTag(), true));
+            }
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            writeTo(out, null);
+        }
+
+        @Override
+        public void writeTo(OutputStream out, Writer writer) throws IOException {
+            final DeflaterPool pool = pools.get(encoding);
+            final Deflater deflater = pool.borrow();
+
+            try {
+                final CompressingOutputStream compressed = new CompressingOutputStream(out, deflater, encoding == ContentEncoding.GZIP);
+
+                if (writer == null) {
+                    super.writeTo(compressed);
+                } else {
+                    super.writeTo(compressed, writer);
+                }
+
+                compressed.finish();
+                out.flush();
+
+                metrics.get(encoding).update(compressed);
+            } finally {
+                pool.release(deflater);
+            }
+        }
+    }
+
+    private static final class EncodingMetrics {
+
+        private final Counter uncompressedBytes;
+        private final Counter compressedBytes;
+        private final Timer compressionTime;
+
+        private EncodingMetrics(ContentEncoding encoding, final DeflaterPool pool) {
+            uncompressedBytes = registry().counter(metricName("uncompressed-bytes", encoding));
+            compressedBytes = registry().counter(metricName("compressed-bytes", encoding));
+            compressionTime = registry().timer(metricName("compression-time", encoding));
+
+            registerGauge(metricName(IDLE_DEFLATERS, encoding), new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    return pool.getIdle();
+                }
+            });
+        }
+
+        private void update(CompressingOutputStream compressed) {
+            uncompressedBytes.inc(compressed.getBytesIn());
+            compressedBytes.inc(compressed.getBytesOut());
+            compressionTime.update(compressed.getDeflateNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        private static String metricName(String name, ContentEncoding encoding) {
+            return MetricRegistry.name(ResponseCompressionFilter.class, name, encoding.toString());
+        }
+    }
+}
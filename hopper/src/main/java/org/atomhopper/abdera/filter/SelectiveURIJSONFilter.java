@@ -1,43 +1,59 @@
 package org.atomhopper.abdera.filter;
 
 import java.util.List;
-import org.apache.abdera.ext.json.JSONFilter;
 import org.apache.abdera.i18n.iri.IRI;
+import org.apache.abdera.model.Base;
+import org.apache.abdera.protocol.server.Filter;
 import org.apache.abdera.protocol.server.FilterChain;
 import org.apache.abdera.protocol.server.ProviderHelper;
 import org.apache.abdera.protocol.server.RequestContext;
 import org.apache.abdera.protocol.server.ResponseContext;
+import org.apache.abdera.protocol.server.context.BaseResponseContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
- * This class performs XML -> JSON transformation on Atom Hopper responses.
+ * This class answers Atom Hopper responses as JSON, when requested by
+ * format=json or by an Accept header preferring application/json.
  * It can be configured to only perform this transformation on selective URIs.
  * If a particular request URI is in the 'allowedURIs' list (only substring
- * check is performed), then the transformation
- * of XML -> JSON will be performed.
+ * check is performed), then the JSON representation is answered.
+ *
+ * Feeds and entries are written as JSON straight from the model the
+ * adapters answered, see JsonResponseContext, rather than being written as
+ * XML and converted the way Abdera's JSONFilter does.
  *
  * User: shin4590
  * Date: 7/1/14
  */
 @Component
-public class SelectiveURIJSONFilter extends JSONFilter {
+public class SelectiveURIJSONFilter implements Filter {
 
     @Autowired
     private List<String> allowedURIs;
 
     @Override
     public ResponseContext filter(RequestContext request, FilterChain chain) {
-        if ( uriAllowed(request.getUri()) ) {
-            return super.filter(request, chain);
-        } else {
-            String format = request.getParameter("format");
-            if ( format != null && format.equalsIgnoreCase("json") ) {
+        final String format = request.getParameter("format");
+        final boolean formatJson = format != null && format.equalsIgnoreCase("json");
+
+        if ( !uriAllowed(request.getUri()) ) {
+            if ( formatJson ) {
                 return ProviderHelper.badrequest(request, "format=json is not a valid query parameter for this feed");
             } else {
                 return chain.next(request);
             }
         }
+
+        final ResponseContext response = chain.next(request);
+
+        if ( !response.hasEntity() || !(formatJson || jsonPreferred(request, response)) ) {
+            return response;
+        }
+
+        final Base base = response instanceof BaseResponseContext ? ((BaseResponseContext) response).getBase() : null;
+
+        return new JsonResponseContext(response, base, request.getAbdera());
     }
 
     public List<String> getAllowedURIs() {
@@ -48,6 +64,11 @@ public class SelectiveURIJSONFilter extends JSONFilter {
         this.allowedURIs = allowedURIs;
     }
 
+    private boolean jsonPreferred(RequestContext request, ResponseContext response) {
+        return response.getContentType() != null
+                && ProviderHelper.isPreferred(request, JsonResponseContext.JSON, response.getContentType().toString());
+    }
+
     private boolean uriAllowed(IRI uri) {
         if ( allowedURIs == null ) {
             return false;
@@ -0,0 +1,26 @@
+package org.atomhopper.adapter;
+
+import org.apache.abdera.model.Entry;
+import org.atomhopper.adapter.request.adapter.PostEntryRequest;
+import org.atomhopper.response.AdapterResponse;
+
+import java.util.List;
+
+/**
+ * A feed publisher that can also add many entries at once, with fewer round
+ * trips to its store than posting them one by one.
+ */
+public interface BatchFeedPublisher extends FeedPublisher {
+
+    /**
+     * Requests that a batch of entries be added to their feeds.
+     *
+     * @param postEntryRequests
+     * @see PostEntryRequest
+     *
+     * @return
+     * The response to every request, in the order of the requests, as
+     * postEntry would have answered it
+     */
+    List<AdapterResponse<Entry>> postEntries(List<PostEntryRequest> postEntryRequests);
+}
@@ -0,0 +1,24 @@
+package org.atomhopper.adapter;
+
+import java.util.List;
+
+/**
+ * Feed sources that page by a (dateLastUpdated, id) keyset find the marker of
+ * the next page without a query of its own: a head or backward page reads one
+ * entry past the page, which is the next marker, and a forward page ends right
+ * before its marker, so that marker is the start of the next page.
+ */
+public final class KeysetPaging {
+
+    private KeysetPaging() {
+    }
+
+    /**
+     * @param feedPage a head or backward page read with pageSize + 1 entries
+     * @return the entry past pageSize, taken off the page, or null when the
+     * page is the last one
+     */
+    public static <T> T removeNextMarker(List<T> feedPage, int pageSize) {
+        return feedPage.size() > pageSize ? feedPage.remove(pageSize) : null;
+    }
+}
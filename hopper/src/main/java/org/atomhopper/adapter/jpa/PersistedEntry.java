@@ -14,6 +14,7 @@ import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import org.hibernate.annotations.Index;
 import java.io.Serializable;
 import java.util.Calendar;
 import java.util.Collections;
@@ -24,6 +25,8 @@ import java.util.TimeZone;
 
 @Entity
 @Table(name = "Entries")
+@org.hibernate.annotations.Table(appliesTo = "Entries", indexes = {
+    @Index(name = "entries_feed_datelastupdated_entryid_idx", columnNames = {"Feed", "DateLastUpdated", "EntryID"})})
 public class PersistedEntry implements Serializable {
 
     @Id
@@ -1,9 +1,9 @@
 package org.atomhopper.adapter.request.adapter;
 
 import org.apache.abdera.model.Categories;
-import org.atomhopper.adapter.request.ClientRequest;
+import org.atomhopper.adapter.request.feed.FeedRequest;
 
-public interface GetCategoriesRequest extends ClientRequest {
+public interface GetCategoriesRequest extends FeedRequest {
 
     Categories newCategories();
 }
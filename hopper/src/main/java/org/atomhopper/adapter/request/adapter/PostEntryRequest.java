@@ -3,7 +3,18 @@ package org.atomhopper.adapter.request.adapter;
 import org.apache.abdera.model.Entry;
 import org.atomhopper.adapter.request.feed.FeedRequest;
 
+import java.io.InputStream;
+
 public interface PostEntryRequest extends FeedRequest {
 
     Entry getEntry();
+
+    /**
+     * Gives access to the raw request body so that publishers can stream the
+     * posted entry instead of having it parsed into an Abdera document. The
+     * body can only be consumed once; use either this method or getEntry().
+     *
+     * @see org.atomhopper.util.stax.StreamingEntryProcessor
+     */
+    InputStream getEntryStream();
 }
@@ -2,10 +2,10 @@ package org.atomhopper.adapter.request.adapter.impl;
 
 import org.apache.abdera.model.Categories;
 import org.apache.abdera.protocol.server.RequestContext;
-import org.atomhopper.adapter.request.AbstractClientRequest;
 import org.atomhopper.adapter.request.adapter.GetCategoriesRequest;
+import org.atomhopper.adapter.request.feed.AbstractFeedRequest;
 
-public class GetCategoriesRequestImpl extends AbstractClientRequest implements GetCategoriesRequest {
+public class GetCategoriesRequestImpl extends AbstractFeedRequest implements GetCategoriesRequest {
 
     public GetCategoriesRequestImpl(RequestContext abderaRequestContext) {
         super(abderaRequestContext);
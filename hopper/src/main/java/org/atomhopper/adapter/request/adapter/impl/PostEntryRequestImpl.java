@@ -5,6 +5,9 @@ import org.apache.abdera.protocol.server.RequestContext;
 import org.atomhopper.adapter.request.adapter.PostEntryRequest;
 import org.atomhopper.adapter.request.feed.AbstractFeedRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  *
  * 
@@ -23,4 +26,13 @@ public class PostEntryRequestImpl extends AbstractFeedRequest implements PostEnt
             throw new RequestParsingException("Failed to read in ATOM Entry data. Reason: " + ex.getMessage(), ex);
         }
     }
+
+    @Override
+    public InputStream getEntryStream() {
+        try {
+            return getRequestContext().getInputStream();
+        } catch (IOException ioe) {
+            throw new RequestParsingException("Failed to read in ATOM Entry data. Reason: " + ioe.getMessage(), ioe);
+        }
+    }
 }
@@ -2,10 +2,10 @@ package org.atomhopper.config;
 
 import org.apache.abdera.model.Feed;
 import org.apache.abdera.protocol.server.TargetType;
-import org.apache.abdera.protocol.server.impl.RegexTargetResolver;
 import org.apache.commons.lang.StringUtils;
 import org.atomhopper.abdera.FeedAdapter;
 import org.atomhopper.abdera.TargetAwareAbstractCollectionAdapter;
+import org.atomhopper.abdera.TrieTargetResolver;
 import org.atomhopper.abdera.WorkspaceHandler;
 import org.atomhopper.abdera.filter.AdapterResponseInterceptor;
 import org.atomhopper.abdera.filter.FeedEntityTagProcessor;
@@ -15,8 +15,12 @@ import org.atomhopper.adapter.FeedPublisher;
 import org.atomhopper.adapter.FeedSource;
 import org.atomhopper.config.v1_0.AdapterDescriptor;
 import org.atomhopper.config.v1_0.FeedConfiguration;
+import org.atomhopper.config.v1_0.FeedRetention;
 import org.atomhopper.config.v1_0.HostConfiguration;
 import org.atomhopper.config.v1_0.WorkspaceConfiguration;
+import org.atomhopper.retention.RetentionEnforcer;
+import org.atomhopper.retention.RetentionEngine;
+import org.atomhopper.retention.RetentionPolicy;
 import org.atomhopper.servlet.ApplicationContextAdapter;
 import org.atomhopper.util.TargetRegexBuilder;
 import org.atomhopper.util.context.AdapterGetter;
@@ -26,33 +30,36 @@ import org.slf4j.LoggerFactory;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 
 /**
  * I eat configurations.
  *
- * TODO: Sanitize configured workspace and feed resource paths for regex
- * insertion
+ * Workspaces and feeds are resolved by their literal paths, only the feeds of
+ * workspaces with enableRegexFeeds are resolved through regex patterns.
  */
 public class WorkspaceConfigProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(WorkspaceConfigProcessor.class);
-    private final RegexTargetResolver regexTargetResolver;
+    private final TrieTargetResolver targetResolver;
     private final AdapterGetter adapterGetter;
     private final WorkspaceConfiguration config;
     private final TargetRegexBuilder targetRegexGenerator;
     private final HostConfiguration hostConfiguration;
+    private RetentionEngine retentionEngine;
 
     //TODO: Consider builder pattern
     public WorkspaceConfigProcessor(WorkspaceConfiguration config,
                                     ApplicationContextAdapter contextAdapter,
-                                    RegexTargetResolver regexTargetResolver,
+                                    TrieTargetResolver targetResolver,
                                     String contextPath,
                                     HostConfiguration hostConfiguration ) {
         this.config = config;
         this.adapterGetter = new AdapterGetter(contextAdapter);
-        this.regexTargetResolver = regexTargetResolver;
+        this.targetResolver = targetResolver;
 
         targetRegexGenerator = new TargetRegexBuilder();
 
@@ -63,21 +70,23 @@ public class WorkspaceConfigProcessor {
         this.hostConfiguration = hostConfiguration;
     }
 
+    public void setRetentionEngine(RetentionEngine retentionEngine) {
+        this.retentionEngine = retentionEngine;
+    }
+
+    /**
+     * @return the one handler of the workspace, holding all its feeds
+     */
     public List<WorkspaceHandler> toHandler() {
-        final List<WorkspaceHandler> workspaces = new LinkedList<WorkspaceHandler>();
+        final WorkspaceHandler workspace = new WorkspaceHandler(config);
 
         for (TargetAwareAbstractCollectionAdapter collectionAdapter : assembleFeeds(config.getFeed())) {
-            final WorkspaceHandler workspace = new WorkspaceHandler(config);
-            workspace.addCollectionAdapter(new StringBuilder()
-                    .append(config.getResource())
-                    .append(collectionAdapter
-                    .getTarget()).toString(), collectionAdapter);
+            workspace.addCollectionAdapter(collectionAdapter.getTarget(), collectionAdapter);
 
             LOG.info("Loading Workspace: " + collectionAdapter.getTarget());
-            workspaces.add(workspace);
         }
 
-        return workspaces;
+        return Collections.singletonList(workspace);
     }
 
     private List<TargetAwareAbstractCollectionAdapter> assembleFeeds(List<FeedConfiguration> feedServices) {
@@ -88,9 +97,7 @@ public class WorkspaceConfigProcessor {
         targetRegexGenerator.setWorkspace(workspaceName);
 
         // service
-        regexTargetResolver.setPattern(targetRegexGenerator.toWorkspacePattern(),
-                TargetType.TYPE_SERVICE,
-                TargetRegexBuilder.getWorkspaceResolverFieldList());
+        targetResolver.addWorkspace(targetRegexGenerator.getContextPath(), workspaceName);
 
         for (TargetAwareAbstractCollectionAdapter adapter : assembleFeedAdapters(targetRegexGenerator, feedServices)) {
             collections.add(adapter);
@@ -156,15 +163,24 @@ public class WorkspaceConfigProcessor {
             final FeedAdapter feedAdapter = new FeedAdapter(
                     feedTargetRegexBuilder.getFeedResource(), feed, feedSource, feedPublisher, adapterResponseInterceptorList);
 
-            // feed regex matching
-            regexTargetResolver.setPattern(feedTargetRegexBuilder.toFeedPattern(),
-                    TargetType.TYPE_COLLECTION,
-                    TargetRegexBuilder.getFeedResolverFieldList());
+            if (config.isEnableRegexFeeds()) {
+                // feed regex matching
+                targetResolver.setPattern(feedTargetRegexBuilder.toFeedPattern(),
+                        TargetType.TYPE_COLLECTION,
+                        TargetRegexBuilder.getFeedResolverFieldList());
+
+                // entry regex matching
+                targetResolver.setPattern(feedTargetRegexBuilder.toEntryPattern(),
+                        TargetType.TYPE_ENTRY,
+                        TargetRegexBuilder.getEntryResolverFieldList());
+            } else {
+                targetResolver.addFeed(workspaceTarget.getContextPath(), workspaceTarget.getWorkspaceResource(),
+                        feedTargetRegexBuilder.getFeedResource());
+            }
 
-            // entry regex matching
-            regexTargetResolver.setPattern(feedTargetRegexBuilder.toEntryPattern(),
-                    TargetType.TYPE_ENTRY,
-                    TargetRegexBuilder.getEntryResolverFieldList());
+            if (feed.getRetention() != null) {
+                registerRetention(feed, feedSource, feedPublisher);
+            }
 
             collections.add(feedAdapter);
         }
@@ -172,6 +188,49 @@ public class WorkspaceConfigProcessor {
         return collections;
     }
 
+    private void registerRetention(FeedConfiguration feed, FeedSource feedSource, FeedPublisher feedPublisher) {
+        final String feedName = StringUtils.strip(config.getResource(), "/") + "/" + StringUtils.strip(feed.getResource(), "/");
+
+        if (retentionEngine == null) {
+            LOG.warn("No retention engine, the retention policy of feed " + feedName + " is not enforced");
+            return;
+        }
+
+        retentionEngine.register(feedName, toRetentionPolicy(feed.getRetention()),
+                getRetentionEnforcer(feed, feedSource, feedPublisher));
+    }
+
+    /**
+     * The enforcer is the one referenced by the retention element, or else
+     * the feed's publisher or feed source, whichever implements it.
+     */
+    public RetentionEnforcer getRetentionEnforcer(FeedConfiguration feed, FeedSource feedSource, FeedPublisher feedPublisher) {
+        final RetentionEnforcer enforcer = getAdapter(feed.getRetention(), RetentionEnforcer.class);
+
+        if (enforcer != null) {
+            return enforcer;
+        } else if (feedPublisher instanceof RetentionEnforcer) {
+            return (RetentionEnforcer) feedPublisher;
+        } else if (feedSource instanceof RetentionEnforcer) {
+            return (RetentionEnforcer) feedSource;
+        }
+
+        LOG.error("Feed '" + feed.getTitle() + "' has a retention policy but no adapter that can enforce it.");
+        throw new ConfigurationException("Feed '" + feed.getTitle() + "' has a retention policy but no adapter that can enforce it.",
+                                         new RuntimeException());
+    }
+
+    public static RetentionPolicy toRetentionPolicy(FeedRetention retention) {
+        final long maxAgeInMillis = retention.getMaxAge() != null ? retention.getMaxAge().getTimeInMillis(new Date()) : 0;
+        final long maxEntries = retention.getMaxEntries() != null ? retention.getMaxEntries() : 0;
+
+        if (maxAgeInMillis <= 0 && maxEntries <= 0) {
+            throw new ConfigurationException("A retention policy needs a positive max-age or max-entries", new RuntimeException());
+        }
+
+        return new RetentionPolicy(Math.max(0, maxAgeInMillis), Math.max(0, maxEntries), retention.isDryRun());
+    }
+
     /**
      * From the feed configuration XML, sets the FeedSourced with the following:
      * <ul>
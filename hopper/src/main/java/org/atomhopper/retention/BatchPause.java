@@ -0,0 +1,29 @@
+package org.atomhopper.retention;
+
+/**
+ * The pause enforcers take between the batches of a purge, which leaves room
+ * for the feed's other traffic.
+ */
+public final class BatchPause {
+
+    private BatchPause() {
+    }
+
+    /**
+     * @return false when the thread was interrupted, in which case the purge
+     * stops after the batch it removed
+     */
+    public static boolean pause(long batchPauseInMillis) {
+        if (batchPauseInMillis <= 0) {
+            return true;
+        }
+
+        try {
+            Thread.sleep(batchPauseInMillis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.atomhopper.retention;
+
+/**
+ * Purges the entries a feed does not retain anymore, the way its storage
+ * removes them best. Adapters implement this next to their publisher.
+ */
+public interface RetentionEnforcer {
+
+    /**
+     * Purges the entries of the feed the policy does not retain. In dry run
+     * the entries are only counted and progress is not told.
+     *
+     * @return the number of entries purged, or that would have been in dry run
+     */
+    long enforce(String feedName, RetentionPolicy policy, RetentionProgress progress);
+}
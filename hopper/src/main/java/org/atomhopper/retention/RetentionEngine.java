@@ -0,0 +1,164 @@
+package org.atomhopper.retention;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.atomhopper.util.AtomHopperMetrics.registerGauge;
+import static org.atomhopper.util.AtomHopperMetrics.registry;
+
+/**
+ * Enforces the retention policies of the configured feeds every
+ * intervalInSeconds, on one background thread so purges never compete with
+ * each other for the database.
+ *
+ * A feed whose purge fails is logged and retried on the next run, the other
+ * feeds are not held up by it.
+ */
+public class RetentionEngine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetentionEngine.class);
+    private static final String DRY_RUN_MATCHES = "dry-run-matches";
+
+    private final List<FeedRetention> feeds = new CopyOnWriteArrayList<FeedRetention>();
+    private final Timer runs = registry().timer(name(RetentionEngine.class, "runs"));
+    private final Counter failures = registry().counter(name(RetentionEngine.class, "failures"));
+
+    private long intervalInSeconds = 300;
+    private ScheduledExecutorService scheduler;
+
+    public void setIntervalInSeconds(long intervalInSeconds) {
+        this.intervalInSeconds = intervalInSeconds;
+    }
+
+    public void register(String feedName, RetentionPolicy policy, RetentionEnforcer enforcer) {
+        LOG.info("Enforcing " + policy + " on feed " + feedName + " with " + enforcer.getClass().getName());
+
+        feeds.add(new FeedRetention(feedName, policy, enforcer));
+    }
+
+    public boolean hasFeeds() {
+        return !feeds.isEmpty();
+    }
+
+    public synchronized void start() {
+        if (scheduler != null || feeds.isEmpty()) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "atomhopper-retention");
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                runOnce();
+            }
+        }, intervalInSeconds, intervalInSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Also removes the dry-run-matches gauges, so an engine created after this
+     * one reports its own feeds.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+
+        for (FeedRetention feed : feeds) {
+            registry().remove(name(RetentionEngine.class, DRY_RUN_MATCHES, feed.feedName));
+        }
+    }
+
+    /**
+     * Enforces every feed's policy once.
+     *
+     * @return the number of entries purged, dry runs not included
+     */
+    public long runOnce() {
+        final Timer.Context context = runs.time();
+        long purged = 0;
+
+        try {
+            for (FeedRetention feed : feeds) {
+                purged += feed.enforce();
+            }
+        } finally {
+            context.stop();
+        }
+
+        return purged;
+    }
+
+    private final class FeedRetention implements RetentionProgress {
+
+        private final String feedName;
+        private final RetentionPolicy policy;
+        private final RetentionEnforcer enforcer;
+        private final Counter entriesPurged;
+        private final AtomicLong dryRunMatches = new AtomicLong();
+
+        private FeedRetention(String feedName, RetentionPolicy policy, RetentionEnforcer enforcer) {
+            this.feedName = feedName;
+            this.policy = policy;
+            this.enforcer = enforcer;
+
+            entriesPurged = registry().counter(name(RetentionEngine.class, "entries-purged", feedName));
+            registerGauge(name(RetentionEngine.class, DRY_RUN_MATCHES, feedName), new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    return dryRunMatches.get();
+                }
+            });
+        }
+
+        @Override
+        public void purged(long entries) {
+            entriesPurged.inc(entries);
+        }
+
+        private long enforce() {
+            try {
+                final long matched = enforcer.enforce(feedName, policy, this);
+
+                if (policy.isDryRun()) {
+                    dryRunMatches.set(matched);
+                    LOG.info("Retention dry run on feed " + feedName + " would purge " + matched + " entries");
+
+                    return 0;
+                }
+
+                if (matched > 0) {
+                    LOG.info("Purged " + matched + " entries from feed " + feedName);
+                }
+
+                return matched;
+            } catch (RuntimeException ex) {
+                failures.inc();
+                LOG.error("Unable to enforce the retention policy of feed " + feedName + ": " + ex.getMessage(), ex);
+
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.atomhopper.retention;
+
+import java.util.Date;
+
+/**
+ * How long a feed keeps its entries: entries older than maxAgeInMillis and
+ * entries that are not among the feed's maxEntries newest are purged. A limit
+ * of 0 does not apply.
+ */
+public class RetentionPolicy {
+
+    private final long maxAgeInMillis;
+    private final long maxEntries;
+    private final boolean dryRun;
+
+    public RetentionPolicy(long maxAgeInMillis, long maxEntries, boolean dryRun) {
+        if (maxAgeInMillis < 0 || maxEntries < 0) {
+            throw new IllegalArgumentException("Retention limits must not be negative");
+        }
+
+        this.maxAgeInMillis = maxAgeInMillis;
+        this.maxEntries = maxEntries;
+        this.dryRun = dryRun;
+    }
+
+    public long getMaxAgeInMillis() {
+        return maxAgeInMillis;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public boolean hasMaxAge() {
+        return maxAgeInMillis > 0;
+    }
+
+    public boolean hasMaxEntries() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * @return the date before which entries are purged, null without a max age
+     */
+    public Date getAgeCutoff(long now) {
+        return hasMaxAge() ? new Date(now - maxAgeInMillis) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionPolicy{maxAgeInMillis=" + maxAgeInMillis + ", maxEntries=" + maxEntries + ", dryRun=" + dryRun + "}";
+    }
+}
@@ -0,0 +1,10 @@
+package org.atomhopper.retention;
+
+/**
+ * Told about every batch a purge removes, so long purges show up before they
+ * finish.
+ */
+public interface RetentionProgress {
+
+    void purged(long entries);
+}
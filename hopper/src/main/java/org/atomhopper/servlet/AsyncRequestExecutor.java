@@ -0,0 +1,178 @@
+package org.atomhopper.servlet;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.atomhopper.util.AtomHopperMetrics.registerGauge;
+import static org.atomhopper.util.AtomHopperMetrics.registry;
+
+/**
+ * Hands requests over from the container's threads to a bounded pool of
+ * workers through the Servlet 3 AsyncContext, so requests waiting on slow
+ * adapters hold a worker rather than a container thread, and the container
+ * stays free to answer health checks and reject what it cannot take.
+ *
+ * Up to queueSize requests wait for the workers. Requests beyond that, and
+ * requests that waited longer than maxQueueWaitInMillis, are answered with a
+ * 503 and a Retry-After of retryAfterInSeconds right away.
+ *
+ * The async-queue-depth and async-active-workers gauges, the async-queue-wait
+ * timer, and the async-rejected and async-expired meters are kept.
+ */
+public class AsyncRequestExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncRequestExecutor.class);
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final String QUEUE_DEPTH = name(AsyncRequestExecutor.class, "async-queue-depth");
+    private static final String ACTIVE_WORKERS = name(AsyncRequestExecutor.class, "async-active-workers");
+
+    private final Timer queueWait = registry().timer(name(AsyncRequestExecutor.class, "async-queue-wait"));
+    private final Meter rejected = registry().meter(name(AsyncRequestExecutor.class, "async-rejected"));
+    private final Meter expired = registry().meter(name(AsyncRequestExecutor.class, "async-expired"));
+
+    private final ThreadPoolExecutor executor;
+    private final long maxQueueWaitInNanos;
+    private final int retryAfterInSeconds;
+
+    public AsyncRequestExecutor(int workers, int queueSize, long maxQueueWaitInMillis, int retryAfterInSeconds) {
+        if (workers < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("The async executor needs at least one worker and one queued request");
+        }
+
+        this.maxQueueWaitInNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitInMillis);
+        this.retryAfterInSeconds = retryAfterInSeconds;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "atomhopper-async-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+        executor.prestartAllCoreThreads();
+
+        registerGauge(QUEUE_DEPTH, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return executor.getQueue().size();
+            }
+        });
+
+        registerGauge(ACTIVE_WORKERS, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return executor.getActiveCount();
+            }
+        });
+    }
+
+    /**
+     * Something that handles a request on a worker thread.
+     */
+    public interface RequestHandler {
+
+        void handle(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException;
+    }
+
+    /**
+     * Starts the request's async processing and queues it for a worker, or
+     * answers it with a 503 when the queue is full. Returns right away.
+     */
+    public void dispatch(final HttpServletRequest request, final HttpServletResponse response, final RequestHandler handler) {
+        final AsyncContext asyncContext = request.startAsync(request, response);
+
+        // Queued requests are bounded by maxQueueWaitInMillis, running ones by the adapters
+        asyncContext.setTimeout(0);
+
+        submit(new QueuedRequest() {
+            @Override
+            public void process() {
+                try {
+                    handler.handle(request, response);
+                } catch (Exception ex) {
+                    LOG.error("Failed to process " + request.getMethod() + " " + request.getRequestURI(), ex);
+
+                    if (!response.isCommitted()) {
+                        response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    }
+                } finally {
+                    asyncContext.complete();
+                }
+            }
+
+            @Override
+            public void reject() {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader(RETRY_AFTER, String.valueOf(retryAfterInSeconds));
+                asyncContext.complete();
+            }
+        });
+    }
+
+    /**
+     * Processes the request on a worker, or rejects it when the queue is
+     * full or when it waited in the queue for longer than allowed.
+     */
+    void submit(final QueuedRequest queued) {
+        final long queuedAt = System.nanoTime();
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final long waitedInNanos = System.nanoTime() - queuedAt;
+                    queueWait.update(waitedInNanos, TimeUnit.NANOSECONDS);
+
+                    if (maxQueueWaitInNanos > 0 && waitedInNanos > maxQueueWaitInNanos) {
+                        expired.mark();
+                        queued.reject();
+                    } else {
+                        queued.process();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            rejected.mark();
+            queued.reject();
+        }
+    }
+
+    /**
+     * Also removes the async-queue-depth and async-active-workers gauges, so
+     * an executor created after this one reports its own workers.
+     */
+    public void shutdown() {
+        registry().remove(QUEUE_DEPTH);
+        registry().remove(ACTIVE_WORKERS);
+
+        executor.shutdown();
+    }
+
+    interface QueuedRequest {
+
+        void process();
+
+        void reject();
+    }
+}
@@ -6,7 +6,12 @@ package org.atomhopper.servlet;
 public enum ServletInitParameter {
     
     CONTEXT_ADAPTER_CLASS("context-adapter-class"),
-    CONFIGURATION_LOCATION("config-location");
+    CONFIGURATION_LOCATION("config-location"),
+    RETENTION_INTERVAL("retention-interval-seconds"),
+    ASYNC_WORKERS("async-workers"),
+    ASYNC_QUEUE_SIZE("async-queue-size"),
+    ASYNC_MAX_QUEUE_WAIT("async-max-queue-wait-millis"),
+    ASYNC_RETRY_AFTER("async-retry-after-seconds");
     
     private final String value;
     
@@ -0,0 +1,37 @@
+package org.atomhopper.util;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * The registry the servlet's own metrics are kept in, the retention,
+ * compression, async and bulkhead ones among them. The AtomHopperServlet
+ * reports it over JMX, under the org.atomhopper domain, while it is deployed.
+ */
+public final class AtomHopperMetrics {
+
+    public static final String REGISTRY_NAME = "atomhopper";
+    public static final String JMX_DOMAIN = "org.atomhopper";
+
+    private AtomHopperMetrics() {
+        throw new AssertionError();
+    }
+
+    public static MetricRegistry registry() {
+        return SharedMetricRegistries.getOrCreate(REGISTRY_NAME);
+    }
+
+    /**
+     * Registers the gauge in place of any gauge of the same name, which the
+     * registry would otherwise refuse. Gauges are removed by whoever
+     * registered them once what they measure is shut down.
+     */
+    public static <T> Gauge<T> registerGauge(String name, Gauge<T> gauge) {
+        final MetricRegistry registry = registry();
+
+        registry.remove(name);
+
+        return registry.register(name, gauge);
+    }
+}
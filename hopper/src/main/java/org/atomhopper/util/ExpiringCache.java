@@ -0,0 +1,111 @@
+package org.atomhopper.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Values served until ttlInMillis after they were put, a ttl of 0 or less
+ * disables caching. Values are handed to every caller as they are, so only
+ * immutable ones (ids, unmodifiable collections) belong in here.
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentMap<K, Expiring<V>> entries = new ConcurrentHashMap<K, Expiring<V>>();
+    private volatile long ttlInMillis;
+
+    public ExpiringCache(long ttlInMillis) {
+        this.ttlInMillis = ttlInMillis;
+    }
+
+    public long getTtlInMillis() {
+        return ttlInMillis;
+    }
+
+    public void setTtlInMillis(long ttlInMillis) {
+        this.ttlInMillis = ttlInMillis;
+    }
+
+    /**
+     * @return the cached value, or null when there is none or it has expired
+     */
+    public V get(K key) {
+        final Expiring<V> cached = entries.get(key);
+
+        if (cached == null) {
+            return null;
+        }
+
+        if (cached.isExpired()) {
+            entries.remove(key, cached);
+            return null;
+        }
+
+        return cached.value;
+    }
+
+    public void put(K key, V value) {
+        final long ttl = ttlInMillis;
+
+        if (ttl > 0) {
+            entries.put(key, new Expiring<V>(value, System.currentTimeMillis() + ttl));
+        }
+    }
+
+    /**
+     * Swaps the cached value for another one if it still is the expected one,
+     * keeping the time it expires at.
+     *
+     * @return false when the value has changed or expired since it was read
+     */
+    public boolean replace(K key, V expected, V value) {
+        final Expiring<V> cached = entries.get(key);
+
+        if (cached == null || cached.value != expected || cached.isExpired()) {
+            return false;
+        }
+
+        return entries.replace(key, cached, new Expiring<V>(value, cached.expiresAt));
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @return the number of cached values, expired ones not read since included
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return a view of the cached keys, removing one drops its value
+     */
+    public Set<K> keySet() {
+        return entries.keySet();
+    }
+
+    private static final class Expiring<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        private Expiring(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.atomhopper.util.id;
+
+/**
+ * Creates the ids publishers assign to entries that were posted without one
+ * (or whose id may not be overridden). Implementations must be thread safe; a
+ * publisher, and therefore a feed, may be configured with its own generator
+ * through its entryIdGenerator property, which defaults to
+ * {@link RandomUuidEntryIdGenerator}.
+ */
+public interface EntryIdGenerator {
+
+    /**
+     * @return a new, globally unique entry id including its URI scheme
+     */
+    String newEntryId();
+}
@@ -0,0 +1,17 @@
+package org.atomhopper.util.id;
+
+import java.util.UUID;
+
+/**
+ * Generates random (version 4) UUID URNs. This is the id format publishers
+ * have always used and remains their default.
+ */
+public class RandomUuidEntryIdGenerator implements EntryIdGenerator {
+
+    public static final String UUID_URI_SCHEME = "urn:uuid:";
+
+    @Override
+    public String newEntryId() {
+        return UUID_URI_SCHEME + UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,277 @@
+package org.atomhopper.util.id;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the entry ids recently published to each feed so publishers that
+ * allow clients to supply ids can avoid most of their duplicate lookups.
+ *
+ * Every feed has a time windowed bloom filter made of two generations; the
+ * current generation is retired once it is older than the window or holds
+ * the expected number of ids, so ids are remembered for one to two windows and
+ * memory stays bounded. Behind the bloom filter sits an exact LRU of the most
+ * recent ids.
+ *
+ * <ul>
+ *     <li>{@link Verdict#NEW} - the id was not published through this filter
+ *     within the window; the publisher can skip its lookup</li>
+ *     <li>{@link Verdict#DUPLICATE} - the id is in the exact LRU and was
+ *     definitely published before</li>
+ *     <li>{@link Verdict#UNKNOWN} - the bloom filter matched but the LRU did
+ *     not; the publisher has to look the id up</li>
+ * </ul>
+ *
+ * The filter only sees entries published through this node and window, so
+ * datastores must still reject duplicate ids themselves. Publishers rely on
+ * that for ids classified as NEW.
+ */
+public class RecentEntryIdFilter {
+
+    public enum Verdict {
+        NEW, DUPLICATE, UNKNOWN
+    }
+
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+    private final ConcurrentMap<String, FeedWindow> feedWindows = new ConcurrentHashMap<String, FeedWindow>();
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong definiteMisses = new AtomicLong();
+    private final AtomicLong exactHits = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    private int expectedIdsPerWindow = 100000;
+    private double falsePositiveRate = 0.01;
+    private long windowInSeconds = 600;
+    private int recentIdCapacity = 10000;
+
+    public void setExpectedIdsPerWindow(int expectedIdsPerWindow) {
+        this.expectedIdsPerWindow = expectedIdsPerWindow;
+    }
+
+    public void setFalsePositiveRate(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public void setWindowInSeconds(long windowInSeconds) {
+        this.windowInSeconds = windowInSeconds;
+    }
+
+    public void setRecentIdCapacity(int recentIdCapacity) {
+        this.recentIdCapacity = recentIdCapacity;
+    }
+
+    public Verdict check(String feedName, String entryId) {
+        checks.incrementAndGet();
+
+        final Verdict verdict = windowFor(feedName).check(entryId);
+
+        if (verdict == Verdict.NEW) {
+            definiteMisses.incrementAndGet();
+        } else if (verdict == Verdict.DUPLICATE) {
+            exactHits.incrementAndGet();
+        }
+
+        return verdict;
+    }
+
+    /**
+     * Records an id once its entry has been stored.
+     */
+    public void record(String feedName, String entryId) {
+        if (windowFor(feedName).record(entryId)) {
+            falsePositives.incrementAndGet();
+        }
+    }
+
+    public long getChecks() {
+        return checks.get();
+    }
+
+    /**
+     * @return the number of checks that let the publisher skip its lookup
+     */
+    public long getDefiniteMisses() {
+        return definiteMisses.get();
+    }
+
+    /**
+     * @return the number of duplicates confirmed by the exact LRU
+     */
+    public long getExactHits() {
+        return exactHits.get();
+    }
+
+    /**
+     * @return the number of stored ids the bloom filter claimed to have seen
+     */
+    public long getFalsePositives() {
+        return falsePositives.get();
+    }
+
+    /**
+     * @return the observed share of new ids the bloom filter matched
+     */
+    public double getObservedFalsePositiveRate() {
+        final long newIds = definiteMisses.get() + falsePositives.get();
+
+        return newIds == 0 ? 0 : (double) falsePositives.get() / newIds;
+    }
+
+    /**
+     * @return the false positive rate the current generation of the feed's
+     * bloom filter is expected to have at its present fill
+     */
+    public double getEstimatedFalsePositiveRate(String feedName) {
+        final FeedWindow window = feedWindows.get(feedName);
+
+        return window == null ? 0 : window.estimatedFalsePositiveRate();
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private FeedWindow windowFor(String feedName) {
+        FeedWindow window = feedWindows.get(feedName);
+
+        if (window == null) {
+            final FeedWindow created = new FeedWindow();
+            window = feedWindows.putIfAbsent(feedName, created);
+
+            if (window == null) {
+                window = created;
+            }
+        }
+
+        return window;
+    }
+
+    private final class FeedWindow {
+
+        private final int bits;
+        private final int hashes;
+        private final Map<String, Boolean> recentIds;
+
+        private long[] current;
+        private long[] previous;
+        private int currentCount;
+        private long currentStartedAt;
+
+        private FeedWindow() {
+            final int expected = Math.max(1, expectedIdsPerWindow);
+            bits = Math.max(64, (int) Math.ceil(-expected * Math.log(falsePositiveRate) / LN2_SQUARED));
+            hashes = Math.max(1, (int) Math.round((double) bits / expected * Math.log(2)));
+
+            final int capacity = recentIdCapacity;
+            recentIds = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > capacity;
+                }
+            };
+
+            current = new long[(bits + 63) >>> 6];
+            previous = new long[current.length];
+            currentStartedAt = currentTimeMillis();
+        }
+
+        private synchronized Verdict check(String entryId) {
+            rotateIfNeeded();
+
+            if (!mightContain(current, entryId) && !mightContain(previous, entryId)) {
+                return Verdict.NEW;
+            }
+
+            return recentIds.containsKey(entryId) ? Verdict.DUPLICATE : Verdict.UNKNOWN;
+        }
+
+        /**
+         * @return true if the bloom filter already matched the id although it was new
+         */
+        private synchronized boolean record(String entryId) {
+            rotateIfNeeded();
+
+            final boolean falsePositive = !recentIds.containsKey(entryId)
+                    && (mightContain(current, entryId) || mightContain(previous, entryId));
+
+            add(current, entryId);
+            currentCount++;
+            recentIds.put(entryId, Boolean.TRUE);
+
+            return falsePositive;
+        }
+
+        private synchronized double estimatedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-(double) hashes * currentCount / bits), hashes);
+        }
+
+        private void rotateIfNeeded() {
+            final long now = currentTimeMillis();
+
+            if (now - currentStartedAt >= windowInSeconds * 1000 || currentCount >= expectedIdsPerWindow) {
+                final long[] retired = previous;
+                Arrays.fill(retired, 0L);
+
+                previous = current;
+                current = retired;
+                currentCount = 0;
+                currentStartedAt = now;
+            }
+        }
+
+        private void add(long[] filter, String entryId) {
+            final long hash = hash(entryId);
+            final int h1 = (int) hash;
+            final int h2 = (int) (hash >>> 32) | 1;
+
+            for (int i = 0; i < hashes; i++) {
+                final int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+                filter[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        private boolean mightContain(long[] filter, String entryId) {
+            final long hash = hash(entryId);
+            final int h1 = (int) hash;
+            final int h2 = (int) (hash >>> 32) | 1;
+
+            for (int i = 0; i < hashes; i++) {
+                final int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+
+                if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * 64-bit FNV-1a over the id's chars, finished with the 64-bit MurmurHash3
+         * finalizer. Its two halves are the double hashing's h1 and h2, so ids
+         * sharing a String.hashCode still probe different bits.
+         */
+        private long hash(String entryId) {
+            long h = 0xcbf29ce484222325L;
+
+            for (int i = 0; i < entryId.length(); i++) {
+                final char c = entryId.charAt(i);
+                h = (h ^ (c & 0xff)) * 0x100000001b3L;
+                h = (h ^ (c >>> 8)) * 0x100000001b3L;
+            }
+
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
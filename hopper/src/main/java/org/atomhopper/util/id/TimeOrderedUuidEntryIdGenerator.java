@@ -0,0 +1,95 @@
+package org.atomhopper.util.id;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates time ordered UUID URNs laid out as UUID version 7: the first 48
+ * bits hold the milliseconds since the epoch, followed by the version, a 12
+ * bit sequence and 62 random bits.
+ *
+ * Ids created close together share their leading characters, so inserts land
+ * on the right-most pages of the entry id indexes instead of all over them.
+ * Ids created by one thread are strictly increasing; within a millisecond the
+ * sequence is incremented and, should it overflow, borrowed from the next
+ * millisecond.
+ *
+ * Random bits come from a per thread generator seeded once from SecureRandom,
+ * so generating an id never contends with other threads the way
+ * {@link UUID#randomUUID()} does.
+ */
+public class TimeOrderedUuidEntryIdGenerator implements EntryIdGenerator {
+
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_RFC_4122 = 0x8000000000000000L;
+    private static final int SEQUENCE_MASK = 0xfff;
+    private static final long RANDOM_MASK = 0x3fffffffffffffffL;
+
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+
+    private final ThreadLocal<ThreadState> threadState = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState(new Random(SEED_SOURCE.nextLong()));
+        }
+    };
+
+    private final Clock clock;
+
+    public TimeOrderedUuidEntryIdGenerator() {
+        this(Clock.SYSTEM);
+    }
+
+    TimeOrderedUuidEntryIdGenerator(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String newEntryId() {
+        return RandomUuidEntryIdGenerator.UUID_URI_SCHEME + newUuid().toString();
+    }
+
+    public UUID newUuid() {
+        final ThreadState state = threadState.get();
+        final long now = clock.currentTimeMillis();
+
+        if (now > state.lastMillis) {
+            state.lastMillis = now;
+            // Start each millisecond at a random point in the lower half so a
+            // burst still has room to count upwards
+            state.sequence = state.random.nextInt(SEQUENCE_MASK >> 1);
+        } else if (++state.sequence > SEQUENCE_MASK) {
+            state.lastMillis++;
+            state.sequence = 0;
+        }
+
+        final long mostSigBits = (state.lastMillis << 16) | VERSION_7 | state.sequence;
+        final long leastSigBits = VARIANT_RFC_4122 | (state.random.nextLong() & RANDOM_MASK);
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    interface Clock {
+
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+        };
+
+        long currentTimeMillis();
+    }
+
+    private static final class ThreadState {
+
+        private final Random random;
+        private long lastMillis = Long.MIN_VALUE;
+        private int sequence;
+
+        private ThreadState(Random random) {
+            this.random = random;
+        }
+    }
+}
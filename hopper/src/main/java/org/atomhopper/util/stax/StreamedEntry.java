@@ -0,0 +1,70 @@
+package org.atomhopper.util.stax;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The fields of a posted entry that publishers need, collected while the entry
+ * is streamed, together with the serialized entry that should be stored.
+ */
+public class StreamedEntry {
+
+    private final List<String> categoryTerms;
+    private String entryId;
+    private Date updated;
+    private String selfLink;
+    private String entryBody;
+
+    public StreamedEntry() {
+        categoryTerms = new LinkedList<String>();
+    }
+
+    public String getEntryId() {
+        return entryId;
+    }
+
+    void setEntryId(String entryId) {
+        this.entryId = entryId;
+    }
+
+    /**
+     * @return the date sent in the entry's updated element, or null if the
+     * client did not send one
+     */
+    public Date getUpdated() {
+        return updated;
+    }
+
+    void setUpdated(Date updated) {
+        this.updated = updated;
+    }
+
+    public String getSelfLink() {
+        return selfLink;
+    }
+
+    void setSelfLink(String selfLink) {
+        this.selfLink = selfLink;
+    }
+
+    /**
+     * @return the category terms exactly as they were sent
+     */
+    public List<String> getCategoryTerms() {
+        return Collections.unmodifiableList(categoryTerms);
+    }
+
+    void addCategoryTerm(String term) {
+        categoryTerms.add(term);
+    }
+
+    public String getEntryBody() {
+        return entryBody;
+    }
+
+    void setEntryBody(String entryBody) {
+        this.entryBody = entryBody;
+    }
+}
@@ -0,0 +1,27 @@
+package org.atomhopper.util.stax;
+
+/**
+ * Supplies the values a publisher overrides while an entry is streamed through
+ * the {@link StreamingEntryProcessor}.
+ */
+public interface StreamedEntryPatcher {
+
+    /**
+     * Decides the id the stored entry will carry.
+     *
+     * @param suppliedId the trimmed text of the entry's id element, or null if
+     * the client did not send one
+     *
+     * @return the id to write into the stored entry
+     */
+    String resolveEntryId(String suppliedId);
+
+    /**
+     * Builds the self link that is injected when the client did not send one.
+     *
+     * @param entryId the id returned by {@link #resolveEntryId(String)}
+     *
+     * @return the href of the self link
+     */
+    String selfLinkFor(String entryId);
+}
@@ -0,0 +1,213 @@
+package org.atomhopper.util.stax;
+
+import org.apache.abdera.model.AtomDate;
+import org.atomhopper.adapter.request.adapter.impl.RequestParsingException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+/**
+ * Reads a posted ATOM entry in a single StAX pass and writes the representation
+ * a publisher stores, without building an Abdera document in between.
+ *
+ * While the entry is copied the processor records the id, updated date,
+ * category terms and self link of the entry. The id element is rewritten with
+ * the id chosen by the {@link StreamedEntryPatcher}; when the client sent no id
+ * or no self link, the missing elements are appended just before the closing
+ * entry tag. Every other event is copied as it was received.
+ *
+ * Instances are thread safe and meant to be shared.
+ */
+public class StreamingEntryProcessor {
+
+    private static final String ATOM_NS = "http://www.w3.org/2005/Atom";
+    private static final String ENTRY = "entry";
+    private static final String ID = "id";
+    private static final String UPDATED = "updated";
+    private static final String CATEGORY = "category";
+    private static final String LINK = "link";
+    private static final String LINKREL_SELF = "self";
+    private static final String IANA_LINKREL_SELF = "http://www.iana.org/assignments/relation/self";
+    private static final QName TERM = new QName("term");
+    private static final QName REL = new QName("rel");
+    private static final QName HREF = new QName("href");
+
+    private final XMLInputFactory inputFactory;
+    private final XMLOutputFactory outputFactory;
+    private final XMLEventFactory eventFactory;
+
+    public StreamingEntryProcessor() {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+
+        outputFactory = XMLOutputFactory.newInstance();
+        eventFactory = XMLEventFactory.newInstance();
+    }
+
+    public StreamedEntry process(InputStream entryStream, StreamedEntryPatcher patcher) {
+        final StringWriter body = new StringWriter();
+        XMLEventReader reader = null;
+        XMLEventWriter writer = null;
+
+        try {
+            reader = inputFactory.createXMLEventReader(entryStream);
+            writer = outputFactory.createXMLEventWriter(body);
+
+            final StreamedEntry streamedEntry = copy(reader, writer, patcher);
+            writer.flush();
+
+            streamedEntry.setEntryBody(body.toString());
+            return streamedEntry;
+        } catch (XMLStreamException xse) {
+            throw new RequestParsingException("Failed to read in ATOM Entry data. Reason: " + xse.getMessage(), xse);
+        } finally {
+            close(reader);
+            close(writer);
+        }
+    }
+
+    private StreamedEntry copy(XMLEventReader reader, XMLEventWriter writer, StreamedEntryPatcher patcher) throws XMLStreamException {
+        final StreamedEntry streamedEntry = new StreamedEntry();
+        String atomPrefix = "";
+        String capturing = null;
+        StringBuilder captured = null;
+        int depth = 0;
+
+        while (reader.hasNext()) {
+            final XMLEvent event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                final StartElement start = event.asStartElement();
+                depth++;
+
+                if (depth == 1) {
+                    if (!isAtom(start.getName(), ENTRY)) {
+                        throw new RequestParsingException("Expected an ATOM entry but found: " + start.getName());
+                    }
+
+                    atomPrefix = start.getName().getPrefix();
+                } else if (depth == 2 && ATOM_NS.equals(start.getName().getNamespaceURI())) {
+                    final String localName = start.getName().getLocalPart();
+
+                    if (ID.equals(localName) || UPDATED.equals(localName)) {
+                        capturing = localName;
+                        captured = new StringBuilder();
+                    } else if (CATEGORY.equals(localName)) {
+                        final Attribute term = start.getAttributeByName(TERM);
+
+                        if (term != null) {
+                            streamedEntry.addCategoryTerm(term.getValue());
+                        }
+                    } else if (LINK.equals(localName) && isSelfLink(start)) {
+                        final Attribute href = start.getAttributeByName(HREF);
+                        streamedEntry.setSelfLink(href != null ? href.getValue() : "");
+                    }
+                }
+
+                // The id element is written once its value has been resolved
+                if (!ID.equals(capturing)) {
+                    writer.add(event);
+                }
+            } else if (event.isEndElement()) {
+                if (depth == 2 && capturing != null) {
+                    final String value = captured.toString().trim();
+
+                    if (ID.equals(capturing)) {
+                        streamedEntry.setEntryId(patcher.resolveEntryId(value.length() > 0 ? value : null));
+                        writeTextElement(writer, atomPrefix, ID, streamedEntry.getEntryId());
+
+                        capturing = null;
+                        depth--;
+                        continue;
+                    }
+
+                    streamedEntry.setUpdated(AtomDate.parse(value));
+                    capturing = null;
+                } else if (depth == 1) {
+                    appendMissingElements(writer, atomPrefix, streamedEntry, patcher);
+                }
+
+                depth--;
+
+                if (!ID.equals(capturing)) {
+                    writer.add(event);
+                }
+            } else if (event.isCharacters() && capturing != null) {
+                captured.append(event.asCharacters().getData());
+
+                if (!ID.equals(capturing)) {
+                    writer.add(event);
+                }
+            } else if (!ID.equals(capturing)) {
+                writer.add(event);
+            }
+        }
+
+        return streamedEntry;
+    }
+
+    private void appendMissingElements(XMLEventWriter writer, String atomPrefix, StreamedEntry streamedEntry, StreamedEntryPatcher patcher) throws XMLStreamException {
+        if (streamedEntry.getEntryId() == null) {
+            streamedEntry.setEntryId(patcher.resolveEntryId(null));
+            writeTextElement(writer, atomPrefix, ID, streamedEntry.getEntryId());
+        }
+
+        if (streamedEntry.getSelfLink() == null) {
+            streamedEntry.setSelfLink(patcher.selfLinkFor(streamedEntry.getEntryId()));
+
+            writer.add(eventFactory.createStartElement(atomPrefix, ATOM_NS, LINK, Arrays.asList(
+                    eventFactory.createAttribute(HREF, streamedEntry.getSelfLink()),
+                    eventFactory.createAttribute(REL, LINKREL_SELF)).iterator(), null));
+            writer.add(eventFactory.createEndElement(atomPrefix, ATOM_NS, LINK));
+        }
+    }
+
+    private void writeTextElement(XMLEventWriter writer, String prefix, String localName, String text) throws XMLStreamException {
+        writer.add(eventFactory.createStartElement(prefix, ATOM_NS, localName));
+        writer.add(eventFactory.createCharacters(text));
+        writer.add(eventFactory.createEndElement(prefix, ATOM_NS, localName));
+    }
+
+    private static boolean isAtom(QName name, String localName) {
+        return ATOM_NS.equals(name.getNamespaceURI()) && localName.equals(name.getLocalPart());
+    }
+
+    private static boolean isSelfLink(StartElement link) {
+        final Attribute rel = link.getAttributeByName(REL);
+
+        return rel != null && (LINKREL_SELF.equalsIgnoreCase(rel.getValue()) || IANA_LINKREL_SELF.equalsIgnoreCase(rel.getValue()));
+    }
+
+    private static void close(XMLEventReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+
+    private static void close(XMLEventWriter writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (XMLStreamException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+}
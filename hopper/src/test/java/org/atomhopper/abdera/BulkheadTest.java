@@ -0,0 +1,159 @@
+package org.atomhopper.abdera;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.Target;
+import org.atomhopper.util.AtomHopperMetrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class BulkheadTest {
+
+    public static class WhenEnteringABulkhead {
+
+        @Test
+        public void shouldLetMaxConcurrentRequestsThrough() throws Exception {
+            final Bulkhead bulkhead = new Bulkhead("concurrent", 2, 0, 0);
+
+            assertTrue(bulkhead.tryEnter());
+            assertTrue(bulkhead.tryEnter());
+            assertFalse(bulkhead.tryEnter());
+            assertEquals(2, bulkhead.getActive());
+
+            bulkhead.leave();
+
+            assertTrue(bulkhead.tryEnter());
+        }
+
+        @Test
+        public void shouldTurnAwayRequestsThatWaitedTooLong() throws Exception {
+            final Bulkhead bulkhead = new Bulkhead("waited", 1, 1, 10);
+
+            assertTrue(bulkhead.tryEnter());
+            assertFalse(bulkhead.tryEnter());
+            assertEquals(0, bulkhead.getQueued());
+        }
+
+        @Test
+        public void shouldLetQueuedRequestsThroughOnceOthersLeave() throws Exception {
+            final Bulkhead bulkhead = new Bulkhead("queued", 1, 1, 5000);
+            final CountDownLatch entered = new CountDownLatch(1);
+            final AtomicBoolean queuedEntered = new AtomicBoolean();
+
+            assertTrue(bulkhead.tryEnter());
+
+            final Thread queued = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    queuedEntered.set(bulkhead.tryEnter());
+                    entered.countDown();
+                }
+            });
+            queued.start();
+
+            while (bulkhead.getQueued() == 0) {
+                Thread.sleep(1);
+            }
+
+            // The queue is full, so this one is turned away right away
+            assertFalse(bulkhead.tryEnter());
+
+            bulkhead.leave();
+
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            assertTrue(queuedEntered.get());
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void shouldLetAtLeastOneRequestThrough() throws Exception {
+            new Bulkhead("none", 0, 0, 0);
+        }
+    }
+
+    public static class WhenSelectingABulkhead {
+
+        private Bulkheads bulkheads;
+        private Bulkhead publishing;
+        private Bulkhead hotFeedReads;
+        private Bulkhead reads;
+
+        @Before
+        public void setUp() throws Exception {
+            publishing = new Bulkhead("select-publishing", 1, 0, 0);
+            hotFeedReads = new Bulkhead("select-hot-feed-reads", 1, 0, 0);
+            reads = new Bulkhead("select-reads", 1, 0, 0);
+
+            bulkheads = new Bulkheads();
+            bulkheads.add(null, Arrays.asList("POST", "put"), publishing);
+            bulkheads.add("namespace/hot.*", Collections.singletonList("GET"), hotFeedReads);
+            bulkheads.add(null, Collections.singletonList("GET"), reads);
+        }
+
+        @Test
+        public void shouldSelectTheFirstBulkheadTakingTheRequest() throws Exception {
+            assertSame(publishing, bulkheads.select(request("POST", "namespace", "hot")));
+            assertSame(publishing, bulkheads.select(request("PUT", "namespace", "feed")));
+            assertSame(hotFeedReads, bulkheads.select(request("GET", "namespace", "hot-feed")));
+            assertSame(reads, bulkheads.select(request("GET", "namespace", "feed")));
+            assertSame(reads, bulkheads.select(request("get", "namespace", null)));
+        }
+
+        @Test
+        public void shouldMatchTheWholeFeedPath() throws Exception {
+            assertSame(reads, bulkheads.select(request("GET", "other/namespace", "hot")));
+        }
+
+        @Test
+        public void shouldNotSelectABulkheadForOtherRequests() throws Exception {
+            assertNull(bulkheads.select(request("DELETE", "namespace", "feed")));
+            assertNull(new Bulkheads().select(request("GET", "namespace", "feed")));
+        }
+
+        @Test
+        public void shouldRemoveTheGaugesOfEveryBulkheadOnShutdown() throws Exception {
+            final Map<String, Gauge> gauges = AtomHopperMetrics.registry().getGauges();
+            assertTrue(gauges.containsKey(MetricRegistry.name(Bulkhead.class, "select-publishing", "active")));
+
+            bulkheads.shutdown();
+
+            final Set<String> remaining = AtomHopperMetrics.registry().getGauges().keySet();
+            for (String bulkhead : Arrays.asList("select-publishing", "select-hot-feed-reads", "select-reads")) {
+                assertFalse(remaining.contains(MetricRegistry.name(Bulkhead.class, bulkhead, "active")));
+                assertFalse(remaining.contains(MetricRegistry.name(Bulkhead.class, bulkhead, "queued")));
+                assertFalse(remaining.contains(MetricRegistry.name(Bulkhead.class, bulkhead, "utilization")));
+            }
+        }
+    }
+
+    private static RequestContext request(String method, String workspace, String feed) {
+        final Target target = mock(Target.class);
+        when(target.getParameter(TargetResolverField.WORKSPACE.toString())).thenReturn(workspace);
+        when(target.getParameter(TargetResolverField.FEED.toString())).thenReturn(feed);
+
+        final RequestContext request = mock(RequestContext.class);
+        when(request.getTarget()).thenReturn(target);
+        when(request.getMethod()).thenReturn(method);
+
+        return request;
+    }
+}
@@ -0,0 +1,83 @@
+package org.atomhopper.abdera;
+
+import org.apache.abdera.protocol.Resolver;
+import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.Target;
+import org.apache.abdera.protocol.server.TargetType;
+import org.apache.abdera.protocol.server.impl.RegexTargetResolver;
+import org.atomhopper.util.TargetRegexBuilder;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Compares how long the regex and the trie target resolvers take to resolve a
+ * feed and an entry path, as the number of configured feeds grows. The paths
+ * resolved are those of the last feed configured.
+ */
+public class TargetResolverBenchmarkMain {
+
+    private static final int[] FEED_COUNTS = {10, 100, 800, 2000};
+    private static final int RESOLVES = 200000;
+
+    public static void main(String[] args) {
+        System.out.println(String.format("%8s %18s %18s", "feeds", "regex ns/resolve", "trie ns/resolve"));
+
+        for (int feeds : FEED_COUNTS) {
+            final RegexTargetResolver regexTargetResolver = new RegexTargetResolver();
+            final TrieTargetResolver trieTargetResolver = new TrieTargetResolver();
+
+            for (int feed = 0; feed < feeds; feed++) {
+                final TargetRegexBuilder builder = new TargetRegexBuilder();
+                builder.setContextPath("/atom");
+                builder.setWorkspace("namespace" + feed % 10);
+                builder.setFeed("feed" + feed);
+
+                regexTargetResolver.setPattern(builder.toWorkspacePattern(), TargetType.TYPE_SERVICE, TargetRegexBuilder.getWorkspaceResolverFieldList());
+                regexTargetResolver.setPattern(builder.toFeedPattern(), TargetType.TYPE_COLLECTION, TargetRegexBuilder.getFeedResolverFieldList());
+                regexTargetResolver.setPattern(builder.toEntryPattern(), TargetType.TYPE_ENTRY, TargetRegexBuilder.getEntryResolverFieldList());
+
+                trieTargetResolver.addWorkspace(builder.getContextPath(), builder.getWorkspaceResource());
+                trieTargetResolver.addFeed(builder.getContextPath(), builder.getWorkspaceResource(), builder.getFeedResource());
+            }
+
+            final String feedPath = "/atom/namespace" + (feeds - 1) % 10 + "/feed" + (feeds - 1) + "?limit=25";
+            final RequestContext[] requests = {request(feedPath), request(feedPath.replace("?", "/entries/urn:uuid:1?"))};
+
+            // Warm up
+            resolve(regexTargetResolver, requests, RESOLVES / 10);
+            resolve(trieTargetResolver, requests, RESOLVES / 10);
+
+            final int regexResolves = Math.max(1000, RESOLVES / Math.max(1, feeds / 10));
+            System.out.println(String.format("%8d %18d %18d", feeds,
+                    resolve(regexTargetResolver, requests, regexResolves),
+                    resolve(trieTargetResolver, requests, RESOLVES)));
+        }
+    }
+
+    private static long resolve(Resolver<Target> resolver, RequestContext[] requests, int resolves) {
+        final long begin = System.nanoTime();
+        int found = 0;
+
+        for (int i = 0; i < resolves; i++) {
+            found += resolver.resolve(requests[i % requests.length]) != null ? 1 : 0;
+        }
+
+        if (found != resolves) {
+            throw new IllegalStateException("Resolved " + found + " of " + resolves);
+        }
+
+        return (System.nanoTime() - begin) / resolves;
+    }
+
+    private static RequestContext request(final String path) {
+        return (RequestContext) Proxy.newProxyInstance(RequestContext.class.getClassLoader(), new Class[]{RequestContext.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return "getTargetPath".equals(method.getName()) ? path : null;
+                    }
+                });
+    }
+}
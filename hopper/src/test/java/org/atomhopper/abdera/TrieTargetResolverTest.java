@@ -0,0 +1,135 @@
+package org.atomhopper.abdera;
+
+import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.Target;
+import org.apache.abdera.protocol.server.TargetType;
+import org.apache.abdera.protocol.server.impl.RegexTargetResolver;
+import org.atomhopper.util.TargetRegexBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class TrieTargetResolverTest {
+
+    private static final String[] PATHS = {
+            "/namespace", "/namespace/", "/namespace?x=1", "/namespace/feed", "/namespace/feed/", "/namespace/feed?marker=1&limit=5",
+            "/namespace/feed/entries/urn:uuid:1", "/namespace/feed/entries/urn:uuid:1/", "/namespace/feed/entries/1?x=y",
+            "/atom/namespace/feed", "/atom/namespace/feed/entries/1", "/atom/namespace", "/namespace/other", "/namespace/feed/entries/",
+            "/namespace/feed/entries", "/namespace/feed/x/1", "/namespace/feed?", "/namespace/feed#top", "/other/feed", "/", "",
+            "/atom/", "/namespace//feed", "/namespace/feed/entries/1/2", "/nested/path/feed", "/nested/path/feed/entries/1"
+    };
+
+    public static class WhenResolvingLiteralPaths {
+
+        private TrieTargetResolver trieTargetResolver;
+        private RegexTargetResolver regexTargetResolver;
+
+        @Before
+        public void setUp() throws Exception {
+            trieTargetResolver = new TrieTargetResolver();
+            regexTargetResolver = new RegexTargetResolver();
+
+            addFeed("namespace", "feed");
+            addFeed("namespace", "second");
+            addFeed("nested", "path/feed");
+        }
+
+        @Test
+        public void shouldResolveLikeTheRegexPatterns() throws Exception {
+            for (String path : PATHS) {
+                final Target expected = regexTargetResolver.resolve(request(path));
+                final Target actual = trieTargetResolver.resolve(request(path));
+
+                if (expected == null) {
+                    assertNull("Should not resolve " + path, actual);
+                    continue;
+                }
+
+                assertNotNull("Should resolve " + path, actual);
+                assertEquals("Should resolve the type of " + path, expected.getType(), actual.getType());
+
+                for (TargetResolverField field : TargetResolverField.values()) {
+                    assertEquals("Should resolve the " + field + " of " + path,
+                            expected.getParameter(field.toString()), actual.getParameter(field.toString()));
+                }
+            }
+        }
+
+        @Test
+        public void shouldAnswerQueryParametersForOtherNames() throws Exception {
+            final RequestContext request = request("/namespace/feed?marker=1");
+            when(request.getParameter("marker")).thenReturn("1");
+
+            assertEquals("1", trieTargetResolver.resolve(request).getParameter("marker"));
+        }
+
+        @Test
+        public void shouldNotTreatFeedNamesAsPatterns() throws Exception {
+            addFeed("namespace", "feed.v1");
+
+            assertNull(trieTargetResolver.resolve(request("/namespace/feedXv1")));
+            assertEquals(TargetType.TYPE_COLLECTION, trieTargetResolver.resolve(request("/namespace/feed.v1")).getType());
+        }
+
+        private void addFeed(String workspace, String feed) {
+            final TargetRegexBuilder builder = new TargetRegexBuilder();
+            builder.setContextPath("/atom");
+            builder.setWorkspace(workspace);
+            builder.setFeed(feed);
+
+            regexTargetResolver.setPattern(builder.toWorkspacePattern(), TargetType.TYPE_SERVICE, TargetRegexBuilder.getWorkspaceResolverFieldList());
+            regexTargetResolver.setPattern(builder.toFeedPattern(), TargetType.TYPE_COLLECTION, TargetRegexBuilder.getFeedResolverFieldList());
+            regexTargetResolver.setPattern(builder.toEntryPattern(), TargetType.TYPE_ENTRY, TargetRegexBuilder.getEntryResolverFieldList());
+
+            trieTargetResolver.addWorkspace(builder.getContextPath(), workspace);
+            trieTargetResolver.addFeed(builder.getContextPath(), workspace, feed);
+        }
+    }
+
+    public static class WhenResolvingRegexFeeds {
+
+        private TrieTargetResolver trieTargetResolver;
+
+        @Before
+        public void setUp() throws Exception {
+            trieTargetResolver = new TrieTargetResolver();
+
+            final TargetRegexBuilder builder = new TargetRegexBuilder();
+            builder.setWorkspace("namespace");
+            builder.setFeed("feed[0-9]+");
+
+            trieTargetResolver.addWorkspace(builder.getContextPath(), "namespace");
+            trieTargetResolver.setPattern(builder.toFeedPattern(), TargetType.TYPE_COLLECTION, TargetRegexBuilder.getFeedResolverFieldList());
+            trieTargetResolver.addFeed(builder.getContextPath(), "namespace", "literal");
+        }
+
+        @Test
+        public void shouldFallBackToThePatterns() throws Exception {
+            final Target target = trieTargetResolver.resolve(request("/namespace/feed42"));
+
+            assertEquals(TargetType.TYPE_COLLECTION, target.getType());
+            assertEquals("feed42", target.getParameter(TargetResolverField.FEED.toString()));
+        }
+
+        @Test
+        public void shouldResolveLiteralPathsFirst() throws Exception {
+            assertEquals("literal", trieTargetResolver.resolve(request("/namespace/literal")).getParameter(TargetResolverField.FEED.toString()));
+            assertEquals(TargetType.TYPE_SERVICE, trieTargetResolver.resolve(request("/namespace")).getType());
+        }
+    }
+
+    private static RequestContext request(String path) {
+        final RequestContext request = mock(RequestContext.class);
+        when(request.getTargetPath()).thenReturn(path);
+
+        return request;
+    }
+}
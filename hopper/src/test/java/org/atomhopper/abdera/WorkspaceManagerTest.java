@@ -0,0 +1,112 @@
+package org.atomhopper.abdera;
+
+import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.Target;
+import org.atomhopper.config.v1_0.WorkspaceConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class WorkspaceManagerTest {
+
+    public static class WhenFindingLiteralFeeds {
+
+        private WorkspaceManager workspaceManager;
+        private TargetAwareAbstractCollectionAdapter feedAdapter, otherAdapter;
+
+        @Before
+        public void setUp() throws Exception {
+            feedAdapter = mock(TargetAwareAbstractCollectionAdapter.class);
+            otherAdapter = mock(TargetAwareAbstractCollectionAdapter.class);
+
+            final WorkspaceHandler namespace = new WorkspaceHandler(workspace("/namespace/", false));
+            namespace.addCollectionAdapter("feed", feedAdapter);
+
+            final WorkspaceHandler other = new WorkspaceHandler(workspace("other", false));
+            other.addCollectionAdapter("/feed/", otherAdapter);
+
+            workspaceManager = new WorkspaceManager();
+            workspaceManager.addWorkspaces(Arrays.asList(namespace, other));
+        }
+
+        @Test
+        public void shouldFindTheFeedOfTheWorkspace() throws Exception {
+            assertSame(feedAdapter, workspaceManager.getCollectionAdapter(request("namespace", "feed")));
+            assertSame(otherAdapter, workspaceManager.getCollectionAdapter(request("other", "feed")));
+        }
+
+        @Test
+        public void shouldNotFindUnknownFeedsOrWorkspaces() throws Exception {
+            assertNull(workspaceManager.getCollectionAdapter(request("namespace", "unknown")));
+            assertNull(workspaceManager.getCollectionAdapter(request("unknown", "feed")));
+            assertNull(workspaceManager.getCollectionAdapter(request("namespace", null)));
+        }
+
+        @Test
+        public void shouldNotTreatFeedNamesAsPatterns() throws Exception {
+            assertNull(workspaceManager.getCollectionAdapter(request("namespace", "f.ed")));
+        }
+    }
+
+    public static class WhenFindingRegexFeeds {
+
+        private WorkspaceManager workspaceManager;
+        private TargetAwareAbstractCollectionAdapter numberedAdapter, anyAdapter;
+
+        @Before
+        public void setUp() throws Exception {
+            numberedAdapter = mock(TargetAwareAbstractCollectionAdapter.class);
+            anyAdapter = mock(TargetAwareAbstractCollectionAdapter.class);
+
+            final WorkspaceHandler namespace = new WorkspaceHandler(workspace("namespace", true));
+            namespace.addCollectionAdapter("feed[0-9]+", numberedAdapter);
+            namespace.addCollectionAdapter("feed.*", anyAdapter);
+
+            workspaceManager = new WorkspaceManager();
+            workspaceManager.addWorkspaces(Arrays.asList(namespace));
+        }
+
+        @Test
+        public void shouldFindTheFirstPatternMatchingTheWholeFeedName() throws Exception {
+            assertSame(numberedAdapter, workspaceManager.getCollectionAdapter(request("namespace", "feed42")));
+            assertSame(anyAdapter, workspaceManager.getCollectionAdapter(request("namespace", "feed42x")));
+            assertNull(workspaceManager.getCollectionAdapter(request("namespace", "xfeed42")));
+        }
+
+        @Test
+        public void shouldAnswerTheSameAdapterOnceResolved() throws Exception {
+            for (int i = 0; i < WorkspaceHandler.MAX_RESOLVED_FEEDS * 2; i++) {
+                assertSame(numberedAdapter, workspaceManager.getCollectionAdapter(request("namespace", "feed" + i % 3)));
+                assertSame(anyAdapter, workspaceManager.getCollectionAdapter(request("namespace", "feed-" + i)));
+            }
+        }
+    }
+
+    private static WorkspaceConfiguration workspace(String resource, boolean enableRegexFeeds) {
+        final WorkspaceConfiguration workspace = new WorkspaceConfiguration();
+        workspace.setResource(resource);
+        workspace.setEnableRegexFeeds(enableRegexFeeds);
+
+        return workspace;
+    }
+
+    private static RequestContext request(String workspace, String feed) {
+        final Target target = mock(Target.class);
+        when(target.getParameter(TargetResolverField.WORKSPACE.toString())).thenReturn(workspace);
+        when(target.getParameter(TargetResolverField.FEED.toString())).thenReturn(feed);
+
+        final RequestContext request = mock(RequestContext.class);
+        when(request.getTarget()).thenReturn(target);
+
+        return request;
+    }
+}
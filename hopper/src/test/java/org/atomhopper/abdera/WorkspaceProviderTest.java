@@ -15,10 +15,13 @@ import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 import org.mockito.InOrder;
 
+import java.util.Collections;
 import java.util.HashMap;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
@@ -139,6 +142,69 @@ public class WorkspaceProviderTest {
         }
     }
 
+    public static class WhenProcessingRequestThroughABulkhead {
+
+        RequestContext requestContext;
+        RequestProcessor categoriesRequestProcessorMock;
+        Bulkhead bulkhead;
+
+        @Before
+        public void setup() {
+            workspaceProvider = new TestableWorkspaceProvider();
+            requestContext = requestContext(target(TargetType.TYPE_CATEGORIES));
+            categoriesRequestProcessorMock = mock(RequestProcessor.class);
+            bulkhead = new Bulkhead("provider-test", 1, 0, 0);
+
+            final Bulkheads bulkheads = new Bulkheads(7);
+            bulkheads.add(null, Collections.<String>emptyList(), bulkhead);
+            workspaceProvider.setBulkheads(bulkheads);
+
+            workspaceProvider.addRequestProcessors(new HashMap<TargetType, RequestProcessor>() {
+
+                {
+                    put(TargetType.TYPE_CATEGORIES, categoriesRequestProcessorMock);
+                }
+            });
+
+            final CollectionAdapter collectionAdapterMock = mock(CollectionAdapter.class);
+            when(workspaceProvider.getWorkspaceManager().getCollectionAdapter(requestContext)).thenReturn(collectionAdapterMock);
+        }
+
+        @Test
+        public void shouldReturn503WhenTheBulkheadIsFull() {
+            bulkhead.tryEnter();
+
+            ResponseContext responseContext = workspaceProvider.process(requestContext);
+
+            assertEquals("Should respond with 503 service unavailable", 503, responseContext.getStatus());
+            assertEquals("7", responseContext.getHeader("Retry-After"));
+            verify(categoriesRequestProcessorMock, never()).process(any(RequestContext.class), any(WorkspaceManager.class), any(CollectionAdapter.class));
+        }
+
+        @Test
+        public void shouldLeaveTheBulkheadOnceProcessed() {
+            when(categoriesRequestProcessorMock.process(any(RequestContext.class), any(WorkspaceManager.class), any(CollectionAdapter.class))).thenThrow(new RuntimeException());
+
+            workspaceProvider.process(requestContext);
+
+            assertEquals(0, bulkhead.getActive());
+        }
+
+        @Test
+        public void shouldLeaveTheBulkheadWhenTheTransactionFailsToEnd() {
+            final AbstractCollectionAdapter transactionalAdapterMock = mock(AbstractCollectionAdapter.class);
+            when(workspaceProvider.getWorkspaceManager().getCollectionAdapter(requestContext)).thenReturn(transactionalAdapterMock);
+            doThrow(new RuntimeException()).when(transactionalAdapterMock).end(any(RequestContext.class), any(ResponseContext.class));
+
+            try {
+                workspaceProvider.process(requestContext);
+                fail("Should pass on the failure to end the transaction");
+            } catch (RuntimeException expected) {
+                assertEquals(0, bulkhead.getActive());
+            }
+        }
+    }
+
     private static final RequestContext REQUEST_TARGET_ISNULL = requestContext(null);
     private static final RequestContext REQUEST_TARGET_TYPE_UNKNOWN = requestContext(target(TargetType.TYPE_NOT_FOUND));
     private static final RequestContext REQUEST_TARGET_TYPE_CATEGORIES = requestContext(target(TargetType.TYPE_CATEGORIES));
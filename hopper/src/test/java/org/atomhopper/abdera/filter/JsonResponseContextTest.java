@@ -0,0 +1,145 @@
+package org.atomhopper.abdera.filter;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.i18n.iri.IRI;
+import org.apache.abdera.model.Entry;
+import org.apache.abdera.model.Feed;
+import org.apache.abdera.protocol.server.Filter;
+import org.apache.abdera.protocol.server.FilterChain;
+import org.apache.abdera.protocol.server.Provider;
+import org.apache.abdera.protocol.server.ProviderHelper;
+import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.ResponseContext;
+import org.apache.abdera.protocol.server.context.EmptyResponseContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class JsonResponseContextTest {
+
+    private static final Abdera ABDERA = Abdera.getInstance();
+
+    public static class WhenWritingJson {
+
+        @Test
+        public void shouldWriteTheModelAsTheXmlWouldConvert() throws Exception {
+            final ResponseContext response = ProviderHelper.returnBase(feed(3), 200, new Date());
+
+            final String converted = write(new JsonResponseContext(response, null, ABDERA));
+            final String direct = write(new JsonResponseContext(response, feed(3), ABDERA));
+
+            assertTrue(converted.contains("urn:uuid:entry-2"));
+            assertEquals(converted, direct);
+        }
+
+        @Test
+        public void shouldAnswerJson() throws Exception {
+            final ResponseContext response = ProviderHelper.returnBase(feed(1), 200, new Date());
+
+            assertEquals(JsonResponseContext.JSON, new JsonResponseContext(response, null, ABDERA).getContentType().toString());
+        }
+    }
+
+    public static class WhenFilteringRequests {
+
+        private SelectiveURIJSONFilter filter;
+        private RequestContext request;
+        private Provider provider;
+
+        @Before
+        public void setUp() throws Exception {
+            filter = new SelectiveURIJSONFilter();
+            filter.setAllowedURIs(Arrays.asList("/namespace/feed"));
+
+            request = mock(RequestContext.class);
+            when(request.getAbdera()).thenReturn(ABDERA);
+            when(request.getUri()).thenReturn(new IRI("/namespace/feed/entries/1"));
+
+            provider = mock(Provider.class);
+            when(provider.getFilters(request)).thenReturn(new Filter[0]);
+        }
+
+        @Test
+        public void shouldAnswerJsonForFormatJson() throws Exception {
+            final ResponseContext response = ProviderHelper.returnBase(feed(1), 200, new Date());
+            when(request.getParameter("format")).thenReturn("json");
+            when(provider.process(request)).thenReturn(response);
+
+            assertEquals(JsonResponseContext.JSON, filter.filter(request, new FilterChain(provider, request)).getContentType().toString());
+        }
+
+        @Test
+        public void shouldAnswerXmlWhenJsonIsNotRequested() throws Exception {
+            final ResponseContext response = ProviderHelper.returnBase(feed(1), 200, new Date());
+            when(provider.process(request)).thenReturn(response);
+
+            assertSame(response, filter.filter(request, new FilterChain(provider, request)));
+        }
+
+        @Test
+        public void shouldLeaveResponsesWithoutBodiesAlone() throws Exception {
+            final ResponseContext response = new EmptyResponseContext(304);
+            when(request.getParameter("format")).thenReturn("json");
+            when(provider.process(request)).thenReturn(response);
+
+            assertSame(response, filter.filter(request, new FilterChain(provider, request)));
+        }
+
+        @Test
+        public void shouldRejectFormatJsonForOtherUris() throws Exception {
+            when(request.getUri()).thenReturn(new IRI("/namespace/other"));
+            when(request.getParameter("format")).thenReturn("json");
+
+            assertEquals(400, filter.filter(request, new FilterChain(provider, request)).getStatus());
+            verify(provider, never()).process(any(RequestContext.class));
+        }
+    }
+
+    static Feed feed(int entries) throws Exception {
+        final Feed feed = ABDERA.newFeed();
+        feed.setId("urn:uuid:feed");
+        feed.setTitle("namespace/feed");
+        feed.setUpdated(new Date(0));
+        feed.addLink("http://localhost/namespace/feed/", "current");
+        feed.addLink("http://localhost/namespace/feed/?marker=urn:uuid:entry-0&direction=backward", "next");
+
+        for (int i = 0; i < entries; i++) {
+            final String xml = "<atom:entry xmlns:atom=\"http://www.w3.org/2005/Atom\">"
+                    + "<atom:id>urn:uuid:entry-" + i + "</atom:id>"
+                    + "<atom:title type=\"text\">Entry " + i + "</atom:title>"
+                    + "<atom:category term=\"tid:" + i + "\"/>"
+                    + "<atom:link href=\"http://localhost/namespace/feed/entries/urn:uuid:entry-" + i + "\" rel=\"self\"/>"
+                    + "<atom:updated>2014-07-01T00:00:0" + i % 10 + ".000Z</atom:updated>"
+                    + "<atom:content type=\"application/xml\"><event xmlns=\"http://example.com/event\" id=\"" + i + "\">"
+                    + "<detail count=\"" + i + "\">\"quoted\" &amp; escaped</detail></event></atom:content>"
+                    + "</atom:entry>";
+
+            feed.addEntry((Entry) ABDERA.getParser().parse(new StringReader(xml)).getRoot());
+        }
+
+        return feed;
+    }
+
+    static String write(ResponseContext response) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.writeTo(out);
+
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,118 @@
+package org.atomhopper.abdera.filter;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.ext.json.JSONFilter;
+import org.apache.abdera.i18n.iri.IRI;
+import org.apache.abdera.model.Feed;
+import org.apache.abdera.protocol.server.Filter;
+import org.apache.abdera.protocol.server.FilterChain;
+import org.apache.abdera.protocol.server.Provider;
+import org.apache.abdera.protocol.server.ProviderHelper;
+import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.ResponseContext;
+
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Compares how long Abdera's JSONFilter, which writes the feed as XML, parses
+ * it back and converts it, and SelectiveURIJSONFilter, which writes the feed
+ * model as JSON directly, take to answer a page of 25 and of 1000 entries.
+ */
+public class JsonSerializationBenchmarkMain {
+
+    private static final int[] PAGE_SIZES = {25, 1000};
+    private static final int ENTRIES_WRITTEN = 500000;
+
+    public static void main(String[] args) throws Exception {
+        final SelectiveURIJSONFilter nativeFilter = new SelectiveURIJSONFilter();
+        nativeFilter.setAllowedURIs(Arrays.asList("/namespace/feed"));
+
+        System.out.println(String.format("%8s %18s %18s", "entries", "filter us/page", "native us/page"));
+
+        for (int pageSize : PAGE_SIZES) {
+            final Feed feed = JsonResponseContextTest.feed(pageSize);
+            final RequestContext request = request();
+            final int pages = Math.max(10, ENTRIES_WRITTEN / pageSize);
+
+            // Warm up
+            write(new JSONFilter(), request, feed, pages / 10);
+            write(nativeFilter, request, feed, pages / 10);
+
+            System.out.println(String.format("%8d %18d %18d", pageSize,
+                    write(new JSONFilter(), request, feed, pages),
+                    write(nativeFilter, request, feed, pages)));
+        }
+    }
+
+    private static long write(Filter filter, RequestContext request, Feed feed, int pages) throws Exception {
+        final Provider provider = provider(feed);
+        final CountingOutputStream out = new CountingOutputStream();
+        final long begin = System.nanoTime();
+
+        for (int i = 0; i < pages; i++) {
+            filter.filter(request, new FilterChain(provider, request)).writeTo(out);
+        }
+
+        if (out.count == 0) {
+            throw new IllegalStateException("Nothing written");
+        }
+
+        return (System.nanoTime() - begin) / pages / 1000;
+    }
+
+    private static Provider provider(final Feed feed) {
+        return (Provider) Proxy.newProxyInstance(Provider.class.getClassLoader(), new Class[]{Provider.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getFilters".equals(method.getName())) {
+                            return new Filter[0];
+                        } else if ("process".equals(method.getName())) {
+                            return ProviderHelper.returnBase(feed, 200, new Date());
+                        }
+
+                        return null;
+                    }
+                });
+    }
+
+    private static RequestContext request() {
+        final Abdera abdera = Abdera.getInstance();
+
+        return (RequestContext) Proxy.newProxyInstance(RequestContext.class.getClassLoader(), new Class[]{RequestContext.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                        if ("getParameter".equals(method.getName())) {
+                            return "format".equals(args[0]) ? "json" : null;
+                        } else if ("getAbdera".equals(method.getName())) {
+                            return abdera;
+                        } else if ("getUri".equals(method.getName())) {
+                            return new IRI("/namespace/feed/");
+                        }
+
+                        return null;
+                    }
+                });
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
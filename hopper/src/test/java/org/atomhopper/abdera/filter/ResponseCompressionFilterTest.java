@@ -0,0 +1,193 @@
+package org.atomhopper.abdera.filter;
+
+import org.apache.abdera.protocol.server.Filter;
+import org.apache.abdera.protocol.server.FilterChain;
+import org.apache.abdera.protocol.server.Provider;
+import org.apache.abdera.protocol.server.ProviderHelper;
+import org.apache.abdera.protocol.server.RequestContext;
+import org.apache.abdera.protocol.server.ResponseContext;
+import org.apache.abdera.protocol.server.Target;
+import org.apache.abdera.protocol.server.TargetType;
+import org.apache.abdera.util.EntityTag;
+import com.codahale.metrics.MetricRegistry;
+import org.atomhopper.abdera.filter.ResponseCompressionFilter.ContentEncoding;
+import org.atomhopper.util.AtomHopperMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class ResponseCompressionFilterTest {
+
+    public static class WhenNegotiatingTheEncoding {
+
+        @Test
+        public void shouldPreferGzip() throws Exception {
+            assertEquals(ContentEncoding.GZIP, ResponseCompressionFilter.negotiate("gzip, deflate"));
+            assertEquals(ContentEncoding.GZIP, ResponseCompressionFilter.negotiate("deflate, x-gzip"));
+            assertEquals(ContentEncoding.GZIP, ResponseCompressionFilter.negotiate("*"));
+        }
+
+        @Test
+        public void shouldHonorQualities() throws Exception {
+            assertEquals(ContentEncoding.DEFLATE, ResponseCompressionFilter.negotiate("gzip;q=0.5, deflate"));
+            assertEquals(ContentEncoding.DEFLATE, ResponseCompressionFilter.negotiate("gzip;q=0, *"));
+            assertNull(ResponseCompressionFilter.negotiate("gzip;q=0, deflate;q=0"));
+        }
+
+        @Test
+        public void shouldNotCompressForOtherEncodings() throws Exception {
+            assertNull(ResponseCompressionFilter.negotiate(null));
+            assertNull(ResponseCompressionFilter.negotiate("identity"));
+            assertNull(ResponseCompressionFilter.negotiate("br"));
+        }
+    }
+
+    public static class WhenCompressingResponses {
+
+        private ResponseCompressionFilter filter;
+        private RequestContext request;
+        private Provider provider;
+        private Target target;
+
+        @Before
+        public void setUp() throws Exception {
+            filter = new ResponseCompressionFilter(Deflater.BEST_SPEED, 1);
+
+            target = mock(Target.class);
+            when(target.getType()).thenReturn(TargetType.TYPE_COLLECTION);
+
+            request = mock(RequestContext.class);
+            when(request.getTarget()).thenReturn(target);
+
+            provider = mock(Provider.class);
+            when(provider.getFilters(request)).thenReturn(new Filter[0]);
+        }
+
+        @After
+        public void tearDown() throws Exception {
+            filter.shutdown();
+        }
+
+        @Test
+        public void shouldRemoveItsGaugesOnShutdown() throws Exception {
+            final String idleDeflaters = MetricRegistry.name(ResponseCompressionFilter.class, "idle-deflaters", "gzip");
+            assertTrue(AtomHopperMetrics.registry().getGauges().containsKey(idleDeflaters));
+
+            filter.shutdown();
+
+            assertFalse(AtomHopperMetrics.registry().getGauges().containsKey(idleDeflaters));
+        }
+
+        @Test
+        public void shouldGzipTheResponse() throws Exception {
+            when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+            final String uncompressed = write(response());
+
+            final ResponseContext compressed = filter.filter(request, new FilterChain(provider, request));
+
+            assertEquals("gzip", compressed.getHeader("Content-Encoding"));
+            assertEquals("Accept-Encoding", compressed.getHeader("Vary"));
+            assertEquals(uncompressed, read(new GZIPInputStream(new ByteArrayInputStream(bytes(compressed)))));
+        }
+
+        @Test
+        public void shouldDeflateTheResponse() throws Exception {
+            when(request.getHeader("Accept-Encoding")).thenReturn("deflate");
+            final String uncompressed = write(response());
+
+            final ResponseContext compressed = filter.filter(request, new FilterChain(provider, request));
+
+            assertEquals("deflate", compressed.getHeader("Content-Encoding"));
+            assertEquals(uncompressed, read(new InflaterInputStream(new ByteArrayInputStream(bytes(compressed)))));
+        }
+
+        @Test
+        public void shouldReuseTheDeflaters() throws Exception {
+            when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+            final String uncompressed = write(response());
+
+            for (int i = 0; i < 3; i++) {
+                response();
+                assertEquals(uncompressed, read(new GZIPInputStream(new ByteArrayInputStream(
+                        bytes(filter.filter(request, new FilterChain(provider, request)))))));
+            }
+        }
+
+        @Test
+        public void shouldWeakenTheEntityTag() throws Exception {
+            when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+            response().setEntityTag(new EntityTag("tag"));
+
+            final ResponseContext compressed = filter.filter(request, new FilterChain(provider, request));
+
+            assertTrue(compressed.getEntityTag().isWeak());
+            assertEquals("tag", compressed.getEntityTag().getTag());
+        }
+
+        @Test
+        public void shouldNotCompressWithoutAcceptEncoding() throws Exception {
+            final ResponseContext response = response();
+
+            assertSame(response, filter.filter(request, new FilterChain(provider, request)));
+            assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        }
+
+        @Test
+        public void shouldNotCompressOtherTargets() throws Exception {
+            when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+            when(target.getType()).thenReturn(TargetType.TYPE_SERVICE);
+            final ResponseContext response = response();
+
+            assertSame(response, filter.filter(request, new FilterChain(provider, request)));
+        }
+
+        private ResponseContext response() throws Exception {
+            final ResponseContext response = ProviderHelper.returnBase(JsonResponseContextTest.feed(20), 200, new Date());
+            when(provider.process(request)).thenReturn(response);
+
+            return response;
+        }
+    }
+
+    private static String write(ResponseContext response) throws Exception {
+        return new String(bytes(response), "UTF-8");
+    }
+
+    private static byte[] bytes(ResponseContext response) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.writeTo(out);
+
+        return out.toByteArray();
+    }
+
+    private static String read(InputStream in) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+
+        return new String(out.toByteArray(), "UTF-8");
+    }
+}
@@ -8,7 +8,11 @@ import org.atomhopper.adapter.request.adapter.GetEntryRequest;
 import org.atomhopper.adapter.request.adapter.GetFeedRequest;
 import org.atomhopper.config.v1_0.Configuration;
 import org.atomhopper.config.v1_0.FeedConfiguration;
+import org.atomhopper.config.v1_0.FeedRetention;
 import org.atomhopper.response.AdapterResponse;
+import org.atomhopper.retention.RetentionEnforcer;
+import org.atomhopper.retention.RetentionPolicy;
+import org.atomhopper.retention.RetentionProgress;
 import org.atomhopper.util.config.ConfigurationParser;
 import org.atomhopper.util.config.jaxb.JAXBConfigurationParser;
 import org.atomhopper.util.config.resource.ConfigurationResource;
@@ -18,11 +22,16 @@ import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import javax.xml.datatype.DatatypeFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Map;
 
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
 @RunWith( Enclosed.class )
 public class WorkspaceConfigProcessorTest {
 
@@ -112,6 +121,53 @@ public class WorkspaceConfigProcessorTest {
         }
     }
 
+    public static class RetentionSettings {
+
+        private FeedConfiguration configFeed;
+        private WorkspaceConfigProcessor workspaceConfigProcessor;
+
+        @Before
+        public void setUp() throws Exception {
+            final FeedRetention retention = new FeedRetention();
+            retention.setMaxAge(DatatypeFactory.newInstance().newDuration("P1D"));
+            retention.setMaxEntries(1000L);
+            retention.setDryRun(true);
+
+            configFeed = new FeedConfiguration();
+            configFeed.setTitle("Testing Feed");
+            configFeed.setResource("/feed/");
+            configFeed.setRetention(retention);
+
+            workspaceConfigProcessor = new WorkspaceConfigProcessor(null, null, null, null, null);
+        }
+
+        @Test
+        public void readsRetentionPolicy() throws Exception {
+            final RetentionPolicy policy = WorkspaceConfigProcessor.toRetentionPolicy(configFeed.getRetention());
+
+            assertEquals(24L * 60 * 60 * 1000, policy.getMaxAgeInMillis());
+            assertEquals(1000, policy.getMaxEntries());
+            assertTrue(policy.isDryRun());
+        }
+
+        @Test
+        public void enforcesWithFeedSource() throws Exception {
+            final RetainingFeedSource feedSource = new RetainingFeedSource();
+
+            assertSame(feedSource, workspaceConfigProcessor.getRetentionEnforcer(configFeed, feedSource, null));
+        }
+
+        @Test( expected = ConfigurationException.class )
+        public void requiresAnEnforcer() throws Exception {
+            workspaceConfigProcessor.getRetentionEnforcer(configFeed, new NoOpFeedSource(), null);
+        }
+    }
+
+    static class RetainingFeedSource extends NoOpFeedSource implements RetentionEnforcer {
+        @Override
+        public long enforce( String feedName, RetentionPolicy policy, RetentionProgress progress ) { return 0; }
+    }
+
     static class NoOpFeedSource implements FeedSource {
         @Override
         public FeedInformation getFeedInformation() { return null;  }
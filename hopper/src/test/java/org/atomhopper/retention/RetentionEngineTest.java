@@ -0,0 +1,120 @@
+package org.atomhopper.retention;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.atomhopper.util.AtomHopperMetrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(Enclosed.class)
+public class RetentionEngineTest {
+
+    public static class WhenEnforcingRetentionPolicies {
+
+        private RetentionEngine retentionEngine;
+        private RetentionEnforcer enforcer;
+
+        @Before
+        public void setUp() throws Exception {
+            retentionEngine = new RetentionEngine();
+            enforcer = mock(RetentionEnforcer.class);
+        }
+
+        @Test
+        public void shouldEnforceEveryRegisteredFeed() throws Exception {
+            final RetentionPolicy policy = new RetentionPolicy(1000, 0, false);
+            when(enforcer.enforce(anyString(), any(RetentionPolicy.class), any(RetentionProgress.class))).thenReturn(3L);
+
+            retentionEngine.register("namespace/feed-a", policy, enforcer);
+            retentionEngine.register("namespace/feed-b", policy, enforcer);
+
+            assertEquals("Should sum the entries purged", 6, retentionEngine.runOnce());
+            verify(enforcer).enforce(eq("namespace/feed-a"), eq(policy), any(RetentionProgress.class));
+            verify(enforcer).enforce(eq("namespace/feed-b"), eq(policy), any(RetentionProgress.class));
+        }
+
+        @Test
+        public void shouldNotCountDryRunsAsPurged() throws Exception {
+            when(enforcer.enforce(anyString(), any(RetentionPolicy.class), any(RetentionProgress.class))).thenReturn(5L);
+
+            retentionEngine.register("namespace/dry", new RetentionPolicy(0, 10, true), enforcer);
+
+            assertEquals("Should purge nothing in dry run", 0, retentionEngine.runOnce());
+        }
+
+        @Test
+        public void shouldKeepEnforcingAfterAFeedFails() throws Exception {
+            final RetentionEnforcer failing = mock(RetentionEnforcer.class);
+            when(failing.enforce(anyString(), any(RetentionPolicy.class), any(RetentionProgress.class))).thenThrow(new RuntimeException("down"));
+            when(enforcer.enforce(anyString(), any(RetentionPolicy.class), any(RetentionProgress.class))).thenReturn(2L);
+
+            retentionEngine.register("namespace/failing", new RetentionPolicy(1000, 0, false), failing);
+            retentionEngine.register("namespace/working", new RetentionPolicy(1000, 0, false), enforcer);
+
+            assertEquals("Should purge the other feeds", 2, retentionEngine.runOnce());
+        }
+
+        @Test
+        public void shouldCountProgressPerFeed() throws Exception {
+            final Counter purged = AtomHopperMetrics.registry().counter(MetricRegistry.name(RetentionEngine.class, "entries-purged", "namespace/progress"));
+            final long before = purged.getCount();
+
+            retentionEngine.register("namespace/progress", new RetentionPolicy(1000, 0, false), new RetentionEnforcer() {
+                @Override
+                public long enforce(String feedName, RetentionPolicy policy, RetentionProgress progress) {
+                    progress.purged(4);
+                    progress.purged(1);
+                    return 5;
+                }
+            });
+
+            retentionEngine.runOnce();
+
+            assertEquals("Should count every batch", before + 5, purged.getCount());
+        }
+
+        @Test
+        public void shouldRemoveItsGaugesWhenStopped() throws Exception {
+            final String dryRunMatches = MetricRegistry.name(RetentionEngine.class, "dry-run-matches", "namespace/stopped");
+            retentionEngine.register("namespace/stopped", new RetentionPolicy(1000, 0, true), enforcer);
+            assertTrue(AtomHopperMetrics.registry().getGauges().containsKey(dryRunMatches));
+
+            retentionEngine.stop();
+
+            assertFalse(AtomHopperMetrics.registry().getGauges().containsKey(dryRunMatches));
+        }
+    }
+
+    public static class WhenComputingCutoffs {
+
+        @Test
+        public void shouldCutOffAtTheMaxAge() throws Exception {
+            assertEquals(new Date(9000), new RetentionPolicy(1000, 0, false).getAgeCutoff(10000));
+        }
+
+        @Test
+        public void shouldNotCutOffWithoutAMaxAge() throws Exception {
+            assertNull(new RetentionPolicy(0, 10, false).getAgeCutoff(10000));
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void shouldRejectNegativeLimits() throws Exception {
+            new RetentionPolicy(-1, 0, false);
+        }
+    }
+}
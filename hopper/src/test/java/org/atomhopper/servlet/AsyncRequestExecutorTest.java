@@ -0,0 +1,118 @@
+package org.atomhopper.servlet;
+
+import com.codahale.metrics.MetricRegistry;
+import org.atomhopper.util.AtomHopperMetrics;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@RunWith(Enclosed.class)
+public class AsyncRequestExecutorTest {
+
+    private static final int WAIT = 5000;
+
+    public static class WhenSubmittingRequests {
+
+        private AsyncRequestExecutor executor;
+        private CountDownLatch running = new CountDownLatch(1);
+        private CountDownLatch release = new CountDownLatch(1);
+
+        @After
+        public void tearDown() throws Exception {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        @Test
+        public void shouldProcessTheRequestOnAWorker() throws Exception {
+            executor = new AsyncRequestExecutor(1, 1, 0, 5);
+            final AsyncRequestExecutor.QueuedRequest queued = mock(AsyncRequestExecutor.QueuedRequest.class);
+
+            executor.submit(queued);
+
+            verify(queued, timeout(WAIT)).process();
+            verify(queued, never()).reject();
+        }
+
+        @Test
+        public void shouldRejectTheRequestWhenTheQueueIsFull() throws Exception {
+            executor = new AsyncRequestExecutor(1, 1, 0, 5);
+
+            executor.submit(blocking(running, release));
+            running.await(WAIT, TimeUnit.MILLISECONDS);
+            executor.submit(blocking(running, release));
+
+            final AsyncRequestExecutor.QueuedRequest rejected = mock(AsyncRequestExecutor.QueuedRequest.class);
+            executor.submit(rejected);
+
+            verify(rejected).reject();
+            verify(rejected, never()).process();
+        }
+
+        @Test
+        public void shouldRejectTheRequestWhenItWaitedTooLong() throws Exception {
+            executor = new AsyncRequestExecutor(1, 1, 100, 5);
+            final AsyncRequestExecutor.QueuedRequest queued = mock(AsyncRequestExecutor.QueuedRequest.class);
+
+            executor.submit(blocking(running, release));
+            running.await(WAIT, TimeUnit.MILLISECONDS);
+            executor.submit(queued);
+
+            Thread.sleep(300);
+            release.countDown();
+
+            verify(queued, timeout(WAIT)).reject();
+            verify(queued, never()).process();
+        }
+
+        @Test
+        public void shouldRemoveItsGaugesOnShutdown() throws Exception {
+            executor = new AsyncRequestExecutor(1, 1, 0, 5);
+            final String queueDepth = MetricRegistry.name(AsyncRequestExecutor.class, "async-queue-depth");
+            assertTrue(AtomHopperMetrics.registry().getGauges().containsKey(queueDepth));
+
+            executor.shutdown();
+
+            assertFalse(AtomHopperMetrics.registry().getGauges().containsKey(queueDepth));
+            assertFalse(AtomHopperMetrics.registry().getGauges().containsKey(MetricRegistry.name(AsyncRequestExecutor.class, "async-active-workers")));
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void shouldNeedAWorker() throws Exception {
+            executor = new AsyncRequestExecutor(1, 1, 0, 5);
+            executor.shutdown();
+
+            new AsyncRequestExecutor(0, 1, 0, 5);
+        }
+    }
+
+    private static AsyncRequestExecutor.QueuedRequest blocking(final CountDownLatch running, final CountDownLatch release) {
+        return new AsyncRequestExecutor.QueuedRequest() {
+            @Override
+            public void process() {
+                running.countDown();
+
+                try {
+                    release.await(WAIT, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void reject() {
+            }
+        };
+    }
+}
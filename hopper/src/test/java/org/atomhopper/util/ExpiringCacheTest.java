@@ -0,0 +1,63 @@
+package org.atomhopper.util;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(Enclosed.class)
+public class ExpiringCacheTest {
+
+    public static class WhenCachingValues {
+
+        @Test
+        public void shouldServeValuesUntilTheyExpire() throws Exception {
+            final ExpiringCache<String, String> cache = new ExpiringCache<String, String>(60000);
+            cache.put("feed", "urn:uuid:feed");
+
+            assertEquals("urn:uuid:feed", cache.get("feed"));
+
+            cache.setTtlInMillis(1);
+            cache.put("feed", "urn:uuid:feed");
+            Thread.sleep(5);
+
+            assertNull(cache.get("feed"));
+            assertTrue(cache.isEmpty());
+        }
+
+        @Test
+        public void shouldNotCacheWithoutATtl() throws Exception {
+            final ExpiringCache<String, String> cache = new ExpiringCache<String, String>(0);
+            cache.put("feed", "urn:uuid:feed");
+
+            assertNull(cache.get("feed"));
+            assertEquals(0, cache.size());
+        }
+
+        @Test
+        public void shouldOnlyReplaceTheExpectedValue() throws Exception {
+            final ExpiringCache<String, String> cache = new ExpiringCache<String, String>(60000);
+            final String expected = new String("a");
+            cache.put("feed", expected);
+
+            assertFalse(cache.replace("feed", new String("a"), "b"));
+            assertTrue(cache.replace("feed", expected, "b"));
+            assertEquals("b", cache.get("feed"));
+            assertFalse(cache.replace("other", null, "b"));
+        }
+
+        @Test
+        public void shouldDropValuesRemovedFromTheKeySet() throws Exception {
+            final ExpiringCache<String, String> cache = new ExpiringCache<String, String>(60000);
+            cache.put("feed", "urn:uuid:feed");
+
+            cache.keySet().remove("feed");
+
+            assertNull(cache.get("feed"));
+        }
+    }
+}
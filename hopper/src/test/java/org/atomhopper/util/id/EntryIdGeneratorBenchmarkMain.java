@@ -0,0 +1,140 @@
+package org.atomhopper.util.id;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares random and time ordered entry ids: how many ids a number of
+ * threads can generate, and how fast rows keyed by them are inserted into a
+ * file backed H2 table with a unique entry id index, together with the size
+ * of the resulting database file.
+ */
+public class EntryIdGeneratorBenchmarkMain {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 500000;
+    private static final int ROWS = 300000;
+    private static final int BATCH_SIZE = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Class.forName("org.h2.Driver");
+
+        final EntryIdGenerator random = new RandomUuidEntryIdGenerator();
+        final EntryIdGenerator timeOrdered = new TimeOrderedUuidEntryIdGenerator();
+
+        // Warm up
+        generate(random, 100000);
+        generate(timeOrdered, 100000);
+
+        System.out.println(String.format("%-12s %16s %14s %12s", "generator", "ids/s (" + THREADS + " thr)", "inserts/s", "db size KB"));
+        report("random", random);
+        report("time-ordered", timeOrdered);
+    }
+
+    private static void report(String name, EntryIdGenerator generator) throws Exception {
+        final long idsPerSecond = generate(generator, IDS_PER_THREAD);
+        final File directory = new File(System.getProperty("java.io.tmpdir"), "entry-id-benchmark-" + name);
+        delete(directory);
+
+        final long insertsPerSecond = insert(generator, directory);
+
+        System.out.println(String.format("%-12s %16d %14d %12d", name, idsPerSecond, insertsPerSecond, size(directory) / 1024));
+        delete(directory);
+    }
+
+    private static long generate(final EntryIdGenerator generator, final int perThread) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicLong sink = new AtomicLong();
+
+        for (int t = 0; t < THREADS; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        long hash = 0;
+
+                        for (int i = 0; i < perThread; i++) {
+                            hash += generator.newEntryId().hashCode();
+                        }
+
+                        sink.addAndGet(hash);
+                    } catch (InterruptedException ignored) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        final long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+
+        return (long) THREADS * perThread * 1000000000L / (System.nanoTime() - begin);
+    }
+
+    private static long insert(EntryIdGenerator generator, File directory) throws SQLException {
+        final Connection connection = DriverManager.getConnection("jdbc:h2:" + new File(directory, "entries").getAbsolutePath(), "sa", "");
+
+        try {
+            final Statement statement = connection.createStatement();
+            statement.execute("CREATE TABLE entries (id BIGINT AUTO_INCREMENT PRIMARY KEY, entryid VARCHAR(64) NOT NULL UNIQUE, feed VARCHAR(64))");
+            statement.close();
+
+            connection.setAutoCommit(false);
+            final PreparedStatement insert = connection.prepareStatement("INSERT INTO entries (entryid, feed) VALUES (?, ?)");
+            final long begin = System.nanoTime();
+
+            for (int i = 1; i <= ROWS; i++) {
+                insert.setString(1, generator.newEntryId());
+                insert.setString(2, "namespace/feed");
+                insert.addBatch();
+
+                if (i % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+
+            final long elapsed = System.nanoTime() - begin;
+            insert.close();
+
+            return ROWS * 1000000000L / elapsed;
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static long size(File file) {
+        if (file.isDirectory()) {
+            long total = 0;
+
+            for (File child : file.listFiles()) {
+                total += size(child);
+            }
+
+            return total;
+        }
+
+        return file.length();
+    }
+
+    private static void delete(File file) {
+        if (file.isDirectory()) {
+            for (File child : file.listFiles()) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
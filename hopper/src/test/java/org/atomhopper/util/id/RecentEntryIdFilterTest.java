@@ -0,0 +1,106 @@
+package org.atomhopper.util.id;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(Enclosed.class)
+public class RecentEntryIdFilterTest {
+
+    public static class WhenCheckingEntryIds {
+
+        private static final String FEED = "namespace/feed";
+
+        private long[] time;
+        private RecentEntryIdFilter filter;
+
+        @Before
+        public void setup() {
+            time = new long[]{1000000L};
+            filter = new RecentEntryIdFilter() {
+                @Override
+                long currentTimeMillis() {
+                    return time[0];
+                }
+            };
+            filter.setExpectedIdsPerWindow(1000);
+            filter.setRecentIdCapacity(10);
+            filter.setWindowInSeconds(60);
+        }
+
+        @Test
+        public void shouldReportUnseenIdsAsNew() {
+            assertEquals(RecentEntryIdFilter.Verdict.NEW, filter.check(FEED, "urn:uuid:1"));
+            assertEquals(1, filter.getDefiniteMisses());
+        }
+
+        @Test
+        public void shouldConfirmRecentDuplicatesExactly() {
+            filter.record(FEED, "urn:uuid:1");
+
+            assertEquals(RecentEntryIdFilter.Verdict.DUPLICATE, filter.check(FEED, "urn:uuid:1"));
+            assertEquals(1, filter.getExactHits());
+        }
+
+        @Test
+        public void shouldKeepFeedsApart() {
+            filter.record(FEED, "urn:uuid:1");
+
+            assertEquals(RecentEntryIdFilter.Verdict.NEW, filter.check("namespace/other", "urn:uuid:1"));
+        }
+
+        @Test
+        public void shouldTellApartIdsSharingAHashCode() {
+            assertEquals("urn:uuid:Aa".hashCode(), "urn:uuid:BB".hashCode());
+
+            filter.record(FEED, "urn:uuid:Aa");
+
+            assertEquals(RecentEntryIdFilter.Verdict.NEW, filter.check(FEED, "urn:uuid:BB"));
+        }
+
+        @Test
+        public void shouldAskForALookupOnceAnIdLeavesTheLru() {
+            filter.record(FEED, "urn:uuid:0");
+
+            for (int i = 1; i <= 10; i++) {
+                filter.record(FEED, "urn:uuid:" + i);
+            }
+
+            assertEquals(RecentEntryIdFilter.Verdict.UNKNOWN, filter.check(FEED, "urn:uuid:0"));
+        }
+
+        @Test
+        public void shouldForgetIdsAfterTwoWindows() {
+            filter.record(FEED, "urn:uuid:1");
+
+            time[0] += 60000;
+            assertEquals(RecentEntryIdFilter.Verdict.DUPLICATE, filter.check(FEED, "urn:uuid:1"));
+
+            time[0] += 60000;
+            assertEquals(RecentEntryIdFilter.Verdict.NEW, filter.check(FEED, "urn:uuid:1"));
+        }
+
+        @Test
+        public void shouldStayNearTheConfiguredFalsePositiveRate() {
+            filter.setRecentIdCapacity(1);
+
+            for (int i = 0; i < 999; i++) {
+                filter.record(FEED, "urn:uuid:stored-" + i);
+            }
+
+            int matched = 0;
+            for (int i = 0; i < 10000; i++) {
+                if (filter.check(FEED, "urn:uuid:new-" + i) != RecentEntryIdFilter.Verdict.NEW) {
+                    matched++;
+                }
+            }
+
+            assertTrue("False positive rate was " + matched / 10000.0, matched < 300);
+            assertTrue(filter.getEstimatedFalsePositiveRate(FEED) < 0.02);
+        }
+    }
+}
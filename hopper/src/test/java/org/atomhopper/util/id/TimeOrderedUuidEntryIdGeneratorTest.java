@@ -0,0 +1,77 @@
+package org.atomhopper.util.id;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(Enclosed.class)
+public class TimeOrderedUuidEntryIdGeneratorTest {
+
+    public static class WhenGeneratingIds {
+
+        private static final long NOW = 1400000000000L;
+
+        private long[] time;
+        private TimeOrderedUuidEntryIdGenerator generator;
+
+        @Before
+        public void setup() {
+            time = new long[]{NOW};
+            generator = new TimeOrderedUuidEntryIdGenerator(new TimeOrderedUuidEntryIdGenerator.Clock() {
+                @Override
+                public long currentTimeMillis() {
+                    return time[0];
+                }
+            });
+        }
+
+        @Test
+        public void shouldCreateVersion7UuidUrns() {
+            final String entryId = generator.newEntryId();
+            final UUID uuid = UUID.fromString(entryId.substring("urn:uuid:".length()));
+
+            assertTrue("Should use the uuid URI scheme", entryId.startsWith("urn:uuid:"));
+            assertEquals("Should be version 7", 7, uuid.version());
+            assertEquals("Should use the RFC 4122 variant", 2, uuid.variant());
+        }
+
+        @Test
+        public void shouldStoreTheCreationTimeInTheLeadingBits() {
+            assertEquals(NOW, generator.newUuid().getMostSignificantBits() >>> 16);
+        }
+
+        @Test
+        public void shouldIncreaseWithinTheSameMillisecond() {
+            String previous = generator.newEntryId();
+
+            for (int i = 0; i < 10000; i++) {
+                final String next = generator.newEntryId();
+
+                assertTrue(next + " should sort after " + previous, next.compareTo(previous) > 0);
+                previous = next;
+            }
+        }
+
+        @Test
+        public void shouldIncreaseWhenTheClockMovesBackwards() {
+            final String first = generator.newEntryId();
+            time[0] = NOW - 5000;
+
+            assertTrue("Ids should not go backwards with the clock", generator.newEntryId().compareTo(first) > 0);
+        }
+
+        @Test
+        public void shouldSortByCreationTime() {
+            final String earlier = generator.newEntryId();
+            time[0] = NOW + 1;
+
+            assertTrue(generator.newEntryId().compareTo(earlier) > 0);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.atomhopper.util.stax;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.model.Document;
+import org.apache.abdera.model.Entry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.UUID;
+
+/**
+ * Compares the Abdera DOM ingestion path (parse, patch, writeTo) with the
+ * StAX streaming path for entries of roughly 2 KB, 20 KB and 200 KB.
+ */
+public class StreamingEntryProcessorBenchmarkMain {
+
+    private static final int[] ENTRY_SIZES = {2 * 1024, 20 * 1024, 200 * 1024};
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final int ITERATIONS = 5000;
+
+    public static void main(String[] args) throws IOException {
+        final StreamingEntryProcessor processor = new StreamingEntryProcessor();
+        final StreamedEntryPatcher patcher = new StreamedEntryPatcher() {
+
+            @Override
+            public String resolveEntryId(String suppliedId) {
+                return "urn:uuid:" + UUID.randomUUID().toString();
+            }
+
+            @Override
+            public String selfLinkFor(String entryId) {
+                return "http://localhost/namespace/feed/entries/" + entryId;
+            }
+        };
+
+        for (int size : ENTRY_SIZES) {
+            final byte[] entry = entryOfSize(size);
+            final int iterations = Math.max(100, ITERATIONS * 2048 / size);
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                domPath(entry);
+                processor.process(new ByteArrayInputStream(entry), patcher);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                domPath(entry);
+            }
+            final long domNanos = (System.nanoTime() - start) / iterations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                processor.process(new ByteArrayInputStream(entry), patcher);
+            }
+            final long streamNanos = (System.nanoTime() - start) / iterations;
+
+            System.out.println(String.format("%7d bytes: dom %8d us/entry, streaming %8d us/entry",
+                    entry.length, domNanos / 1000, streamNanos / 1000));
+        }
+    }
+
+    private static String domPath(byte[] entryBytes) throws IOException {
+        final Document<Entry> document = Abdera.getInstance().getParser().parse(new ByteArrayInputStream(entryBytes));
+        final Entry entry = document.getRoot();
+
+        entry.setId("urn:uuid:" + UUID.randomUUID().toString());
+        entry.getCategories();
+        if (entry.getSelfLink() == null) {
+            entry.addLink("http://localhost/namespace/feed/entries/" + entry.getId()).setRel("self");
+        }
+
+        final StringWriter writer = new StringWriter();
+        entry.writeTo(writer);
+        return writer.toString();
+    }
+
+    private static byte[] entryOfSize(int size) throws IOException {
+        final StringBuilder builder = new StringBuilder()
+                .append("<entry xmlns=\"http://www.w3.org/2005/Atom\">")
+                .append("<title>benchmark</title>")
+                .append("<updated>2013-02-17T09:05:11.000Z</updated>")
+                .append("<category term=\"tid:1234\"/><category term=\"type:benchmark\"/>")
+                .append("<content type=\"application/xml\"><event xmlns=\"http://example.com/event\">");
+
+        int index = 0;
+        while (builder.length() < size) {
+            builder.append("<attribute name=\"a").append(index).append("\" value=\"").append(index).append("\"/>");
+            index++;
+        }
+
+        builder.append("</event></content></entry>");
+        return builder.toString().getBytes("UTF-8");
+    }
+}
@@ -0,0 +1,134 @@
+package org.atomhopper.util.stax;
+
+import org.apache.abdera.Abdera;
+import org.apache.abdera.model.Document;
+import org.apache.abdera.model.Entry;
+import org.atomhopper.adapter.request.adapter.impl.RequestParsingException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(Enclosed.class)
+public class StreamingEntryProcessorTest {
+
+    public static class WhenStreamingEntries {
+
+        private static final String ENTRY_WITH_ID = "<entry xmlns=\"http://www.w3.org/2005/Atom\">"
+                + "<id> urn:uuid:supplied </id>"
+                + "<updated>2013-02-17T09:05:11.000Z</updated>"
+                + "<category term=\"Tid:1234\"/>"
+                + "<category term=\"type:event\"/>"
+                + "<source><id>urn:uuid:source</id><link rel=\"self\" href=\"http://source\"/></source>"
+                + "<content type=\"text\">testing</content>"
+                + "</entry>";
+
+        private static final String ENTRY_WITHOUT_ID = "<atom:entry xmlns:atom=\"http://www.w3.org/2005/Atom\">"
+                + "<atom:link rel=\"self\" href=\"http://example.com/self\"/>"
+                + "<atom:content type=\"text\">testing</atom:content>"
+                + "</atom:entry>";
+
+        private StreamingEntryProcessor processor;
+        private StreamedEntryPatcher patcher;
+
+        @Before
+        public void standUp() {
+            processor = new StreamingEntryProcessor();
+            patcher = new StreamedEntryPatcher() {
+
+                @Override
+                public String resolveEntryId(String suppliedId) {
+                    return suppliedId != null ? suppliedId : "urn:uuid:generated";
+                }
+
+                @Override
+                public String selfLinkFor(String entryId) {
+                    return "http://localhost/namespace/feed/entries/" + entryId;
+                }
+            };
+        }
+
+        @Test
+        public void shouldCollectTopLevelFields() {
+            final StreamedEntry streamedEntry = processor.process(stream(ENTRY_WITH_ID), patcher);
+
+            assertEquals("urn:uuid:supplied", streamedEntry.getEntryId());
+            assertEquals(2, streamedEntry.getCategoryTerms().size());
+            assertEquals("Tid:1234", streamedEntry.getCategoryTerms().get(0));
+            assertEquals(1361091911000L, streamedEntry.getUpdated().getTime());
+        }
+
+        @Test
+        public void shouldInjectSelfLinkWhenMissing() {
+            final StreamedEntry streamedEntry = processor.process(stream(ENTRY_WITH_ID), patcher);
+            final Entry stored = parse(streamedEntry.getEntryBody());
+
+            assertEquals("http://localhost/namespace/feed/entries/urn:uuid:supplied", streamedEntry.getSelfLink());
+            assertEquals(streamedEntry.getSelfLink(), stored.getSelfLink().getHref().toString());
+            assertEquals("urn:uuid:supplied", stored.getId().toString());
+            assertEquals("testing", stored.getContent());
+        }
+
+        @Test
+        public void shouldInjectGeneratedIdAndKeepSuppliedSelfLink() {
+            final StreamedEntry streamedEntry = processor.process(stream(ENTRY_WITHOUT_ID), patcher);
+            final Entry stored = parse(streamedEntry.getEntryBody());
+
+            assertEquals("urn:uuid:generated", stored.getId().toString());
+            assertEquals("http://example.com/self", stored.getSelfLink().getHref().toString());
+            assertEquals(1, stored.getLinks().size());
+            assertNull(streamedEntry.getUpdated());
+        }
+
+        @Test
+        public void shouldReplaceSuppliedIdWhenPatcherOverridesIt() {
+            final StreamedEntry streamedEntry = processor.process(stream(ENTRY_WITH_ID), new StreamedEntryPatcher() {
+
+                @Override
+                public String resolveEntryId(String suppliedId) {
+                    return "urn:uuid:generated";
+                }
+
+                @Override
+                public String selfLinkFor(String entryId) {
+                    return entryId;
+                }
+            });
+
+            assertEquals("urn:uuid:generated", parse(streamedEntry.getEntryBody()).getId().toString());
+            assertTrue(!streamedEntry.getEntryBody().contains("urn:uuid:supplied"));
+            assertTrue(streamedEntry.getEntryBody().contains("urn:uuid:source"));
+        }
+
+        @Test(expected = RequestParsingException.class)
+        public void shouldRejectDocumentsThatAreNotEntries() {
+            processor.process(stream("<feed xmlns=\"http://www.w3.org/2005/Atom\"/>"), patcher);
+        }
+
+        @Test(expected = RequestParsingException.class)
+        public void shouldRejectMalformedXml() {
+            processor.process(stream("<entry xmlns=\"http://www.w3.org/2005/Atom\">"), patcher);
+        }
+
+        private static InputStream stream(String xml) {
+            try {
+                return new ByteArrayInputStream(xml.getBytes("UTF-8"));
+            } catch (java.io.UnsupportedEncodingException uee) {
+                throw new IllegalStateException(uee);
+            }
+        }
+
+        private static Entry parse(String xml) {
+            final Document<Entry> document = Abdera.getInstance().getParser().parse(new StringReader(xml));
+            return document.getRoot();
+        }
+    }
+}
@@ -14,6 +14,8 @@ public class AtomHopperJettyServerBuilder {
 
     private final int portNumber;
     private String configurationPathAndFile = "";
+    private int asyncWorkers;
+    private int asyncQueueSize;
 
     public AtomHopperJettyServerBuilder(int portNumber) {
         this.portNumber = portNumber;
@@ -24,6 +26,17 @@ public class AtomHopperJettyServerBuilder {
         this.configurationPathAndFile = configurationPathAndFile;    
     }    
 
+    /**
+     * Processes requests on asyncWorkers workers, with up to asyncQueueSize
+     * requests waiting for them, instead of on Jetty's threads.
+     */
+    public AtomHopperJettyServerBuilder withAsyncWorkers(int asyncWorkers, int asyncQueueSize) {
+        this.asyncWorkers = asyncWorkers;
+        this.asyncQueueSize = asyncQueueSize;
+
+        return this;
+    }
+
     private Server buildNewInstance() {
         final Server jettyServerReference = new Server(portNumber);
         final ServletContextHandler rootContext = buildRootContext(jettyServerReference);
@@ -36,6 +49,16 @@ public class AtomHopperJettyServerBuilder {
             atomHopServer.setInitParameter(ServletInitParameter.CONFIGURATION_LOCATION.toString(), configurationPathAndFile);
         }
 
+        atomHopServer.setAsyncSupported(true);
+
+        if (asyncWorkers > 0) {
+            atomHopServer.setInitParameter(ServletInitParameter.ASYNC_WORKERS.toString(), Integer.toString(asyncWorkers));
+
+            if (asyncQueueSize > 0) {
+                atomHopServer.setInitParameter(ServletInitParameter.ASYNC_QUEUE_SIZE.toString(), Integer.toString(asyncQueueSize));
+            }
+        }
+
         // If you want to use a different url pattern, try the following
         //atomHopServer.setInitParameter("atomhopper-url-pattern", "/mapping-example/");
         //rootContext.addServlet(atomHopServer, "/mapping-example/*");
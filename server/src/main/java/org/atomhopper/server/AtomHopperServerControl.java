@@ -25,12 +25,11 @@ public class AtomHopperServerControl {
     public void startAtomHopper() {
 
         try {
-            Server serverInstance;
-            if (commandLineArgs.configFile == null) {
-                serverInstance = new AtomHopperJettyServerBuilder(getPort()).newServer();
-            } else {
-                serverInstance = new AtomHopperJettyServerBuilder(getPort(), commandLineArgs.configFile).newServer();
-            }
+            final AtomHopperJettyServerBuilder builder = commandLineArgs.configFile == null
+                    ? new AtomHopperJettyServerBuilder(getPort())
+                    : new AtomHopperJettyServerBuilder(getPort(), commandLineArgs.configFile);
+
+            Server serverInstance = builder.withAsyncWorkers(commandLineArgs.asyncWorkers, commandLineArgs.asyncQueueSize).newServer();
             serverInstance.setStopAtShutdown(true);
             serverInstance.start();
             Thread monitor = new MonitorThread(serverInstance, getStopPort(), LOCALHOST_IP);
@@ -23,6 +23,14 @@ class CommandLineArguments {
             usage = "The location and name of the Atom Hopper configuration file")
     public String configFile;
 
+    @Option(name = "-w", aliases = {"--async-workers"},
+            usage = "Processes requests asynchronously on this many workers instead of on Jetty's threads (Default is synchronous processing)")
+    public Integer asyncWorkers = 0;
+
+    @Option(name = "-q", aliases = {"--async-queue-size"},
+            usage = "The number of requests waiting for the async workers past which requests are answered with a 503 (Default is 100)")
+    public Integer asyncQueueSize = 0;
+
     //Note: I recommend keeping this an argument to stay inline with what people expect from a daemon script
     @Argument(usage = "Action to take - start | stop", required = true)
     public String action = ACTION_START;